@@ -0,0 +1,259 @@
+package net.sf.samtools.tabix;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read a BGZF compressed file (i.e. created by 'bgzip')
+ *
+ * Each block is compressed independently, so compressed blocks are
+ * read ahead (in order) and decompressed in parallel (using 'numThreads'
+ * threads). Decompressed blocks are returned in the same order.
+ *
+ * Note: Use 'isBgzf()' to check that a stream is BGZF, otherwise use
+ * a GZIPInputStream (e.g. files created by 'gzip')
+ *
+ * @author pcingola
+ */
+public class BgzfInputStream extends InputStream {
+
+	public static final int DEFAULT_NUM_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+	public static final int MAX_PENDING_BLOCKS_PER_THREAD = 4;
+	public static final int GZIP_HEADER_SIZE = 12; // Fixed part of a gzip header (before 'extra' fields)
+	public static final int FEXTRA = 4; // Flag: Header has 'extra' fields
+
+	InputStream in;
+	byte block[] = new byte[0]; // Current (uncompressed) block
+	int blockPos; // Position within current block
+	boolean eof; // No more blocks in 'in'
+	ExecutorService executor;
+	int maxPending;
+	LinkedList<Future<byte[]>> pending;
+
+	/**
+	 * Decompress a BGZF block
+	 * @return Uncompressed data
+	 */
+	public static byte[] decompressBlock(byte compressed[]) throws IOException {
+		int len = compressed.length;
+		int xlen = readShort(compressed, 10);
+		int dataStart = GZIP_HEADER_SIZE + xlen;
+		int dataLen = len - dataStart - BgzfOutputStream.BLOCK_FOOTER_SIZE;
+		int crcExpected = readInt(compressed, len - 8);
+		int uncompressedLen = readInt(compressed, len - 4);
+
+		byte data[] = new byte[uncompressedLen];
+		if (uncompressedLen == 0) return data;
+
+		// Decompress
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(compressed, dataStart, dataLen);
+			int n = inflater.inflate(data);
+			if (n != uncompressedLen) throw new IOException("Corrupted BGZF block: Expected " + uncompressedLen + " bytes, got " + n);
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupted BGZF block", e);
+		} finally {
+			inflater.end();
+		}
+
+		// Check CRC
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, uncompressedLen);
+		if ((int) crc.getValue() != crcExpected) throw new IOException("Corrupted BGZF block: CRC does not match");
+
+		return data;
+	}
+
+	/**
+	 * Is this a BGZF header? I.e. a gzip header having a 'BC' extra field
+	 */
+	public static boolean isBgzf(byte header[], int len) {
+		if (len < BgzfOutputStream.BLOCK_HEADER_SIZE) return false;
+		return ((header[0] & 0xff) == 31) //
+				&& ((header[1] & 0xff) == 139) //
+				&& ((header[2] & 0xff) == 8) // Compression method: Deflate
+				&& ((header[3] & FEXTRA) != 0) //
+				&& (readShort(header, 10) >= 6) // Extra fields length
+				&& (header[12] == 'B') //
+				&& (header[13] == 'C') //
+				&& (readShort(header, 14) == 2) //
+		;
+	}
+
+	/**
+	 * Is this stream BGZF compressed?
+	 * Note: The stream must support 'mark' (e.g. BufferedInputStream), it is reset after checking
+	 */
+	public static boolean isBgzf(InputStream in) throws IOException {
+		byte header[] = new byte[BgzfOutputStream.BLOCK_HEADER_SIZE];
+		in.mark(header.length);
+		try {
+			int len = readFully(in, header, 0, header.length);
+			return isBgzf(header, len);
+		} finally {
+			in.reset();
+		}
+	}
+
+	static int readFully(InputStream in, byte buf[], int off, int len) throws IOException {
+		int total = 0;
+		while (total < len) {
+			int n = in.read(buf, off + total, len - total);
+			if (n < 0) break;
+			total += n;
+		}
+		return total;
+	}
+
+	static int readInt(byte buf[], int pos) {
+		return readShort(buf, pos) | (readShort(buf, pos + 2) << 16);
+	}
+
+	static int readShort(byte buf[], int pos) {
+		return (buf[pos] & 0xff) | ((buf[pos + 1] & 0xff) << 8);
+	}
+
+	public BgzfInputStream(InputStream in) {
+		this(in, 1);
+	}
+
+	public BgzfInputStream(InputStream in, int numThreads) {
+		this.in = in;
+
+		// Decompress blocks in parallel?
+		if (numThreads > 1) {
+			executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "BgzfInputStream");
+					t.setDaemon(true); // Do not prevent the JVM from exiting if the stream is not closed
+					return t;
+				}
+			});
+			maxPending = MAX_PENDING_BLOCKS_PER_THREAD * numThreads;
+			pending = new LinkedList<>();
+		}
+	}
+
+	@Override
+	public int available() throws IOException {
+		return block.length - blockPos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (in == null) return;
+
+		try {
+			in.close();
+		} finally {
+			if (executor != null) executor.shutdownNow();
+			in = null;
+		}
+	}
+
+	/**
+	 * Make sure there is data in the current block
+	 * @return false if there is no more data
+	 */
+	boolean nextBlock() throws IOException {
+		while (blockPos >= block.length) {
+			if (executor == null) {
+				// Single threaded
+				byte compressed[] = readBlock();
+				if (compressed == null) return false;
+				block = decompressBlock(compressed);
+			} else {
+				// Read ahead and decompress in worker threads
+				readAhead();
+				if (pending.isEmpty()) return false;
+
+				try {
+					block = pending.removeFirst().get();
+				} catch (InterruptedException | ExecutionException e) {
+					throw new IOException(e);
+				}
+			}
+
+			blockPos = 0;
+		}
+
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextBlock()) return -1;
+		return block[blockPos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte b[], int off, int len) throws IOException {
+		if (len <= 0) return 0;
+		if (!nextBlock()) return -1;
+
+		int n = Math.min(len, block.length - blockPos);
+		System.arraycopy(block, blockPos, b, off, n);
+		blockPos += n;
+		return n;
+	}
+
+	/**
+	 * Add compressed blocks to the queue, until it is full
+	 */
+	void readAhead() throws IOException {
+		while (pending.size() < maxPending) {
+			final byte compressed[] = readBlock();
+			if (compressed == null) break;
+
+			pending.add(executor.submit(new Callable<byte[]>() {
+
+				@Override
+				public byte[] call() throws Exception {
+					return decompressBlock(compressed);
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Read a compressed BGZF block
+	 * @return Compressed block (header + compressed data + footer) or null if there are no more blocks
+	 */
+	byte[] readBlock() throws IOException {
+		if (eof) return null;
+
+		byte header[] = new byte[BgzfOutputStream.BLOCK_HEADER_SIZE];
+		int len = readFully(in, header, 0, header.length);
+		if (len <= 0) {
+			eof = true;
+			if (executor != null) executor.shutdown(); // No more blocks: Threads finish pending blocks and exit
+			return null;
+		}
+		if (!isBgzf(header, len)) throw new IOException("Invalid BGZF block header");
+
+		int blockSize = readShort(header, 16) + 1;
+		if (blockSize < BgzfOutputStream.BLOCK_HEADER_SIZE + BgzfOutputStream.BLOCK_FOOTER_SIZE) throw new IOException("Invalid BGZF block size " + blockSize);
+
+		byte compressed[] = new byte[blockSize];
+		System.arraycopy(header, 0, compressed, 0, header.length);
+		len = readFully(in, compressed, header.length, blockSize - header.length);
+		if (len < blockSize - header.length) throw new EOFException("Unexpected end of BGZF file");
+
+		return compressed;
+	}
+
+}
@@ -0,0 +1,254 @@
+package net.sf.samtools.tabix;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Write a BGZF compressed file (i.e. same format as 'bgzip')
+ *
+ * Each block is compressed independently, so blocks are compressed
+ * in parallel (using 'numThreads' threads) and written in order.
+ *
+ * Virtual file offsets: A virtual offset is the compressed position
+ * of a block (upper 48 bits) and the offset within the uncompressed
+ * block (lower 16 bits). Since blocks are compressed in parallel, the
+ * compressed position of a block is not known when data is written.
+ * So 'getBlockOffset()' returns a "block offset" (i.e. block number
+ * and offset within the block), that can be translated into a virtual
+ * file offset using 'virtualOffset()', once the block has been written.
+ *
+ * @author pcingola
+ */
+public class BgzfOutputStream extends OutputStream {
+
+	public static final int BLOCK_SIZE = 0xff00; // Maximum uncompressed block size (same as 'bgzip')
+	public static final int MAX_BLOCK_SIZE = 64 * 1024; // Maximum compressed block size
+	public static final int BLOCK_HEADER_SIZE = 18;
+	public static final int BLOCK_FOOTER_SIZE = 8;
+	public static final int MAX_PENDING_BLOCKS_PER_THREAD = 4;
+
+	// Empty block, marks the end of a BGZF file
+	public static final byte[] EOF_BLOCK = { 31, -117, 8, 4, 0, 0, 0, 0, 0, -1, 6, 0, 66, 67, 2, 0, 27, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+
+	OutputStream out;
+	byte buffer[]; // Uncompressed data for the current block
+	int bufferLen;
+	int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	int numBlocks; // Number of blocks (flushed so far)
+	int numBlocksWritten; // Number of blocks written to 'out'
+	long compressedPos; // Number of (compressed) bytes written to 'out'
+	long blockPos[]; // Compressed position of each block written
+	ExecutorService executor;
+	int maxPending;
+	LinkedList<Future<byte[]>> pending;
+
+	/**
+	 * Compress a block
+	 * @return A BGZF block (header + compressed data + footer)
+	 */
+	public static byte[] compressBlock(byte data[], int len, int compressionLevel) {
+		byte block[] = new byte[MAX_BLOCK_SIZE];
+
+		// Compress data
+		int maxLen = MAX_BLOCK_SIZE - BLOCK_HEADER_SIZE - BLOCK_FOOTER_SIZE;
+		int compressedLen = deflate(data, len, block, maxLen, compressionLevel);
+		if (compressedLen < 0) compressedLen = deflate(data, len, block, maxLen, Deflater.NO_COMPRESSION); // Data cannot be compressed? Store it
+		if (compressedLen < 0) throw new RuntimeException("Cannot compress BGZF block, data length: " + len);
+
+		// Header
+		int blockSize = BLOCK_HEADER_SIZE + compressedLen + BLOCK_FOOTER_SIZE;
+		System.arraycopy(EOF_BLOCK, 0, block, 0, BLOCK_HEADER_SIZE - 2);
+		writeShort(block, BLOCK_HEADER_SIZE - 2, blockSize - 1);
+
+		// Footer: CRC32 and uncompressed length
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, len);
+		int pos = BLOCK_HEADER_SIZE + compressedLen;
+		writeInt(block, pos, (int) crc.getValue());
+		writeInt(block, pos + 4, len);
+
+		return Arrays.copyOf(block, blockSize);
+	}
+
+	/**
+	 * Compress data into 'block' (after the header)
+	 * @return Compressed length, or -1 if compressed data does not fit in 'maxLen' bytes
+	 */
+	static int deflate(byte data[], int len, byte block[], int maxLen, int compressionLevel) {
+		Deflater deflater = new Deflater(compressionLevel, true);
+		try {
+			deflater.setInput(data, 0, len);
+			deflater.finish();
+			int compressedLen = deflater.deflate(block, BLOCK_HEADER_SIZE, maxLen);
+			return deflater.finished() ? compressedLen : -1;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	static void writeInt(byte buf[], int pos, int value) {
+		writeShort(buf, pos, value);
+		writeShort(buf, pos + 2, value >>> 16);
+	}
+
+	static void writeShort(byte buf[], int pos, int value) {
+		buf[pos] = (byte) value;
+		buf[pos + 1] = (byte) (value >>> 8);
+	}
+
+	public BgzfOutputStream(OutputStream out) {
+		this(out, 1);
+	}
+
+	public BgzfOutputStream(OutputStream out, int numThreads) {
+		this.out = out;
+		buffer = new byte[BLOCK_SIZE];
+		blockPos = new long[1024];
+
+		// Compress blocks in parallel?
+		if (numThreads > 1) {
+			executor = Executors.newFixedThreadPool(numThreads);
+			maxPending = MAX_PENDING_BLOCKS_PER_THREAD * numThreads;
+			pending = new LinkedList<>();
+		}
+	}
+
+	/**
+	 * Flush all data, write EOF marker and close
+	 */
+	@Override
+	public void close() throws IOException {
+		if (out == null) return;
+
+		try {
+			flush();
+			out.write(EOF_BLOCK);
+			out.close();
+		} finally {
+			if (executor != null) executor.shutdownNow();
+			out = null;
+		}
+	}
+
+	/**
+	 * Flush current block and wait until all pending blocks are written
+	 * Note: This creates a new block, so it should not be called too often
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushBlock();
+		while (pending != null && !pending.isEmpty())
+			writePending();
+		out.flush();
+	}
+
+	/**
+	 * Compress current block (in parallel, if possible)
+	 */
+	void flushBlock() throws IOException {
+		if (bufferLen <= 0) return;
+
+		final byte data[] = buffer;
+		final int len = bufferLen;
+		buffer = new byte[BLOCK_SIZE];
+		bufferLen = 0;
+		numBlocks++;
+
+		// Single threaded
+		if (executor == null) {
+			writeBlock(compressBlock(data, len, compressionLevel));
+			return;
+		}
+
+		// Compress in a worker thread
+		pending.add(executor.submit(new Callable<byte[]>() {
+
+			@Override
+			public byte[] call() throws Exception {
+				return compressBlock(data, len, compressionLevel);
+			}
+		}));
+
+		// Too many blocks waiting? Write some
+		while (pending.size() >= maxPending)
+			writePending();
+	}
+
+	/**
+	 * Current position, as a "block offset" (block number and offset within the uncompressed block)
+	 * Note: Use 'virtualOffset()' to translate it to a virtual file offset
+	 */
+	public long getBlockOffset() {
+		return (((long) numBlocks) << 16) | bufferLen;
+	}
+
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * Translate a "block offset" into a virtual file offset
+	 * Note: The block must have been written (e.g. invoke after 'flush()' or 'close()')
+	 */
+	public long virtualOffset(long blockOffset) {
+		int blockNum = (int) (blockOffset >>> 16);
+
+		long pos;
+		if (blockNum < numBlocksWritten) pos = blockPos[blockNum];
+		else if (blockNum == numBlocksWritten) pos = compressedPos; // Next block to be written
+		else throw new RuntimeException("Block " + blockNum + " has not been written yet");
+
+		return (pos << 16) | (blockOffset & 0xffff);
+	}
+
+	@Override
+	public void write(byte b[], int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, BLOCK_SIZE - bufferLen);
+			System.arraycopy(b, off, buffer, bufferLen, n);
+			bufferLen += n;
+			off += n;
+			len -= n;
+
+			if (bufferLen >= BLOCK_SIZE) flushBlock();
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		buffer[bufferLen++] = (byte) b;
+		if (bufferLen >= BLOCK_SIZE) flushBlock();
+	}
+
+	/**
+	 * Write a compressed block
+	 */
+	void writeBlock(byte block[]) throws IOException {
+		if (numBlocksWritten >= blockPos.length) blockPos = Arrays.copyOf(blockPos, 2 * blockPos.length);
+		blockPos[numBlocksWritten++] = compressedPos;
+
+		out.write(block);
+		compressedPos += block.length;
+	}
+
+	/**
+	 * Wait for the oldest pending block and write it
+	 */
+	void writePending() throws IOException {
+		try {
+			writeBlock(pending.removeFirst().get());
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IOException(e);
+		}
+	}
+
+}
@@ -2,6 +2,7 @@ package net.sf.samtools.tabix;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.snpeff.util.Gpr;
 
@@ -53,4 +54,9 @@ public class TPair64 implements Comparable<TPair64> {
 		return (u >> 16) + "\t" + (v >> 16);
 	}
 
+	public void writeIndex(OutputStream os) throws IOException {
+		TabixReader.writeLong(os, u);
+		TabixReader.writeLong(os, v);
+	}
+
 }
@@ -2,6 +2,7 @@ package net.sf.samtools.tabix;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -73,6 +74,14 @@ public class TabixIndex {
 		return binningIndex.get(binNum);
 	}
 
+	/**
+	 * Maximum genomic position covered by the linear index (i.e. an
+	 * upper bound for the end of all records, rounded to 16KB windows)
+	 */
+	public int maxPosition() {
+		return linearIndex.length << TAD_LIDX_SHIFT;
+	}
+
 	public long minOffset(int beg) {
 		// Minimum offset within file
 		// Linear index has the offset of the smallest start coordinate that
@@ -155,4 +164,28 @@ public class TabixIndex {
 		return sb.toString();
 	}
 
+	/**
+	 * Write index (same format as 'readIndex')
+	 */
+	public void writeIndex(OutputStream os) throws IOException {
+		ArrayList<Integer> keys = new ArrayList<>();
+		keys.addAll(binningIndex.keySet());
+		Collections.sort(keys);
+
+		// Binning index
+		TabixReader.writeInt(os, keys.size());
+		for (Integer binNum : keys) {
+			TPair64[] chunks = binningIndex.get(binNum);
+			TabixReader.writeInt(os, binNum);
+			TabixReader.writeInt(os, chunks.length);
+			for (TPair64 chunk : chunks)
+				chunk.writeIndex(os);
+		}
+
+		// Linear index
+		TabixReader.writeInt(os, linearIndex.length);
+		for (long offset : linearIndex)
+			TabixReader.writeLong(os, offset);
+	}
+
 }
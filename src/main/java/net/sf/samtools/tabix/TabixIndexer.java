@@ -0,0 +1,319 @@
+package net.sf.samtools.tabix;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Create a tabix index (i.e. a '*.tbi' file) while a BGZF compressed
+ * file is being written.
+ *
+ * Lines must be added in the same order they are written (the file
+ * must be sorted). Offsets are "block offsets" from BgzfOutputStream,
+ * they are translated to virtual file offsets when the index is written.
+ *
+ * If the file is not sorted (e.g. a chromosome is not contiguous or
+ * positions are not sorted) the index cannot be created, see 'isOk()'
+ *
+ * @author pcingola
+ */
+public class TabixIndexer {
+
+	public static final String TBI_EXT = ".tbi";
+	public static final byte[] TBI_MAGIC = { 'T', 'B', 'I', 1 };
+
+	public static final int PRESET_GENERIC = 0;
+	public static final int PRESET_VCF = 2;
+	public static final int PRESET_UCSC = 0x10000; // Zero-based coordinates, end not included (e.g. BED files)
+
+	public static final int MAX_COORDINATE = 1 << 29;
+	public static final int VCF_COL_REF = 4;
+	public static final int VCF_COL_INFO = 8;
+
+	int preset, colSeq, colBeg, colEnd, maxCol;
+	char meta = '#';
+	String error; // Reason why the index cannot be created
+	List<String> sequenceNames;
+	HashSet<String> sequenceNamesSet;
+	List<TabixIndex> tabixIndexes;
+	List<TPair64> chunks; // All chunks (offsets are translated when the index is written)
+	List<long[]> linearIndexes;
+
+	// Current sequence
+	String seqName;
+	int lastBeg;
+	HashMap<Integer, List<TPair64>> bins;
+	long linearIndex[];
+
+	// Latest parsed line
+	String lineSeq;
+	int lineBeg, lineEnd;
+
+	/**
+	 * Index for BED files
+	 */
+	public static TabixIndexer bed() {
+		return new TabixIndexer(PRESET_GENERIC | PRESET_UCSC, 1, 2, 3);
+	}
+
+	/**
+	 * Calculate bin given an alignment covering [beg, end) (zero-based, half-close-half-open)
+	 */
+	public static int reg2bin(int beg, int end) {
+		--end;
+		if (beg >> 14 == end >> 14) return ((1 << 15) - 1) / 7 + (beg >> 14);
+		if (beg >> 17 == end >> 17) return ((1 << 12) - 1) / 7 + (beg >> 17);
+		if (beg >> 20 == end >> 20) return ((1 << 9) - 1) / 7 + (beg >> 20);
+		if (beg >> 23 == end >> 23) return ((1 << 6) - 1) / 7 + (beg >> 23);
+		if (beg >> 26 == end >> 26) return ((1 << 3) - 1) / 7 + (beg >> 26);
+		return 0;
+	}
+
+	/**
+	 * Index for VCF files
+	 */
+	public static TabixIndexer vcf() {
+		return new TabixIndexer(PRESET_VCF, 1, 2, 0);
+	}
+
+	public TabixIndexer(int preset, int colSeq, int colBeg, int colEnd) {
+		this.preset = preset;
+		this.colSeq = colSeq;
+		this.colBeg = colBeg;
+		this.colEnd = colEnd;
+
+		maxCol = Math.max(colSeq, Math.max(colBeg, colEnd));
+		if ((preset & 0xffff) == PRESET_VCF) maxCol = Math.max(maxCol, VCF_COL_INFO);
+
+		sequenceNames = new ArrayList<>();
+		sequenceNamesSet = new HashSet<>();
+		tabixIndexes = new ArrayList<>();
+		chunks = new ArrayList<>();
+		linearIndexes = new ArrayList<>();
+	}
+
+	/**
+	 * Add a line, written at offsets [offsetStart, offsetEnd)
+	 */
+	public void add(String line, long offsetStart, long offsetEnd) {
+		if (!isOk()) return; // Index cannot be created, no need to continue
+		if (line.isEmpty() || line.charAt(0) == meta) return; // Header lines are not indexed
+
+		if (!parse(line)) {
+			error = "Cannot parse line: " + line;
+			return;
+		}
+
+		// New sequence?
+		if (!lineSeq.equals(seqName)) {
+			if (sequenceNamesSet.contains(lineSeq)) {
+				error = "File is not sorted, sequence '" + lineSeq + "' is not contiguous";
+				return;
+			}
+			finishSequence();
+			startSequence(lineSeq);
+		} else if (lineBeg < lastBeg) {
+			error = "File is not sorted, position " + lineSeq + ":" + (lineBeg + 1) + " after " + seqName + ":" + (lastBeg + 1);
+			return;
+		}
+		lastBeg = lineBeg;
+
+		// Add to binning index (merge adjacent chunks)
+		int bin = reg2bin(lineBeg, lineEnd);
+		List<TPair64> binChunks = bins.get(bin);
+		if (binChunks == null) {
+			binChunks = new ArrayList<>();
+			bins.put(bin, binChunks);
+		}
+
+		TPair64 last = binChunks.isEmpty() ? null : binChunks.get(binChunks.size() - 1);
+		if ((last != null) && (last.v == offsetStart)) last.v = offsetEnd;
+		else {
+			TPair64 chunk = new TPair64(offsetStart, offsetEnd);
+			binChunks.add(chunk);
+			chunks.add(chunk);
+		}
+
+		// Add to linear index: Leftmost record overlapping each window
+		int winBeg = lineBeg >> TabixIndex.TAD_LIDX_SHIFT;
+		int winEnd = (lineEnd - 1) >> TabixIndex.TAD_LIDX_SHIFT;
+		if (winEnd >= linearIndex.length) {
+			int len = linearIndex.length;
+			linearIndex = Arrays.copyOf(linearIndex, Math.max(winEnd + 1, 2 * len));
+			Arrays.fill(linearIndex, len, linearIndex.length, -1);
+		}
+
+		for (int w = winBeg; w <= winEnd; w++)
+			if (linearIndex[w] < 0) linearIndex[w] = offsetStart;
+	}
+
+	/**
+	 * Finish current sequence: Create index
+	 */
+	void finishSequence() {
+		if (seqName == null) return;
+
+		TabixIndex tabixIndex = new TabixIndex();
+		for (Integer bin : bins.keySet()) {
+			List<TPair64> binChunks = bins.get(bin);
+			tabixIndex.put(bin, binChunks.toArray(new TPair64[0]));
+		}
+
+		// Linear index: Empty windows use previous window's offset
+		int len = linearIndex.length;
+		while ((len > 0) && (linearIndex[len - 1] < 0))
+			len--;
+		long li[] = Arrays.copyOf(linearIndex, len);
+		for (int i = 0; i < li.length; i++)
+			if (li[i] < 0) li[i] = (i > 0 ? li[i - 1] : 0);
+		tabixIndex.setLinearIndex(li);
+
+		tabixIndexes.add(tabixIndex);
+		linearIndexes.add(li);
+		seqName = null;
+		bins = null;
+		linearIndex = null;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public boolean isOk() {
+		return error == null;
+	}
+
+	/**
+	 * Parse sequence name, start and end from a line (same as TabixInterval)
+	 */
+	boolean parse(String line) {
+		lineSeq = null;
+		lineBeg = lineEnd = -1;
+		boolean vcf = (preset & 0xffff) == PRESET_VCF;
+
+		int col = 1;
+		for (int start = 0, end = 0; (end < line.length()) && (col <= maxCol); start = end + 1, col++) {
+			end = line.indexOf('\t', start);
+			if (end < 0) end = line.length();
+
+			if (col == colSeq) {
+				lineSeq = line.substring(start, end);
+			} else if (col == colBeg) {
+				int pos = parseInt(line, start, end);
+				if (pos < 0) return false;
+				if ((preset & PRESET_UCSC) != 0) {
+					lineBeg = pos;
+					lineEnd = pos + 1;
+				} else {
+					lineBeg = pos - 1;
+					lineEnd = pos;
+				}
+			} else if (!vcf && col == colEnd) {
+				lineEnd = parseInt(line, start, end);
+			} else if (vcf && col == VCF_COL_REF) {
+				if (end > start) lineEnd = lineBeg + (end - start);
+			} else if (vcf && col == VCF_COL_INFO) {
+				// Use 'END' from INFO field, if available
+				int idx = -1;
+				if (line.startsWith("END=", start)) idx = start + 4;
+				else {
+					idx = line.indexOf(";END=", start);
+					idx = (idx >= 0) && (idx < end) ? idx + 5 : -1;
+				}
+
+				if (idx >= 0) {
+					int idxEnd = line.indexOf(';', idx);
+					if ((idxEnd < 0) || (idxEnd > end)) idxEnd = end;
+					int infoEnd = parseInt(line, idx, idxEnd);
+					if (infoEnd >= 0) lineEnd = infoEnd;
+				}
+			}
+		}
+
+		if (lineSeq == null || lineBeg < 0) return false;
+		if (lineBeg >= MAX_COORDINATE) lineBeg = MAX_COORDINATE - 1;
+		if (lineEnd > MAX_COORDINATE) lineEnd = MAX_COORDINATE;
+		if (lineEnd <= lineBeg) lineEnd = lineBeg + 1;
+		return true;
+	}
+
+	/**
+	 * Parse a (non-negative) integer, return -1 on error
+	 */
+	int parseInt(String str, int start, int end) {
+		if (start >= end) return -1;
+
+		long num = 0;
+		for (int i = start; i < end; i++) {
+			char c = str.charAt(i);
+			if (c < '0' || c > '9') return -1;
+			num = num * 10 + (c - '0');
+			if (num > Integer.MAX_VALUE) return -1;
+		}
+		return (int) num;
+	}
+
+	/**
+	 * Start a new sequence
+	 */
+	void startSequence(String seqName) {
+		this.seqName = seqName;
+		sequenceNames.add(seqName);
+		sequenceNamesSet.add(seqName);
+		lastBeg = 0;
+		bins = new HashMap<>();
+		linearIndex = new long[0];
+	}
+
+	/**
+	 * Write index to a file
+	 * @param bgzfData : Data file (must be already closed), used to translate offsets
+	 */
+	public void write(String fileName, BgzfOutputStream bgzfData) throws IOException {
+		if (!isOk()) throw new RuntimeException("Cannot create index '" + fileName + "': " + error);
+		finishSequence();
+
+		// Translate block offsets to virtual file offsets
+		for (TPair64 chunk : chunks) {
+			chunk.u = bgzfData.virtualOffset(chunk.u);
+			chunk.v = bgzfData.virtualOffset(chunk.v);
+		}
+
+		for (long li[] : linearIndexes)
+			for (int i = 0; i < li.length; i++)
+				li[i] = bgzfData.virtualOffset(li[i]);
+
+		// Write index (index file is also BGZF compressed)
+		OutputStream os = new BgzfOutputStream(new FileOutputStream(fileName));
+		try {
+			os.write(TBI_MAGIC);
+			TabixReader.writeInt(os, sequenceNames.size());
+			TabixReader.writeInt(os, preset);
+			TabixReader.writeInt(os, colSeq);
+			TabixReader.writeInt(os, colBeg);
+			TabixReader.writeInt(os, colEnd);
+			TabixReader.writeInt(os, meta);
+			TabixReader.writeInt(os, 0); // Number of lines to skip
+
+			// Sequence names: '\0' delimited
+			StringBuilder names = new StringBuilder();
+			for (String sn : sequenceNames)
+				names.append(sn).append('\0');
+			byte namesBytes[] = names.toString().getBytes();
+			TabixReader.writeInt(os, namesBytes.length);
+			os.write(namesBytes);
+
+			// Index for each sequence
+			for (TabixIndex tabixIndex : tabixIndexes)
+				tabixIndex.writeIndex(os);
+		} finally {
+			os.close();
+		}
+	}
+
+}
@@ -32,6 +32,7 @@ package net.sf.samtools.tabix;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
@@ -94,6 +95,14 @@ public class TabixReader implements Iterable<String> {
 		return ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN).getLong();
 	}
 
+	public static void writeInt(final OutputStream os, int value) throws IOException {
+		os.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array());
+	}
+
+	public static void writeLong(final OutputStream os, long value) throws IOException {
+		os.write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array());
+	}
+
 	/**
 	 * Bins span different sizes depending on their levels:
 	 *      	Bins		 Size (sl)
@@ -189,6 +198,23 @@ public class TabixReader implements Iterable<String> {
 		return mSc;
 	}
 
+	/**
+	 * Maximum genomic position of records in sequence (chromosome) 'chr' (see TabixIndex.maxPosition())
+	 * @return Max position or -1 if the sequence is not in the index
+	 */
+	public int getMaxPosition(String chr) {
+		int tid = chr2tid(chr);
+		if (tid < 0) return -1;
+		return tabixIndexes[tid].maxPosition();
+	}
+
+	/**
+	 * Sequence (chromosome) names, in the same order as in the file
+	 */
+	public String[] getSequenceNames() {
+		return sequenceNames;
+	}
+
 	@Override
 	public TabixIterator iterator() {
 		if (tabixIterator != null) return tabixIterator;
@@ -330,6 +356,17 @@ public class TabixReader implements Iterable<String> {
 		return tabixIterator;
 	}
 
+	/**
+	 * Query a chromosome region
+	 * Note: Coordinates are zero-based, half-open (i.e. 'end' is not included)
+	 * @return An iterator or null if there are no results
+	 */
+	public TabixIterator query(String chr, int start, int end) {
+		TabixIterator tabixIterator = query(chr2tid(chr), start, end);
+		if (tabixIterator != null) tabixIterator.setDebug(debug);
+		return tabixIterator;
+	}
+
 	public TabixIterator query(Variant variant) {
 		int tid = chr2tid(variant.getChromosomeName());
 
@@ -18,6 +18,7 @@ import org.snpeff.interval.ProteinInteractionLocus;
 import org.snpeff.interval.SpliceSite;
 import org.snpeff.interval.Transcript;
 import org.snpeff.interval.TranscriptSupportLevel;
+import org.snpeff.interval.tree.TabixIntervals;
 import org.snpeff.logStatsServer.LogStats;
 import org.snpeff.logStatsServer.VersionCheck;
 import org.snpeff.motif.Jaspar;
@@ -43,6 +44,7 @@ import org.snpeff.snpEffect.commandLine.SnpEffCmdLen;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdPdb;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdProtein;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdSeq;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdServer;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdShow;
 import org.snpeff.spliceSites.SnpEffCmdSpliceAnalysis;
 import org.snpeff.util.Gpr;
@@ -82,7 +84,7 @@ public class SnpEff implements CommandLine {
 	 *  Available output formats
 	 */
 	public enum OutputFormat {
-		VCF, BED, BEDANN, GATK
+		VCF, BED, BEDANN, GATK, TSV
 	}
 
 	public static final String DEFAULT_COMMAND = "ann";
@@ -103,6 +105,7 @@ public class SnpEff implements CommandLine {
 	protected boolean canonical = false; // Use only canonical transcripts
 	protected boolean debug; // Debug mode
 	protected boolean download = true; // Download genome, if not available
+	protected boolean freeze = false; // Freeze genes after loading the database (see SnpEffectPredictor.setFreeze)
 	protected boolean help; // Show command help and exit
 	protected boolean hgvs = true; // Use Hgvs notation
 	protected boolean hgvsOneLetterAa = false; // Use 1-letter AA codes in HGVS.p notation?
@@ -110,6 +113,7 @@ public class SnpEff implements CommandLine {
 	protected boolean hgvsShift = true; // Shift variants towards the 3-prime end of the transcript
 	protected boolean hgvsTrId = false; // Use full transcript version in HGVS notation?
 	protected boolean interaction = true; // Use interaction loci information if available
+	protected boolean lazyLoad = false; // Load database one chromosome at a time (only when needed)
 	protected boolean log; // Log to server (statistics)
 	protected boolean motif = true; // Annotate using motifs
 	protected boolean multiThreaded = false; // Use multiple threads
@@ -207,6 +211,22 @@ public class SnpEff implements CommandLine {
 		}
 	}
 
+	/**
+	 * Can we load the database one chromosome at a time?
+	 * Options that filter or connect transcripts across the whole
+	 * genome require all genes to be loaded.
+	 */
+	boolean canLazyLoad() {
+		String reason = null;
+		if (canonical || strict || onlyProtein || (onlyTranscriptsFile != null) || (maxTranscriptSupportLevel != null)) reason = "transcript filtering options";
+		else if (nextProt && Gpr.canRead(config.getDirDataGenomeVersion() + "/nextProt.bin")) reason = "NextProt database";
+		else if (interaction && Gpr.exists(config.getDirDataGenomeVersion() + "/" + SnpEffCmdPdb.PROTEIN_INTERACTION_FILE)) reason = "protein interaction database";
+
+		if (reason == null) return true;
+		if (verbose) Timer.showStdErr("Cannot load database on demand (" + reason + " require all genes), loading the whole database");
+		return false;
+	}
+
 	/**
 	 * 	Command line argument list (try to fit it into COMMAND_LINE_WIDTH)
 	 */
@@ -232,6 +252,50 @@ public class SnpEff implements CommandLine {
 		return argsList.toString();
 	}
 
+	/**
+	 * Copy generic options (parsed by this object) to a specific command
+	 */
+	protected void copyArgs(SnpEff snpEffCmd) {
+		snpEffCmd.canonical = canonical;
+		snpEffCmd.configFile = configFile;
+		snpEffCmd.customIntervalFiles = customIntervalFiles;
+		snpEffCmd.dataDir = dataDir;
+		snpEffCmd.debug = debug;
+		snpEffCmd.download = download;
+		snpEffCmd.filterIntervalFiles = filterIntervalFiles;
+		snpEffCmd.genomeVer = genomeVer;
+		snpEffCmd.help = help;
+		snpEffCmd.hgvs = hgvs;
+		snpEffCmd.hgvsOld = hgvsOld;
+		snpEffCmd.hgvsOneLetterAa = hgvsOneLetterAa;
+		snpEffCmd.hgvsShift = hgvsShift;
+		snpEffCmd.hgvsTrId = hgvsTrId;
+		snpEffCmd.interaction = interaction;
+		snpEffCmd.lazyLoad = lazyLoad;
+		snpEffCmd.log = log;
+		snpEffCmd.motif = motif;
+		snpEffCmd.maxTranscriptSupportLevel = maxTranscriptSupportLevel;
+		snpEffCmd.multiThreaded = multiThreaded;
+		snpEffCmd.nextProt = nextProt;
+		snpEffCmd.noGenome = noGenome;
+		snpEffCmd.numWorkers = numWorkers;
+		snpEffCmd.onlyProtein = onlyProtein;
+		snpEffCmd.onlyRegulation = onlyRegulation;
+		snpEffCmd.onlyTranscriptsFile = onlyTranscriptsFile;
+		snpEffCmd.quiet = quiet;
+		snpEffCmd.regulationTracks = regulationTracks;
+		snpEffCmd.spliceSiteSize = spliceSiteSize;
+		snpEffCmd.spliceRegionExonSize = spliceRegionExonSize;
+		snpEffCmd.spliceRegionIntronMax = spliceRegionIntronMax;
+		snpEffCmd.spliceRegionIntronMin = spliceRegionIntronMin;
+		snpEffCmd.strict = strict;
+		snpEffCmd.suppressOutput = suppressOutput;
+		snpEffCmd.treatAllAsProteinCoding = treatAllAsProteinCoding;
+		snpEffCmd.upDownStreamLength = upDownStreamLength;
+		snpEffCmd.verbose = verbose;
+		snpEffCmd.configOverride = configOverride;
+	}
+
 	/**
 	 * Show an error (if not 'quiet' mode)
 	 */
@@ -357,6 +421,7 @@ public class SnpEff implements CommandLine {
 				else if (verbose) Timer.showStdErr("Database installed.");
 			}
 
+			config.setLazyLoad(lazyLoad && canLazyLoad());
 			config.loadSnpEffectPredictor(); // Read snpEffect predictor
 			genome = config.getSnpEffectPredictor().getGenome();
 			if (verbose) Timer.showStdErr("done");
@@ -374,6 +439,13 @@ public class SnpEff implements CommandLine {
 
 		// Read custom interval files
 		for (String intFile : customIntervalFiles) {
+			if (TabixIntervals.canQuery(intFile)) {
+				// Indexed file: Intervals are queried on demand, instead of loading them into memory
+				if (verbose) Timer.showStdErr("Using tabix index for interval file '" + intFile + "' (intervals are queried on demand)");
+				config.getSnpEffectPredictor().add(new TabixIntervals(intFile, Gpr.removeExt(Gpr.baseName(intFile)), config.getSnpEffectPredictor().getGenome()));
+				continue;
+			}
+
 			if (verbose) Timer.showStdErr("Reading interval file '" + intFile + "'");
 			int count = loadCustomFile(intFile);
 			if (verbose) Timer.showStdErr("done (" + count + " intervals loaded). ");
@@ -469,6 +541,7 @@ public class SnpEff implements CommandLine {
 
 		// Build tree
 		if (verbose) Timer.showStdErr("Building interval forest");
+		config.getSnpEffectPredictor().setFreeze(freeze);
 		config.getSnpEffectPredictor().buildForest();
 		if (verbose) Timer.showStdErr("done.");
 
@@ -766,6 +839,7 @@ public class SnpEff implements CommandLine {
 				|| args[0].equalsIgnoreCase("spliceAnalysis") //
 				|| args[0].equalsIgnoreCase("test") //
 				|| args[0].equalsIgnoreCase("seq") //
+				|| args[0].equalsIgnoreCase("server") //
 				|| args[0].equalsIgnoreCase("show") //
 				|| args[0].equalsIgnoreCase("pdb") //
 		// Obsolete stuff (from T2D projects)
@@ -834,6 +908,10 @@ public class SnpEff implements CommandLine {
 					else usage("Option '-interval' without config interval_file argument");
 					break;
 
+				case "-lazy":
+					lazyLoad = true; // Load chromosomes only when needed
+					break;
+
 				case "-maxtsl":
 					if ((i + 1) < args.length) maxTranscriptSupportLevel = TranscriptSupportLevel.parse(args[++i]);
 					else usage("Option '-maxTSL' without config transcript_support_level argument");
@@ -1165,6 +1243,10 @@ public class SnpEff implements CommandLine {
 			snpEffCmd = new SnpEffCmdSeq();
 			break;
 
+		case "server":
+			snpEffCmd = new SnpEffCmdServer();
+			break;
+
 		case "show":
 			snpEffCmd = new SnpEffCmdShow();
 			break;
@@ -1184,43 +1266,7 @@ public class SnpEff implements CommandLine {
 		}
 
 		// Copy values to specific command
-		snpEffCmd.canonical = canonical;
-		snpEffCmd.configFile = configFile;
-		snpEffCmd.customIntervalFiles = customIntervalFiles;
-		snpEffCmd.dataDir = dataDir;
-		snpEffCmd.debug = debug;
-		snpEffCmd.download = download;
-		snpEffCmd.filterIntervalFiles = filterIntervalFiles;
-		snpEffCmd.genomeVer = genomeVer;
-		snpEffCmd.help = help;
-		snpEffCmd.hgvs = hgvs;
-		snpEffCmd.hgvsOld = hgvsOld;
-		snpEffCmd.hgvsOneLetterAa = hgvsOneLetterAa;
-		snpEffCmd.hgvsShift = hgvsShift;
-		snpEffCmd.hgvsTrId = hgvsTrId;
-		snpEffCmd.interaction = interaction;
-		snpEffCmd.log = log;
-		snpEffCmd.motif = motif;
-		snpEffCmd.maxTranscriptSupportLevel = maxTranscriptSupportLevel;
-		snpEffCmd.multiThreaded = multiThreaded;
-		snpEffCmd.nextProt = nextProt;
-		snpEffCmd.noGenome = noGenome;
-		snpEffCmd.numWorkers = numWorkers;
-		snpEffCmd.onlyProtein = onlyProtein;
-		snpEffCmd.onlyRegulation = onlyRegulation;
-		snpEffCmd.onlyTranscriptsFile = onlyTranscriptsFile;
-		snpEffCmd.quiet = quiet;
-		snpEffCmd.regulationTracks = regulationTracks;
-		snpEffCmd.spliceSiteSize = spliceSiteSize;
-		snpEffCmd.spliceRegionExonSize = spliceRegionExonSize;
-		snpEffCmd.spliceRegionIntronMax = spliceRegionIntronMax;
-		snpEffCmd.spliceRegionIntronMin = spliceRegionIntronMin;
-		snpEffCmd.strict = strict;
-		snpEffCmd.suppressOutput = suppressOutput;
-		snpEffCmd.treatAllAsProteinCoding = treatAllAsProteinCoding;
-		snpEffCmd.upDownStreamLength = upDownStreamLength;
-		snpEffCmd.verbose = verbose;
-		snpEffCmd.configOverride = configOverride;
+		copyArgs(snpEffCmd);
 
 		// Help requested?
 		if (help) {
@@ -1258,6 +1304,7 @@ public class SnpEff implements CommandLine {
 		System.err.println("\tpdb                          : Build interaction database (based on PDB data).");
 		System.err.println("\tprotein                      : Compare protein sequences calculated form a SnpEff database to the one in a FASTA file. Used for checking databases correctness.");
 		System.err.println("\tseq                          : Show sequence (from command line) translation.");
+		System.err.println("\tserver                       : Annotation server: Load databases once and annotate VCF files sent over HTTP.");
 		System.err.println("\tshow                         : Show a text representation of genes or transcripts coordiantes, DNA sequence and protein sequence.");
 		// System.err.println("\tspliceAnalysis               : Perform an analysis of splice sites. Experimental feature.");
 
@@ -1274,6 +1321,7 @@ public class SnpEff implements CommandLine {
 		System.err.println("\t-canon                       : Only use canonical transcripts.");
 		System.err.println("\t-interaction                 : Annotate using inteactions (requires interaciton database). Default: " + interaction);
 		System.err.println("\t-interval <file>             : Use a custom intervals in TXT/BED/BigBed/VCF/GFF file (you may use this option many times)");
+		System.err.println("\t-lazy                        : Load database one chromosome at a time, only when a variant in that chromosome is found. Default: " + lazyLoad);
 		System.err.println("\t-maxTSL <TSL_number>         : Only use transcripts having Transcript Support Level lower than <TSL_number>.");
 		System.err.println("\t-motif                       : Annotate using motifs (requires Motif database). Default: " + motif);
 		System.err.println("\t-nextProt                    : Annotate using NextProt (requires NextProt database).");
@@ -1306,7 +1354,7 @@ public class SnpEff implements CommandLine {
 		System.err.println("\t-nodownload                  : Do not download a SnpEff database, if not available locally.");
 		System.err.println("\t-h , -help                   : Show this help and exit");
 		System.err.println("\t-noLog                       : Do not report usage statistics to server");
-		System.err.println("\t-t                           : Use multiple threads (implies '-noStats'). Default 'off'");
+		System.err.println("\t-t                           : Use multiple threads. Default 'off'");
 		System.err.println("\t-q , -quiet                  : Quiet mode (do not show any messages or errors)");
 		System.err.println("\t-v , -verbose                : Verbose mode");
 		System.err.println("\t-version                     : Show version number and exit");
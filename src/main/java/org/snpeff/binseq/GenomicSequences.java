@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Exon;
@@ -13,6 +14,7 @@ import org.snpeff.interval.Gene;
 import org.snpeff.interval.Genome;
 import org.snpeff.interval.Marker;
 import org.snpeff.interval.MarkerSeq;
+import org.snpeff.interval.MarkerSeqMapped;
 import org.snpeff.interval.Markers;
 import org.snpeff.interval.Transcript;
 import org.snpeff.interval.tree.IntervalForest;
@@ -30,6 +32,14 @@ import org.snpeff.util.Timer;
  * 		ii) Store genomic sequences for those regions of interest
  * 		iii) Retrieve genomic sequences by interval
  *
+ * Concurrency: Once a chromosome's sequences are loaded and the tree
+ * is built, the tree is "published" (see 'treeByChr') and queried
+ * without locking. Only loading sequences requires a lock.
+ * Note: Adding sequences while other threads are querying is not supported
+ *
+ * Sequences are loaded from a genome wide memory mapped file ('sequence.mmap',
+ * see GenomicSequencesMapped) if available, otherwise from 'sequence.bin'
+ * and 'sequence.chr.bin' files, or created from exon sequences.
  *
  * @author pcingola
  */
@@ -43,18 +53,22 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 	boolean verbose = false;
 	boolean allSmallLoaded; // Have all "small" chromosomes been loaded? (i.e. have we already loaded 'sequence.bin' file?)
 	boolean disableLoad = false; // Do not load sequences from disk. Used minly for test cases
+	boolean mappedChecked; // Have we already tried to open the memory mapped sequence file?
+	transient GenomicSequencesMapped sequencesMapped; // Genome wide, memory mapped, sequences (null if not available)
 	Genome genome; // Reference genome
 	IntervalForest intervalForest; // This is an interval forest of 'MarkerSeq' (genomic markers that have sequences)
+	ConcurrentHashMap<String, Itree> treeByChr; // Trees already loaded and built, ready to be queried (lock-free)
 
 	public GenomicSequences(Genome genome) {
 		this.genome = genome;
 		intervalForest = new IntervalForest();
+		treeByChr = new ConcurrentHashMap<>();
 	}
 
 	/**
 	 * Create a sequence for the whole chromsome (mostly used in test cases)
 	 */
-	public void addChromosomeSequence(String chr, String chrSeq) {
+	public synchronized void addChromosomeSequence(String chr, String chrSeq) {
 		MarkerSeq ms = new MarkerSeq(genome.getOrCreateChromosome(chr), 0, chrSeq.length() - 1, chrSeq);
 		intervalForest.add(ms);
 		build();
@@ -85,7 +99,7 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 	/**
 	 * Add sequences for each gene in the genome
 	 */
-	public int addGeneSequences(String chr, String chrSeq) {
+	public synchronized int addGeneSequences(String chr, String chrSeq) {
 		int seqsAdded = 0;
 
 		// Get all genes in this chromosome
@@ -126,14 +140,16 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 	/**
 	 * Build interval forest
 	 */
-	public void build() {
+	public synchronized void build() {
 		if (verbose) Timer.showStdErr("Building sequence tree for genome sequences");
 		intervalForest.build();
+		treeByChr.clear(); // Trees are published again when queried
 		if (verbose) Timer.showStdErr("Done.");
 	}
 
-	public void clear() {
+	public synchronized void clear() {
 		intervalForest = new IntervalForest();
+		treeByChr.clear();
 	}
 
 	/**
@@ -235,9 +251,9 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		if (allSmallLoaded) return false;
 
 		// File does not exists?  Cannot load...
-		String fileName = Config.get().getFileNameSequence();
+		String fileName = genome.getConfig().getFileNameSequence();
 		if (!Gpr.exists(fileName)) {
-			if (Config.get().isDebug()) Timer.showStdErr("Attempting to load sequences from file '" + fileName + "' failed, nothing done.");
+			if (genome.getConfig().isDebug()) Timer.showStdErr("Attempting to load sequences from file '" + fileName + "' failed, nothing done.");
 			return false;
 		}
 
@@ -257,8 +273,8 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		for (Itree itree : toBuild) {
 			if (itree.getIntervals().size() > 0 && verbose) Timer.showStdErr("Building sequence tree for chromosome '" + itree.getIntervals().get(0).getChromosomeName() + "'");
 			itree.build();
-
 		}
+		treeByChr.clear(); // Trees are published again when queried
 
 		allSmallLoaded = true;
 		return true;
@@ -273,9 +289,9 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		if (disableLoad) return false; // Loading form database disabled?
 
 		// File does not exists?  Cannot load...
-		String fileName = Config.get().getFileNameSequence(chr);
+		String fileName = genome.getConfig().getFileNameSequence(chr);
 		if (!Gpr.exists(fileName)) {
-			if (Config.get().isDebug()) Timer.showStdErr("Attempting to load sequences for chromosome '" + chr + "' from file '" + fileName + "' failed, nothing done.");
+			if (genome.getConfig().isDebug()) Timer.showStdErr("Attempting to load sequences for chromosome '" + chr + "' from file '" + fileName + "' failed, nothing done.");
 			return false;
 		}
 
@@ -285,16 +301,46 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		tree.load(fileName, genome);
 		if (verbose) Timer.showStdErr("Building sequence tree for chromosome '" + chr + "'");
 		tree.build();
+		treeByChr.remove(chr);
 		if (verbose) Timer.showStdErr("Done. Loaded " + tree.getIntervals().size() + " sequences.");
 		return !tree.isEmpty();
 	}
 
+	/**
+	 * Add a sequence for the whole chromosome from the (genome wide) memory mapped sequence file
+	 * Note: Sequences are not loaded into memory, bases are decoded when queried
+	 */
+	public synchronized boolean loadMapped(String chr) {
+		// Open memory mapped file
+		if (sequencesMapped == null) {
+			if (disableLoad || mappedChecked) return false;
+			mappedChecked = true;
+
+			String fileName = genome.getConfig().getFileNameSequenceMapped();
+			if (!Gpr.exists(fileName)) return false;
+			openMapped(fileName);
+		}
+
+		int len = sequencesMapped.getChromosomeLength(chr);
+		if (len < 0) return false;
+
+		// Add a marker spanning the whole chromosome
+		if (verbose) Timer.showStdErr("Using memory mapped sequences for chromosome '" + chr + "' from file '" + sequencesMapped.getFileName() + "'");
+		MarkerSeqMapped ms = new MarkerSeqMapped(genome.getOrCreateChromosome(chr), 0, len - 1, sequencesMapped);
+		Itree tree = intervalForest.getOrCreateTreeChromo(chr);
+		tree.add(ms);
+		tree.build();
+		treeByChr.remove(chr);
+		return true;
+	}
+
 	/**
 	 * Load sequences from genomic sequence file or (if not file is available) generate some sequences from exons.
 	 */
 	public synchronized boolean loadOrCreateFromGenome(String chr) {
 		if (hasChromosome(chr)) return true;
 
+		if (loadMapped(chr)) return true; // Genome wide memory mapped file
 		if (load(chr)) return true; // Loaded form 'separate' file
 		else {
 			// Try loading form bundled file (small chromosomes)
@@ -304,18 +350,46 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		return addExonSequences(chr);
 	}
 
+	/**
+	 * Get a (built) tree for chromosome 'chr', loading sequences if needed.
+	 * The tree is published, so that it can be queried without locking
+	 */
+	synchronized Itree loadTree(String chr) {
+		Itree tree = treeByChr.get(chr);
+		if (tree != null) return tree; // Another thread already loaded it
+
+		if (!intervalForest.hasTree(chr)) loadOrCreateFromGenome(chr);
+		tree = intervalForest.getTreeChromo(chr);
+		if (tree != null) treeByChr.put(chr, tree);
+		return tree;
+	}
+
+	/**
+	 * Open a genome wide, memory mapped, sequence file
+	 */
+	public synchronized void openMapped(String fileName) {
+		if (verbose) Timer.showStdErr("Opening memory mapped sequence file '" + fileName + "'");
+		GenomicSequencesMapped gsm = new GenomicSequencesMapped();
+		gsm.open(fileName);
+		sequencesMapped = gsm;
+		mappedChecked = true;
+	}
+
 	/**
 	 * Find a marker (with sequence) containing query 'marker'
 	 * Could trigger loading sequences form database
 	 *
+	 * Note: Once the chromosome's sequences are loaded, this
+	 * method does not lock (it can be invoked concurrently)
+	 *
 	 * @return A markerSeq containing 'marker' or null if nothing is found
 	 */
-	public synchronized MarkerSeq queryMarkerSequence(Marker marker) {
+	public MarkerSeq queryMarkerSequence(Marker marker) {
 		String chr = marker.getChromosomeName();
 
-		// Get or load interval tree
-		if (!intervalForest.hasTree(chr)) loadOrCreateFromGenome(chr);
-		Itree tree = intervalForest.getTreeChromo(chr);
+		// Get published tree (or load it)
+		Itree tree = treeByChr.get(chr);
+		if (tree == null) tree = loadTree(chr);
 
 		// Nothing available
 		if (tree == null || tree.isEmpty()) return null;
@@ -345,15 +419,18 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		// Calculate start and end coordiantes
 		int sstart = marker.getStart() - ms.getStart();
 		int ssend = marker.size() + sstart;
-		String seq = ms.getSequence().substring(sstart, ssend);
+		String seq;
+		if (ms instanceof MarkerSeqMapped) seq = ms.basesAt(sstart, marker.size()); // Only decode the bases we need
+		else seq = ms.getSequence().substring(sstart, ssend);
 
 		// Return sequence in same direction as 'marker'
 		if (marker.isStrandMinus()) seq = GprSeq.reverseWc(seq);
 		return seq;
 	}
 
-	public void reset() {
+	public synchronized void reset() {
 		intervalForest = new IntervalForest();
+		treeByChr.clear();
 	}
 
 	/**
@@ -389,7 +466,7 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 			}
 
 			// Save to file
-			String fileName = Config.get().getFileNameSequence();
+			String fileName = genome.getConfig().getFileNameSequence();
 			if (verbose) Timer.showStdErr("Saving sequences for small chromosmes to file '" + fileName + "'");
 			markers.save(fileName);
 		}
@@ -406,7 +483,7 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 
 		// OK, there is something to save => Save markers to file
 		Itree tree = intervalForest.getTreeChromo(chr);
-		String fileName = Config.get().getFileNameSequence(chr);
+		String fileName = genome.getConfig().getFileNameSequence(chr);
 		if (verbose) Timer.showStdErr("Saving sequences for chromosome '" + chr + "' to file '" + fileName + "'");
 		tree.getIntervals().save(fileName, chr);
 	}
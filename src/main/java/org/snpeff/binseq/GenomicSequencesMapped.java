@@ -0,0 +1,379 @@
+package org.snpeff.binseq;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.snpeff.binseq.coder.DnaCoder;
+import org.snpeff.interval.Chromosome;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Genome wide reference sequences stored in a binary, memory-mappable, file.
+ *
+ * Bases are packed using two bits per base (same codes as DnaCoder) and
+ * the file is opened using 'FileChannel.map', so sequences are never loaded
+ * into the heap: Pages are shared (OS page cache) by all processes
+ * using the same file and opening the file does not require parsing
+ * sequences.
+ *
+ * Bases that cannot be encoded using two bits (e.g. 'N' or other IUB codes)
+ * are stored in an 'N runs' table. Soft masked (lower case) bases are
+ * stored in a 'mask runs' table. Runs are stored as closed intervals
+ * [start, end], sorted by start position.
+ *
+ * File layout (big endian):
+ *
+ * 		MAGIC                     : 8 bytes
+ * 		Format version            : int
+ * 		Index position            : long
+ * 		Data (one entry per chromosome):
+ * 			Packed bases          : byte[(length + 3) / 4] (four bases per byte, first base in the highest bits)
+ * 			N runs                : int[2 * numNRuns]
+ * 			Mask runs             : int[2 * numMaskRuns]
+ * 		Index:
+ * 			Number of chromosomes : int
+ * 			For each chromosome   : name (UTF), length (int), bases position (long),
+ * 			                        N runs position (long), numNRuns (int),
+ * 			                        mask runs position (long), numMaskRuns (int)
+ *
+ * Note: Chromosomes are added one by one, while the file is being written
+ * 		(see 'create', 'add' and 'close'). The file is written to a temporary
+ * 		file and renamed when it is closed, so that incomplete files are
+ * 		never used.
+ *
+ * Note: Once opened, this object is read only and can be queried
+ * 		concurrently from any number of threads.
+ *
+ * @author pcingola
+ */
+public class GenomicSequencesMapped {
+
+	public static final byte[] MAGIC = "SNPEFFSQ".getBytes(StandardCharsets.US_ASCII);
+	public static final int FORMAT_VERSION = 1;
+	public static final int HEADER_SIZE = 20;
+	public static final int SEGMENT_BITS = 30; // File is mapped in segments of 1GB
+	public static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	public static final String TMP_EXT = ".tmp";
+
+	/**
+	 * Index entry for a chromosome
+	 */
+	static class ChrEntry {
+		String name;
+		int length;
+		long posBases, posNRuns, posMaskRuns;
+		int numNRuns, numMaskRuns;
+	}
+
+	String fileName;
+	Map<String, ChrEntry> chrEntries;
+
+	// Writing
+	DataOutputStream out;
+	long outPos;
+
+	// Reading (mapped file)
+	ByteBuffer segments[];
+
+	public GenomicSequencesMapped() {
+		chrEntries = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Add a chromosome sequence
+	 */
+	public void add(String chr, String seq) {
+		if (out == null) throw new RuntimeException("File '" + fileName + "' has not been created");
+
+		ChrEntry ce = new ChrEntry();
+		ce.name = Chromosome.simpleName(chr);
+		ce.length = seq.length();
+
+		TIntArrayList nRuns = new TIntArrayList();
+		TIntArrayList maskRuns = new TIntArrayList();
+		DnaCoder coder = DnaCoder.get();
+		byte bases[] = new byte[(seq.length() + 3) / 4];
+		for (int i = 0; i < seq.length(); i++) {
+			char c = seq.charAt(i);
+			char cu = Character.toUpperCase(c);
+
+			if (cu == 'A' || cu == 'C' || cu == 'G' || cu == 'T') bases[i >> 2] |= coder.baseToBits(cu) << (6 - 2 * (i & 3));
+			else addRun(nRuns, i);
+
+			if (Character.isLowerCase(c)) addRun(maskRuns, i);
+		}
+
+		try {
+			ce.posBases = outPos;
+			write(bases);
+			ce.posNRuns = outPos;
+			ce.numNRuns = nRuns.size() / 2;
+			write(nRuns);
+			ce.posMaskRuns = outPos;
+			ce.numMaskRuns = maskRuns.size() / 2;
+			write(maskRuns);
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing file '" + fileName + "'", e);
+		}
+
+		chrEntries.put(ce.name, ce);
+	}
+
+	/**
+	 * Add position to a list of runs (closed intervals), extending the last run if possible
+	 */
+	void addRun(TIntArrayList runs, int pos) {
+		int n = runs.size();
+		if (n > 0 && runs.get(n - 1) == pos - 1) runs.set(n - 1, pos);
+		else {
+			runs.add(pos);
+			runs.add(pos);
+		}
+	}
+
+	/**
+	 * Finish writing the file: Write index and rename temporary file
+	 */
+	public void close() {
+		if (out == null) return;
+
+		String fileNameTmp = fileName + TMP_EXT;
+		try {
+			// Write index
+			long posIndex = outPos;
+			out.writeInt(chrEntries.size());
+			for (ChrEntry ce : chrEntries.values()) {
+				out.writeUTF(ce.name);
+				out.writeInt(ce.length);
+				out.writeLong(ce.posBases);
+				out.writeLong(ce.posNRuns);
+				out.writeInt(ce.numNRuns);
+				out.writeLong(ce.posMaskRuns);
+				out.writeInt(ce.numMaskRuns);
+			}
+			out.close();
+			out = null;
+
+			// Update index position in header
+			try (RandomAccessFile raf = new RandomAccessFile(fileNameTmp, "rw")) {
+				raf.seek(MAGIC.length + 4);
+				raf.writeLong(posIndex);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing file '" + fileNameTmp + "'", e);
+		}
+
+		// Rename
+		File file = new File(fileName);
+		file.delete();
+		if (!new File(fileNameTmp).renameTo(file)) throw new RuntimeException("Cannot rename file '" + fileNameTmp + "' to '" + fileName + "'");
+	}
+
+	/**
+	 * Create a file (add sequences using 'add' and then invoke 'close')
+	 */
+	public void create(String fileName) {
+		this.fileName = fileName;
+		String fileNameTmp = fileName + TMP_EXT;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileNameTmp)));
+			out.write(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(0); // Index position: Updated when the file is closed
+			outPos = HEADER_SIZE;
+		} catch (IOException e) {
+			throw new RuntimeException("Error creating file '" + fileNameTmp + "'", e);
+		}
+	}
+
+	/**
+	 * Decode bases in chr:[start, end] (closed interval)
+	 * @param softMask : Use upper / lower case according to soft masking
+	 */
+	String decode(String chr, int start, int end, boolean softMask) {
+		ChrEntry ce = chrEntries.get(Chromosome.simpleName(chr));
+		if (ce == null || start < 0 || end >= ce.length) return null;
+		if (end < start) return "";
+
+		char bases[] = new char[end - start + 1];
+		for (int pos = start, i = 0; pos <= end; pos++, i++) {
+			int b = get(ce.posBases + (pos >> 2));
+			bases[i] = DnaCoder.TO_BASE[(b >>> (6 - 2 * (pos & 3))) & 0x03];
+		}
+
+		// Soft masking: Upper case, except masked runs
+		if (softMask) {
+			for (int i = 0; i < bases.length; i++)
+				bases[i] = Character.toUpperCase(bases[i]);
+		}
+
+		decodeRuns(ce.posNRuns, ce.numNRuns, start, end, bases, 'N');
+		if (softMask) decodeRuns(ce.posMaskRuns, ce.numMaskRuns, start, end, bases, '\0');
+		return new String(bases);
+	}
+
+	/**
+	 * Apply runs intersecting [start, end] to 'bases'
+	 * @param base : Replace bases by this one ('\0' means converting to lower case)
+	 */
+	void decodeRuns(long posRuns, int numRuns, int start, int end, char bases[], char base) {
+		// Binary search: First run that ends at or after 'start'
+		int lo = 0, hi = numRuns;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (getInt(posRuns + 8L * mid + 4) < start) lo = mid + 1;
+			else hi = mid;
+		}
+
+		for (int r = lo; r < numRuns; r++) {
+			int runStart = getInt(posRuns + 8L * r);
+			int runEnd = getInt(posRuns + 8L * r + 4);
+			if (runStart > end) break;
+
+			int s = Math.max(runStart, start), e = Math.min(runEnd, end);
+			for (int i = s - start; i <= e - start; i++)
+				bases[i] = (base != '\0' ? base : Character.toLowerCase(bases[i]));
+		}
+	}
+
+	/**
+	 * Read a byte from the mapped file
+	 */
+	int get(long pos) {
+		return segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & SEGMENT_MASK)) & 0xff;
+	}
+
+	/**
+	 * Chromosome length (-1 if the chromosome is not available)
+	 */
+	public int getChromosomeLength(String chr) {
+		ChrEntry ce = chrEntries.get(Chromosome.simpleName(chr));
+		return ce != null ? ce.length : -1;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Read an int from the mapped file
+	 */
+	int getInt(long pos) {
+		return (get(pos) << 24) | (get(pos + 1) << 16) | (get(pos + 2) << 8) | get(pos + 3);
+	}
+
+	/**
+	 * Get sequence for chr:[start, end] (closed interval, zero-based coordinates)
+	 * Bases are encoded the same way as DnaSequence / DnaNSequence (i.e. lower
+	 * case bases, 'N' for ambiguous bases)
+	 *
+	 * @return Sequence or null if the chromosome is not available or the coordinates are out of range
+	 */
+	public String getSequence(String chr, int start, int end) {
+		return decode(chr, start, end, false);
+	}
+
+	/**
+	 * Get sequence for chr:[start, end] (closed interval, zero-based coordinates)
+	 * Bases are upper case, except soft masked bases (lower case) and
+	 * ambiguous bases are 'N' (or 'n' if soft masked)
+	 *
+	 * @return Sequence or null if the chromosome is not available or the coordinates are out of range
+	 */
+	public String getSequenceSoftMasked(String chr, int start, int end) {
+		return decode(chr, start, end, true);
+	}
+
+	public boolean hasChromosome(String chr) {
+		return chrEntries.containsKey(Chromosome.simpleName(chr));
+	}
+
+	/**
+	 * Map file into memory and read index
+	 */
+	public void open(String fileName) {
+		this.fileName = fileName;
+		chrEntries = new LinkedHashMap<>();
+
+		try (RandomAccessFile raf = new RandomAccessFile(fileName, "r"); FileChannel channel = raf.getChannel()) {
+			long fileSize = channel.size();
+
+			// Check header
+			if (fileSize < HEADER_SIZE) throw new RuntimeException("Sequence file '" + fileName + "' is truncated or corrupted");
+			byte magic[] = new byte[MAGIC.length];
+			raf.readFully(magic);
+			for (int i = 0; i < MAGIC.length; i++)
+				if (magic[i] != MAGIC[i]) throw new RuntimeException("Sequence file '" + fileName + "' is not a memory mappable sequence file");
+
+			int formatVersion = raf.readInt();
+			if (formatVersion != FORMAT_VERSION) throw new RuntimeException("Sequence file '" + fileName + "' has incompatible format version " + formatVersion + " (expected " + FORMAT_VERSION + ")");
+
+			long posIndex = raf.readLong();
+			if (posIndex < HEADER_SIZE || posIndex >= fileSize) throw new RuntimeException("Sequence file '" + fileName + "' is truncated or corrupted");
+
+			// Read index
+			raf.seek(posIndex);
+			DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+			int numChrs = in.readInt();
+			for (int i = 0; i < numChrs; i++) {
+				ChrEntry ce = new ChrEntry();
+				ce.name = in.readUTF();
+				ce.length = in.readInt();
+				ce.posBases = in.readLong();
+				ce.posNRuns = in.readLong();
+				ce.numNRuns = in.readInt();
+				ce.posMaskRuns = in.readLong();
+				ce.numMaskRuns = in.readInt();
+				chrEntries.put(ce.name, ce);
+			}
+
+			// Map file (segments of up to 1GB)
+			int numSegments = (int) ((fileSize + SEGMENT_MASK) >>> SEGMENT_BITS);
+			segments = new ByteBuffer[numSegments];
+			for (int i = 0; i < numSegments; i++) {
+				long segStart = ((long) i) << SEGMENT_BITS;
+				long segSize = Math.min(fileSize - segStart, 1L << SEGMENT_BITS);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, segStart, segSize);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening file '" + fileName + "'", e);
+		}
+	}
+
+	public int size() {
+		return chrEntries.size();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Memory mapped sequences '" + fileName + "'\n");
+		for (ChrEntry ce : chrEntries.values())
+			sb.append("\t" + ce.name + "\t" + ce.length + "\tN runs: " + ce.numNRuns + "\tmasked runs: " + ce.numMaskRuns + "\n");
+		return sb.toString();
+	}
+
+	void write(byte data[]) throws IOException {
+		out.write(data);
+		outPos += data.length;
+	}
+
+	void write(TIntArrayList ints) throws IOException {
+		for (int i = 0; i < ints.size(); i++)
+			out.writeInt(ints.get(i));
+		outPos += 4L * ints.size();
+	}
+
+}
@@ -9,6 +9,12 @@ import org.snpeff.binseq.coder.DnaCoder;
 
 /**
  * A codon translation table
+ *
+ * Codons are encoded as 6-bit integers (three bases, two bits per base,
+ * same base codes as DnaCoder), so translating a codon is just a lookup
+ * in a 64-entry table. Codons that cannot be encoded (e.g. partial codons
+ * or codons having 'N' bases) are looked up using the original strings.
+ *
  * @author pcingola
  */
 public class CodonTable {
@@ -25,6 +31,10 @@ public class CodonTable {
 	 * 		otherwise). This is because a separate transfer RNA (tRNA) is used for initiation.
 	 */
 	public static final String DEFAULT_START_CODON = "M";
+	public static final char DEFAULT_START_CODON_CHAR = 'M';
+
+	public static final int CODON_SIZE = 3;
+	public static final int NUM_CODONS = 64; // Number of codon codes (three bases, two bits per base)
 
 	static {
 		aa3letter = new HashMap<>();
@@ -60,7 +70,58 @@ public class CodonTable {
 	HashMap<String, String> aa2codon;
 	HashSet<String> startCodons;
 	HashSet<String> stopCodons;
-	HashMap<String, Integer> degeneracy;
+	byte aaByCodon[]; // Amino acid (one letter code) for each codon code, 0 if not available
+	boolean startByCodon[], stopByCodon[]; // Is each codon code a start / stop codon?
+	int degeneracyByCodon[]; // Degeneracy for each codon code and position (index: CODON_SIZE * codonCode + pos)
+
+	/**
+	 * Encode a base using two bits (same codes as DnaCoder)
+	 * @return Base code or -1 if the base cannot be encoded (e.g. 'N')
+	 */
+	public static int baseCode(char base) {
+		switch (base) {
+		case 'a':
+		case 'A':
+			return 0;
+		case 'c':
+		case 'C':
+			return 1;
+		case 'g':
+		case 'G':
+			return 2;
+		case 't':
+		case 'T':
+			return 3;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * Encode a codon (three bases starting at 'start') as a 6-bit integer
+	 * @return Codon code or -1 if the codon cannot be encoded (e.g. less than three bases or 'N' bases)
+	 */
+	public static int codonCode(String codons, int start) {
+		if (start + CODON_SIZE > codons.length()) return -1;
+
+		int b1 = baseCode(codons.charAt(start));
+		int b2 = baseCode(codons.charAt(start + 1));
+		int b3 = baseCode(codons.charAt(start + 2));
+		if ((b1 | b2 | b3) < 0) return -1;
+
+		return (b1 << 4) | (b2 << 2) | b3;
+	}
+
+	/**
+	 * Decode a codon code (lower case bases)
+	 */
+	public static String codonStr(int codonCode) {
+		char codon[] = new char[CODON_SIZE];
+		codon[0] = DnaCoder.TO_BASE[(codonCode >> 4) & 0x03];
+		codon[1] = DnaCoder.TO_BASE[(codonCode >> 2) & 0x03];
+		codon[2] = DnaCoder.TO_BASE[codonCode & 0x03];
+		return new String(codon);
+	}
 
 	public CodonTable(String name, String table) {
 		this.name = name;
@@ -68,6 +129,9 @@ public class CodonTable {
 		aa2codon = new HashMap<>();
 		startCodons = new HashSet<>();
 		stopCodons = new HashSet<>();
+		aaByCodon = new byte[NUM_CODONS];
+		startByCodon = new boolean[NUM_CODONS];
+		stopByCodon = new boolean[NUM_CODONS];
 		//		startAas = new HashSet<String>();
 		parse(table);
 		calcDegeneracy();
@@ -83,26 +147,24 @@ public class CodonTable {
 	public String aa(String codons, boolean fullProteinSequence) {
 		if (codons.isEmpty()) return "";
 
-		char bases[] = codons.toCharArray();
-		StringBuilder aas = new StringBuilder();
-
-		int aaNum = 0;
-		for (int i = 0; i < bases.length;) {
-			// Append bases to codon
-			String cod = "";
-			for (int j = 0; (j < 3) && (i < bases.length); j++, i++)
-				cod += bases[i];
-
-			// Translate codon to amino acid
-			String aa = codon2aa.get(cod.toUpperCase());
-
-			if (aa == null) aa = "?";
-
-			// When translating a full protein sequence, start codons are always translated as 'M'
-			if (fullProteinSequence && aaNum == 0 && isStart(cod)) aa = DEFAULT_START_CODON;
-
-			aas.append(aa);
-			aaNum++;
+		int len = codons.length();
+		StringBuilder aas = new StringBuilder(len / CODON_SIZE + 1);
+		for (int i = 0, aaNum = 0; i < len; i += CODON_SIZE, aaNum++) {
+			int code = codonCode(codons, i);
+
+			if (code >= 0 && aaByCodon[code] != 0) {
+				// Translate codon to amino acid
+				// When translating a full protein sequence, start codons are always translated as 'M'
+				if (fullProteinSequence && aaNum == 0 && startByCodon[code]) aas.append(DEFAULT_START_CODON_CHAR);
+				else aas.append((char) aaByCodon[code]);
+			} else {
+				// Codon cannot be encoded (e.g. partial codon or 'N' bases)
+				String cod = codons.substring(i, Math.min(len, i + CODON_SIZE));
+				String aa = codon2aa.get(cod.toUpperCase());
+				if (aa == null) aa = "?";
+				if (fullProteinSequence && aaNum == 0 && isStart(cod)) aa = DEFAULT_START_CODON;
+				aas.append(aa);
+			}
 		}
 
 		return aas.toString();
@@ -141,31 +203,23 @@ public class CodonTable {
 	 * Calculate degeneracy table
 	 */
 	void calcDegeneracy() {
-		degeneracy = new HashMap<>();
-
-		for (char base1 : DnaCoder.TO_BASE)
-			for (char base2 : DnaCoder.TO_BASE)
-				for (char base3 : DnaCoder.TO_BASE) {
-
-					char c[] = { base1, base2, base3 };
-					String codonStrOld = new String(c);
-					String aaOld = aa(codonStrOld);
-
-					for (int pos = 0; pos < 3; pos++) {
-						int count = 0;
-						for (char baseNew : DnaCoder.TO_BASE) {
-							char codon[] = { base1, base2, base3 };
-							codon[pos] = baseNew;
-							String codonStrNew = new String(codon);
-							String aaNew = aa(codonStrNew);
-
-							if (aaOld.equals(aaNew)) count++; // Same AA after changing base[pos]? => count (it's a degenerate)
-						}
-
-						String key = codonStrOld.toUpperCase() + "_" + pos;
-						degeneracy.put(key, count);
-					}
+		degeneracyByCodon = new int[CODON_SIZE * NUM_CODONS];
+
+		for (int code = 0; code < NUM_CODONS; code++) {
+			String aaOld = aa(codonStr(code));
+
+			for (int pos = 0; pos < CODON_SIZE; pos++) {
+				int shift = 2 * (CODON_SIZE - 1 - pos);
+				int count = 0;
+				for (int baseNew = 0; baseNew < 4; baseNew++) {
+					int codeNew = (code & ~(0x03 << shift)) | (baseNew << shift);
+					String aaNew = aa(codonStr(codeNew));
+					if (aaOld.equals(aaNew)) count++; // Same AA after changing base[pos]? => count (it's a degenerate)
 				}
+
+				degeneracyByCodon[CODON_SIZE * code + pos] = count;
+			}
+		}
 	}
 
 	/**
@@ -197,10 +251,9 @@ public class CodonTable {
 	 * @return Degenracy level, or '-1' if not available
 	 */
 	public int degenerate(String codon, int pos) {
-		// if( codon.length() != 3 ) throw new RuntimeException("Error: Codon does not have three bases '" + codon + "'");
-		String key = codon.toUpperCase() + "_" + pos;
-		Integer degLevel = degeneracy.get(key);
-		return degLevel != null ? degLevel : -1; // Return '-1'
+		if (codon.length() != CODON_SIZE || pos < 0 || pos >= CODON_SIZE) return -1;
+		int code = codonCode(codon, 0);
+		return code >= 0 ? degeneracyByCodon[CODON_SIZE * code + pos] : -1; // Return '-1'
 	}
 
 	public String getName() {
@@ -208,41 +261,43 @@ public class CodonTable {
 	}
 
 	/**
-	 * Is 'codon' a start codon in this table?
+	 * Is any codon in 'codons' a member of 'codonSet' (or 'codonTable' for encoded codons)
 	 */
-	public boolean isStart(String codon) {
-		if (codon.length() == 3) return startCodons.contains(codon.toUpperCase());
-
-		for (int i = 0; i < codon.length(); i += 3) {
-			int max = Math.min(codon.length(), i + 3);
-			String codonSigle = codon.substring(i, max);
-			if (startCodons.contains(codonSigle.toUpperCase())) return true;
+	boolean is(String codons, HashSet<String> codonSet, boolean codonTable[]) {
+		int len = codons.length();
+		for (int i = 0; i < len; i += CODON_SIZE) {
+			int code = codonCode(codons, i);
+			if (code >= 0) {
+				if (codonTable[code]) return true;
+			} else if (codonSet.contains(codons.substring(i, Math.min(len, i + CODON_SIZE)).toUpperCase())) return true;
 		}
 
 		return false;
 	}
 
+	/**
+	 * Is 'codon' a start codon in this table?
+	 */
+	public boolean isStart(String codon) {
+		return is(codon, startCodons, startByCodon);
+	}
+
 	/**
 	 * Is the first codon a 'start' codon?
 	 */
 	public boolean isStartFirst(String codon) {
-		if (codon.length() < 3) return false;
-		return isStart(codon.substring(0, 3));
+		if (codon.length() < CODON_SIZE) return false;
+
+		int code = codonCode(codon, 0);
+		if (code >= 0) return startByCodon[code];
+		return isStart(codon.substring(0, CODON_SIZE));
 	}
 
 	/**
 	 * Is 'codon' a stop codon in this table?
 	 */
 	public boolean isStop(String codon) {
-		if (codon.length() == 3) return stopCodons.contains(codon.toUpperCase());
-
-		for (int i = 0; i < codon.length(); i += 3) {
-			int max = Math.min(codon.length(), i + 3);
-			String codonSigle = codon.substring(i, max);
-			if (stopCodons.contains(codonSigle.toUpperCase())) return true;
-		}
-
-		return false;
+		return is(codon, stopCodons, stopByCodon);
 	}
 
 	/**
@@ -283,6 +338,14 @@ public class CodonTable {
 
 					aa2codon.put(aa, codon);
 					codon2aa.put(codon, aa);
+
+					// Update lookup tables
+					int code = codonCode(codon, 0);
+					if (codon.length() == CODON_SIZE && code >= 0) {
+						aaByCodon[code] = (byte) (aa.length() == 1 ? aa.charAt(0) : 0);
+						startByCodon[code] = startCodons.contains(codon);
+						stopByCodon[code] = stopCodons.contains(codon);
+					}
 				} else throw new RuntimeException("Error reading codon table. Cannot parse entry: '" + entry + "'\n\tTable: '" + table + "'");
 			}
 		}
@@ -0,0 +1,94 @@
+package org.snpeff.collections;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache: When the cache is full, the least recently used entry is removed
+ *
+ * Note: This class is thread safe
+ *
+ * @author pcingola
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LruCache<K, V> {
+
+	int maxSize;
+	long countHits, countMisses;
+	LinkedHashMap<K, V> map;
+
+	public LruCache(int maxSize) {
+		this.maxSize = maxSize;
+		map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 2052164396371738813L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > LruCache.this.maxSize;
+			}
+		};
+	}
+
+	public synchronized void clear() {
+		map.clear();
+		countHits = countMisses = 0;
+	}
+
+	/**
+	 * Get a value (null if not in cache)
+	 */
+	public synchronized V get(K key) {
+		V value = map.get(key);
+		if (value != null) countHits++;
+		else countMisses++;
+		return value;
+	}
+
+	public synchronized long getCountHits() {
+		return countHits;
+	}
+
+	public synchronized long getCountMisses() {
+		return countMisses;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized void put(K key, V value) {
+		map.put(key, value);
+	}
+
+	/**
+	 * Add a value only if the key is not already in the cache
+	 * @return The value previously associated with the key (null if none)
+	 */
+	public synchronized V putIfAbsent(K key, V value) {
+		V prev = map.get(key);
+		if (prev == null) map.put(key, value);
+		return prev;
+	}
+
+	public synchronized V remove(K key) {
+		return map.remove(key);
+	}
+
+	public synchronized int size() {
+		return map.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		long total = countHits + countMisses;
+		return "size: " + map.size() + " / " + maxSize //
+				+ ", hits: " + countHits //
+				+ ", misses: " + countMisses //
+				+ (total > 0 ? ", hit rate: " + (100 * countHits / total) + "%" : "") //
+				;
+	}
+
+}
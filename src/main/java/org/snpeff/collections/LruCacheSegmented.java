@@ -0,0 +1,204 @@
+package org.snpeff.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache split into segments. Keys are assigned to segments by
+ * hash, each segment has its own (concurrent) map.
+ *
+ * Reading does not lock: An entry is looked up and its 'last used' time
+ * is updated. Adding an entry locks only its segment and, if the segment
+ * is full, removes the segment's least recently used entry.
+ *
+ * Note: The 'least recently used' order is kept per segment, so
+ * evictions are only approximately LRU.
+ *
+ * Note: This class is thread safe
+ *
+ * @author pcingola
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LruCacheSegmented<K, V> {
+
+	/**
+	 * A cached value and the last time it was used
+	 */
+	static class Entry<V> {
+		final V value;
+		volatile long lastUsed;
+
+		Entry(V value, long lastUsed) {
+			this.value = value;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	/**
+	 * A segment: Concurrent map (lock free reads), bounded by 'maxSize'
+	 */
+	static class Segment<K, V> {
+		final int maxSize;
+		final ConcurrentHashMap<K, Entry<V>> map;
+		final AtomicLong countHits, countMisses;
+		volatile long clock; // Orders entries by use. Note: Increments are not atomic, races only make the order approximate
+
+		Segment(int maxSize) {
+			this.maxSize = maxSize;
+			map = new ConcurrentHashMap<>();
+			countHits = new AtomicLong();
+			countMisses = new AtomicLong();
+		}
+
+		/**
+		 * Remove least recently used entries until the segment is not over its size
+		 * Note: Invoked while holding the segment's lock
+		 */
+		void evict() {
+			while (map.size() > maxSize) {
+				K keyOldest = null;
+				long oldest = Long.MAX_VALUE;
+				for (Map.Entry<K, Entry<V>> me : map.entrySet()) {
+					long lastUsed = me.getValue().lastUsed;
+					if (keyOldest == null || lastUsed - oldest < 0) {
+						keyOldest = me.getKey();
+						oldest = lastUsed;
+					}
+				}
+				map.remove(keyOldest);
+			}
+		}
+	}
+
+	public static final int DEFAULT_NUM_SEGMENTS = 64;
+
+	int maxSize;
+	List<Segment<K, V>> segments;
+
+	public LruCacheSegmented(int maxSize) {
+		this(maxSize, DEFAULT_NUM_SEGMENTS);
+	}
+
+	public LruCacheSegmented(int maxSize, int numSegments) {
+		this.maxSize = maxSize;
+
+		// Split 'maxSize' among segments (every segment holds at least one entry)
+		numSegments = Math.max(1, Math.min(numSegments, maxSize));
+		segments = new ArrayList<>(numSegments);
+		for (int i = 0; i < numSegments; i++) {
+			int segSize = maxSize / numSegments + (i < maxSize % numSegments ? 1 : 0);
+			segments.add(new Segment<K, V>(Math.max(1, segSize)));
+		}
+	}
+
+	public void clear() {
+		for (Segment<K, V> seg : segments) {
+			seg.map.clear();
+			seg.countHits.set(0);
+			seg.countMisses.set(0);
+		}
+	}
+
+	/**
+	 * Get a value (null if not in cache)
+	 * Note: This method does not lock
+	 */
+	public V get(K key) {
+		Segment<K, V> seg = segment(key);
+		Entry<V> entry = seg.map.get(key);
+		if (entry == null) {
+			seg.countMisses.incrementAndGet();
+			return null;
+		}
+
+		entry.lastUsed = ++seg.clock;
+		seg.countHits.incrementAndGet();
+		return entry.value;
+	}
+
+	public long getCountHits() {
+		long count = 0;
+		for (Segment<K, V> seg : segments)
+			count += seg.countHits.get();
+		return count;
+	}
+
+	public long getCountMisses() {
+		long count = 0;
+		for (Segment<K, V> seg : segments)
+			count += seg.countMisses.get();
+		return count;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getNumSegments() {
+		return segments.size();
+	}
+
+	public void put(K key, V value) {
+		Segment<K, V> seg = segment(key);
+		synchronized (seg) {
+			seg.map.put(key, new Entry<V>(value, ++seg.clock));
+			seg.evict();
+		}
+	}
+
+	/**
+	 * Add a value only if the key is not already in the cache
+	 * @return The value previously associated with the key (null if none)
+	 */
+	public V putIfAbsent(K key, V value) {
+		Segment<K, V> seg = segment(key);
+		synchronized (seg) {
+			Entry<V> prev = seg.map.putIfAbsent(key, new Entry<V>(value, ++seg.clock));
+			if (prev != null) return prev.value;
+			seg.evict();
+			return null;
+		}
+	}
+
+	public V remove(K key) {
+		Entry<V> entry = segment(key).map.remove(key);
+		return entry != null ? entry.value : null;
+	}
+
+	/**
+	 * Segment for this key
+	 */
+	Segment<K, V> segment(K key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16); // Spread high bits (e.g. consecutive 'long' keys)
+		return segments.get((h & 0x7fffffff) % segments.size());
+	}
+
+	/**
+	 * Number of entries (sum of all segments)
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> seg : segments)
+			size += seg.map.size();
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		long hits = getCountHits(), misses = getCountMisses();
+		long total = hits + misses;
+		return "size: " + size() + " / " + maxSize //
+				+ ", segments: " + segments.size() //
+				+ ", hits: " + hits //
+				+ ", misses: " + misses //
+				+ (total > 0 ? ", hit rate: " + (100 * hits / total) + "%" : "") //
+				;
+	}
+
+}
@@ -1,5 +1,6 @@
 package org.snpeff.fileIterator;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 
 import org.snpeff.interval.Chromosome;
@@ -45,6 +46,14 @@ public class BedFileIterator extends VariantFileIterator {
 		return markers;
 	}
 
+	/**
+	 * Create a BED parser, no file is opened (see parse() method)
+	 */
+	public BedFileIterator(Genome genome) {
+		super((BufferedReader) null, genome);
+		inOffset = 0;
+	}
+
 	public BedFileIterator(String fileName) {
 		super(fileName);
 		inOffset = 0;
@@ -55,50 +64,56 @@ public class BedFileIterator extends VariantFileIterator {
 		inOffset = 0;
 	}
 
+	/**
+	 * Parse a BED line
+	 * @return A variant or null if the line is empty, a comment or has too few fields
+	 */
+	public Variant parse(String line) {
+		// Ignore empty lines and comment lines
+		if ((line.length() <= 0) || line.startsWith("#")) return null;
+
+		// Is line OK?
+		String fields[] = line.split("\\t");
+		if (fields.length < 2) return null;
+
+		// Format: CHR \t START \t END \t ID \t SCORE \t ....
+		// Fields
+		String chromosome = fields[0].trim();
+		Chromosome chromo = getChromosome(chromosome);
+		sanityCheckChromo(chromosome, chromo); // Sanity check
+
+		// Start
+		int start = parsePosition(fields[1]);
+
+		// End
+		int end = start;
+		if (fields.length > 2) end = parsePosition(fields[2]) - 1; // The chromEnd base is not included
+		if (end < start) end = start;
+
+		// ID
+		String id = "line_" + lineNum;
+		if ((fields.length > 3) && (!fields[3].isEmpty())) id = fields[3];
+
+		// Score
+		double score = 0;
+		if (fields.length > 4) score = Gpr.parseDoubleSafe(fields[4]);
+
+		// Create variant
+		Variant variant = new VariantWithScore(chromo, start, end, id, score);
+		variant.setChromosomeNameOri(chromosome);
+		return variant;
+	}
+
 	@Override
 	protected Variant readNext() {
 		// Try to read a line
 		try {
 			while (ready()) {
 				line = readLine();
-
 				if (line == null) return null; // End of file?
 
-				// Ignore empty lines and comment lines
-				if ((line.length() > 0) && (!line.startsWith("#"))) {
-					// Parse line
-					String fields[] = line.split("\\t");
-
-					// Is line OK?
-					if (fields.length >= 2) {
-						// Format: CHR \t START \t END \t ID \t SCORE \t ....
-						// Fields
-						String chromosome = fields[0].trim();
-						Chromosome chromo = getChromosome(chromosome);
-						sanityCheckChromo(chromosome, chromo); // Sanity check
-
-						// Start
-						int start = parsePosition(fields[1]);
-
-						// End
-						int end = start;
-						if (fields.length > 2) end = parsePosition(fields[2]) - 1; // The chromEnd base is not included
-						if (end < start) end = start;
-
-						// ID
-						String id = "line_" + lineNum;
-						if ((fields.length > 3) && (!fields[3].isEmpty())) id = fields[3];
-
-						// Score
-						double score = 0;
-						if (fields.length > 4) score = Gpr.parseDoubleSafe(fields[4]);
-
-						// Create variant
-						Variant variant = new VariantWithScore(chromo, start, end, id, score);
-						variant.setChromosomeNameOri(chromosome);
-						return variant;
-					}
-				}
+				Variant variant = parse(line);
+				if (variant != null) return variant;
 			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
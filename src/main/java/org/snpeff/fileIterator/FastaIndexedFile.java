@@ -0,0 +1,195 @@
+package org.snpeff.fileIterator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.snpeff.interval.Chromosome;
+import org.snpeff.util.Gpr;
+
+/**
+ * Random access to sequences in a FASTA file indexed using
+ * 'samtools faidx' (i.e. having a 'file.fa.fai' index).
+ *
+ * The FASTA file is memory mapped, so only the regions queried are
+ * read (e.g. exons) and the file can be queried concurrently from
+ * any number of threads.
+ *
+ * Index format (one line per sequence, tab separated):
+ *
+ * 		name, length, offset (first base), bases per line, bytes per line
+ *
+ * Note: Compressed (bgzip) FASTA files are not supported.
+ *
+ * @author pcingola
+ */
+public class FastaIndexedFile {
+
+	public static final String FAI_EXT = ".fai";
+	public static final int SEGMENT_BITS = 30; // File is mapped in segments of 1GB
+	public static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	/**
+	 * Index entry for a sequence
+	 */
+	static class FaiEntry {
+		String name; // Name used in FASTA file
+		int length;
+		long offset;
+		int lineBases, lineBytes;
+	}
+
+	String fileName;
+	long size;
+	Map<String, FaiEntry> entries; // Index entries by (simple) chromosome name
+	ByteBuffer segments[]; // Memory mapped file
+
+	/**
+	 * Is this an (uncompressed) FASTA file having a 'fai' index?
+	 */
+	public static boolean isIndexed(String fastaFile) {
+		return !fastaFile.endsWith(".gz") && Gpr.canRead(fastaFile) && Gpr.canRead(fastaFile + FAI_EXT);
+	}
+
+	public FastaIndexedFile(String fileName) {
+		this.fileName = fileName;
+		readIndex();
+		open();
+	}
+
+	public void close() {
+		segments = null;
+	}
+
+	FaiEntry getEntry(String chr) {
+		FaiEntry fe = entries.get(Chromosome.simpleName(chr));
+		if (fe == null) throw new RuntimeException("Sequence '" + chr + "' not found in index file '" + fileName + FAI_EXT + "'");
+		return fe;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Sequence length
+	 */
+	public int getLength(String chr) {
+		return getEntry(chr).length;
+	}
+
+	/**
+	 * Sequence names (simple chromosome names, in the same order as the file)
+	 */
+	public List<String> getNames() {
+		return new ArrayList<>(entries.keySet());
+	}
+
+	/**
+	 * Get the whole sequence
+	 */
+	public String getSequence(String chr) {
+		return getSequence(chr, 0, getLength(chr));
+	}
+
+	/**
+	 * Get a sub-sequence
+	 * Note: Coordinates are zero-based, 'end' is not included (same as String.substring)
+	 */
+	public String getSequence(String chr, int start, int end) {
+		FaiEntry fe = getEntry(chr);
+		if (start < 0 || end > fe.length || start > end) throw new RuntimeException("Invalid coordinates [" + start + ", " + end + ") for sequence '" + chr + "', length " + fe.length);
+
+		char seq[] = new char[end - start];
+		int i = 0;
+		for (int pos = start; pos < end;) {
+			// Read from current position to the end of the line
+			int lineNum = pos / fe.lineBases;
+			int lineEnd = Math.min(end, (lineNum + 1) * fe.lineBases);
+			long filePos = fe.offset + ((long) lineNum) * fe.lineBytes + (pos - lineNum * fe.lineBases);
+
+			for (; pos < lineEnd; pos++, filePos++)
+				seq[i++] = (char) (get(filePos) & 0xff);
+		}
+
+		return new String(seq);
+	}
+
+	public boolean hasSequence(String chr) {
+		return entries.containsKey(Chromosome.simpleName(chr));
+	}
+
+	byte get(long pos) {
+		if (pos >= size) throw new RuntimeException("Position " + pos + " is after the end of file '" + fileName + "'. Is the index up to date?");
+		return segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & SEGMENT_MASK));
+	}
+
+	/**
+	 * Map file into memory
+	 */
+	void open() {
+		try (RandomAccessFile raf = new RandomAccessFile(fileName, "r"); FileChannel channel = raf.getChannel()) {
+			size = channel.size();
+
+			// Map file (segments of up to 1GB)
+			int numSegments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+			segments = new ByteBuffer[numSegments];
+			for (int i = 0; i < numSegments; i++) {
+				long segStart = ((long) i) << SEGMENT_BITS;
+				long segSize = Math.min(size - segStart, 1L << SEGMENT_BITS);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, segStart, segSize);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Read 'fai' index file
+	 */
+	void readIndex() {
+		String faiFile = fileName + FAI_EXT;
+		entries = new LinkedHashMap<>();
+
+		try {
+			BufferedReader reader = Gpr.reader(faiFile);
+			int lineNum = 0;
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				lineNum++;
+				if (line.isEmpty()) continue;
+
+				String fields[] = line.split("\t");
+				if (fields.length < 5) throw new RuntimeException("Invalid index file '" + faiFile + "', line " + lineNum + ": '" + line + "'");
+
+				FaiEntry fe = new FaiEntry();
+				fe.name = fields[0];
+				fe.length = Gpr.parseIntSafe(fields[1]);
+				fe.offset = Gpr.parseLongSafe(fields[2]);
+				fe.lineBases = Gpr.parseIntSafe(fields[3]);
+				fe.lineBytes = Gpr.parseIntSafe(fields[4]);
+				if (fe.lineBases <= 0 && fe.length > 0) throw new RuntimeException("Invalid index file '" + faiFile + "', line " + lineNum + ": '" + line + "'");
+
+				entries.put(Chromosome.simpleName(fe.name), fe);
+			}
+			reader.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading index file '" + faiFile + "'", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Indexed FASTA file '" + fileName + "'\n");
+		for (FaiEntry fe : entries.values())
+			sb.append("\t" + fe.name + "\t" + fe.length + "\n");
+		return sb.toString();
+	}
+
+}
@@ -137,6 +137,17 @@ public class SeekableBufferedReader extends BufferedReader {
 
 			// Find end of line
 			int nl = findNl(next, last);
+
+			// Fast path: Line is entirely in buffer, create the string directly (no StringBuilder)
+			if ((sb == null) && (nl >= 0)) {
+				int end = nl;
+				while ((end > next) && (buffer[end - 1] == '\r'))
+					end--;
+				String line = new String(buffer, next, end - next);
+				next = nl + 1;
+				return line;
+			}
+
 			if (sb == null) sb = new StringBuilder();
 			if (nl >= 0) {
 				sb.append(new String(buffer, next, nl - next));
@@ -0,0 +1,183 @@
+package org.snpeff.fileIterator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.samtools.tabix.TabixIterator;
+import net.sf.samtools.tabix.TabixReader;
+
+/**
+ * A reader for some genomic regions of a file compressed
+ * using bgzip and indexed using tabix (e.g. a VCF file).
+ *
+ * Header lines are returned first, then all lines from
+ * each region (in the same order as 'regions').
+ *
+ * A line belongs to a region if it starts within the region,
+ * so lines are never returned twice for adjacent regions (e.g.
+ * shards of a file) even if they span more than one region.
+ *
+ * Regions format: "chr", "chr:start" or "chr:start-end" (one-based,
+ * same as 'tabix' command)
+ *
+ * @author pcingola
+ */
+public class TabixRegionsReader extends BufferedReader {
+
+	/**
+	 * A genomic region: Zero-based, half-open coordinates
+	 */
+	public static class Region {
+		public final String chr;
+		public final int start, end;
+
+		/**
+		 * Parse a region: "chr", "chr:start" or "chr:start-end" (one-based)
+		 *
+		 * Note: Chromosome names may contain ':' and '-' (e.g. "HLA-A*01:01:01:01:100-200"),
+		 * so coordinates are separated at the last ':'. A chromosome name containing ':'
+		 * must include coordinates
+		 */
+		public static Region parse(String region) {
+			int colon = region.lastIndexOf(':');
+			if (colon < 0) return new Region(region, 0, Integer.MAX_VALUE);
+
+			String chr = region.substring(0, colon);
+			String coords = region.substring(colon + 1);
+			int hyphen = coords.indexOf('-');
+			try {
+				int start = Integer.parseInt(hyphen >= 0 ? coords.substring(0, hyphen) : coords) - 1;
+				int end = hyphen >= 0 ? Integer.parseInt(coords.substring(hyphen + 1)) : Integer.MAX_VALUE;
+				if (chr.isEmpty() || start < 0 || end <= start) throw new RuntimeException("Invalid region '" + region + "'");
+				return new Region(chr, start, end);
+			} catch (NumberFormatException e) {
+				throw new RuntimeException("Invalid region '" + region + "'", e);
+			}
+		}
+
+		public Region(String chr, int start, int end) {
+			this.chr = chr;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public String toString() {
+			return chr + ":" + (start + 1) + (end < Integer.MAX_VALUE ? "-" + end : "");
+		}
+	}
+
+	TabixReader tabixReader;
+	List<Region> regions;
+	int regionIdx; // Next region to query
+	int regionStart, regionEnd; // Current region: zero-based, half-open
+	TabixIterator tabixIterator;
+	boolean header = true; // Still reading header lines?
+
+	/**
+	 * Split all sequences in a tabix indexed file into 'numShards'
+	 * regions (of approximately the same genomic size) and return
+	 * the regions for shard number 'shardNum' (one-based)
+	 */
+	public static List<Region> shard(TabixReader tabixReader, int shardNum, int numShards) {
+		if (shardNum < 1 || shardNum > numShards) throw new RuntimeException("Invalid shard number " + shardNum + "/" + numShards);
+
+		// Total size
+		long total = 0;
+		for (String chr : tabixReader.getSequenceNames())
+			total += tabixReader.getMaxPosition(chr);
+
+		// Shard coordinates (using all sequences concatenated)
+		long shardStart = total * (shardNum - 1) / numShards;
+		long shardEnd = total * shardNum / numShards;
+
+		// Regions intersecting the shard
+		List<Region> regions = new ArrayList<>();
+		long offset = 0;
+		for (String chr : tabixReader.getSequenceNames()) {
+			int len = tabixReader.getMaxPosition(chr);
+			long start = Math.max(shardStart, offset);
+			long end = Math.min(shardEnd, offset + len);
+
+			// Note: Last region in a chromosome has no end, so records are not missed
+			if (start < end) regions.add(new Region(chr, (int) (start - offset), end < offset + len ? (int) (end - offset) : Integer.MAX_VALUE));
+			offset += len;
+		}
+
+		return regions;
+	}
+
+	public TabixRegionsReader(String fileName, List<Region> regions) throws IOException {
+		super(new NullReader());
+		tabixReader = new TabixReader(fileName);
+		this.regions = regions;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (tabixReader != null) tabixReader.close();
+		tabixReader = null;
+		tabixIterator = null;
+	}
+
+	/**
+	 * Does this line start within current region?
+	 */
+	boolean inRegion(String line) {
+		int tab1 = line.indexOf('\t');
+		if (tab1 < 0) return false;
+		int tab2 = line.indexOf('\t', tab1 + 1);
+		if (tab2 < 0) tab2 = line.length();
+
+		int start;
+		try {
+			start = Integer.parseInt(line.substring(tab1 + 1, tab2)) - 1;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		return (regionStart <= start) && (start < regionEnd);
+	}
+
+	/**
+	 * Query next region
+	 * @return false if there are no more regions
+	 */
+	boolean nextRegion() {
+		tabixIterator = null;
+		while (tabixIterator == null) {
+			if (regionIdx >= regions.size()) return false;
+
+			Region region = regions.get(regionIdx++);
+			regionStart = region.start;
+			regionEnd = region.end;
+
+			tabixIterator = tabixReader.query(region.chr, region.start, region.end); // Null if sequence is not in index
+		}
+		return true;
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		if (tabixReader == null) return null;
+
+		// Header lines
+		if (header) {
+			String line = tabixReader.readLine();
+			if (line != null && line.startsWith("#")) return line;
+			header = false;
+		}
+
+		// Lines from regions
+		while (true) {
+			while (tabixIterator == null || !tabixIterator.hasNext())
+				if (!nextRegion()) return null;
+
+			String line = tabixIterator.next();
+			if (inRegion(line)) return line;
+		}
+	}
+
+}
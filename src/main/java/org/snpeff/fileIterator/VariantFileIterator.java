@@ -1,5 +1,7 @@
 package org.snpeff.fileIterator;
 
+import java.io.BufferedReader;
+
 import org.snpeff.interval.Genome;
 import org.snpeff.interval.Variant;
 
@@ -10,6 +12,10 @@ import org.snpeff.interval.Variant;
  */
 public abstract class VariantFileIterator extends MarkerFileIterator<Variant> {
 
+	public VariantFileIterator(BufferedReader reader, Genome genome) {
+		super(reader, genome, 1);
+	}
+
 	public VariantFileIterator(String fileName, Genome genome) {
 		super(fileName, genome, 1);
 	}
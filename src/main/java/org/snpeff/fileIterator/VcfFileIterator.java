@@ -69,6 +69,10 @@ public class VcfFileIterator extends MarkerFileIterator<VcfEntry> implements Par
 		super(reader, 1);
 	}
 
+	public VcfFileIterator(BufferedReader reader, Genome genome) {
+		super(reader, genome, 1);
+	}
+
 	public VcfFileIterator(String fileName) {
 		super(fileName, 1);
 	}
@@ -48,7 +48,7 @@ public class GeneStats {
 			numberOfExonsTotal += tr.numChilds();
 			numberOfExonsMax = Math.max(numberOfExonsMax, tr.numChilds());
 
-			int cdsLen = tr.cds().length();
+			int cdsLen = tr.cdsLength();
 			cdsLengthTotal += cdsLen;
 			cdsLengthMax = Math.max(cdsLengthMax, cdsLen);
 
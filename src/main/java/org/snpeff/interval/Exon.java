@@ -5,7 +5,6 @@ import java.util.ArrayList;
 import org.snpeff.interval.Variant.VariantType;
 import org.snpeff.interval.codonChange.CodonChange;
 import org.snpeff.serializer.MarkerSerializer;
-import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.VariantEffect.ErrorWarningType;
 import org.snpeff.snpEffect.VariantEffects;
@@ -324,7 +323,7 @@ public class Exon extends MarkerSeq implements MarkerWithFrame {
 		if (!intersects(variant)) return false;
 
 		Transcript tr = (Transcript) parent;
-		boolean coding = tr.isProteinCoding() || Config.get().isTreatAllAsProteinCoding();
+		boolean coding = tr.isProteinCoding() || getConfig().isTreatAllAsProteinCoding();
 
 		// Different analysis for coding or non-coding
 		boolean exonAnnotated = false;
@@ -5,7 +5,6 @@ import java.util.ArrayList;
 import java.util.Set;
 
 import org.snpeff.serializer.MarkerSerializer;
-import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.VariantEffect;
 import org.snpeff.snpEffect.VariantEffect.ErrorWarningType;
@@ -93,7 +92,7 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 				end = newEnd;
 				changed = true;
 			}
-		} else if (Config.get().isDebug()) {
+		} else if (getConfig().isDebug()) {
 			Gpr.debug("Gene '" + id + "' (name:'" + geneName + "') not adjusted: " + this);
 		}
 
@@ -112,7 +111,7 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 		if (isProteinCoding()) {
 			// Find canonical transcript in protein coding gene (longest CDS)
 			for (Transcript t : this) {
-				int tlen = t.cds().length();
+				int tlen = t.cdsLength();
 
 				// Compare coding length. If both lengths are equal, compare IDs
 				if (t.isProteinCoding() //
@@ -128,7 +127,7 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 		} else {
 			// Find canonical transcript in non-protein coding gene (longest mRNA)
 			for (Transcript t : this) {
-				int tlen = t.mRna().length();
+				int tlen = t.mRnaLength();
 
 				if (canonicalLen <= tlen //
 						&& ((canonical == null) // No canonical selected so far? => Select this one
@@ -303,7 +302,7 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 			}
 		}
 
-		if (Config.get().isDebug()) Gpr.debug("Gene '', removing " + countRemoved + " / " + numChilds() + " unchecked transcript.");
+		if (getConfig().isDebug()) Gpr.debug("Gene '', removing " + countRemoved + " / " + numChilds() + " unchecked transcript.");
 
 		// Remove
 		for (Transcript t : toDelete)
@@ -498,14 +497,14 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 		// This is done in order to comply with HGVS notation
 		//---
 		boolean shifted3prime = false;
-		if (Config.get().isHgvsShift()) {
+		if (getConfig().isHgvsShift()) {
 			// Keep track of the original variants, just in case it is changed
 			Variant variantOri = variant;
 			// Do we need to 'walk and roll'? I.e. align variant towards the most 3-prime
 			// end of the transcript? Note that VCF request variants to be aligned towards
 			// the 'leftmost' coordinate, so this re-alignment is only required for variants
 			// within transcripts on the positive strand.
-			if (!variant.isSnp() && Config.get().isHgvsShift() && isStrandPlus()) {
+			if (!variant.isSnp() && getConfig().isHgvsShift() && isStrandPlus()) {
 				// Get sequence information. Might have to load sequences from database
 				variant = variant.realignLeft();
 
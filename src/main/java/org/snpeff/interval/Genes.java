@@ -9,7 +9,6 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.snpeff.snpEffect.Config;
 import org.snpeff.util.Timer;
 
 /**
@@ -25,7 +24,7 @@ public class Genes implements Iterable<Gene>, Serializable {
 
 	public boolean debug = false;
 	Genome genome;
-	HashMap<String, Gene> genesById;
+	volatile HashMap<String, Gene> genesById;
 
 	public Genes(Genome genome) {
 		genesById = new HashMap<String, Gene>();
@@ -39,6 +38,17 @@ public class Genes implements Iterable<Gene>, Serializable {
 		genesById.put(gene.getId(), gene);
 	}
 
+	/**
+	 * Add all genes, without modifying the current collection (copy on write).
+	 * This allows other threads to read (or iterate) genes while new ones are added.
+	 */
+	public synchronized void addAll(Genes genes) {
+		HashMap<String, Gene> genesByIdNew = new HashMap<String, Gene>(genesById);
+		for (Gene gene : genes)
+			genesByIdNew.put(gene.getId(), gene);
+		genesById = genesByIdNew;
+	}
+
 	/** In a circular genome, a gene can have negative coordinates or crosses
 		over chromosome end. These genes are mirrored to the opposite end of
 		the chromosome so that they can be referenced by both circular coordinates.
@@ -47,7 +57,7 @@ public class Genes implements Iterable<Gene>, Serializable {
 		List<Gene> newGenes = new LinkedList<Gene>();
 
 		// Check if any gene spans across chromosome limits
-		for (Gene g : genome.getGenes()) {
+		for (Gene g : this) {
 			Chromosome chr = g.getChromosome();
 
 			Gene newGene = null;
@@ -72,7 +82,7 @@ public class Genes implements Iterable<Gene>, Serializable {
 				}
 
 				newGene.shiftCoordinates(shift);
-				if (Config.get().isVerbose()) Timer.showStdErr("Gene '" + g.getId() + "' spans across coordinate zero: Assuming circular chromosome, creating mirror gene at the end." //
+				if (genome.getConfig().isVerbose()) Timer.showStdErr("Gene '" + g.getId() + "' spans across coordinate zero: Assuming circular chromosome, creating mirror gene at the end." //
 						+ "\n\tGene        :" + g.toStr() //
 						+ "\n\tNew gene    :" + newGene.toStr() //
 						+ "\n\tChrsomosome :" + chr.toStr() //
@@ -86,8 +96,8 @@ public class Genes implements Iterable<Gene>, Serializable {
 		// Add all newly created genes
 		if (!newGenes.isEmpty()) {
 			for (Gene g : newGenes)
-				genome.getGenes().add(g);
-			if (Config.get().isVerbose()) Timer.showStdErr("Total: " + newGenes.size() + " added as circular mirrored genes (appended '" + CIRCULAR_GENE_ID + "' to IDs).");
+				add(g);
+			if (genome.getConfig().isVerbose()) Timer.showStdErr("Total: " + newGenes.size() + " added as circular mirrored genes (appended '" + CIRCULAR_GENE_ID + "' to IDs).");
 		}
 
 	}
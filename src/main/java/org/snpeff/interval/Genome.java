@@ -14,6 +14,7 @@ import java.util.Properties;
 import org.snpeff.binseq.GenomicSequences;
 import org.snpeff.fileIterator.FastaFileIterator;
 import org.snpeff.serializer.MarkerSerializer;
+import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.util.Gpr;
 
@@ -44,6 +45,7 @@ public class Genome extends Marker implements Serializable, Iterable<Chromosome>
 	Boolean transcriptSupportLevelInfo = null; // Do we have 'TranscriptSupportLevel' info in transcripts?
 	GenomicSequences genomicSequences; // Store all genomic sequences (of interest) here
 	CytoBands cytoBands;
+	transient Config config; // Configuration (annotation context) used for this genome
 
 	/**
 	 * Create a genome from a faidx file.
@@ -204,6 +206,15 @@ public class Genome extends Marker implements Serializable, Iterable<Chromosome>
 		return chrs;
 	}
 
+	/**
+	 * Configuration (annotation context) for this genome
+	 * Note: If no config has been assigned, the default config is used (i.e. Config.get())
+	 */
+	@Override
+	public Config getConfig() {
+		return config != null ? config : Config.get();
+	}
+
 	public synchronized CytoBands getCytoBands() {
 		if (cytoBands == null) cytoBands = new CytoBands(this);
 		return cytoBands;
@@ -439,6 +450,17 @@ public class Genome extends Marker implements Serializable, Iterable<Chromosome>
 				;
 	}
 
+	/**
+	 * Set coding info (e.g. when genes are not loaded yet, so it cannot be calculated)
+	 */
+	public void setCodingInfo(boolean codingInfo) {
+		this.codingInfo = codingInfo;
+	}
+
+	public void setConfig(Config config) {
+		this.config = config;
+	}
+
 	private void setGenomeId() {
 		genomeId = genomeIdCounter++;
 	}
@@ -507,7 +529,7 @@ public class Genome extends Marker implements Serializable, Iterable<Chromosome>
 					if (tr.isErrorProteinLength()) {
 						hasError = true;
 						errorProteinLength++; // Protein length error
-						if (errors != null) errors.append("ERROR: Protein coding transcript '" + tr.getId() + "' has length " + tr.cds().length() + " (not mutiple of 3).\n");
+						if (errors != null) errors.append("ERROR: Protein coding transcript '" + tr.getId() + "' has length " + tr.cdsLength() + " (not mutiple of 3).\n");
 					} else if (tr.isWarningStopCodon()) {
 						// This is considered a warning, not an error (sometimes
 						// the annotations exclude STOP codon on pourpose, although GTF
@@ -21,6 +21,7 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 	HashMap<String, T> subIntervals;
 	ArrayList<T> sorted;
 	ArrayList<T> sortedStrand;
+	volatile boolean frozen; // Frozen intervals cannot be modified, derived data is pre-calculated and read without locking
 
 	public IntervalAndSubIntervals() {
 		super();
@@ -36,6 +37,7 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 	 * Add a subinterval
 	 */
 	public synchronized void add(T t) {
+		checkNotFrozen();
 		if (subIntervals.put(t.getId(), t) != null) {
 			// Keys should be unique
 			throw new RuntimeException(t.getClass().getSimpleName() //
@@ -108,10 +110,18 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 		return newMarker;
 	}
 
+	/**
+	 * Make sure this interval can be modified
+	 */
+	protected void checkNotFrozen() {
+		if (frozen) throw new RuntimeException("Cannot modify frozen " + this.getClass().getSimpleName() + " '" + id + "'");
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public IntervalAndSubIntervals<T> clone() {
 		IntervalAndSubIntervals<T> copy = (IntervalAndSubIntervals<T>) super.clone();
+		copy.frozen = false; // Copies can be modified
 		copy.reset();
 
 		for (T m : this) {
@@ -138,6 +148,22 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 		return subIntervals.containsKey(id);
 	}
 
+	/**
+	 * Freeze this interval and all sub intervals: Calculate all derived
+	 * data (e.g. sorted sub intervals) so it can be read without locking.
+	 * Any attempt to modify a frozen interval throws an exception.
+	 */
+	public synchronized void freeze() {
+		if (frozen) return;
+
+		for (T t : this)
+			if (t instanceof IntervalAndSubIntervals) ((IntervalAndSubIntervals<?>) t).freeze();
+
+		sorted();
+		sortedStrand();
+		frozen = true;
+	}
+
 	/**
 	 * Obtain a subinterval
 	 */
@@ -152,6 +178,10 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 		sorted = sortedStrand = null;
 	}
 
+	public boolean isFrozen() {
+		return frozen;
+	}
+
 	@Override
 	public Iterator<T> iterator() {
 		return subIntervals().iterator();
@@ -193,6 +223,7 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 	 * Remove a subinterval
 	 */
 	public synchronized void remove(T t) {
+		checkNotFrozen();
 		subIntervals.remove(t.getId());
 		invalidateSorted();
 	}
@@ -201,6 +232,7 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 	 * Remove all intervals
 	 */
 	public synchronized void reset() {
+		checkNotFrozen();
 		subIntervals = new HashMap<String, T>();
 		invalidateSorted();
 	}
@@ -232,6 +264,7 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 
 	@Override
 	public void setStrandMinus(boolean strandMinus) {
+		checkNotFrozen();
 		this.strandMinus = strandMinus;
 
 		// Change all subintervals
@@ -243,6 +276,7 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 
 	@Override
 	public void shiftCoordinates(int shift) {
+		checkNotFrozen();
 		super.shiftCoordinates(shift);
 
 		for (T m : subIntervals())
@@ -252,31 +286,39 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 	/**
 	 * Return a collection of sub intervals sorted by natural order
 	 */
-	public synchronized List<T> sorted() {
-		if (sorted != null) return sorted;
-		ArrayList<T> sorted = new ArrayList<T>();
-		sorted.addAll(subIntervals());
-		Collections.sort(sorted);
-
-		this.sorted = sorted;
-		return sorted;
+	public List<T> sorted() {
+		if (frozen) return sorted; // Already calculated, no need to lock
+
+		synchronized (this) {
+			if (sorted != null) return sorted;
+			ArrayList<T> sorted = new ArrayList<T>();
+			sorted.addAll(subIntervals());
+			Collections.sort(sorted);
+
+			this.sorted = sorted;
+			return sorted;
+		}
 	}
 
 	/**
 	 * Return a collection of sub intervals sorted by start position (if strand is >= 0) or
 	 * by reverse end position (if strans < 0)
 	 */
-	public synchronized List<T> sortedStrand() {
-		if (sortedStrand != null) return sortedStrand;
+	public List<T> sortedStrand() {
+		if (frozen) return sortedStrand; // Already calculated, no need to lock
 
-		ArrayList<T> sortedStrand = new ArrayList<T>();
-		sortedStrand.addAll(subIntervals());
+		synchronized (this) {
+			if (sortedStrand != null) return sortedStrand;
 
-		if (isStrandPlus()) Collections.sort(sortedStrand, new IntervalComparatorByStart()); // Sort by start position
-		else Collections.sort(sortedStrand, new IntervalComparatorByEnd(true)); // Sort by end position (reversed)
+			ArrayList<T> sortedStrand = new ArrayList<T>();
+			sortedStrand.addAll(subIntervals());
 
-		this.sortedStrand = sortedStrand;
-		return sortedStrand;
+			if (isStrandPlus()) Collections.sort(sortedStrand, new IntervalComparatorByStart()); // Sort by start position
+			else Collections.sort(sortedStrand, new IntervalComparatorByEnd(true)); // Sort by end position (reversed)
+
+			this.sortedStrand = sortedStrand;
+			return sortedStrand;
+		}
 	}
 
 	/**
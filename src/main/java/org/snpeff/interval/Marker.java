@@ -8,8 +8,10 @@ import java.util.List;
 import org.snpeff.codons.CodonTable;
 import org.snpeff.codons.CodonTables;
 import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.MarkerVisitor;
 import org.snpeff.serializer.MarkerSerializer;
 import org.snpeff.serializer.TxtSerializable;
+import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.VariantEffect;
 import org.snpeff.snpEffect.VariantEffects;
@@ -370,6 +372,14 @@ public class Marker extends Interval implements TxtSerializable {
 		return len - 1 + (start - latest);
 	}
 
+	/**
+	 * Configuration (annotation context) for this marker's genome
+	 */
+	public Config getConfig() {
+		Genome genome = getGenome();
+		return genome != null ? genome.getConfig() : Config.get();
+	}
+
 	@Override
 	public Marker getParent() {
 		return (Marker) parent;
@@ -532,6 +542,13 @@ public class Marker extends Interval implements TxtSerializable {
 		return intervalForest.query(this);
 	}
 
+	/**
+	 * Invoke 'visitor' on all intervals in 'intervalForest' that intersect this marker
+	 */
+	public void query(IntervalForest intervalForest, MarkerVisitor visitor) {
+		intervalForest.query(this, visitor);
+	}
+
 	/**
 	 * Query all genomic regions that intersect 'marker' (this makes sense in Gene, Transcript, Exon, etc.)
 	 */
@@ -0,0 +1,71 @@
+package org.snpeff.interval;
+
+import org.snpeff.binseq.GenomicSequencesMapped;
+
+/**
+ * Marker with a DNA sequence stored in a memory mapped
+ * file (see GenomicSequencesMapped).
+ *
+ * Bases are decoded on demand, so this marker can span a whole
+ * chromosome without loading its sequence into memory.
+ *
+ * Note: Sequence is always on the positive strand
+ *
+ * @author pcingola
+ */
+public class MarkerSeqMapped extends MarkerSeq {
+
+	private static final long serialVersionUID = 5385291614016728512L;
+
+	transient GenomicSequencesMapped sequencesMapped;
+
+	public MarkerSeqMapped(Marker parent, int start, int end, GenomicSequencesMapped sequencesMapped) {
+		super(parent, start, end, false, "");
+		this.sequencesMapped = sequencesMapped;
+	}
+
+	/**
+	 * Apply variant
+	 * Note: This creates a MarkerSeq with the full sequence
+	 */
+	@Override
+	public MarkerSeq apply(Variant variant) {
+		return toMarkerSeq().apply(variant);
+	}
+
+	/**
+	 * Bases in this marker at position 'index' (relative to marker start)
+	 */
+	@Override
+	public String basesAt(int index, int len) {
+		return sequencesMapped.getSequence(getChromosomeName(), start + index, start + index + len - 1);
+	}
+
+	@Override
+	public String getSequence() {
+		return sequencesMapped.getSequence(getChromosomeName(), start, end);
+	}
+
+	@Override
+	public boolean hasSequence() {
+		return true;
+	}
+
+	/**
+	 * Create a MarkerSeq with the full sequence
+	 */
+	public MarkerSeq toMarkerSeq() {
+		return new MarkerSeq((Marker) parent, start, end, getSequence());
+	}
+
+	@Override
+	public String toString() {
+		return getChromosomeName() + ":" + start + "-" + end + ", sequence file: '" + sequencesMapped.getFileName() + "'";
+	}
+
+	@Override
+	public Marker union(Marker m) {
+		return toMarkerSeq().union(m);
+	}
+
+}
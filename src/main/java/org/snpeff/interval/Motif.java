@@ -55,24 +55,10 @@ public class Motif extends Marker {
 
 		// Do we have PWM?
 		if (pwm != null) {
-			// Step 1:
-			//     Create a MarkerSeq (we can 'apply' a change to it and see what the resulting sequence is
-			MarkerSeq mseq = new MarkerSeq((Marker) parent, start, end, false, id); // Notice: We use positive strand
-			String seqBest = pwm.getBestSequenceStr();
-			mseq.setSequence(isStrandPlus() ? seqBest : GprSeq.reverseWc(seqBest));
-
-			// Step 2:
-			//     Calculate new sequence, by 'applying' variant to mseq.
 			if (variant.isSnp() || variant.isMnp()) {
-				MarkerSeq mseqNew = mseq.apply(variant);
-				String variantd = mseqNew.getSequence();
-				if (isStrandMinus()) variantd = GprSeq.reverseWc(variantd);
-
 				// Calculate score difference
-				double scoreBest = pwm.score(seqBest);
-				double scoreNew = pwm.score(variantd);
-				double diff = scoreBest - scoreNew;
-				if (debug) Gpr.debug("Sequences: " + seqBest + "\t" + variantd + "\tScores: " + scoreBest + " + " + scoreNew + " = " + diff);
+				double diff = scoreDiff(variant);
+				if (debug) Gpr.debug("Best sequence: " + pwm.getBestSequenceStr() + "\tVariant: " + variant + "\tScore difference: " + diff);
 
 				// Over threshold?
 				if (Math.abs(diff) > SCORE_THRESHOLD) effectImpact = EffectImpact.LOW;
@@ -94,6 +80,27 @@ public class Motif extends Marker {
 		return pwmName;
 	}
 
+	/**
+	 * Score difference between the BEST sequence and the BEST sequence changed by
+	 * 'variant' (SNP or MNP). Only the changed positions are scored, so no
+	 * sequences are created.
+	 */
+	public double scoreDiff(Variant variant) {
+		String alt = variant.getAlt();
+		int len = pwm.length();
+		double diff = 0;
+
+		for (int i = 0; i < alt.length(); i++) {
+			int idx = variant.getStart() + i - start; // Index in positive strand
+			if (idx < 0 || idx >= len) continue; // Outside motif
+
+			if (isStrandPlus()) diff += pwm.scoreDiff(idx, alt.charAt(i));
+			else diff += pwm.scoreDiff(len - 1 - idx, GprSeq.wc(alt.charAt(i))); // Minus strand: PWM position is counted from the end
+		}
+
+		return diff;
+	}
+
 	@Override
 	public void serializeParse(MarkerSerializer markerSerializer) {
 		super.serializeParse(markerSerializer);
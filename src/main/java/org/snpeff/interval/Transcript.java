@@ -1,5 +1,7 @@
 package org.snpeff.interval;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -7,7 +9,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.snpeff.binseq.DnaSequence;
+import org.snpeff.collections.LruCacheSegmented;
 import org.snpeff.interval.codonChange.CodonChange;
 import org.snpeff.serializer.MarkerSerializer;
 import org.snpeff.snpEffect.Config;
@@ -37,6 +42,11 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 
 	private static final long serialVersionUID = -2665025617916107311L;
 
+	public static final int DEFAULT_SEQUENCE_CACHE_SIZE = 10 * 1000;
+
+	static final AtomicLong cacheIdCounter = new AtomicLong();
+	static LruCacheSegmented<Long, TranscriptSequences> sequenceCache = new LruCacheSegmented<Long, TranscriptSequences>(DEFAULT_SEQUENCE_CACHE_SIZE);
+
 	boolean aaCheck; // Has this transcript been checked against a protein sequence?
 	boolean canonical; // Is this a canonical transcript?
 	boolean corrected; // Have coordinates been corrected? (e.g. frame correction)
@@ -47,9 +57,6 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	int spliceSiteSize, spliceRegionExonSize, spliceRegionIntronMin, spliceRegionIntronMax; // Splice sizes
 	int upDownLength; // Upstream and downstream size
 	BioType bioType; // Transcript biotype
-	String cds; // Coding sequence
-	String mRna; // mRna sequence (includes 5'UTR and 3'UTR)
-	String protein; // Protein sequence
 	String version = ""; // Transcript version
 	ArrayList<Utr> utrs; // UTRs
 	ArrayList<Cds> cdss; // CDS information
@@ -57,8 +64,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	Upstream upstream; // Upstream interval
 	Downstream downstream; // Downstream interval
 	Exon firstCodingExon; // First coding exon. I.e. where transcription start site (TSS) is.
-	int cds2pos[], aa2pos[];
 	TranscriptSupportLevel transcriptSupportLevel = null;
+	transient long cacheId = cacheIdCounter.incrementAndGet(); // Key in the shared sequence cache
 
 	public Transcript() {
 		super();
@@ -72,12 +79,29 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 		type = EffectType.TRANSCRIPT;
 	}
 
+	/**
+	 * Shared cache of transcript sequences (CDS, mRNA, protein, etc.)
+	 */
+	public static LruCacheSegmented<Long, TranscriptSequences> getSequenceCache() {
+		return sequenceCache;
+	}
+
+	/**
+	 * Maximum number of transcripts having their sequences cached
+	 * Note: This creates a new (empty) cache
+	 */
+	public static void setSequenceCacheSize(int size) {
+		sequenceCache = new LruCacheSegmented<Long, TranscriptSequences>(size);
+	}
+
 	/**
 	 * Calculate chromosome position as function of Amino Acid number
 	 *
 	 * @returns An array mapping 'pos[aaNumber] = chromosmalPos'
 	 */
-	public synchronized int[] aaNumber2Pos() {
+	public int[] aaNumber2Pos() {
+		TranscriptSequences seqs = sequences();
+		int aa2pos[] = seqs.aa2pos;
 		if (aa2pos != null) return aa2pos;
 
 		calcCdsStartEnd();
@@ -120,6 +144,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 			if (aaIdxStart >= 0) exon.setAaIdx(aaIdxStart, aaIdxEnd);
 		}
 
+		seqs.aa2pos = aa2pos;
 		return aa2pos;
 	}
 
@@ -136,14 +161,16 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Add a CDS
 	 */
 	public void add(Cds cdsInt) {
+		checkNotFrozen();
 		cdss.add(cdsInt);
-		cds = null;
+		resetSequences();
 	}
 
 	/**
 	 * Add an intron
 	 */
 	public void add(Intron intron) {
+		checkNotFrozen();
 		if (introns == null) introns = new ArrayList<Intron>();
 		introns.add(intron);
 
@@ -156,6 +183,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Add a SpliceSite
 	 */
 	public void add(SpliceSite spliceSite) {
+		checkNotFrozen();
 		for (Exon ex : this)
 			if (ex.intersects(spliceSite)) ex.add(spliceSite);
 
@@ -167,8 +195,9 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Add a UTR
 	 */
 	public void add(Utr utr) {
+		checkNotFrozen();
 		utrs.add(utr);
-		cds = null;
+		resetSequences();
 	}
 
 	/**
@@ -223,6 +252,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Adjust transcript coordinates
 	 */
 	public boolean adjust() {
+		checkNotFrozen();
 		boolean changed = false;
 		int strandSumTr = 0;
 		int newStart = Integer.MAX_VALUE;
@@ -303,7 +333,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 				} else {
 					// This might happen when a duplication affecting part of an exon
 					// E.g. If the duplication affects the coding part and NOT the 3'UTR then the UTR doesn't have a
-					if (Config.get().isDebug()) Gpr.debug("WARNING: applying variant: Could not find 'new' parent exon for 'new' UTR" //
+					if (getConfig().isDebug()) Gpr.debug("WARNING: applying variant: Could not find 'new' parent exon for 'new' UTR" //
 							+ "\n\t\tVariant           : " + variant //
 							+ "\n" //
 							+ "\n\t\tUTR        (ori) :" + utr //
@@ -348,7 +378,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * mRNA is roughly the same than cDNA. Strictly speaking mRNA
 	 * has a poly-A tail and 5'cap.
 	 */
-	public synchronized int baseNumber2MRnaPos(int pos) {
+	public int baseNumber2MRnaPos(int pos) {
 		int count = 0;
 		for (Exon eint : sortedStrand()) {
 			if (eint.intersects(pos)) {
@@ -377,7 +407,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 *
 	 * @returns Base number or '-1' if it does not map to a coding base
 	 */
-	public synchronized int baseNumberCds(int pos, boolean usePrevBaseIntron) {
+	public int baseNumberCds(int pos, boolean usePrevBaseIntron) {
 		// Doesn't hit this transcript?
 		if (!intersects(pos)) return -1;
 
@@ -419,7 +449,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 		int codonNum = cdsBaseNumber / CodonChange.CODON_SIZE;
 		int min = codonNum * CodonChange.CODON_SIZE;
 		int max = codonNum * CodonChange.CODON_SIZE + CodonChange.CODON_SIZE;
-		if ((min >= 0) && (max <= cds().length())) return cds().substring(min, max).toUpperCase();
+		if ((min >= 0) && (max <= cdsLength())) return cdsBases(min, max - min).toUpperCase();
 		return null;
 	}
 
@@ -428,12 +458,14 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 *
 	 * @returns An array mapping 'cds2pos[cdsBaseNumber] = chromosmalPos'
 	 */
-	public synchronized int[] baseNumberCds2Pos() {
+	public int[] baseNumberCds2Pos() {
+		TranscriptSequences seqs = sequences();
+		int cds2pos[] = seqs.cds2pos;
 		if (cds2pos != null) return cds2pos;
 
 		calcCdsStartEnd();
 
-		cds2pos = new int[cds().length()];
+		cds2pos = new int[cdsLength()];
 		for (int i = 0; i < cds2pos.length; i++)
 			cds2pos[i] = -1;
 
@@ -449,13 +481,19 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 				if ((cdsMin <= pos) && (pos <= cdsMax)) cds2pos[cdsBaseNum++] = pos;
 		}
 
+		seqs.cds2pos = cds2pos;
 		return cds2pos;
 	}
 
 	/**
 	 * Calculate CDS start and CDS end
 	 */
-	synchronized void calcCdsStartEnd() {
+	void calcCdsStartEnd() {
+		if (frozen) return; // Already calculated, no need to lock
+		calcCdsStartEndSync();
+	}
+
+	synchronized void calcCdsStartEndSync() {
 		// Do we need to calculate these values?
 		if (cdsStart < 0) {
 			// Calculate coding start (after 5 prime UTR)
@@ -510,41 +548,22 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	/**
 	 * Retrieve coding sequence
 	 */
-	public synchronized String cds() {
-		if (cds != null) return cds;
-
-		// Concatenate all exons
-		List<Exon> exons = sortedStrand();
-		StringBuilder sequence = new StringBuilder();
-		int utr5len = 0, utr3len = 0;
-
-		// 5 prime UTR length
-		for (Utr utr : get5primeUtrs())
-			utr5len += utr.size();
-
-		// Append all exon sequences
-		boolean missingSequence = false;
-		for (Exon exon : exons) {
-			missingSequence |= !exon.hasSequence(); // If there is no sequence, we are in trouble
-			sequence.append(exon.getSequence());
-		}
-
-		if (missingSequence) cds = ""; // One or more exons does not have sequence. Nothing to do
-		else {
-			// OK, all exons have sequences
-
-			// 3 prime UTR length
-			for (Utr utr : get3primeUtrs())
-				utr3len += utr.size();
-
-			// Cut 5 prime UTR and 3 prime UTR points
-			int subEnd = sequence.length() - utr3len;
+	public String cds() {
+		TranscriptSequences seqs = sequences();
+		String cdsStr = seqs.cdsStr;
+		if (cdsStr == null) seqs.cdsStr = cdsStr = cdsSequence(seqs).toString();
+		return cdsStr;
+	}
 
-			if (utr5len > subEnd) cds = "";
-			else cds = sequence.substring(utr5len, subEnd);
-		}
+	/**
+	 * Bases in the coding sequence, starting at 'index'
+	 */
+	public String cdsBases(int index, int len) {
+		return cdsSequence().getBases(index, len);
+	}
 
-		return cds;
+	public int cdsLength() {
+		return cdsSequence().length();
 	}
 
 	/**
@@ -557,6 +576,29 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 				;
 	}
 
+	/**
+	 * Coding sequence (packed)
+	 */
+	DnaSequence cdsSequence() {
+		return cdsSequence(sequences());
+	}
+
+	DnaSequence cdsSequence(TranscriptSequences seqs) {
+		DnaSequence cds = seqs.cds;
+		if (cds == null) seqs.cds = cds = TranscriptSequences.pack(createCds());
+		return cds;
+	}
+
+	/**
+	 * Clone (the clone does not share cached sequences with this transcript)
+	 */
+	@Override
+	public Transcript clone() {
+		Transcript clone = (Transcript) super.clone();
+		clone.cacheId = cacheIdCounter.incrementAndGet();
+		return clone;
+	}
+
 	@Override
 	public Transcript cloneShallow() {
 		Transcript clone = (Transcript) super.cloneShallow();
@@ -580,7 +622,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 *         it could a base in the codon could not be mapped.
 	 */
 	public int[] codonNumber2Pos(int codonNum) {
-		if (cds2pos == null) baseNumberCds2Pos();
+		int cds2pos[] = baseNumberCds2Pos();
 
 		// Initialize
 		int codon[] = new int[3];
@@ -600,6 +642,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 */
 	public boolean collapseZeroGap() {
 		if (ribosomalSlippage) return false; // Overlapping exons are representing ribosomal slippage, so they are not annotations errors and must not be corrected.
+		checkNotFrozen();
 
 		boolean ret = false;
 		introns = null; // These need to be recalculated
@@ -623,7 +666,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 				ret = true;
 
 				// Show debugging information
-				if (Config.get().isDebug()) System.err.println("\t\t\tTranscript " + getId() + ": Collapsing exon " + exon.getId() + "\t[ " + exon.getStart() + " - " + exon.getEnd() + " ]\t=>\t[ " + collapsedExon.getStart() + " - " + collapsedExon.getEnd() + " ]");
+				if (getConfig().isDebug()) System.err.println("\t\t\tTranscript " + getId() + ": Collapsing exon " + exon.getId() + "\t[ " + exon.getStart() + " - " + exon.getEnd() + " ]\t=>\t[ " + collapsedExon.getStart() + " - " + collapsedExon.getEnd() + " ]");
 
 				// Replace exon
 				remove((Exon) exon);
@@ -674,6 +717,41 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 		return oe.observed(this);
 	}
 
+	/**
+	 * Create coding sequence
+	 */
+	String createCds() {
+		// Concatenate all exons
+		List<Exon> exons = sortedStrand();
+		StringBuilder sequence = new StringBuilder();
+		int utr5len = 0, utr3len = 0;
+
+		// 5 prime UTR length
+		for (Utr utr : get5primeUtrs())
+			utr5len += utr.size();
+
+		// Append all exon sequences
+		boolean missingSequence = false;
+		for (Exon exon : exons) {
+			missingSequence |= !exon.hasSequence(); // If there is no sequence, we are in trouble
+			sequence.append(exon.getSequence());
+		}
+
+		if (missingSequence) return ""; // One or more exons does not have sequence. Nothing to do
+
+		// OK, all exons have sequences
+
+		// 3 prime UTR length
+		for (Utr utr : get3primeUtrs())
+			utr3len += utr.size();
+
+		// Cut 5 prime UTR and 3 prime UTR points
+		int subEnd = sequence.length() - utr3len;
+
+		if (utr5len > subEnd) return "";
+		return sequence.substring(utr5len, subEnd);
+	}
+
 	/**
 	 * Find all splice sites.
 	 */
@@ -747,6 +825,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	   Does the same for UTRs.
 	 */
 	public boolean deleteRedundant() {
+		checkNotFrozen();
 		boolean ret = false;
 		introns = null; // These need to be recalculated
 
@@ -809,6 +888,21 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 		return null;
 	}
 
+	/**
+	 * Find first coding exon (null if not found)
+	 */
+	Exon findFirstCodingExon() {
+		// Get transcription start position
+		long cstart = getCdsStart();
+
+		// Pick exon intersecting cdsStart (TSS)
+		Exon firstCodingExon = null;
+		for (Exon exon : sortedStrand())
+			if (exon.intersects(cstart)) firstCodingExon = exon;
+
+		return firstCodingExon;
+	}
+
 	/**
 	 * Return an intron overlapping position 'pos'
 	 */
@@ -869,6 +963,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 *    ii) Other exons are corrected by changing the start (or end) coordinates.
 	 */
 	public synchronized boolean frameCorrection() {
+		checkNotFrozen();
+
 		// Copy frame information form CDSs to Exons (if missing)
 		frameFromCds();
 
@@ -1004,7 +1100,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 								+ "\n\t" + this //
 						);
 					} else {
-						if (Config.get().isDebug()) {
+						if (getConfig().isDebug()) {
 							System.err.println("\t\tFrame correction: " //
 									+ "Position " + toStr() //
 									+ "Transcript '" + getId() + "'" //
@@ -1061,6 +1157,20 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 
 	}
 
+	/**
+	 * Freeze transcript: Also calculate CDS coordinates, introns and first coding exon
+	 */
+	@Override
+	public synchronized void freeze() {
+		if (frozen) return;
+
+		calcCdsStartEnd();
+		introns();
+		if (firstCodingExon == null) firstCodingExon = findFirstCodingExon(); // Note: Could be null (e.g. non-coding transcripts)
+
+		super.freeze();
+	}
+
 	/**
 	 * Create a list of 3 prime UTRs
 	 */
@@ -1121,19 +1231,19 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	/**
 	 * Get first coding exon
 	 */
-	public synchronized Exon getFirstCodingExon() {
-		if (firstCodingExon == null) {
-			// Get transcription start position
-			long cstart = getCdsStart();
+	public Exon getFirstCodingExon() {
+		Exon firstCodingExon = this.firstCodingExon;
+		if (frozen && firstCodingExon != null) return firstCodingExon; // Already calculated, no need to lock
 
-			// Pick exon intersecting cdsStart (TSS)
-			for (Exon exon : sortedStrand())
-				if (exon.intersects(cstart)) firstCodingExon = exon;
+		synchronized (this) {
+			if (this.firstCodingExon == null) {
+				this.firstCodingExon = findFirstCodingExon();
 
-			// Sanity check
-			if (firstCodingExon == null) throw new RuntimeException("Error: Cannot find first coding exon for transcript:\n" + this);
+				// Sanity check
+				if (this.firstCodingExon == null) throw new RuntimeException("Error: Cannot find first coding exon for transcript:\n" + this);
+			}
+			return this.firstCodingExon;
 		}
-		return firstCodingExon;
 	}
 
 	public TranscriptSupportLevel getTranscriptSupportLevel() {
@@ -1193,7 +1303,12 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	/**
 	 * Get all introns (lazy init)
 	 */
-	public synchronized List<Intron> introns() {
+	public List<Intron> introns() {
+		if (frozen) return introns; // Already calculated, no need to lock
+		return intronsSync();
+	}
+
+	synchronized List<Intron> intronsSync() {
 		if (introns == null) {
 			introns = new ArrayList<Intron>();
 
@@ -1284,15 +1399,15 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * @return true on Error
 	 */
 	public boolean isErrorProteinLength() {
-		if (!Config.get().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
-		return (cds().length() % 3) != 0;
+		if (!getConfig().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
+		return (cdsLength() % 3) != 0;
 	}
 
 	/**
 	 * Is the first codon a START codon?
 	 */
 	public boolean isErrorStartCodon() {
-		if (!Config.get().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
+		if (!getConfig().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
 
 		// Not even one codon in this protein? Error
 		String cds = cds();
@@ -1307,7 +1422,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * @return true on Error
 	 */
 	public boolean isErrorStopCodonsInCds() {
-		if (!Config.get().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
+		if (!getConfig().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
 
 		// Get protein sequence
 		String prot = protein();
@@ -1367,7 +1482,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Is the last codon a STOP codon?
 	 */
 	public boolean isWarningStopCodon() {
-		if (!Config.get().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
+		if (!getConfig().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
 
 		// Not even one codon in this protein? Error
 		String cds = cds();
@@ -1417,7 +1532,26 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Retrieve coding sequence AND the UTRs (mRNA = 5'UTR + CDS + 3'UTR)
 	 * I.e. Concatenate all exon sequences
 	 */
-	public synchronized String mRna() {
+	public String mRna() {
+		TranscriptSequences seqs = sequences();
+		String mRnaStr = seqs.mRnaStr;
+		if (mRnaStr == null) seqs.mRnaStr = mRnaStr = mRnaSequence(seqs).toString();
+		return mRnaStr;
+	}
+
+	public int mRnaLength() {
+		return mRnaSequence().length();
+	}
+
+	/**
+	 * mRNA sequence (packed)
+	 */
+	DnaSequence mRnaSequence() {
+		return mRnaSequence(sequences());
+	}
+
+	DnaSequence mRnaSequence(TranscriptSequences seqs) {
+		DnaSequence mRna = seqs.mRna;
 		if (mRna != null) return mRna;
 
 		List<Exon> exons = sortedStrand();
@@ -1427,7 +1561,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 		for (Exon ex : exons)
 			sequence.append(ex.getSequence());
 
-		mRna = sequence.toString();
+		seqs.mRna = mRna = TranscriptSequences.pack(sequence.toString());
 		return mRna;
 	}
 
@@ -1435,9 +1569,13 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Protein sequence (amino acid sequence produced by this transcripts)
 	 */
 	public String protein() {
+		TranscriptSequences seqs = sequences();
+		String protein = seqs.protein;
 		if (protein == null) {
-			if (!(Config.get() != null && Config.get().isTreatAllAsProteinCoding()) && !isProteinCoding()) protein = "";
-			else protein = codonTable().aa(cds(), true);
+			Config config = getConfig();
+			if (!(config != null && config.isTreatAllAsProteinCoding()) && !isProteinCoding()) protein = "";
+			else protein = codonTable().aa(cdsSequence(seqs).toString(), true);
+			seqs.protein = protein;
 		}
 		return protein;
 	}
@@ -1509,6 +1647,15 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 		return changed;
 	}
 
+	/**
+	 * De-serialized objects need a new key in the shared sequence cache
+	 * (the field is transient, so it is not initialized)
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		cacheId = cacheIdCounter.incrementAndGet();
+	}
+
 	@Override
 	public void reset() {
 		super.reset();
@@ -1523,14 +1670,18 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	}
 
 	public void resetCache() {
+		checkNotFrozen();
 		cdsStart = -1;
 		cdsEnd = -1;
 		firstCodingExon = null;
-		cds = null;
-		cds2pos = null;
-		aa2pos = null;
-		mRna = null;
-		protein = null;
+		resetSequences();
+	}
+
+	/**
+	 * Remove cached sequences (CDS, mRNA, protein, etc.)
+	 */
+	void resetSequences() {
+		sequenceCache.remove(cacheId);
 	}
 
 	/**
@@ -1544,6 +1695,18 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 		return null;
 	}
 
+	/**
+	 * Cached sequences for this transcript (created if not in the cache)
+	 */
+	TranscriptSequences sequences() {
+		TranscriptSequences seqs = sequenceCache.get(cacheId);
+		if (seqs != null) return seqs;
+
+		seqs = new TranscriptSequences();
+		TranscriptSequences prev = sequenceCache.putIfAbsent(cacheId, seqs);
+		return prev != null ? prev : seqs;
+	}
+
 	/**
 	 * Parse a line from a serialized file
 	 */
@@ -0,0 +1,45 @@
+package org.snpeff.interval;
+
+import org.snpeff.binseq.DnaNSequence;
+import org.snpeff.binseq.DnaSequence;
+import org.snpeff.util.GprSeq;
+
+/**
+ * Sequences and coordinate maps derived from a transcript: CDS, mRNA,
+ * protein and CDS / amino acid to genomic position maps.
+ *
+ * These are calculated on demand and kept in a shared, bounded
+ * cache (see Transcript.getSequenceCache()). DNA sequences are
+ * stored 2-bit packed, the decoded strings are kept once requested.
+ *
+ * Note: Each field is calculated independently (possibly by
+ * different threads), so they are all volatile.
+ *
+ * @author pcingola
+ */
+public class TranscriptSequences {
+
+	volatile DnaSequence cds; // Coding sequence
+	volatile DnaSequence mRna; // mRna sequence (includes 5'UTR and 3'UTR)
+	volatile String cdsStr, mRnaStr; // Decoded sequences (only created if requested as strings)
+	volatile String protein; // Protein sequence
+	volatile int cds2pos[], aa2pos[];
+
+	/**
+	 * Pack a sequence (same encoding as MarkerSeq)
+	 */
+	static DnaSequence pack(String seq) {
+		if (seq.isEmpty()) return DnaSequence.empty();
+		if (GprSeq.isAmbiguous(seq)) return new DnaNSequence(seq);
+		return new DnaSequence(seq);
+	}
+
+	@Override
+	public String toString() {
+		return "cds: " + (cds != null ? cds.length() : "-") //
+				+ ", mRna: " + (mRna != null ? mRna.length() : "-") //
+				+ ", protein: " + (protein != null ? protein.length() : "-") //
+				;
+	}
+
+}
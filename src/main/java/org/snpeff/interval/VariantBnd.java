@@ -1,6 +1,7 @@
 package org.snpeff.interval;
 
 import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.MarkerVisitor;
 
 /**
  * A 'BND' variant (i.e. translocation) consisting of two endpoints
@@ -60,6 +61,12 @@ public class VariantBnd extends Variant {
 		return res1;
 	}
 
+	@Override
+	public void query(IntervalForest intervalForest, MarkerVisitor visitor) {
+		intervalForest.query(this, visitor);
+		intervalForest.query(endPoint, visitor);
+	}
+
 	@Override
 	public Variant realignLeft() {
 		// Do not realign translocations
@@ -126,11 +126,11 @@ public class CodonChange {
 			// 'pos' before transcript start
 			if (pos <= transcript.getCdsStart()) {
 				if (transcript.isStrandPlus()) return 0;
-				return transcript.cds().length();
+				return transcript.cdsLength();
 			}
 
 			// 'pos' is after CDS end
-			if (transcript.isStrandPlus()) return transcript.cds().length();
+			if (transcript.isStrandPlus()) return transcript.cdsLength();
 			return 0;
 		}
 
@@ -222,18 +222,17 @@ public class CodonChange {
 	 * Calculate 'reference' codons
 	 */
 	protected String codonsRef(int numCodons) {
-		String cds = transcript.cds();
 		String codon = "";
 
 		int start = codonStartNum * CodonChange.CODON_SIZE;
 		int end = start + numCodons * CodonChange.CODON_SIZE;
 
-		int len = cds.length();
-		if (start >= cds.length()) start = len;
-		if (end >= cds.length()) end = len;
+		int len = transcript.cdsLength();
+		if (start >= len) start = len;
+		if (end >= len) end = len;
 
 		// Capitalize
-		codon = cds.substring(start, end);
+		codon = transcript.cdsBases(start, end - start);
 
 		// Codon not multiple of three? Add missing bases as 'N'
 		if (codon.length() % 3 == 1) codon += "NN";
@@ -129,7 +129,7 @@ public class CodonChangeDel extends CodonChangeStructural {
 			cdsBaseMax = swap;
 		}
 
-		if (cdsBaseMax < cdsBaseMin) throw new RuntimeException("This should never happen!\n\tcdsBaseMin: " + cdsBaseMin + "\n\tcdsBaseMax: " + cdsBaseMax + "\n\tmin: " + min + "\n\tmax: " + max + "\n\tSeqChange: " + variant + "\n\ttranscript: " + transcript + "\n\tCDS.len: " + transcript.cds().length());
+		if (cdsBaseMax < cdsBaseMin) throw new RuntimeException("This should never happen!\n\tcdsBaseMin: " + cdsBaseMin + "\n\tcdsBaseMax: " + cdsBaseMax + "\n\tmin: " + min + "\n\tmax: " + max + "\n\tSeqChange: " + variant + "\n\ttranscript: " + transcript + "\n\tCDS.len: " + transcript.cdsLength());
 
 		int maxCodon = cdsBaseMax / CodonChange.CODON_SIZE;
 		int minCodon = cdsBaseMin / CodonChange.CODON_SIZE;
@@ -137,8 +137,9 @@ public class CodonChangeDel extends CodonChangeStructural {
 		int oldCodonCdsEnd = (CodonChange.CODON_SIZE * (maxCodon + 1)) - 1;
 
 		String codons = "";
-		if (oldCodonCdsEnd >= transcript.cds().length()) codons = transcript.cds().substring(oldCodonCdsStart);
-		else codons = transcript.cds().substring(oldCodonCdsStart, oldCodonCdsEnd + 1);
+		int cdsLen = transcript.cdsLength();
+		if (oldCodonCdsEnd >= cdsLen) codons = transcript.cdsBases(oldCodonCdsStart, cdsLen - oldCodonCdsStart);
+		else codons = transcript.cdsBases(oldCodonCdsStart, oldCodonCdsEnd - oldCodonCdsStart + 1);
 
 		return codons;
 	}
@@ -2,7 +2,6 @@ package org.snpeff.interval.codonChange;
 
 import org.snpeff.interval.Transcript;
 import org.snpeff.interval.Variant;
-import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.VariantEffect.EffectImpact;
 import org.snpeff.snpEffect.VariantEffects;
@@ -16,7 +15,7 @@ public class CodonChangeDup extends CodonChangeStructural {
 
 	public CodonChangeDup(Variant variant, Transcript transcript, VariantEffects variantEffects) {
 		super(variant, transcript, variantEffects);
-		coding = transcript.isProteinCoding() || Config.get().isTreatAllAsProteinCoding();
+		coding = transcript.isProteinCoding() || transcript.getConfig().isTreatAllAsProteinCoding();
 	}
 
 	/**
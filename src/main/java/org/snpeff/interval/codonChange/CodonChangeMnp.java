@@ -23,8 +23,8 @@ public class CodonChangeMnp extends CodonChange {
 	}
 
 	int cdsBaseNumber(int pos, boolean usePrevBaseIntron) {
-		if (pos < cdsStart) return transcript.isStrandPlus() ? 0 : transcript.cds().length() - 1;
-		if (pos > cdsEnd) return transcript.isStrandPlus() ? transcript.cds().length() - 1 : 0;
+		if (pos < cdsStart) return transcript.isStrandPlus() ? 0 : transcript.cdsLength() - 1;
+		if (pos > cdsEnd) return transcript.isStrandPlus() ? transcript.cdsLength() - 1 : 0;
 		return transcript.baseNumberCds(pos, usePrevBaseIntron);
 	}
 
@@ -80,9 +80,9 @@ public class CodonChangeMnp extends CodonChange {
 
 		// Append 'N'
 		String padN = "";
-		int diff = scEnd3 - (transcript.cds().length() - 1);
+		int diff = scEnd3 - (transcript.cdsLength() - 1);
 		if (diff > 0) {
-			scEnd3 = transcript.cds().length() - 1;
+			scEnd3 = transcript.cdsLength() - 1;
 			// Pad with 'N'
 			switch (diff) {
 			case 1:
@@ -99,7 +99,7 @@ public class CodonChangeMnp extends CodonChange {
 		}
 
 		// Get old codon (reference)
-		codonsRef = transcript.cds().substring(scStart3, scEnd3 + 1);
+		codonsRef = transcript.cdsBases(scStart3, scEnd3 - scStart3 + 1);
 
 		// Get new codon (change)
 		String prepend = codonsRef.substring(0, scStart - scStart3);
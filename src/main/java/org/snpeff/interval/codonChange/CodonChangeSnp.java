@@ -6,6 +6,7 @@ import org.snpeff.interval.Variant;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.VariantEffect.ErrorWarningType;
 import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.util.GprSeq;
 
 /**
  * Calculate codon changes produced by a SNP
@@ -44,8 +45,10 @@ public class CodonChangeSnp extends CodonChange {
 		// Was there a problem getting 'codonsOld'? => We cannot do anything
 		if (codonsRef.isEmpty()) return "";
 
-		char codonChars[] = codonsRef.toLowerCase().toCharArray();
-		char snpBase = variant.netChange(transcript.isStrandMinus()).charAt(0);
+		// Note: Reference codons are already lower case, except for the changed base
+		char codonChars[] = codonsRef.toCharArray();
+		char snpBase = variant.getAlt().charAt(0);
+		if (transcript.isStrandMinus()) snpBase = GprSeq.wc(snpBase);
 		if (codonStartIndex < codonChars.length) codonChars[codonStartIndex] = Character.toUpperCase(snpBase);
 
 		String codonsNew = new String(codonChars);
@@ -59,9 +62,8 @@ public class CodonChangeSnp extends CodonChange {
 	protected String codonsRef() {
 		int numCodons = 1;
 
-		// Get CDS
-		String cdsStr = transcript.cds();
-		int cdsLen = cdsStr.length();
+		// Get CDS length
+		int cdsLen = transcript.cdsLength();
 
 		// Calculate minBase (first codon base in the CDS)
 		int minBase = codonStartNum * CodonChange.CODON_SIZE;
@@ -72,17 +74,18 @@ public class CodonChangeSnp extends CodonChange {
 		if (maxBase > cdsLen) maxBase = cdsLen;
 
 		// Sanity checks
-		if (cdsStr.isEmpty() // Empty CDS => Cannot get codon (e.g. one or more exons are missing their sequences
+		if ((cdsLen == 0) // Empty CDS => Cannot get codon (e.g. one or more exons are missing their sequences
 				|| (cdsLen <= minBase) // Codon past CDS sequence => Cannot get codon
 		) return "";
 
-		// Create codon sequence
-		char codonChars[] = cdsStr.substring(minBase, maxBase).toLowerCase().toCharArray();
+		// Create codon sequence (lower case), capitalize changed base
+		String bases = transcript.cdsBases(minBase, maxBase - minBase);
+		char codonChars[] = new char[bases.length()];
+		for (int i = 0; i < codonChars.length; i++) {
+			char base = bases.charAt(i);
+			codonChars[i] = (i == codonStartIndex ? Character.toUpperCase(base) : Character.toLowerCase(base));
+		}
 
-		// Capitatlize changed base
-		if (codonStartIndex < codonChars.length) codonChars[codonStartIndex] = Character.toUpperCase(codonChars[codonStartIndex]);
-		String codon = new String(codonChars);
-
-		return codon;
+		return new String(codonChars);
 	}
 }
@@ -3,7 +3,6 @@ package org.snpeff.interval.codonChange;
 import org.snpeff.interval.Exon;
 import org.snpeff.interval.Transcript;
 import org.snpeff.interval.Variant;
-import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.VariantEffects;
 import org.snpeff.util.Gpr;
 
@@ -23,7 +22,7 @@ public abstract class CodonChangeStructural extends CodonChange {
 
 	public CodonChangeStructural(Variant variant, Transcript transcript, VariantEffects variantEffects) {
 		super(variant, transcript, variantEffects);
-		coding = transcript.isProteinCoding() || Config.get().isTreatAllAsProteinCoding();
+		coding = transcript.isProteinCoding() || transcript.getConfig().isTreatAllAsProteinCoding();
 		countAffectedExons();
 	}
 
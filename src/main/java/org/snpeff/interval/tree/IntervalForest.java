@@ -4,9 +4,9 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Marker;
@@ -16,6 +16,9 @@ import org.snpeff.util.Gpr;
 /**
  * A set of interval trees (e.g. one per chromosome, one per transcript ID, etc)
  *
+ * Note: Queries never add trees to the forest, so the forest can be queried
+ * by several threads while trees are added using 'rebuildTreeChromo'
+ *
  * @author pcingola
  */
 public class IntervalForest implements Serializable, Iterable<Itree> {
@@ -23,14 +26,14 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 	private static final long serialVersionUID = 1L;
 
 	boolean debug;
-	HashMap<String, Itree> forest;
+	ConcurrentHashMap<String, Itree> forest;
 
 	public IntervalForest() {
-		forest = new HashMap<String, Itree>();
+		forest = new ConcurrentHashMap<String, Itree>();
 	}
 
 	public IntervalForest(Markers markers) {
-		forest = new HashMap<String, Itree>();
+		forest = new ConcurrentHashMap<String, Itree>();
 		add(markers);
 	}
 
@@ -77,9 +80,10 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 		// Retrieve (or create) interval tree
 		Itree itree = forest.get(id);
 		if (itree == null) {
-			itree = newItree();
-			itree.build();
-			forest.put(id, itree);
+			Itree itreeNew = newItree();
+			itreeNew.build();
+			itree = forest.putIfAbsent(id, itreeNew);
+			if (itree == null) itree = itreeNew;
 		}
 
 		return itree;
@@ -156,14 +160,24 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 	 * In oder to change the implementation, only this method should be changed.
 	 */
 	protected Itree newItree() {
-		return new IntervalTree();
+		return new IntervalTreeFlat();
 	}
 
 	/**
 	 * Query all intervals that intersect with 'interval'
 	 */
 	public Markers query(Marker marker) {
-		return getOrCreateTreeChromo(marker.getChromosomeName()).query(marker);
+		Itree tree = getTreeChromo(marker.getChromosomeName());
+		if (tree == null) return new Markers();
+		return tree.query(marker);
+	}
+
+	/**
+	 * Invoke 'visitor' on all intervals that intersect with 'marker'
+	 */
+	public void query(Marker marker, MarkerVisitor visitor) {
+		Itree tree = getTreeChromo(marker.getChromosomeName());
+		if (tree != null) tree.query(marker, visitor);
 	}
 
 	/**
@@ -203,6 +217,28 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 		return ints;
 	}
 
+	/**
+	 * Add intervals to the tree for chromosome 'chromo', without modifying
+	 * a tree that other threads may be querying: A new tree (having all
+	 * intervals from the current tree plus 'intervals') is built and then
+	 * replaces the current one.
+	 *
+	 * Note: All intervals must be in chromosome 'chromo'. Concurrent calls
+	 * for the same chromosome must be synchronized by the caller.
+	 */
+	public void rebuildTreeChromo(String chromo, Collection<? extends Marker> intervals) {
+		String chr = Chromosome.simpleName(chromo);
+
+		Itree tree = newItree();
+		Itree treeOld = forest.get(chr);
+		if (treeOld != null) tree.add(treeOld.getIntervals());
+		for (Marker m : intervals)
+			tree.add(m);
+		tree.build();
+
+		forest.put(chr, tree); // Publish tree
+	}
+
 	public void setDebug(boolean debug) {
 		this.debug = debug;
 	}
@@ -225,7 +261,9 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 	 * Obtain all intervals that intersect with 'point'
 	 */
 	public Markers stab(String chromo, int point) {
-		return getOrCreateTreeChromo(chromo).stab(point);
+		Itree tree = getTreeChromo(chromo);
+		if (tree == null) return new Markers();
+		return tree.stab(point);
 	}
 
 	@Override
@@ -237,7 +275,7 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 		Collections.sort(keys);
 
 		for (String key : keys) {
-			Itree tree = getOrCreateTreeChromo(key);
+			Itree tree = forest.get(key);
 			sb.append(key + "\tsize:" + tree.size() + "\tin_sync: " + tree.isInSync() + "\n");
 		}
 
@@ -0,0 +1,190 @@
+package org.snpeff.interval.tree;
+
+import java.util.Arrays;
+
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.util.Gpr;
+
+/**
+ * Query an interval forest using a 'sweep line', for queries sorted
+ * by position (e.g. variants from a coordinate sorted VCF file).
+ *
+ * A set of 'active' intervals (intervals that may intersect the current or
+ * next queries) is kept for the current chromosome. Each query adds the
+ * intervals starting before the query's end and drops the ones ending
+ * before the query's start, so for sorted queries the cost is amortized
+ * O(1) per query plus the number of results (instead of a tree query).
+ *
+ * Out of order queries (or a change of chromosome) reset the sweep using
+ * a tree query. If too many queries require a reset (i.e. the input is
+ * not sorted), the sweep is disabled and all queries use the interval trees.
+ *
+ * Notes:
+ * 		- Only trees of type IntervalTreeFlat are supported, other trees are queried normally.
+ * 		- Results are the same (and in the same order) as IntervalTreeFlat queries.
+ * 		- This object is not thread safe (use one instance per thread).
+ *
+ * @author pcingola
+ */
+public class IntervalSweep implements MarkerVisitor {
+
+	public static final int MIN_QUERIES_UNSORTED = 1000; // Minimum number of queries before checking whether the input is sorted
+	public static final double MAX_RESET_RATIO = 0.1; // Disable the sweep if more than this ratio of queries require a reset
+
+	boolean debug;
+	boolean enabled = true;
+	IntervalForest intervalForest;
+	String chrName; // Current chromosome name (as in the last query)
+	IntervalTreeFlat tree; // Current chromosome's tree
+	Marker treeMarkers[]; // Tree's markers array (used to detect if the tree has been re-built)
+	int lastStart; // Last query start
+	int next; // Next interval to add to the active set (index in tree's arrays)
+	Marker active[]; // Active intervals, sorted by start position
+	int activeSize;
+	long countQueries, countResets;
+
+	public IntervalSweep(IntervalForest intervalForest) {
+		this.intervalForest = intervalForest;
+		active = new Marker[16];
+	}
+
+	void addActive(Marker m) {
+		if (activeSize >= active.length) active = Arrays.copyOf(active, 2 * active.length);
+		active[activeSize++] = m;
+	}
+
+	/**
+	 * Check whether the input looks unsorted (too many resets), disable the sweep if so
+	 */
+	void checkUnsorted() {
+		if ((countQueries >= MIN_QUERIES_UNSORTED) && (countResets > MAX_RESET_RATIO * countQueries)) {
+			if (debug) Gpr.debug("Queries do not seem to be sorted (" + countResets + " resets in " + countQueries + " queries), disabling sweep");
+			enabled = false;
+			reset();
+		}
+	}
+
+	public long getCountResets() {
+		return countResets;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Return all intervals that intersect 'marker'
+	 */
+	public Markers query(Marker marker) {
+		Markers results = new Markers();
+		query(marker, results);
+		return results;
+	}
+
+	/**
+	 * Add all intervals that intersect 'marker' to 'results'
+	 */
+	public void query(Marker marker, Markers results) {
+		if (!enabled) {
+			results.add(intervalForest.query(marker));
+			return;
+		}
+
+		countQueries++;
+		int start = marker.getStart(), end = marker.getEnd();
+
+		// Do we need to (re)start the sweep?
+		String chr = marker.getChromosomeName();
+		if (!chr.equals(chrName)) {
+			Itree itree = intervalForest.getTreeChromo(chr);
+			if (!(itree instanceof IntervalTreeFlat)) {
+				// Unsupported tree type (or chromosome not found)
+				reset();
+				results.add(intervalForest.query(marker));
+				return;
+			}
+
+			// New chromosome
+			chrName = chr;
+			tree = (IntervalTreeFlat) itree;
+			reset(start, end, results);
+			return;
+		} else if ((start < lastStart) || (treeMarkers != tree.markers)) {
+			// Out of order query or tree was re-built
+			reset(start, end, results);
+			return;
+		}
+		lastStart = start;
+
+		// Add intervals starting before the query's end
+		int n = tree.starts.length;
+		while ((next < n) && (tree.starts[next] <= end))
+			addActive(tree.markers[next++]);
+
+		// Remove intervals ending before the query's start (they cannot
+		// intersect any further query) and add intersecting ones to results
+		int j = 0;
+		for (int i = 0; i < activeSize; i++) {
+			Marker m = active[i];
+			if (m.getEnd() < start) continue;
+			active[j++] = m;
+			if (m.getStart() <= end) results.add(m);
+		}
+		Arrays.fill(active, j, activeSize, null);
+		activeSize = j;
+	}
+
+	/**
+	 * Clear active set
+	 */
+	void reset() {
+		chrName = null;
+		tree = null;
+		treeMarkers = null;
+		Arrays.fill(active, 0, activeSize, null);
+		activeSize = 0;
+		next = 0;
+	}
+
+	/**
+	 * Restart the sweep at a query: The active set is initialized with
+	 * a tree query (all intervals intersecting the query), and the next
+	 * interval to add is the first one starting after the query's end
+	 */
+	void reset(int start, int end, Markers results) {
+		countResets++;
+		Arrays.fill(active, 0, activeSize, null);
+		activeSize = 0;
+		lastStart = start;
+		treeMarkers = tree.markers;
+
+		tree.query(start, end, this);
+		for (int i = 0; i < activeSize; i++)
+			results.add(active[i]);
+
+		// First interval starting after 'end' (binary search)
+		int lo = 0, hi = tree.starts.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (tree.starts[mid] <= end) lo = mid + 1;
+			else hi = mid;
+		}
+		next = lo;
+
+		checkUnsorted();
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	/**
+	 * Add intervals found by a tree query to the active set
+	 */
+	@Override
+	public void visit(Marker marker) {
+		addActive(marker);
+	}
+
+}
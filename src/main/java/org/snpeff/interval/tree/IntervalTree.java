@@ -129,6 +129,15 @@ public class IntervalTree implements Itree, Serializable {
 		return head.query(interval);
 	}
 
+	/**
+	 * Perform an interval query, invoking 'visitor' on each interval that intersects with 'interval'
+	 */
+	@Override
+	public void query(Interval interval, MarkerVisitor visitor) {
+		for (Marker m : query(interval))
+			visitor.visit(m);
+	}
+
 	/**
 	 * Size: number of entries in the interval list
 	 */
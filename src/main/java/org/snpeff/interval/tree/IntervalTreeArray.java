@@ -167,6 +167,15 @@ public class IntervalTreeArray implements Itree {
 		return results;
 	}
 
+	/**
+	 * Perform an interval query, invoking 'visitor' on each interval that intersects with 'interval'
+	 */
+	@Override
+	public void query(Interval interval, MarkerVisitor visitor) {
+		for (Marker m : query(interval))
+			visitor.visit(m);
+	}
+
 	/**
 	 * Query index to find all VCF entries intersecting 'marker', starting from node 'idx'
 	 * Store VCF entries in 'results'
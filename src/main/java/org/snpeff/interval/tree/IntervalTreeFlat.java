@@ -0,0 +1,258 @@
+package org.snpeff.interval.tree;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Interval;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+
+/**
+ * Interval tree stored in flat arrays (implicit augmented interval tree).
+ *
+ * Intervals are sorted by start position and stored in primitive arrays
+ * ('starts', 'ends'). The tree is implicit: the node at index 'i' has
+ * level 'k' if the 'k' lowest bits of 'i' are set (i.e. leaves are at even
+ * indexes), its children are at 'i - 2^(k-1)' and 'i + 2^(k-1)'.
+ * Each node stores the maximum 'end' of its subtree ('maxEnds'), so that
+ * subtrees that cannot intersect a query are skipped.
+ *
+ * Compared to node based trees, this is compact and cache friendly, and
+ * queries using a visitor do not allocate any memory. Results are always
+ * reported sorted by start position.
+ *
+ * Reference: Heng Li's 'cgranges' (https://github.com/lh3/cgranges)
+ *
+ * @author pcingola
+ */
+public class IntervalTreeFlat implements Itree, Serializable {
+
+	private static final long serialVersionUID = 3853614206432547031L;
+
+	public static final int MAX_LEVEL_LINEAR_SCAN = 3; // Small subtrees (up to this level) are scanned linearly
+
+	protected Markers intervals; // Intervals (as added)
+	protected boolean inSync;
+	protected Marker markers[]; // Intervals, sorted by start position
+	protected int starts[];
+	protected int ends[];
+	protected int maxEnds[]; // Maximum 'end' in each node's subtree
+	protected int maxLevel; // Root node's level (-1 if the tree is empty)
+
+	/**
+	 * Instantiate a new interval tree with no intervals
+	 */
+	public IntervalTreeFlat() {
+		this(null);
+	}
+
+	/**
+	 * Instantiate an interval tree with a list of intervals
+	 */
+	public IntervalTreeFlat(Markers intervals) {
+		this.intervals = new Markers();
+		if (intervals != null) this.intervals.add(intervals);
+		reset();
+		inSync = (this.intervals.isEmpty());
+	}
+
+	@Override
+	public void add(Marker interval) {
+		intervals.add(interval);
+		inSync = false;
+	}
+
+	@Override
+	public void add(Markers markers) {
+		intervals.add(markers);
+		inSync = false;
+	}
+
+	/**
+	 * Build the tree: Sort intervals and calculate
+	 * maximum 'end' for each node
+	 */
+	@Override
+	public void build() {
+		if (inSync) return;
+
+		// Sort by start (then end). Note: Sort is stable, so equal intervals keep insertion order
+		int n = intervals.size();
+		markers = intervals.toArray();
+		Arrays.sort(markers, new Comparator<Marker>() {
+			@Override
+			public int compare(Marker m1, Marker m2) {
+				if (m1.getStart() != m2.getStart()) return Integer.compare(m1.getStart(), m2.getStart());
+				return Integer.compare(m1.getEnd(), m2.getEnd());
+			}
+		});
+
+		// Copy coordinates to primitive arrays
+		starts = new int[n];
+		ends = new int[n];
+		maxEnds = new int[n];
+		for (int i = 0; i < n; i++) {
+			starts[i] = markers[i].getStart();
+			ends[i] = markers[i].getEnd();
+		}
+
+		maxLevel = buildMaxEnds();
+		inSync = true;
+	}
+
+	/**
+	 * Calculate maximum 'end' for each node (bottom up)
+	 * @return Root node's level (-1 if the tree is empty)
+	 */
+	int buildMaxEnds() {
+		int n = starts.length;
+		if (n <= 0) return -1;
+
+		// Leaves (even indexes)
+		int lastIdx = 0, lastMax = 0;
+		for (int i = 0; i < n; i += 2) {
+			lastIdx = i;
+			lastMax = maxEnds[i] = ends[i];
+		}
+
+		// Internal nodes, one level at a time
+		int k;
+		for (k = 1; (1L << k) <= n; k++) {
+			int x = 1 << (k - 1);
+			int i0 = (x << 1) - 1;
+			int step = x << 2;
+			for (int i = i0; i < n; i += step) {
+				int maxLeft = maxEnds[i - x];
+				int maxRight = (i + x < n ? maxEnds[i + x] : lastMax); // Right child may be out of range
+				maxEnds[i] = Math.max(ends[i], Math.max(maxLeft, maxRight));
+			}
+
+			// Move to the parent of 'lastIdx' and update maximum of the rightmost subtree (used by nodes having out of range children)
+			lastIdx = (((lastIdx >> k) & 1) != 0 ? lastIdx - x : lastIdx + x);
+			if (lastIdx < n) lastMax = Math.max(lastMax, maxEnds[lastIdx]);
+		}
+
+		return k - 1;
+	}
+
+	@Override
+	public Markers getIntervals() {
+		return intervals;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return intervals.isEmpty();
+	}
+
+	@Override
+	public boolean isInSync() {
+		return inSync;
+	}
+
+	@Override
+	public Iterator<Marker> iterator() {
+		return intervals.iterator();
+	}
+
+	@Override
+	public void load(String fileName, Genome genome) {
+		intervals.load(fileName, genome);
+		inSync = false;
+	}
+
+	/**
+	 * Perform an interval query, returning the intervals that intersect with 'interval'
+	 */
+	@Override
+	public Markers query(Interval interval) {
+		final Markers results = new Markers();
+		query(interval.getStart(), interval.getEnd(), new MarkerVisitor() {
+			@Override
+			public void visit(Marker marker) {
+				results.add(marker);
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * Perform an interval query, invoking 'visitor' on each interval that intersects with 'interval'
+	 */
+	@Override
+	public void query(Interval interval, MarkerVisitor visitor) {
+		query(interval.getStart(), interval.getEnd(), visitor);
+	}
+
+	/**
+	 * Invoke 'visitor' on each interval that intersects [start, end] (closed interval)
+	 */
+	public void query(int start, int end, MarkerVisitor visitor) {
+		if (!inSync) throw new RuntimeException("Interval tree needs to be updated!");
+		if (maxLevel < 0) return;
+		query(start, end, (1 << maxLevel) - 1, maxLevel, visitor);
+	}
+
+	/**
+	 * Query subtree rooted at node 'idx' (level 'k')
+	 * Note: Recursion depth is the tree height (i.e. log2 of the number of intervals)
+	 */
+	void query(int start, int end, int idx, int k, MarkerVisitor visitor) {
+		int n = starts.length;
+
+		// Small subtree: Check every node
+		if (k <= MAX_LEVEL_LINEAR_SCAN) {
+			int i0 = (idx >> k) << k;
+			int i1 = Math.min(n, i0 + (1 << (k + 1)) - 1);
+			for (int i = i0; (i < i1) && (starts[i] <= end); i++)
+				if (start <= ends[i]) visitor.visit(markers[i]);
+			return;
+		}
+
+		// Left child (it might be out of range, in which case it has no 'maxEnd')
+		int half = 1 << (k - 1);
+		int left = idx - half;
+		if ((left >= n) || (maxEnds[left] >= start)) query(start, end, left, k - 1, visitor);
+
+		// This node and right child
+		if ((idx < n) && (starts[idx] <= end)) {
+			if (start <= ends[idx]) visitor.visit(markers[idx]);
+			query(start, end, idx + half, k - 1, visitor);
+		}
+	}
+
+	protected void reset() {
+		markers = new Marker[0];
+		starts = ends = maxEnds = new int[0];
+		maxLevel = -1;
+	}
+
+	@Override
+	public int size() {
+		return intervals.size();
+	}
+
+	/**
+	 * Perform a stabbing query, returning the intervals intersecting 'point'
+	 */
+	@Override
+	public Markers stab(int point) {
+		final Markers results = new Markers();
+		query(point, point, new MarkerVisitor() {
+			@Override
+			public void visit(Marker marker) {
+				results.add(marker);
+			}
+		});
+		return results;
+	}
+
+	@Override
+	public String toString() {
+		return "Size: " + size() + ", max level: " + maxLevel + ", in sync: " + inSync;
+	}
+
+}
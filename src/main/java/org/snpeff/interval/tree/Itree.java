@@ -49,6 +49,12 @@ public interface Itree extends Iterable<Marker> {
 	 */
 	public Markers query(Interval interval);
 
+	/**
+	 * Perform an interval query, invoking 'visitor' on each
+	 * interval that intersects 'interval'
+	 */
+	public void query(Interval interval, MarkerVisitor visitor);
+
 	/**
 	 * Size: number of entries in this tree
 	 */
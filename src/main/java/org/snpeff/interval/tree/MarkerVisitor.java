@@ -0,0 +1,20 @@
+package org.snpeff.interval.tree;
+
+import org.snpeff.interval.Marker;
+
+/**
+ * Callback invoked for each marker found by a query.
+ *
+ * Querying with a visitor, instead of collecting results in
+ * a new 'Markers' object, avoids allocating memory for each lookup.
+ *
+ * @author pcingola
+ */
+public interface MarkerVisitor {
+
+	/**
+	 * Invoked for each marker matching the query
+	 */
+	public void visit(Marker marker);
+
+}
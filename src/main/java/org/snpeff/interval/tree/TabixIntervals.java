@@ -0,0 +1,228 @@
+package org.snpeff.interval.tree;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.snpeff.fileIterator.BedFileIterator;
+import org.snpeff.interval.Custom;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.Variant;
+import org.snpeff.util.Gpr;
+
+import net.sf.samtools.tabix.TabixIndexer;
+import net.sf.samtools.tabix.TabixIterator;
+import net.sf.samtools.tabix.TabixReader;
+
+/**
+ * Custom intervals queried on demand from a BED file compressed
+ * using bgzip and indexed using tabix, instead of loading the
+ * whole file into an interval forest.
+ *
+ * Each thread keeps a 'window' of intervals (one region of a
+ * chromosome). Queries within the window are answered from
+ * memory, otherwise the window is moved (i.e. a new tabix
+ * query is performed). For queries sorted by position (e.g. a
+ * coordinate sorted VCF file), the file is read only once and
+ * memory usage depends on the window size, not the file size.
+ *
+ * Note: This object is thread safe (each thread has its own reader and window).
+ *       Queries after 'close()' return no intervals (e.g. a database
+ *       replaced while some requests are still using it)
+ *
+ * @author pcingola
+ */
+public class TabixIntervals {
+
+	public static final int DEFAULT_WINDOW_SIZE = 100 * 1000;
+
+	/**
+	 * A window of intervals: All intervals intersecting 'chr:start-end'
+	 */
+	class Window {
+		TabixReader tabixReader;
+		BedFileIterator bedParser;
+		String chr;
+		int start, end;
+		Markers markers = new Markers();
+		long countQueries, countLoads;
+		boolean closed;
+
+		/**
+		 * Close reader, no more intervals are returned
+		 */
+		synchronized void close() {
+			if (tabixReader != null) tabixReader.close();
+			closed = true;
+			markers = new Markers();
+		}
+
+		boolean includes(Marker marker) {
+			return (chr != null) //
+					&& chr.equals(marker.getChromosomeName()) //
+					&& (start <= marker.getStart()) //
+					&& (marker.getEnd() <= end) //
+			;
+		}
+
+		/**
+		 * Move window to include 'marker'
+		 */
+		void load(Marker marker) {
+			chr = marker.getChromosomeName();
+			start = marker.getStart();
+			end = Math.max(marker.getEnd(), start + windowSize - 1);
+			markers = new Markers();
+			countLoads++;
+
+			TabixIterator tabixIterator = tabixReader.query(chr, start, end + 1);
+			if (tabixIterator == null) return; // Nothing in this region
+
+			for (String line : tabixIterator) {
+				Variant var = bedParser.parse(line);
+				if (var != null) markers.add(new Custom(var.getParent(), var.getStart(), var.getEnd(), false, var.getId(), label));
+			}
+		}
+
+		/**
+		 * Note: Only the window's thread invokes this method, but 'close()' can be invoked from any thread
+		 */
+		synchronized void query(Marker marker, MarkerVisitor visitor) {
+			if (closed) return;
+			countQueries++;
+			if (!includes(marker)) load(marker);
+
+			for (Marker m : markers)
+				if (m.intersects(marker)) visitor.visit(m);
+		}
+	}
+
+	int windowSize = DEFAULT_WINDOW_SIZE;
+	String fileName;
+	String label;
+	Genome genome; // Custom intervals are added to this genome's chromosomes
+	boolean closed;
+	List<Window> windows; // All windows (used to close readers)
+	ThreadLocal<Window> window;
+
+	/**
+	 * Can this file be queried using tabix?
+	 * I.e. BED file compressed (bgzip) and indexed (tabix)
+	 */
+	public static boolean canQuery(String fileName) {
+		String fl = fileName.toLowerCase();
+		if (!fl.endsWith(".gz")) return false;
+
+		fl = fl.substring(0, fl.length() - 3);
+		if (!fl.endsWith(".bed") && !fl.endsWith(".txt")) return false;
+
+		return Gpr.canRead(fileName + TabixIndexer.TBI_EXT);
+	}
+
+	public TabixIntervals(String fileName, String label, Genome genome) {
+		this.fileName = fileName;
+		this.label = label;
+		this.genome = genome;
+		windows = new ArrayList<>();
+		window = new ThreadLocal<Window>() {
+			@Override
+			protected Window initialValue() {
+				return newWindow();
+			}
+		};
+	}
+
+	/**
+	 * Close all readers
+	 */
+	public synchronized void close() {
+		for (Window w : windows)
+			w.close();
+		windows.clear();
+		closed = true;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Have the readers been closed?
+	 */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Create a new window (i.e. open a new tabix reader)
+	 */
+	synchronized Window newWindow() {
+		Window w = new Window();
+		if (closed) {
+			w.closed = true; // Do not open new readers after closing
+			return w;
+		}
+
+		try {
+			w.tabixReader = new TabixReader(fileName);
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening tabix indexed file '" + fileName + "'", e);
+		}
+
+		w.bedParser = new BedFileIterator(genome);
+
+		windows.add(w);
+		return w;
+	}
+
+	/**
+	 * Return all intervals that intersect 'marker'
+	 */
+	public Markers query(Marker marker) {
+		final Markers results = new Markers();
+		query(marker, new MarkerVisitor() {
+			@Override
+			public void visit(Marker m) {
+				results.add(m);
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * Invoke 'visitor' on each interval that intersects 'marker'
+	 */
+	public void query(Marker marker, MarkerVisitor visitor) {
+		window.get().query(marker, visitor);
+	}
+
+	/**
+	 * Window size (number of bases), used for new windows
+	 */
+	public void setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	@Override
+	public synchronized String toString() {
+		long countQueries = 0, countLoads = 0;
+		for (Window w : windows) {
+			countQueries += w.countQueries;
+			countLoads += w.countLoads;
+		}
+
+		return "Tabix intervals '" + fileName + "'" //
+				+ ", label: '" + label + "'" //
+				+ ", window size: " + windowSize //
+				+ ", queries: " + countQueries //
+				+ ", windows loaded: " + countLoads //
+		;
+	}
+
+}
@@ -106,7 +106,7 @@ public class Pwm {
 	 */
 	public char[] getBestSequence() {
 		if (bestSequence == null) {
-			bestSequence = new char[length];
+			char best[] = new char[length]; // Fill before assigning (this may be called from several threads)
 
 			for (int i = 0; i < countMatrix[0].length; i++) {
 				int max = 0, maxb = 0;
@@ -116,8 +116,10 @@ public class Pwm {
 						maxb = b;
 					}
 				}
-				bestSequence[i] = BASES[maxb];
+				best[i] = BASES[maxb];
 			}
+
+			bestSequence = best;
 		}
 
 		return bestSequence;
@@ -181,6 +183,19 @@ public class Pwm {
 		return score / length;
 	}
 
+	/**
+	 * Score difference when base at 'position' in the best sequence is replaced by 'base'
+	 * I.e. score(bestSequence) - score(changedSequence), but only the column
+	 * at 'position' is used (other positions do not change)
+	 */
+	public double scoreDiff(int position, char base) {
+		if (logOdds == null) calcLogOddsWeight();
+		if (position < 0 || position >= size()) return 0;
+
+		double diff = getLogOdds(getBestSequence()[position], position) - getLogOdds(base, position);
+		return diff / length;
+	}
+
 	/**
 	 * Set PWM as a perfect match to a dna sequence
 	 */
@@ -6,6 +6,8 @@ import org.snpeff.interval.Marker;
 import org.snpeff.interval.Variant;
 import org.snpeff.snpEffect.VariantEffect;
 
+import net.sf.samtools.tabix.TabixIndexer;
+
 /**
  * Formats output as BED file
  * 
@@ -31,6 +33,11 @@ public class BedOutputFormatter extends OutputFormatter {
 		return null;
 	}
 
+	@Override
+	protected TabixIndexer newTabixIndexer() {
+		return TabixIndexer.bed();
+	}
+
 	@Override
 	public void setOutOffset(int outOffset) {
 		throw new RuntimeException("Cannot set output offset on '" + this.getClass().getSimpleName() + "' formatter!");
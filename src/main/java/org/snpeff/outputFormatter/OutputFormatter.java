@@ -1,6 +1,7 @@
 package org.snpeff.outputFormatter;
 
 import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -11,6 +12,9 @@ import org.snpeff.interval.Marker;
 import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.VariantEffect;
 
+import net.sf.samtools.tabix.BgzfOutputStream;
+import net.sf.samtools.tabix.TabixIndexer;
+
 /**
  * Formats output
  * How is this used:
@@ -28,13 +32,17 @@ public abstract class OutputFormatter {
 	boolean useGeneId; // Use Gene ID instead of gene name
 	boolean useSequenceOntology; // Use Sequence Ontology terms
 	boolean useOicr; // Use OICR tag
+	boolean bgzip; // Compress output file (BGZF) and create a tabix index
 	int sectionNum = 0;
+	int compressionThreads = 1; // Number of threads used to compress BGZF blocks
 	int outOffset = 1;
 	String commandLineStr;
 	String version;
 	String chrStr;
 	String outputFile = null;
 	BufferedWriter out;
+	BgzfOutputStream bgzfOut;
+	TabixIndexer tabixIndexer;
 	Marker section;
 	VariantEffectFilter variantEffectResutFilter = null; // Filter prediction results
 	List<VariantEffect> variantEffects;
@@ -84,15 +92,26 @@ public abstract class OutputFormatter {
 	 * CLose output files, if any
 	 */
 	public void close() {
-		if (out != null) {
-			try {
-				out.close();
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
+		try {
+			if (out != null) out.close();
+			if (bgzfOut != null) closeBgzip();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Close BGZF output file and write tabix index
+	 */
+	void closeBgzip() throws IOException {
+		bgzfOut.close();
+
+		if (tabixIndexer == null) return;
+		if (tabixIndexer.isOk()) tabixIndexer.write(outputFile + TabixIndexer.TBI_EXT, bgzfOut);
+		else System.err.println("WARNING: Cannot create tabix index for file '" + outputFile + "'. " + tabixIndexer.getError());
+		tabixIndexer = null;
+	}
+
 	/**
 	 * Finish up section
 	 */
@@ -117,18 +136,32 @@ public abstract class OutputFormatter {
 		return supressOutput ? null : sb.toString();
 	}
 
+	/**
+	 * Create a tabix indexer suitable for this output format (null if not supported)
+	 */
+	protected TabixIndexer newTabixIndexer() {
+		return null;
+	}
+
 	/**
 	 * Print a "raw" string to a file
 	 */
 	public void print(String outStr) {
 		try {
 			// Open output file?
-			if ((outputFile != null) && (out == null)) out = new BufferedWriter(new FileWriter(outputFile));
+			if ((outputFile != null) && (out == null) && (bgzfOut == null)) {
+				if (bgzip) {
+					bgzfOut = new BgzfOutputStream(new FileOutputStream(outputFile), compressionThreads);
+					tabixIndexer = newTabixIndexer();
+				} else out = new BufferedWriter(new FileWriter(outputFile));
+			}
 
 			// Write something?
 			if ((outStr != null) && (!outStr.isEmpty())) {
 				// Write to file?
-				if (out != null) {
+				if (bgzfOut != null) {
+					printBgzip(outStr);
+				} else if (out != null) {
 					out.write(outStr);
 					out.write("\n");
 				} else if (!supressOutput) System.out.println(outStr); // Show on STDOUT
@@ -138,6 +171,22 @@ public abstract class OutputFormatter {
 		}
 	}
 
+	/**
+	 * Write to BGZF file, one line at a time (each line is added to the index)
+	 */
+	void printBgzip(String outStr) throws IOException {
+		for (int start = 0, end; start < outStr.length(); start = end + 1) {
+			end = outStr.indexOf('\n', start);
+			if (end < 0) end = outStr.length();
+			String line = outStr.substring(start, end);
+
+			long offsetStart = bgzfOut.getBlockOffset();
+			bgzfOut.write(line.getBytes());
+			bgzfOut.write('\n');
+			if (tabixIndexer != null) tabixIndexer.add(line, offsetStart, bgzfOut.getBlockOffset());
+		}
+	}
+
 	/**
 	 * End this section and print results
 	 */
@@ -145,6 +194,14 @@ public abstract class OutputFormatter {
 		print(endSection(marker));
 	}
 
+	/**
+	 * Compress output file using BGZF (and create a tabix index, if the format supports it)
+	 */
+	public void setBgzip(boolean bgzip, int compressionThreads) {
+		this.bgzip = bgzip;
+		this.compressionThreads = compressionThreads;
+	}
+
 	public void setChrStr(String chrStr) {
 		this.chrStr = chrStr;
 	}
@@ -161,6 +218,13 @@ public abstract class OutputFormatter {
 		this.outOffset = outOffset;
 	}
 
+	/**
+	 * Write results to 'out' instead of a file or STDOUT
+	 */
+	public void setOutput(BufferedWriter out) {
+		this.out = out;
+	}
+
 	public void setOutputFile(String outputFile) {
 		this.outputFile = outputFile;
 	}
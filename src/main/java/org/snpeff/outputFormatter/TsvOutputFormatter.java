@@ -0,0 +1,210 @@
+package org.snpeff.outputFormatter;
+
+import org.snpeff.interval.Custom;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Transcript;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.LossOfFunction;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.util.KeyValue;
+import org.snpeff.vcf.EffFormatVersion;
+import org.snpeff.vcf.VcfEffect;
+import org.snpeff.vcf.VcfEntry;
+
+import net.sf.samtools.tabix.TabixIndexer;
+
+/**
+ * Formats output as a tab separated table: One row per effect.
+ *
+ * Each 'ANN' sub-field is a column, so the output can be loaded
+ * into databases or data frames without parsing 'ANN' fields.
+ *
+ * Coordinates, REF and ALLELE are the same as in the input VCF
+ * entry (if the input is not a VCF file, variant coordinates are
+ * used). Empty columns mean "not available".
+ *
+ * @author pcingola
+ */
+public class TsvOutputFormatter extends OutputFormatter {
+
+	public static final String COLUMN_NAMES[] = { "CHROM", "POS", "REF", "ALLELE" //
+			, "EFFECT", "IMPACT", "GENE_NAME", "GENE_ID", "FEATURE_TYPE", "FEATURE_ID", "BIOTYPE" //
+			, "RANK", "RANK_TOTAL", "HGVS_C", "HGVS_P" //
+			, "CDNA_POS", "CDNA_LEN", "CDS_POS", "CDS_LEN", "AA_POS", "AA_LEN", "DISTANCE" //
+			, "ERRORS_WARNINGS", "LOF", "NMD", "CUSTOM" //
+	};
+
+	boolean lossOfFunction;
+	VcfEntry vcfEntry; // Latest VCF entry (null if input is not VCF)
+	StringBuilder lineBuffer = new StringBuilder(); // Re-use buffer when creating output lines
+
+	public TsvOutputFormatter() {
+		super();
+	}
+
+	/**
+	 * Add a column
+	 */
+	void add(StringBuilder sb, Object obj) {
+		sb.append('\t');
+		if (obj != null) appendSafe(sb, obj.toString());
+	}
+
+	/**
+	 * Add a numeric column (negative numbers mean "not available")
+	 */
+	void add(StringBuilder sb, int num) {
+		sb.append('\t');
+		if (num >= 0) sb.append(num);
+	}
+
+	/**
+	 * Add custom interval's 'key=value' pairs
+	 */
+	void addCustom(StringBuilder sb, VariantEffect variantEffect) {
+		sb.append('\t');
+		if (!variantEffect.hasAdditionalAnnotations()) return;
+
+		Custom custom = (Custom) variantEffect.getMarker();
+		String sep = "";
+		for (KeyValue<String, String> kv : custom) {
+			sb.append(sep);
+			sep = ";";
+			appendSafe(sb, custom.getLabel() + "_" + kv.key + "=" + kv.value.replace(';', ','));
+		}
+	}
+
+	/**
+	 * Append a value, making sure it has no tabs or new lines
+	 */
+	void appendSafe(StringBuilder sb, String str) {
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			sb.append((c == '\t' || c == '\n' || c == '\r') ? ' ' : c);
+		}
+	}
+
+	@Override
+	public OutputFormatter clone() {
+		TsvOutputFormatter newOutputFormatter = (TsvOutputFormatter) super.clone();
+		newOutputFormatter.lossOfFunction = lossOfFunction;
+		return newOutputFormatter;
+	}
+
+	/**
+	 * Finish up section
+	 */
+	@Override
+	public String endSection(Marker marker) {
+		// Ignore other markers (e.g. VCF entries)
+		if (marker instanceof Variant) return super.endSection(marker);
+		return null;
+	}
+
+	/**
+	 * Index by chromosome and position
+	 */
+	@Override
+	protected TabixIndexer newTabixIndexer() {
+		return new TabixIndexer(TabixIndexer.PRESET_GENERIC, 1, 2, 0);
+	}
+
+	public void setLossOfFunction(boolean lossOfFunction) {
+		this.lossOfFunction = lossOfFunction;
+	}
+
+	@Override
+	public void startSection(Marker marker) {
+		if (marker instanceof VcfEntry) vcfEntry = (VcfEntry) marker;
+		else if (marker instanceof Variant) super.startSection(marker);
+	}
+
+	/**
+	 * Show all effects, one per line
+	 */
+	@Override
+	public String toString() {
+		Variant variant = (Variant) section;
+
+		// Coordinates: Use VCF entry's (if available)
+		String chr = chrStr + variant.getChromosomeName();
+		String pos, ref;
+		if (vcfEntry != null) {
+			pos = Integer.toString(vcfEntry.getStart() + outOffset);
+			ref = vcfEntry.getRef();
+		} else {
+			pos = Integer.toString(variant.getStart() + outOffset);
+			ref = variant.getReference();
+		}
+
+		// Loss of function analysis
+		LossOfFunction lof = null;
+		if (lossOfFunction && (config != null)) lof = new LossOfFunction(config, variantEffects);
+
+		StringBuilder sb = lineBuffer;
+		sb.setLength(0);
+		for (VariantEffect variantEffect : variantEffects) {
+			// If it is not filtered out by changeEffectResutFilter => Show it
+			if ((variantEffectResutFilter != null) && variantEffectResutFilter.filter(variantEffect)) continue;
+
+			VcfEffect vcfEffect = new VcfEffect(variantEffect, EffFormatVersion.DEFAULT_FORMAT_VERSION, useSequenceOntology, false);
+			vcfEffect.setUseGeneId(useGeneId);
+			vcfEffect.setUseHgvs(useHgvs);
+
+			if (sb.length() > 0) sb.append('\n');
+			sb.append(chr);
+			add(sb, pos);
+			add(sb, ref);
+			add(sb, vcfEffect.getAllele());
+
+			add(sb, vcfEffect.getEffectTypesStr());
+			add(sb, vcfEffect.getImpact());
+			add(sb, vcfEffect.getGeneName());
+			add(sb, vcfEffect.getGeneId());
+			add(sb, vcfEffect.getFeatureType());
+			add(sb, vcfEffect.getFeatureId());
+			add(sb, vcfEffect.getBioType());
+
+			add(sb, vcfEffect.getRank());
+			add(sb, vcfEffect.getRank() >= 0 ? vcfEffect.getRankMax() : -1);
+			add(sb, vcfEffect.getHgvsC());
+			add(sb, vcfEffect.getHgvsP());
+
+			add(sb, vcfEffect.getcDnaPos());
+			add(sb, vcfEffect.getcDnaPos() >= 0 ? vcfEffect.getcDnaLen() : -1);
+			add(sb, vcfEffect.getCdsPos());
+			add(sb, vcfEffect.getCdsPos() >= 0 ? vcfEffect.getCdsLen() : -1);
+			add(sb, vcfEffect.getAaPos());
+			add(sb, vcfEffect.getAaPos() >= 0 ? vcfEffect.getAaLen() : -1);
+			add(sb, vcfEffect.getDistance());
+
+			add(sb, vcfEffect.getErrorsWarning());
+
+			// Loss of function and nonsense mediated decay
+			Transcript tr = variantEffect.getTranscript();
+			add(sb, lof != null ? Boolean.toString(lof.isLof(tr)) : null);
+			add(sb, lof != null ? Boolean.toString(lof.isNmd(tr)) : null);
+
+			addCustom(sb, variantEffect);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Show header
+	 */
+	@Override
+	public String toStringHeader() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("# SnpEff version " + version + "\n");
+		sb.append("# Command line: " + commandLineStr + "\n");
+
+		sb.append("#");
+		for (int i = 0; i < COLUMN_NAMES.length; i++)
+			sb.append((i > 0 ? "\t" : "") + COLUMN_NAMES[i]);
+
+		return sb.toString();
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.snpeff.outputFormatter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -19,6 +20,8 @@ import org.snpeff.vcf.EffFormatVersion;
 import org.snpeff.vcf.VcfEffect;
 import org.snpeff.vcf.VcfEntry;
 
+import net.sf.samtools.tabix.TabixIndexer;
+
 /**
  * Formats output as VCF
  *
@@ -35,6 +38,10 @@ public class VcfOutputFormatter extends OutputFormatter {
 	boolean gatk;
 	EffFormatVersion formatVersion = EffFormatVersion.DEFAULT_FORMAT_VERSION;
 	List<VcfEntry> vcfEntries;
+	StringBuilder effBuffer = new StringBuilder(); // Reusable buffer for 'EFF' / 'ANN' INFO field
+	StringBuilder lineBuffer = new StringBuilder(); // Reusable buffer for output lines
+	int effStarts[] = new int[16], effEnds[] = new int[16], effHashes[] = new int[16]; // Effects added to 'effBuffer'
+	int effCount;
 
 	public VcfOutputFormatter() {
 		super();
@@ -83,8 +90,8 @@ public class VcfOutputFormatter extends OutputFormatter {
 		//---
 		// Calculate all effects and genes
 		//---
-		HashSet<String> effs = new HashSet<String>();
-		ArrayList<String> effsSorted = new ArrayList<String>();
+		effBuffer.setLength(0);
+		effCount = 0;
 		HashSet<String> oicr = (useOicr ? new HashSet<String>() : null);
 		boolean addCustomFields = false;
 		for (VariantEffect variantEffect : variantEffects) {
@@ -92,18 +99,23 @@ public class VcfOutputFormatter extends OutputFormatter {
 			// If it is not filtered out by changeEffectResutFilter => Show it
 			if ((variantEffectResutFilter == null) || (!variantEffectResutFilter.filter(variantEffect))) {
 				//---
-				// Create INFO field value as a string
+				// Append INFO field value to buffer
 				//---
 				VcfEffect vcfEffect = new VcfEffect(variantEffect, formatVersion, useSequenceOntology, gatk);
 				vcfEffect.setUseGeneId(useGeneId);
 				vcfEffect.setUseHgvs(useHgvs);
-				String effStr = vcfEffect.toString();
+
+				int effStart = effBuffer.length();
+				if (effStart > 0) effBuffer.append(',');
+				vcfEffect.createInfoField(effBuffer);
 
 				//---
-				// Add effect
+				// Add effect (remove it from the buffer if it was a repeat)
 				//---
-				if (!effs.add(effStr)) {
+				if (!addEff(effStart)) {
 					if (debug) {
+						String effStr = effBuffer.substring(effStart > 0 ? effStart + 1 : effStart);
+
 						// Effect has already been added? Something is wrong, the information should be unique for each effect
 						StringBuilder sb = new StringBuilder();
 						sb.append("--------------------------------------------------------------------------------\n");
@@ -111,15 +123,16 @@ public class VcfOutputFormatter extends OutputFormatter {
 						sb.append("REPEAT (VCF):\t" + effStr + "\n");
 						sb.append("REPEAT (TXT):\t" + variantEffect + "\n");
 						sb.append("All    (VCF):\n");
-						for (String ce : effsSorted)
-							sb.append("\t" + ce + "\n");
+						for (int i = 0; i < effCount; i++)
+							sb.append("\t" + effBuffer.substring(effStarts[i], effEnds[i]) + "\n");
 						sb.append("All    (TXT):\n");
 						for (VariantEffect ce : variantEffects)
 							sb.append("\t" + ce + "\n");
 						sb.append("--------------------------------------------------------------------------------\n");
 						Gpr.debug("WARNING: Repeated effect!\n" + sb);
 					}
-				} else effsSorted.add(effStr);
+					effBuffer.setLength(effStart);
+				}
 
 				//---
 				// Add OICR data
@@ -154,8 +167,7 @@ public class VcfOutputFormatter extends OutputFormatter {
 		//---
 
 		// Add 'EFF' info field
-		String effStr = toStringVcfInfo(effsSorted);
-		if (!effStr.isEmpty()) vcfEntry.addInfo(VcfEffect.infoFieldName(formatVersion), effStr);
+		if (effBuffer.length() > 0) vcfEntry.addInfoEncoded(VcfEffect.infoFieldName(formatVersion), effBuffer);
 
 		// Add 'OICR' info field
 		if (useOicr && (oicr.size() > 0)) {
@@ -167,8 +179,8 @@ public class VcfOutputFormatter extends OutputFormatter {
 		if (lossOfFunction) {
 			// Perform LOF analysis and add annotations
 			LossOfFunction lof = new LossOfFunction(config, variantEffects);
-			if (lof.isLof()) vcfEntry.addInfo(LossOfFunction.VCF_INFO_LOF_NAME, lof.toStringVcfLof());
-			if (lof.isNmd()) vcfEntry.addInfo(LossOfFunction.VCF_INFO_NMD_NAME, lof.toStringVcfNmd());
+			if (lof.isLof()) vcfEntry.addInfoEncoded(LossOfFunction.VCF_INFO_LOF_NAME, lof.toStringVcfLof());
+			if (lof.isNmd()) vcfEntry.addInfoEncoded(LossOfFunction.VCF_INFO_NMD_NAME, lof.toStringVcfNmd());
 		}
 
 		// Add custom markers info fields
@@ -188,6 +200,46 @@ public class VcfOutputFormatter extends OutputFormatter {
 		needAddInfo = false; // Don't add info twice
 	}
 
+	/**
+	 * Add the last effect in 'effBuffer' (starting at 'effStart') to the list of effects
+	 * Effects are compared using a hash of their characters, so no strings are created
+	 *
+	 * @return false if the effect is a repeat (i.e. it has already been added)
+	 */
+	boolean addEff(int effStart) {
+		if (effStart > 0) effStart++; // Skip comma separator
+		int effEnd = effBuffer.length();
+		if (effEnd <= effStart) return false; // Empty effect
+
+		// Calculate hash
+		int hash = 0;
+		for (int i = effStart; i < effEnd; i++)
+			hash = 31 * hash + effBuffer.charAt(i);
+
+		// Compare to all previous effects
+		int len = effEnd - effStart;
+		for (int i = 0; i < effCount; i++) {
+			if ((effHashes[i] != hash) || (effEnds[i] - effStarts[i] != len)) continue;
+
+			boolean eq = true;
+			for (int j = 0; eq && j < len; j++)
+				eq = (effBuffer.charAt(effStarts[i] + j) == effBuffer.charAt(effStart + j));
+			if (eq) return false;
+		}
+
+		// Add effect
+		if (effCount >= effStarts.length) {
+			effStarts = Arrays.copyOf(effStarts, 2 * effCount);
+			effEnds = Arrays.copyOf(effEnds, 2 * effCount);
+			effHashes = Arrays.copyOf(effHashes, 2 * effCount);
+		}
+		effStarts[effCount] = effStart;
+		effEnds[effCount] = effEnd;
+		effHashes[effCount] = hash;
+		effCount++;
+		return true;
+	}
+
 	/**
 	 * Are all varaint effects having some sort of warning or error?
 	 */
@@ -253,6 +305,11 @@ public class VcfOutputFormatter extends OutputFormatter {
 		return newLines;
 	}
 
+	@Override
+	protected TabixIndexer newTabixIndexer() {
+		return TabixIndexer.vcf();
+	}
+
 	public void setFormatVersion(EffFormatVersion formatVersion) {
 		this.formatVersion = formatVersion;
 	}
@@ -283,7 +340,10 @@ public class VcfOutputFormatter extends OutputFormatter {
 		if (section == null) return "";
 		VcfEntry vcfEntry = (VcfEntry) section;
 		if (needAddInfo) addInfo(vcfEntry);
-		return vcfEntry.toString();
+
+		lineBuffer.setLength(0);
+		vcfEntry.toString(lineBuffer);
+		return lineBuffer.toString();
 	}
 
 	/**
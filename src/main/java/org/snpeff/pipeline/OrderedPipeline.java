@@ -0,0 +1,204 @@
+package org.snpeff.pipeline;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.snpeff.util.Timer;
+
+/**
+ * Multi-threaded processing that preserves input order:
+ *
+ * 		- A 'reader' thread takes items from an iterator and groups them in batches
+ * 		- 'Worker' threads process batches (method 'process')
+ * 		- Results are written by the calling thread, in the same order as the input (method 'write')
+ *
+ * The number of batches 'in flight' is bounded, so a slow writer (or a slow batch) blocks
+ * the reader instead of buffering the whole input in memory (backpressure).
+ *
+ * Batch sizes are adjusted so that processing a batch takes roughly TARGET_BATCH_TIME
+ * (small batches have too much overhead, large batches increase latency and memory usage).
+ *
+ * @author pcingola
+ */
+public abstract class OrderedPipeline<I, O> {
+
+	public static final int BATCHES_PER_WORKER = 4; // Maximum number of batches 'in flight' for each worker
+	public static final int DEFAULT_BATCH_SIZE = 10;
+	public static final int MIN_BATCH_SIZE = 1;
+	public static final int MAX_BATCH_SIZE = 10 * 1000;
+	public static final long TARGET_BATCH_TIME = 10 * 1000 * 1000L; // Target time to process one batch (nanoseconds)
+
+	protected boolean verbose = false;
+	protected boolean debug = false;
+	int numWorkers;
+	volatile double nanosPerItem; // Average processing time per item (used to adjust batch sizes)
+	long countBatches, countItems;
+
+	public OrderedPipeline(int numWorkers) {
+		this.numWorkers = Math.max(1, numWorkers);
+	}
+
+	/**
+	 * Batch size based on average processing time
+	 */
+	int batchSize() {
+		double npi = nanosPerItem;
+		if (npi <= 0) return DEFAULT_BATCH_SIZE;
+
+		long size = Math.round(TARGET_BATCH_TIME / npi);
+		return (int) Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, size));
+	}
+
+	public long getCountItems() {
+		return countItems;
+	}
+
+	/**
+	 * Process one item (invoked concurrently from worker threads)
+	 */
+	protected abstract O process(I in);
+
+	/**
+	 * Process a batch and update average processing time
+	 */
+	void process(Batch<I, O> batch) {
+		try {
+			long start = System.nanoTime();
+			for (I in : batch.in)
+				batch.out.add(process(in));
+
+			// Update average processing time (a race between workers is harmless, it's only an estimate)
+			double npi = ((double) (System.nanoTime() - start)) / Math.max(1, batch.in.size());
+			nanosPerItem = (nanosPerItem <= 0 ? npi : (nanosPerItem + npi) / 2.0);
+		} catch (Throwable t) {
+			batch.error = t;
+		}
+	}
+
+	/**
+	 * Read items, process them and write results in order
+	 */
+	public void run(final Iterator<I> iterator) {
+		int maxBatches = numWorkers * BATCHES_PER_WORKER;
+		final Semaphore inFlight = new Semaphore(maxBatches);
+		final BlockingQueue<Batch<I, O>> done = new ArrayBlockingQueue<>(maxBatches + 1);
+		final ExecutorService workers = new ThreadPoolExecutor(numWorkers, numWorkers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(maxBatches));
+		if (verbose) Timer.showStdErr("Starting pipeline: " + numWorkers + " workers, up to " + maxBatches + " batches in flight.");
+
+		// Reader thread: Create batches and send them to workers
+		Thread reader = new Thread("OrderedPipeline.reader") {
+			@Override
+			public void run() {
+				long serial = 0;
+				Throwable error = null;
+				try {
+					while (iterator.hasNext()) {
+						final Batch<I, O> batch = new Batch<>(serial++, batchSize());
+						while (batch.in.size() < batch.size && iterator.hasNext())
+							batch.in.add(iterator.next());
+
+						inFlight.acquire(); // Wait until there is room for another batch
+						workers.execute(new Runnable() {
+							@Override
+							public void run() {
+								process(batch);
+								done.add(batch);
+							}
+						});
+					}
+				} catch (InterruptedException e) {
+					return; // Pipeline aborted
+				} catch (Throwable t) {
+					error = t;
+				}
+
+				// Signal 'end of input'
+				Batch<I, O> end = new Batch<>(serial, 0);
+				end.end = true;
+				end.error = error;
+				done.add(end);
+			}
+		};
+
+		// Write results (in order)
+		PriorityQueue<Batch<I, O>> pending = new PriorityQueue<>();
+		long next = 0, numBatches = -1;
+		try {
+			reader.start();
+			while ((numBatches < 0) || (next < numBatches)) {
+				Batch<I, O> batch = done.take();
+				if (batch.error != null) throw new RuntimeException("Error in " + (batch.end ? "reader" : "worker") + " thread", batch.error);
+
+				if (batch.end) numBatches = batch.serial;
+				else pending.add(batch);
+
+				// Write all batches that are ready
+				while (!pending.isEmpty() && (pending.peek().serial == next)) {
+					Batch<I, O> b = pending.poll();
+					for (O out : b.out)
+						write(out);
+
+					countItems += b.in.size();
+					countBatches++;
+					next++;
+					inFlight.release();
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			reader.interrupt();
+			workers.shutdownNow();
+		}
+
+		if (verbose) Timer.showStdErr("Pipeline finished: " + countItems + " items in " + countBatches + " batches.");
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Write one result (invoked from the calling thread, in input order)
+	 */
+	protected abstract void write(O out);
+
+}
+
+/**
+ * A batch of items and their results
+ */
+class Batch<I, O> implements Comparable<Batch<I, O>> {
+
+	long serial; // Batch number: Used to write results in order
+	int size;
+	boolean end; // Last batch: Signals 'end of input'
+	List<I> in;
+	List<O> out;
+	Throwable error;
+
+	public Batch(long serial, int size) {
+		this.serial = serial;
+		this.size = size;
+		in = new ArrayList<>(size);
+		out = new ArrayList<>(size);
+	}
+
+	@Override
+	public int compareTo(Batch<I, O> b) {
+		return Long.compare(serial, b.serial);
+	}
+
+}
@@ -3,6 +3,7 @@ package org.snpeff.serializer;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -71,6 +72,51 @@ public class MarkerSerializer {
 		byMarker = new HashMap<TxtSerializable, Integer>();
 	}
 
+	/**
+	 * Assign parent: Replace 'fake' parent (MarkerParentId) by the real parent marker
+	 */
+	protected void assignParent(Marker m) {
+		// Do we need to replace parent?
+		if (m.getParent() instanceof MarkerParentId) {
+			// Find parent ID
+			MarkerParentId mpid = (MarkerParentId) m.getParent();
+			int parentId = mpid.getParentId();
+
+			// Find and set parent
+			Marker parent = getMarkerById(parentId);
+			m.setParent(parent);
+		}
+	}
+
+	/**
+	 * Assign parents: Replace 'fake' parents (MarkerParentId) by the real parent marker
+	 * @return All markers loaded
+	 */
+	protected Markers assignParents() {
+		Markers markers = new Markers();
+		for (TxtSerializable tm : byId.values()) {
+			if (tm instanceof Marker) {
+				Marker m = (Marker) tm;
+				assignParent(m);
+				markers.add(m); // Add to markers
+			}
+		}
+
+		return markers;
+	}
+
+	/**
+	 * Check that the database's software name and version are compatible with this program
+	 */
+	protected void checkVersion(String fileName, String soft, String versionNumber) {
+		if (!soft.equals(SnpEff.SOFTWARE_NAME)) throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version. Try installing the appropriate database.");
+		if (!versionNumber.equals(SnpEff.VERSION_MAJOR)) throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version:"//
+				+ "\n\tDatabase version : '" + versionNumber + "'"//
+				+ "\n\tProgram version  : '" + SnpEff.VERSION_MAJOR + "'" //
+				+ "\nTry installing the appropriate database." //
+		);
+	}
+
 	public void doNotSave(Marker m) {
 		if (doNotSave == null) doNotSave = new HashSet<>();
 		doNotSave.add(m);
@@ -149,99 +195,10 @@ public class MarkerSerializer {
 			if (lineNum == 0) {
 				// First line should be 'header' showing version number
 				String fields[] = line.split("\t");
-				if (fields.length > 1) {
-					String soft = fields[0];
-					String versionNumber = fields[1];
-
-					// Check for compatibility
-					if (!soft.equals(SnpEff.SOFTWARE_NAME)) throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version. Try installing the appropriate database.");
-					if (!versionNumber.equals(SnpEff.VERSION_MAJOR)) throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version:"//
-							+ "\n\tDatabase version : '" + versionNumber + "'"//
-							+ "\n\tProgram version  : '" + SnpEff.VERSION_MAJOR + "'" //
-							+ "\nTry installing the appropriate database." //
-					);
-				}
+				if (fields.length > 1) checkVersion(fileName, fields[0], fields[1]);
 			} else {
-				parsedField = 0;
 				fields = line.split("\t", -1);
-
-				// Parse field type
-				String typeStr = fields[0];
-				EffectType type = EffectType.valueOf(typeStr);
-
-				// Parse serialization id
-				String idStr = fields[1];
-				int id = Gpr.parseIntSafe(idStr);
-
-				Marker m = null;
-				switch (type) {
-				case GENOME:
-					if (genome == null) m = new Genome();
-					else m = genome;
-					break;
-				case CHROMOSOME:
-					m = new Chromosome();
-					break;
-				case SEQUENCE:
-					m = new MarkerSeq();
-					break;
-				case GENE:
-					m = new Gene();
-					break;
-				case TRANSCRIPT:
-					m = new Transcript();
-					break;
-				case CDS:
-					m = new Cds();
-					break;
-				case EXON:
-					m = new Exon();
-					break;
-				case UTR_3_PRIME:
-					m = new Utr3prime();
-					break;
-				case UTR_5_PRIME:
-					m = new Utr5prime();
-					break;
-				case RARE_AMINO_ACID:
-					m = new RareAminoAcid();
-					break;
-				case SPLICE_SITE_ACCEPTOR:
-					m = new SpliceSiteAcceptor();
-					break;
-				case SPLICE_SITE_BRANCH:
-					m = new SpliceSiteBranch();
-					break;
-				case SPLICE_SITE_BRANCH_U12:
-					m = new SpliceSiteBranchU12();
-					break;
-				case SPLICE_SITE_DONOR:
-					m = new SpliceSiteDonor();
-					break;
-				case NEXT_PROT:
-					m = new NextProt();
-					break;
-				case MOTIF:
-					m = new Motif();
-					break;
-				case REGULATION:
-					m = new Regulation();
-					break;
-
-				default:
-					throw new RuntimeException("Unimplemented for type '" + type + "'");
-				}
-
-				try {
-					// Parse line
-					m.serializeParse(this);
-				} catch (Throwable t) {
-					t.printStackTrace();
-					throw new RuntimeException("Error parsing line " + (lineNum + 1) + " from file '" + fileName + "'\n\t" + line + "\n\tField [" + parsedField + "] : '" + (parsedField < fields.length ? fields[parsedField] : "-") + "'", t);
-				}
-
-				// Add to hash
-				byId.put(id, m);
+				parseFields(fileName, lineNum);
 			}
 
 			lineNum++;
@@ -250,28 +207,102 @@ public class MarkerSerializer {
 		//---
 		// Assign parents
 		//---
-		Markers markers = new Markers();
-		for (TxtSerializable tm : byId.values()) {
-			if (tm instanceof Marker) {
-				Marker m = (Marker) tm;
+		return assignParents();
+	}
+
+	/**
+	 * Create an (empty) marker of type 'type'
+	 */
+	protected Marker newMarker(EffectType type) {
+		Marker m = null;
+		switch (type) {
+		case GENOME:
+			if (genome == null) m = new Genome();
+			else m = genome;
+			break;
+		case CHROMOSOME:
+			m = new Chromosome();
+			break;
+		case SEQUENCE:
+			m = new MarkerSeq();
+			break;
+		case GENE:
+			m = new Gene();
+			break;
+		case TRANSCRIPT:
+			m = new Transcript();
+			break;
+		case CDS:
+			m = new Cds();
+			break;
+		case EXON:
+			m = new Exon();
+			break;
+		case UTR_3_PRIME:
+			m = new Utr3prime();
+			break;
+		case UTR_5_PRIME:
+			m = new Utr5prime();
+			break;
+		case RARE_AMINO_ACID:
+			m = new RareAminoAcid();
+			break;
+		case SPLICE_SITE_ACCEPTOR:
+			m = new SpliceSiteAcceptor();
+			break;
+		case SPLICE_SITE_BRANCH:
+			m = new SpliceSiteBranch();
+			break;
+		case SPLICE_SITE_BRANCH_U12:
+			m = new SpliceSiteBranchU12();
+			break;
+		case SPLICE_SITE_DONOR:
+			m = new SpliceSiteDonor();
+			break;
+		case NEXT_PROT:
+			m = new NextProt();
+			break;
+		case MOTIF:
+			m = new Motif();
+			break;
+		case REGULATION:
+			m = new Regulation();
+			break;
+
+		default:
+			throw new RuntimeException("Unimplemented for type '" + type + "'");
+		}
 
-				// Do we need to replace parent?
-				if (m.getParent() instanceof MarkerParentId) {
-					// Find parent ID
-					MarkerParentId mpid = (MarkerParentId) m.getParent();
-					int parentId = mpid.getParentId();
+		return m;
+	}
 
-					// Find and set parent
-					Marker parent = getMarkerById(parentId);
-					m.setParent(parent);
-				}
+	/**
+	 * Create a marker from the current 'fields' and add it to the 'byId' map
+	 */
+	protected Marker parseFields(String fileName, int lineNum) {
+		parsedField = 0;
 
-				// Add to markers
-				markers.add(m);
-			}
+		// Parse field type
+		String typeStr = fields[0];
+		EffectType type = EffectType.valueOf(typeStr);
+
+		// Parse serialization id
+		String idStr = fields[1];
+		int id = Gpr.parseIntSafe(idStr);
+
+		Marker m = newMarker(type);
+
+		try {
+			// Parse line
+			m.serializeParse(this);
+		} catch (Throwable t) {
+			t.printStackTrace();
+			throw new RuntimeException("Error parsing line " + (lineNum + 1) + " from file '" + fileName + "'\n\t" + (line != null ? line : Arrays.toString(fields)) + "\n\tField [" + parsedField + "] : '" + (parsedField < fields.length ? fields[parsedField] : "-") + "'", t);
 		}
 
-		return markers;
+		// Add to hash
+		byId.put(id, m);
+		return m;
 	}
 
 	/**
@@ -300,7 +331,7 @@ public class MarkerSerializer {
 
 		// Print line
 		String line = m.serializeSave(this);
-		outFile.print(line + "\n");
+		saveLine(line);
 		lineNum++;
 
 		return id;
@@ -328,6 +359,13 @@ public class MarkerSerializer {
 		}
 	}
 
+	/**
+	 * Write a serialized marker
+	 */
+	protected void saveLine(String line) {
+		outFile.print(line + "\n");
+	}
+
 	boolean shouldSkip(Marker m) {
 		return byMarker.containsKey(m) || isDoNotSave(m);
 	}
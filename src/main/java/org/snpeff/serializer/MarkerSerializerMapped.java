@@ -0,0 +1,783 @@
+package org.snpeff.serializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.snpeff.SnpEff;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.snpEffect.EffectType;
+import org.snpeff.util.Gpr;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Serialize markers to (and from) a binary, memory-mappable file
+ *
+ * The file uses a columnar layout: one primitive array per column
+ * (types, strands, serialization IDs, parent indexes, starts, ends)
+ * plus a string table holding marker IDs and type specific fields.
+ * This allows the file to be opened using 'FileChannel.map' and
+ * queried without creating any Marker object. When markers are
+ * created, their fields are decoded directly from the mapped file.
+ *
+ * Records are partitioned by chromosome: The genome and chromosome
+ * records come first, followed by one block of records per chromosome.
+ * This allows loading markers one chromosome at a time.
+ *
+ * File layout (big endian):
+ *
+ * 		MAGIC                     : 8 bytes
+ * 		Format version            : int
+ * 		Software name & version   : Two strings (2 bytes length + UTF-8 bytes)
+ * 		Number of records (N)     : int
+ * 		Number of strings (S)     : int
+ * 		String table size (bytes) : int
+ * 		Number of genome records  : int (genome & chromosomes, stored first)
+ * 		Number of blocks (C)      : int (one block per chromosome)
+ * 		Types                     : byte[N] (EffectType ordinal)
+ * 		Strands                   : byte[N] (1 if strand minus)
+ * 		Serialization IDs         : int[N]
+ * 		Parent index              : int[N] (record index, -1 if there is no parent)
+ * 		Start                     : int[N]
+ * 		End                       : int[N]
+ * 		Marker ID                 : int[N] (index in string table)
+ * 		Other fields              : int[N] (index in string table)
+ * 		Block chromosome          : int[C] (record index of the chromosome)
+ * 		Block offsets             : int[C + 1] (first record in each block)
+ * 		String offsets            : int[S + 1]
+ * 		String data               : byte[] (UTF-8)
+ *
+ * Note: Within each block, records are stored in the same order as
+ * 		MarkerSerializer lines (children before parents), so markers can
+ * 		be materialized by parsing records sequentially.
+ *
+ * Note: Offsets are 32 bit integers and a single mapping is limited to
+ * 		2GB, so larger databases are not saved in this format (the text
+ * 		serialized database is used instead)
+ *
+ * @author pcingola
+ */
+public class MarkerSerializerMapped extends MarkerSerializer {
+
+	public static final byte[] MAGIC = "SNPEFFMM".getBytes(StandardCharsets.US_ASCII);
+	public static final int FORMAT_VERSION = 2;
+	public static final int NUM_BASE_FIELDS = 7; // Fields serialized by Marker.serializeSave()
+
+	// Columns used when saving
+	TIntArrayList colType, colStrand, colSid, colParentSid, colStart, colEnd, colId, colOther;
+	Map<String, Integer> stringIdx;
+	List<String> strings;
+
+	/**
+	 * Index of the records in a chromosome block, used for queries:
+	 * Records sorted by start and maximum end of all previous records
+	 */
+	static class BlockIndex {
+		final int records[], starts[], maxEnds[];
+
+		BlockIndex(int records[], int starts[], int maxEnds[]) {
+			this.records = records;
+			this.starts = starts;
+			this.maxEnds = maxEnds;
+		}
+	}
+
+	// Mapped file
+	String fileName;
+	ByteBuffer buffer;
+	int numRecords, numStrings, numGenomeRecords, numBlocks;
+	int offTypes, offStrands, offSids, offParents, offStarts, offEnds, offIds, offOthers, offBlockChrs, offBlockOffsets, offStrOffsets, offStrData;
+	Map<String, Integer> blockByChr;
+	BlockIndex blockIndex[]; // Created on demand (see query)
+
+	// Record being parsed: Record index, position of the next type specific field and current field (absolute positions in the buffer)
+	int record, otherPos, otherEnd, fieldStart, fieldEnd;
+
+	/**
+	 * Can this file be opened by this program version?
+	 * Note: Only the header (magic number and versions) is checked, the file is not mapped
+	 */
+	public static boolean isCompatible(String fileName) {
+		if (!Gpr.canRead(fileName)) return false;
+		if (new File(fileName).length() > Integer.MAX_VALUE) return false; // Cannot be mapped
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+			byte magic[] = new byte[MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC)) return false;
+			if (in.readInt() != FORMAT_VERSION) return false;
+
+			String soft = readUtf8(in);
+			String versionNumber = readUtf8(in);
+			return soft.equals(SnpEff.SOFTWARE_NAME) && versionNumber.equals(SnpEff.VERSION_MAJOR);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read a string (2 bytes length + UTF-8 bytes)
+	 */
+	static String readUtf8(DataInputStream in) throws IOException {
+		byte bytes[] = new byte[in.readUnsignedShort()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public MarkerSerializerMapped() {
+		super();
+	}
+
+	public MarkerSerializerMapped(Genome genome) {
+		super(genome);
+	}
+
+	/**
+	 * Add a string to the string table
+	 */
+	int addString(String str) {
+		if (str == null) str = "";
+		Integer idx = stringIdx.get(str);
+		if (idx != null) return idx;
+
+		idx = strings.size();
+		strings.add(str);
+		stringIdx.put(str, idx);
+		return idx;
+	}
+
+	/**
+	 * Index for a chromosome block (created the first time it is used)
+	 */
+	BlockIndex blockIndex(int blockIdx) {
+		BlockIndex bi = blockIndex[blockIdx];
+		if (bi != null) return bi; // Note: BlockIndex is immutable (final fields), so it is safely published
+
+		synchronized (this) {
+			if (blockIndex[blockIdx] != null) return blockIndex[blockIdx];
+
+			// Sort records by start
+			int first = getBlockStart(blockIdx);
+			int n = getBlockStart(blockIdx + 1) - first;
+			long startRec[] = new long[n];
+			for (int i = 0; i < n; i++)
+				startRec[i] = (((long) getStart(first + i)) << 32) | (first + i); // Note: Coordinates are non-negative
+			Arrays.sort(startRec);
+
+			// Maximum end of all records so far
+			int records[] = new int[n], starts[] = new int[n], maxEnds[] = new int[n];
+			int maxEnd = Integer.MIN_VALUE;
+			for (int i = 0; i < n; i++) {
+				records[i] = (int) startRec[i];
+				starts[i] = (int) (startRec[i] >>> 32);
+				maxEnd = Math.max(maxEnd, getEnd(records[i]));
+				maxEnds[i] = maxEnd;
+			}
+
+			bi = new BlockIndex(records, starts, maxEnds);
+			blockIndex[blockIdx] = bi;
+			return bi;
+		}
+	}
+
+	/**
+	 * Find (unsorted) record index of the chromosome this record belongs to, while saving (-1 if not found)
+	 */
+	int chromosomeIdx(int idx, int parentIdx[]) {
+		for (int i = idx; i >= 0; i = parentIdx[i])
+			if (colType.get(i) == EffectType.CHROMOSOME.ordinal()) return i;
+		return -1;
+	}
+
+	/**
+	 * First record in block
+	 */
+	int getBlockStart(int blockIdx) {
+		return buffer.getInt(offBlockOffsets + 4 * blockIdx);
+	}
+
+	/**
+	 * Find record index of the chromosome this record belongs to (-1 if not found)
+	 */
+	public int getChromosomeIdx(int idx) {
+		for (int i = idx; i >= 0; i = getParentIdx(i))
+			if (getType(i) == EffectType.CHROMOSOME) return i;
+		return -1;
+	}
+
+	/**
+	 * Chromosome name for a record
+	 */
+	public String getChromosomeName(int idx) {
+		int chrIdx = getChromosomeIdx(idx);
+		return chrIdx >= 0 ? getId(chrIdx) : "";
+	}
+
+	public int getEnd(int idx) {
+		return buffer.getInt(offEnds + 4 * idx);
+	}
+
+	public String getId(int idx) {
+		return getString(buffer.getInt(offIds + 4 * idx));
+	}
+
+	/**
+	 * Next field of the record being parsed. Base fields are read from
+	 * columns, type specific fields from the string table
+	 */
+	@Override
+	public String getNextField() {
+		switch (parsedField++) {
+		case 0:
+			return getType(record).toString();
+		case 1:
+			return Integer.toString(getSerializationId(record));
+		case 2:
+			return Integer.toString(getParentSerializationId(record));
+		case 3:
+			return Integer.toString(getStart(record));
+		case 4:
+			return Integer.toString(getEnd(record));
+		case 5:
+			return getId(record);
+		case 6:
+			return Boolean.toString(isStrandMinus(record));
+		default:
+			nextOtherField();
+			return readUtf8(fieldStart, fieldEnd - fieldStart);
+		}
+	}
+
+	/**
+	 * Next field of the record being parsed, decoded without creating a string
+	 */
+	@Override
+	public boolean getNextFieldBoolean() {
+		if (parsedField == 6) {
+			parsedField++;
+			return isStrandMinus(record);
+		}
+		if (parsedField < NUM_BASE_FIELDS) return Gpr.parseBoolSafe(getNextField());
+
+		parsedField++;
+		nextOtherField();
+		return parseBool(fieldStart, fieldEnd);
+	}
+
+	/**
+	 * Next field of the record being parsed, decoded without creating a string
+	 */
+	@Override
+	public int getNextFieldInt() {
+		switch (parsedField) {
+		case 1:
+			parsedField++;
+			return getSerializationId(record);
+		case 2:
+			parsedField++;
+			return getParentSerializationId(record);
+		case 3:
+			parsedField++;
+			return getStart(record);
+		case 4:
+			parsedField++;
+			return getEnd(record);
+		default:
+			if (parsedField < NUM_BASE_FIELDS) return Gpr.parseIntSafe(getNextField());
+			parsedField++;
+			nextOtherField();
+			return parseInt(fieldStart, fieldEnd);
+		}
+	}
+
+	/**
+	 * Type specific fields (tab separated)
+	 */
+	public String getOtherFields(int idx) {
+		return getString(buffer.getInt(offOthers + 4 * idx));
+	}
+
+	public int getParentIdx(int idx) {
+		return buffer.getInt(offParents + 4 * idx);
+	}
+
+	/**
+	 * Parent's serialization ID (-1 if there is no parent)
+	 */
+	public int getParentSerializationId(int idx) {
+		int parentIdx = getParentIdx(idx);
+		return parentIdx >= 0 ? getSerializationId(parentIdx) : -1;
+	}
+
+	public int getSerializationId(int idx) {
+		return buffer.getInt(offSids + 4 * idx);
+	}
+
+	public int getStart(int idx) {
+		return buffer.getInt(offStarts + 4 * idx);
+	}
+
+	/**
+	 * Get a string from the string table
+	 */
+	String getString(int strIdx) {
+		int start = buffer.getInt(offStrOffsets + 4 * strIdx);
+		int end = buffer.getInt(offStrOffsets + 4 * (strIdx + 1));
+		return readUtf8(offStrData + start, end - start);
+	}
+
+	public EffectType getType(int idx) {
+		return EffectType.values()[buffer.get(offTypes + idx) & 0xff];
+	}
+
+	/**
+	 * Does any transcript have protein coding information?
+	 * Note: This can be calculated without loading any gene. The
+	 * 		'proteinCoding' flag is the second type specific field
+	 * 		of a transcript (see Transcript.serializeSave)
+	 */
+	public boolean hasCodingInfo() {
+		for (int i = 0; i < numRecords; i++) {
+			if (getType(i) != EffectType.TRANSCRIPT) continue;
+			startRecord(i);
+			nextOtherField();
+			nextOtherField();
+			if (parseBool(fieldStart, fieldEnd)) return true;
+		}
+		return false;
+	}
+
+	public boolean isStrandMinus(int idx) {
+		return buffer.get(offStrands + idx) != 0;
+	}
+
+	/**
+	 * Load data from file: Materialize all markers
+	 */
+	@Override
+	public Markers load(String fileName) {
+		open(fileName);
+		parse(0, numRecords);
+		return assignParents();
+	}
+
+	/**
+	 * Materialize all markers from one chromosome
+	 * Note: Genome and chromosomes must be already loaded (see loadGenome)
+	 */
+	public Markers loadChromosome(String chrName) {
+		Integer blockIdx = blockByChr.get(Chromosome.simpleName(chrName));
+		if (blockIdx == null) return new Markers(); // No markers in this chromosome
+		return parse(getBlockStart(blockIdx), getBlockStart(blockIdx + 1));
+	}
+
+	/**
+	 * Materialize genome and chromosome markers (no genes are loaded)
+	 */
+	public Markers loadGenome() {
+		return parse(0, numGenomeRecords);
+	}
+
+	/**
+	 * Find the next type specific field of the record being parsed (sets 'fieldStart' and 'fieldEnd')
+	 * Note: If there are no more fields, the field is empty
+	 */
+	void nextOtherField() {
+		if (otherPos > otherEnd) {
+			fieldStart = fieldEnd = otherEnd;
+			return;
+		}
+
+		int end = otherPos;
+		while (end < otherEnd && buffer.get(end) != '\t')
+			end++;
+
+		fieldStart = otherPos;
+		fieldEnd = end;
+		otherPos = end + 1;
+	}
+
+	/**
+	 * Map file into memory and check header
+	 */
+	public void open(String fileName) {
+		this.fileName = fileName;
+		try (RandomAccessFile raf = new RandomAccessFile(fileName, "r"); FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) throw new RuntimeException("Database file '" + fileName + "' is too large to be memory mapped (" + channel.size() + " bytes)");
+			MappedByteBuffer mbb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer = mbb;
+			long fileSize = channel.size();
+
+			// Check header
+			int pos = 0;
+			for (int i = 0; i < MAGIC.length; i++, pos++)
+				if (buffer.get(pos) != MAGIC[i]) throw new RuntimeException("Database file '" + fileName + "' is not a memory mappable database");
+
+			int formatVersion = buffer.getInt(pos);
+			pos += 4;
+			if (formatVersion != FORMAT_VERSION) throw new RuntimeException("Database file '" + fileName + "' has incompatible format version " + formatVersion + " (expected " + FORMAT_VERSION + ")");
+
+			int len = buffer.getShort(pos) & 0xffff;
+			String soft = readUtf8(pos + 2, len);
+			pos += 2 + len;
+			len = buffer.getShort(pos) & 0xffff;
+			String versionNumber = readUtf8(pos + 2, len);
+			pos += 2 + len;
+			checkVersion(fileName, soft, versionNumber);
+
+			numRecords = buffer.getInt(pos);
+			numStrings = buffer.getInt(pos + 4);
+			int strDataLen = buffer.getInt(pos + 8);
+			numGenomeRecords = buffer.getInt(pos + 12);
+			numBlocks = buffer.getInt(pos + 16);
+			pos += 20;
+
+			// Column offsets
+			offTypes = pos;
+			offStrands = offTypes + numRecords;
+			offSids = offStrands + numRecords;
+			offParents = offSids + 4 * numRecords;
+			offStarts = offParents + 4 * numRecords;
+			offEnds = offStarts + 4 * numRecords;
+			offIds = offEnds + 4 * numRecords;
+			offOthers = offIds + 4 * numRecords;
+			offBlockChrs = offOthers + 4 * numRecords;
+			offBlockOffsets = offBlockChrs + 4 * numBlocks;
+			offStrOffsets = offBlockOffsets + 4 * (numBlocks + 1);
+			offStrData = offStrOffsets + 4 * (numStrings + 1);
+
+			// Sanity check
+			if (offStrData + strDataLen != fileSize) throw new RuntimeException("Database file '" + fileName + "' is truncated or corrupted. Expected size " + (offStrData + strDataLen) + ", actual size " + fileSize);
+
+			// Index blocks by chromosome name
+			blockIndex = new BlockIndex[numBlocks];
+			blockByChr = new HashMap<>();
+			for (int i = 0; i < numBlocks; i++) {
+				int chrIdx = buffer.getInt(offBlockChrs + 4 * i);
+				blockByChr.put(Chromosome.simpleName(getId(chrIdx)), i);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Materialize markers from records in [start, end)
+	 */
+	Markers parse(int start, int end) {
+		Markers markers = new Markers();
+		for (int i = start; i < end; i++)
+			markers.add(parseRecord(i));
+
+		// Replace 'fake' parents
+		for (Marker m : markers)
+			assignParent(m);
+
+		return markers;
+	}
+
+	/**
+	 * Parse a boolean from bytes [start, end) in the buffer (same as Boolean.parseBoolean)
+	 */
+	boolean parseBool(int start, int end) {
+		if (end - start != 4) return false;
+		return (buffer.get(start) | 0x20) == 't' //
+				&& (buffer.get(start + 1) | 0x20) == 'r' //
+				&& (buffer.get(start + 2) | 0x20) == 'u' //
+				&& (buffer.get(start + 3) | 0x20) == 'e' //
+		;
+	}
+
+	/**
+	 * Parse an integer from bytes [start, end) in the buffer (same as Gpr.parseIntSafe)
+	 */
+	int parseInt(int start, int end) {
+		if (start >= end) return 0;
+
+		boolean neg = (buffer.get(start) == '-');
+		int i = neg ? start + 1 : start;
+		if (i >= end || end - i > 10) return Gpr.parseIntSafe(readUtf8(start, end - start)); // Not a number or too many digits: Let the 'slow' version handle it
+
+		long num = 0;
+		for (; i < end; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) return Gpr.parseIntSafe(readUtf8(start, end - start));
+			num = num * 10 + digit;
+		}
+
+		num = neg ? -num : num;
+		if (num < Integer.MIN_VALUE || num > Integer.MAX_VALUE) return 0; // Overflow
+		return (int) num;
+	}
+
+	/**
+	 * Create a marker from a record, decoding fields from the mapped file
+	 */
+	Marker parseRecord(int idx) {
+		startRecord(idx);
+		Marker m = newMarker(getType(idx));
+		try {
+			m.serializeParse(this);
+		} catch (Throwable t) {
+			throw new RuntimeException("Error parsing record " + idx + " from file '" + fileName + "'\n\tField [" + parsedField + "] : '" + (parsedField >= NUM_BASE_FIELDS ? readUtf8(fieldStart, fieldEnd - fieldStart) : "-") + "'", t);
+		}
+
+		// Add to hash
+		byId.put(getSerializationId(idx), m);
+		return m;
+	}
+
+	/**
+	 * Find all records of type 'type' intersecting chr:start-end
+	 * No marker objects are created
+	 * @return Record indexes
+	 */
+	public int[] query(String chr, int start, int end, EffectType type) {
+		TIntArrayList res = new TIntArrayList();
+		String chrName = Chromosome.simpleName(chr);
+
+		// Genome and chromosome records (only a few)
+		for (int i = 0; i < numGenomeRecords; i++) {
+			if (getType(i) != type) continue;
+			if (getStart(i) > end || getEnd(i) < start) continue;
+			if (Chromosome.simpleName(getChromosomeName(i)).equals(chrName)) res.add(i);
+		}
+
+		// Only search the chromosome's block
+		Integer blockIdx = blockByChr.get(chrName);
+		if (blockIdx != null) query(blockIndex(blockIdx), start, end, type, res);
+
+		res.sort(); // Same order as records in the file
+		return res.toArray();
+	}
+
+	/**
+	 * Find records of type 'type' intersecting [start, end] in a block
+	 */
+	void query(BlockIndex bi, int start, int end, EffectType type, TIntArrayList res) {
+		// Last record starting before 'end'
+		int j = Arrays.binarySearch(bi.starts, end);
+		if (j < 0) j = -j - 2; // Insertion point minus one
+		else while (j + 1 < bi.starts.length && bi.starts[j + 1] <= end)
+			j++;
+
+		// Records before 'j' start before 'end', stop when none of them can reach 'start'
+		for (; j >= 0 && bi.maxEnds[j] >= start; j--) {
+			int idx = bi.records[j];
+			if (getEnd(idx) >= start && getType(idx) == type) res.add(idx);
+		}
+	}
+
+	/**
+	 * Read a string from the buffer (bulk copy)
+	 */
+	String readUtf8(int pos, int len) {
+		byte bytes[] = new byte[len];
+		ByteBuffer buf = buffer.duplicate(); // Do not change the shared buffer's position
+		buf.position(pos);
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Save data to file
+	 */
+	@Override
+	public void save(String fileName, Markers markers) {
+		colType = new TIntArrayList();
+		colStrand = new TIntArrayList();
+		colSid = new TIntArrayList();
+		colParentSid = new TIntArrayList();
+		colStart = new TIntArrayList();
+		colEnd = new TIntArrayList();
+		colId = new TIntArrayList();
+		colOther = new TIntArrayList();
+		stringIdx = new HashMap<>();
+		strings = new ArrayList<>();
+		lineNum = 0;
+		currId = 0;
+
+		// Serialize all markers (see saveLine)
+		for (Marker m : markers)
+			save(m);
+
+		// Convert parent serialization IDs to record indexes
+		int numRecs = colSid.size();
+		Map<Integer, Integer> idxBySid = new HashMap<>();
+		for (int i = 0; i < numRecs; i++)
+			idxBySid.put(colSid.get(i), i);
+
+		int parentIdx[] = new int[numRecs];
+		for (int i = 0; i < numRecs; i++) {
+			Integer pidx = idxBySid.get(colParentSid.get(i));
+			parentIdx[i] = (pidx != null ? pidx : -1);
+		}
+
+		// Partition records: Genome and chromosomes first, then one block per chromosome.
+		// Relative order is preserved within each block (children before parents)
+		TIntArrayList order = new TIntArrayList(numRecs);
+		Map<Integer, TIntArrayList> blocks = new LinkedHashMap<>();
+		for (int i = 0; i < numRecs; i++) {
+			int chrIdx = chromosomeIdx(i, parentIdx);
+			if (chrIdx < 0 || chrIdx == i) order.add(i);
+			else {
+				TIntArrayList block = blocks.get(chrIdx);
+				if (block == null) {
+					block = new TIntArrayList();
+					blocks.put(chrIdx, block);
+				}
+				block.add(i);
+			}
+		}
+
+		int numGenomeRecs = order.size();
+		TIntArrayList blockChrs = new TIntArrayList();
+		TIntArrayList blockOffsets = new TIntArrayList();
+		for (Map.Entry<Integer, TIntArrayList> e : blocks.entrySet()) {
+			blockChrs.add(e.getKey());
+			blockOffsets.add(order.size());
+			order.addAll(e.getValue());
+		}
+		blockOffsets.add(order.size());
+
+		// New record indexes
+		int newIdx[] = new int[numRecs];
+		for (int j = 0; j < numRecs; j++)
+			newIdx[order.get(j)] = j;
+
+		// String table
+		byte strBytes[][] = new byte[strings.size()][];
+		long strDataLen = 0;
+		for (int i = 0; i < strBytes.length; i++) {
+			strBytes[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			strDataLen += strBytes[i].length;
+		}
+
+		// File too large to be mapped? Do not save it (the text serialized database is used instead)
+		long fileSize = MAGIC.length + 4 //
+				+ 2 + SnpEff.SOFTWARE_NAME.getBytes(StandardCharsets.UTF_8).length //
+				+ 2 + SnpEff.VERSION_MAJOR.getBytes(StandardCharsets.UTF_8).length //
+				+ 20 //
+				+ 26L * numRecs // Columns: Two bytes and six ints per record
+				+ 4L * (2 * blockChrs.size() + 1) //
+				+ 4L * (strBytes.length + 1) //
+				+ strDataLen;
+		if (fileSize > Integer.MAX_VALUE) {
+			System.err.println("WARNING: Database is too large to be memory mapped (" + fileSize + " bytes), file '" + fileName + "' not saved");
+			new File(fileName).delete(); // Do not leave an out of date file
+			return;
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+			// Header
+			out.write(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			writeUtf8(out, SnpEff.SOFTWARE_NAME);
+			writeUtf8(out, SnpEff.VERSION_MAJOR);
+			out.writeInt(numRecs);
+			out.writeInt(strBytes.length);
+			out.writeInt((int) strDataLen);
+			out.writeInt(numGenomeRecs);
+			out.writeInt(blockChrs.size());
+
+			// Columns
+			for (int j = 0; j < numRecs; j++)
+				out.writeByte(colType.get(order.get(j)));
+			for (int j = 0; j < numRecs; j++)
+				out.writeByte(colStrand.get(order.get(j)));
+			for (int j = 0; j < numRecs; j++)
+				out.writeInt(colSid.get(order.get(j)));
+			for (int j = 0; j < numRecs; j++) {
+				int pidx = parentIdx[order.get(j)];
+				out.writeInt(pidx >= 0 ? newIdx[pidx] : -1);
+			}
+			for (int j = 0; j < numRecs; j++)
+				out.writeInt(colStart.get(order.get(j)));
+			for (int j = 0; j < numRecs; j++)
+				out.writeInt(colEnd.get(order.get(j)));
+			for (int j = 0; j < numRecs; j++)
+				out.writeInt(colId.get(order.get(j)));
+			for (int j = 0; j < numRecs; j++)
+				out.writeInt(colOther.get(order.get(j)));
+
+			// Chromosome blocks
+			for (int i = 0; i < blockChrs.size(); i++)
+				out.writeInt(newIdx[blockChrs.get(i)]);
+			for (int i = 0; i < blockOffsets.size(); i++)
+				out.writeInt(blockOffsets.get(i));
+
+			// String table
+			int offset = 0;
+			for (int i = 0; i < strBytes.length; i++) {
+				out.writeInt(offset);
+				offset += strBytes[i].length;
+			}
+			out.writeInt(offset);
+			for (int i = 0; i < strBytes.length; i++)
+				out.write(strBytes[i]);
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Split a serialized line into columns
+	 */
+	@Override
+	protected void saveLine(String line) {
+		String fields[] = line.split("\t", NUM_BASE_FIELDS + 1);
+		colType.add(EffectType.valueOf(fields[0]).ordinal());
+		colSid.add(Gpr.parseIntSafe(fields[1]));
+		colParentSid.add(Gpr.parseIntSafe(fields[2]));
+		colStart.add(Gpr.parseIntSafe(fields[3]));
+		colEnd.add(Gpr.parseIntSafe(fields[4]));
+		colId.add(addString(fields[5]));
+		colStrand.add(Gpr.parseBoolSafe(fields[6]) ? 1 : 0);
+		colOther.add(addString(fields.length > NUM_BASE_FIELDS ? fields[NUM_BASE_FIELDS] : ""));
+	}
+
+	public int size() {
+		return numRecords;
+	}
+
+	/**
+	 * Start parsing a record
+	 */
+	void startRecord(int idx) {
+		record = idx;
+		parsedField = 0;
+
+		int strIdx = buffer.getInt(offOthers + 4 * idx);
+		otherPos = offStrData + buffer.getInt(offStrOffsets + 4 * strIdx);
+		otherEnd = offStrData + buffer.getInt(offStrOffsets + 4 * (strIdx + 1));
+		if (otherPos == otherEnd) otherPos = otherEnd + 1; // No type specific fields
+		fieldStart = fieldEnd = otherPos;
+	}
+
+	void writeUtf8(DataOutputStream out, String str) throws IOException {
+		byte bytes[] = str.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+}
@@ -50,6 +50,7 @@ public class Config implements Serializable, Iterable<String> {
 	public static final String KEY_VERSIONS_URL = "versions.url";
 
 	private static Config configInstance = null; // Config is some kind of singleton because we want to make it accessible from everywhere
+	private static ThreadLocal<Config> configThread = new ThreadLocal<>(); // Config used by the current thread, overrides 'configInstance' (e.g. a server annotating several genomes)
 
 	boolean debug = false; // Debug mode?
 	boolean verbose = false; // Verbose
@@ -62,6 +63,7 @@ public class Config implements Serializable, Iterable<String> {
 	boolean hgvsOneLetterAa = false; // Use HGVS 1 letter amino acid in HGVS notation?
 	boolean hgvsOld = false;
 	boolean hgvsTrId = false; // Use HGVS transcript ID in HGVS notation?
+	boolean lazyLoad = false; // Load database one chromosome at a time (only when needed)
 	double lofIgnoreProteinCodingAfter;
 	double lofIgnoreProteinCodingBefore;
 	double lofDeleteProteinCodingBases;
@@ -80,14 +82,30 @@ public class Config implements Serializable, Iterable<String> {
 	String versionsUrl = "";
 	CountByType warningsCounter = new CountByType();
 
+	/**
+	 * Default config
+	 * Note: Annotations should use the genome's config (see Genome.getConfig() and
+	 *       Marker.getConfig()). This is kept for compatibility and for code that
+	 *       does not have access to a genome.
+	 */
 	public static Config get() {
-		return configInstance;
+		Config config = configThread.get();
+		return config != null ? config : configInstance;
 	}
 
 	public static Config reset() {
+		configThread.remove();
 		return configInstance = null;
 	}
 
+	/**
+	 * Set the config used by the current thread (null to use the default config)
+	 */
+	public static void setThreadConfig(Config config) {
+		if (config == null) configThread.remove();
+		else configThread.set(config);
+	}
+
 	/**
 	 * Create a config (uses DEFAULT_CONFIG_FILE)
 	 */
@@ -373,10 +391,24 @@ public class Config implements Serializable, Iterable<String> {
 		return getBaseFileNameSequence() + "." + chrNameSafe + ".bin";
 	}
 
+	/**
+	 * Genome wide (memory mappable) sequence file
+	 */
+	public String getFileNameSequenceMapped() {
+		return getBaseFileNameSequence() + ".mmap";
+	}
+
 	public String getFileSnpEffectPredictor() {
 		return getDirData() + "/" + genome.getVersion() + "/snpEffectPredictor.bin";
 	}
 
+	/**
+	 * Binary (memory mappable) database file
+	 */
+	public String getFileSnpEffectPredictorMapped() {
+		return getDirData() + "/" + genome.getVersion() + "/snpEffectPredictor.mmap";
+	}
+
 	public Genome getGenome() {
 		return genome;
 	}
@@ -503,6 +535,10 @@ public class Config implements Serializable, Iterable<String> {
 		return hgvsTrId;
 	}
 
+	public boolean isLazyLoad() {
+		return lazyLoad;
+	}
+
 	public boolean isOnlyRegulation() {
 		return onlyRegulation;
 	}
@@ -552,8 +588,10 @@ public class Config implements Serializable, Iterable<String> {
 	 * WARNING: 'genome' object get replaced upon loading a snpEffectPredictor (this is a dangerous side effect)
 	 */
 	public SnpEffectPredictor loadSnpEffectPredictor() {
+		if (snpEffectPredictor != null) snpEffectPredictor.close(); // Previous predictor is discarded
 		snpEffectPredictor = SnpEffectPredictor.load(this);
 		genome = snpEffectPredictor.genome; // WARNING: 'genome' object get replaced upon loading a snpEffectPredictor (this might have dangerous side effects)
+		genome.setConfig(this);
 		snpEffectPredictor.setDebug(debug);
 		return snpEffectPredictor;
 	}
@@ -655,6 +693,7 @@ public class Config implements Serializable, Iterable<String> {
 		}
 
 		genome = new Genome(genVer, properties);
+		genome.setConfig(this);
 		genomeById.put(genVer, genome);
 	}
 
@@ -738,12 +777,18 @@ public class Config implements Serializable, Iterable<String> {
 		this.hgvsTrId = hgvsTrId;
 	}
 
+	public void setLazyLoad(boolean lazyLoad) {
+		this.lazyLoad = lazyLoad;
+	}
+
 	public void setOnlyRegulation(boolean onlyRegulation) {
 		this.onlyRegulation = onlyRegulation;
 	}
 
 	public void setSnpEffectPredictor(SnpEffectPredictor snpEffectPredictor) {
+		if (this.snpEffectPredictor != null && this.snpEffectPredictor != snpEffectPredictor) this.snpEffectPredictor.close(); // Previous predictor is discarded
 		this.snpEffectPredictor = snpEffectPredictor;
+		if (snpEffectPredictor != null && snpEffectPredictor.getGenome() != null) snpEffectPredictor.getGenome().setConfig(this);
 	}
 
 	public void setString(String propertyName, String value) {
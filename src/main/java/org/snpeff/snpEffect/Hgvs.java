@@ -26,6 +26,7 @@ public class Hgvs {
 	protected boolean duplication;
 	protected boolean strandPlus, strandMinus;
 	protected boolean hgvsTrId;
+	protected Config config;
 
 	public static String parseTranscript(String hgvs) {
 		int idxTr = hgvs.indexOf(':');
@@ -45,7 +46,8 @@ public class Hgvs {
 		marker = variantEffect.getMarker();
 		tr = variantEffect.getTranscript();
 		genome = marker != null ? marker.getGenome() : null;
-		hgvsTrId = Config.get().isHgvsTrId();
+		config = genome != null ? genome.getConfig() : Config.get();
+		hgvsTrId = config.isHgvsTrId();
 		initStrand();
 	}
 
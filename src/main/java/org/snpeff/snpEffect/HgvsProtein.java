@@ -25,8 +25,8 @@ public class HgvsProtein extends Hgvs {
 
 		codonNum = variantEffect.getCodonNum();
 
-		hgvsOneLetterAa = Config.get().isHgvs1LetterAA();
-		hgvsOld = Config.get().isHgvsOld();
+		hgvsOneLetterAa = config.isHgvs1LetterAA();
+		hgvsOld = config.isHgvsOld();
 		stop = hgvsOld ? 'X' : '*';
 		lettersPerAa = hgvsOneLetterAa ? 1 : 3;
 
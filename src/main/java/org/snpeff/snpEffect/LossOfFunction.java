@@ -118,6 +118,14 @@ public class LossOfFunction {
 		return lofCount > 0;
 	}
 
+	/**
+	 * Is transcript 'tr' affected by a "Loss of function"?
+	 */
+	public boolean isLof(Transcript tr) {
+		isLof(); // Need to calculate?
+		return (tr != null) && transcriptsLof.contains(tr);
+	}
+
 	/**
 	 * Is this single change a LOF?
 	 *
@@ -259,6 +267,14 @@ public class LossOfFunction {
 		return nmdCount > 0;
 	}
 
+	/**
+	 * Is transcript 'tr' affected by a "Nonsense mediated decay"?
+	 */
+	public boolean isNmd(Transcript tr) {
+		isLof(); // Need to calculate?
+		return (tr != null) && transcriptsNmd.contains(tr);
+	}
+
 	/**
 	 * Is this single change a LOF?
 	 *
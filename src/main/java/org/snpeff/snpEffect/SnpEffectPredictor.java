@@ -1,15 +1,21 @@
 package org.snpeff.snpEffect;
 
+import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.snpeff.binseq.GenomicSequences;
+import org.snpeff.collections.LruCache;
 import org.snpeff.interval.Cds;
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Exon;
 import org.snpeff.interval.Gene;
+import org.snpeff.interval.Genes;
 import org.snpeff.interval.Genome;
 import org.snpeff.interval.Intergenic;
 import org.snpeff.interval.Intron;
@@ -20,11 +26,17 @@ import org.snpeff.interval.Transcript;
 import org.snpeff.interval.TranscriptSupportLevel;
 import org.snpeff.interval.Utr;
 import org.snpeff.interval.Variant;
+import org.snpeff.interval.VariantBnd;
 import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.IntervalSweep;
+import org.snpeff.interval.tree.MarkerVisitor;
 import org.snpeff.interval.tree.Itree;
+import org.snpeff.interval.tree.TabixIntervals;
 import org.snpeff.serializer.MarkerSerializer;
+import org.snpeff.serializer.MarkerSerializerMapped;
 import org.snpeff.snpEffect.VariantEffect.ErrorWarningType;
 import org.snpeff.util.Gpr;
+import org.snpeff.util.Timer;
 
 /**
  * Predicts effects of SNPs
@@ -42,37 +54,55 @@ public class SnpEffectPredictor implements Serializable {
 
 	boolean useChromosomes = true;
 	boolean debug;
+	boolean freeze; // Freeze genes after building the forest (derived data is pre-calculated and read without locking)
 	int upDownStreamLength = DEFAULT_UP_DOWN_LENGTH;
 	int spliceSiteSize = SpliceSite.CORE_SPLICE_SITE_SIZE;
 	int spliceRegionExonSize = SpliceSite.SPLICE_REGION_EXON_SIZE;
 	int spliceRegionIntronMin = SpliceSite.SPLICE_REGION_INTRON_MIN;
 	int spliceRegionIntronMax = SpliceSite.SPLICE_REGION_INTRON_MAX;
 	Genome genome;
-	Markers markers; // All other markers are stored here (e.g. custom markers, intergenic, etc.)
+	volatile Markers markers; // All other markers are stored here (e.g. custom markers, intergenic, etc.)
 	IntervalForest intervalForest; // Interval forest by chromosome name
 	IntervalForest intervalForestGene; // Interval forest by gene
+	IntervalForest intervalForestGenesOnly; // Interval forest by chromosome name, genes only (used for huge structural variants)
+	transient MarkerSerializerMapped lazyLoader; // Load chromosomes from database on demand (null if the whole database was loaded)
+	Set<String> chromosomesLoaded; // Chromosomes already loaded (only used when loading on demand)
+	transient ThreadLocal<IntervalSweep> intervalSweep; // Sweep queries for sorted input, one per thread (null if input is not sorted)
+	transient LruCache<String, VariantEffects> variantEffectsCache; // Effects of recently annotated variants (null if disabled)
+	transient List<TabixIntervals> tabixIntervals; // Custom intervals queried on demand from tabix indexed files (null if none)
 
 	/**
 	 * Load predictor from a binary file
+	 *
+	 * Note: The memory mappable database is used if available,
+	 * compatible and not older than the (gzipped) text serialized
+	 * database, otherwise we fall back to the latter.
 	 */
 	public static SnpEffectPredictor load(Config config) {
 		String snpEffPredFile = config.getFileSnpEffectPredictor();
+		String snpEffPredFileMapped = config.getFileSnpEffectPredictorMapped();
+		boolean useMapped = MarkerSerializerMapped.isCompatible(snpEffPredFileMapped) //
+				&& (new File(snpEffPredFileMapped).lastModified() >= new File(snpEffPredFile).lastModified()) // Database re-built after creating the mapped file?
+		;
 
-		// Sanity check
-		if (!Gpr.canRead(snpEffPredFile)) throw new RuntimeException("\tERROR: Cannot read file '" + snpEffPredFile + "'.\n\tYou can try to download the database by running the following command:\n\t\tjava -jar snpEff.jar download " + config.getGenome().getVersion() + "\n");
+		// Load genome now, genes only when needed
+		if (config.isLazyLoad() && useMapped) return loadLazy(config, snpEffPredFileMapped);
 
 		// Load markers from file
-		MarkerSerializer ms = new MarkerSerializer(config.getGenome());
+		MarkerSerializer ms;
+		if (useMapped) {
+			if (config.isVerbose()) Timer.showStdErr("Using memory mapped database file '" + snpEffPredFileMapped + "'");
+			snpEffPredFile = snpEffPredFileMapped;
+			ms = new MarkerSerializerMapped(config.getGenome());
+		} else {
+			// Sanity check
+			if (!Gpr.canRead(snpEffPredFile)) throw new RuntimeException("\tERROR: Cannot read file '" + snpEffPredFile + "'.\n\tYou can try to download the database by running the following command:\n\t\tjava -jar snpEff.jar download " + config.getGenome().getVersion() + "\n");
+			ms = new MarkerSerializer(config.getGenome());
+		}
 		Markers markers = ms.load(snpEffPredFile);
 
-		// Find genome
-		Genome genome = null;
-		for (Marker m : markers)
-			if (m instanceof Genome) genome = (Genome) m;
-		if (genome == null) throw new RuntimeException("Genome not found. This should never happen!");
-
 		// Create predictor
-		SnpEffectPredictor snpEffectPredictor = new SnpEffectPredictor(genome);
+		SnpEffectPredictor snpEffectPredictor = new SnpEffectPredictor(findGenome(markers));
 
 		// Add genes
 		for (Marker m : markers)
@@ -83,15 +113,56 @@ public class SnpEffectPredictor implements Serializable {
 
 		// Add 'other' markers
 		for (Marker m : markers)
-			if (!(m instanceof Genome) //
-					&& !(m instanceof Chromosome) //
-					&& !(m instanceof Gene) //
-					&& !(m instanceof Transcript) //
-					&& !(m instanceof Exon) //
-					&& !(m instanceof Cds) //
-					&& !(m instanceof Utr) //
-					&& !(m instanceof SpliceSite) //
-			) snpEffectPredictor.add(m);
+			if (isOther(m)) snpEffectPredictor.add(m);
+
+		return snpEffectPredictor;
+	}
+
+	/**
+	 * Find genome
+	 */
+	static Genome findGenome(Markers markers) {
+		for (Marker m : markers)
+			if (m instanceof Genome) return (Genome) m;
+		throw new RuntimeException("Genome not found. This should never happen!");
+	}
+
+	/**
+	 * Is this an 'other' marker (i.e. not part of the genome / gene hierarchy)?
+	 */
+	static boolean isOther(Marker m) {
+		return !(m instanceof Genome) //
+				&& !(m instanceof Chromosome) //
+				&& !(m instanceof Gene) //
+				&& !(m instanceof Transcript) //
+				&& !(m instanceof Exon) //
+				&& !(m instanceof Cds) //
+				&& !(m instanceof Utr) //
+				&& !(m instanceof SpliceSite) //
+		;
+	}
+
+	/**
+	 * Load genome and chromosomes from a memory mapped database.
+	 * Genes (and all other markers) are loaded one chromosome at a
+	 * time, the first time a chromosome is queried (see loadChromosome)
+	 */
+	public static SnpEffectPredictor loadLazy(Config config, String snpEffPredFileMapped) {
+		if (config.isVerbose()) Timer.showStdErr("Using memory mapped database file '" + snpEffPredFileMapped + "', loading chromosomes on demand");
+		MarkerSerializerMapped msm = new MarkerSerializerMapped(config.getGenome());
+		msm.open(snpEffPredFileMapped);
+		Markers markers = msm.loadGenome();
+
+		// Create predictor
+		Genome genome = findGenome(markers);
+		genome.setCodingInfo(msm.hasCodingInfo()); // Cannot be calculated from genes, since they are not loaded yet
+		SnpEffectPredictor snpEffectPredictor = new SnpEffectPredictor(genome);
+		snpEffectPredictor.lazyLoader = msm;
+		snpEffectPredictor.chromosomesLoaded = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+		// Add 'other' markers
+		for (Marker m : markers)
+			if (isOther(m)) snpEffectPredictor.add(m);
 
 		return snpEffectPredictor;
 	}
@@ -118,6 +189,14 @@ public class SnpEffectPredictor implements Serializable {
 		markers.add(marker);
 	}
 
+	/**
+	 * Add custom intervals that are queried on demand (they are not added to the interval forest)
+	 */
+	public void add(TabixIntervals tabixIntervals) {
+		if (this.tabixIntervals == null) this.tabixIntervals = new ArrayList<>();
+		this.tabixIntervals.add(tabixIntervals);
+	}
+
 	/**
 	 * Add a set of markers
 	 */
@@ -141,6 +220,8 @@ public class SnpEffectPredictor implements Serializable {
 	 * Create interval trees (forest)
 	 */
 	public void buildForest() {
+		if (variantEffectsCache != null) variantEffectsCache.clear(); // Markers changed, cached effects are no longer valid
+
 		intervalForest = new IntervalForest();
 		intervalForest.setDebug(debug);
 
@@ -156,8 +237,12 @@ public class SnpEffectPredictor implements Serializable {
 		genome.getGenes().createCircularGenes();
 
 		// Add all genes to forest
-		for (Gene gene : genome.getGenes())
+		intervalForestGenesOnly = new IntervalForest();
+		intervalForestGenesOnly.setDebug(debug);
+		for (Gene gene : genome.getGenes()) {
 			intervalForest.add(gene);
+			intervalForestGenesOnly.add(gene);
+		}
 
 		//---
 		// Create (and add) up-down stream, splice sites, intergenic, etc
@@ -172,8 +257,11 @@ public class SnpEffectPredictor implements Serializable {
 
 		// Build interval forest
 		intervalForest.build();
+		intervalForestGenesOnly.build();
 
 		buildPerGene();
+
+		if (freeze) freeze(genome.getGenes());
 	}
 
 	/**
@@ -187,25 +275,48 @@ public class SnpEffectPredictor implements Serializable {
 	 * Make sure all genes have canonical transcripts
 	 */
 	void canonical() {
-		for (Gene g : genome.getGenes())
+		canonical(genome.getGenes());
+	}
+
+	void canonical(Genes genes) {
+		for (Gene g : genes)
 			g.canonical();
 	}
 
+	/**
+	 * Close resources (e.g. tabix indexed custom interval files)
+	 * Note: Call this when the predictor is no longer used
+	 */
+	public void close() {
+		List<TabixIntervals> tabixIntervals = this.tabixIntervals;
+		if (tabixIntervals == null) return;
+		for (TabixIntervals ti : tabixIntervals)
+			ti.close();
+		this.tabixIntervals = null;
+	}
+
 	/**
 	 * Create (and add) up-down stream, splice sites, intergenic, etc
 	 */
 	public Markers createGenomicRegions() {
+		return createGenomicRegions(genome.getGenes());
+	}
+
+	/**
+	 * Create up-down stream, splice sites, intergenic, etc. for a set of genes
+	 */
+	Markers createGenomicRegions(Genes genes) {
 		Markers markers = new Markers();
 
 		// Add up-down stream intervals
-		for (Marker upDownStream : genome.getGenes().createUpDownStream(upDownStreamLength))
+		for (Marker upDownStream : genes.createUpDownStream(upDownStreamLength))
 			markers.add(upDownStream);
 
 		// Add splice site intervals
-		genome.getGenes().createSpliceSites(spliceSiteSize, spliceRegionExonSize, spliceRegionIntronMin, spliceRegionIntronMax);
+		genes.createSpliceSites(spliceSiteSize, spliceRegionExonSize, spliceRegionIntronMin, spliceRegionIntronMax);
 
 		// Intergenic markers
-		for (Intergenic intergenic : genome.getGenes().createIntergenic())
+		for (Intergenic intergenic : genes.createIntergenic())
 			markers.add(intergenic);
 
 		return markers;
@@ -219,6 +330,16 @@ public class SnpEffectPredictor implements Serializable {
 			g.filterTranscriptSupportLevel(maxTsl);
 	}
 
+	/**
+	 * Freeze genes: All derived data (sorted exons, introns, CDS
+	 * coordinates, etc.) is calculated now, so annotation threads
+	 * can read it without locking. Frozen genes cannot be modified.
+	 */
+	void freeze(Genes genes) {
+		for (Gene g : genes)
+			g.freeze();
+	}
+
 	/**
 	 * Obtain a gene interval
 	 */
@@ -262,6 +383,10 @@ public class SnpEffectPredictor implements Serializable {
 		return upDownStreamLength;
 	}
 
+	public LruCache<String, VariantEffects> getVariantEffectsCache() {
+		return variantEffectsCache;
+	}
+
 	/**
 	 * Is the chromosome missing in this marker?
 	 */
@@ -284,6 +409,90 @@ public class SnpEffectPredictor implements Serializable {
 		return false;
 	}
 
+	/**
+	 * Is the database loaded one chromosome at a time?
+	 */
+	public boolean isLazy() {
+		return lazyLoader != null;
+	}
+
+	/**
+	 * Load genes (and other markers) for a chromosome, if it was not already loaded.
+	 * Only used when the database is loaded on demand (otherwise it does nothing)
+	 */
+	public void loadChromosome(String chrName) {
+		if (lazyLoader == null) return;
+
+		Chromosome chr = genome.getChromosome(chrName);
+		if (chr == null) return; // Unknown chromosome, nothing to load
+		if (!chromosomesLoaded.contains(chr.getId())) loadChromosome(chr);
+	}
+
+	/**
+	 * Load genes (and other markers) for a chromosome and add them to the interval forest
+	 */
+	synchronized void loadChromosome(Chromosome chr) {
+		String chrName = chr.getId();
+		if (chromosomesLoaded.contains(chrName)) return; // Already loaded by another thread?
+		if (debug) Timer.showStdErr("Loading database for chromosome '" + chrName + "'");
+
+		// Genes and other markers in this chromosome
+		Genes genesChr = new Genes(genome);
+		Markers markersChr = new Markers();
+		for (Marker m : lazyLoader.loadChromosome(chrName)) {
+			if (m instanceof Gene) genesChr.add((Gene) m);
+			else if (isOther(m)) markersChr.add(m);
+		}
+
+		// Same as 'buildForest', but only for this chromosome's genes
+		genesChr.createCircularGenes();
+		markersChr.add(createGenomicRegions(genesChr));
+		canonical(genesChr);
+		if (freeze) freeze(genesChr);
+
+		// Other threads may be querying the predictor: Genes and markers are
+		// copied on write, new trees are built before they are published.
+		genome.getGenes().addAll(genesChr);
+
+		Markers markersNew = new Markers(markers);
+		markersNew.add(markersChr);
+		markers = markersNew;
+
+		Markers markersForest = new Markers(genesChr.values());
+		markersForest.add(markersChr);
+		intervalForest.rebuildTreeChromo(chrName, markersForest);
+		intervalForestGenesOnly.rebuildTreeChromo(chrName, genesChr.values());
+
+		chromosomesLoaded.add(chrName);
+		if (debug) Timer.showStdErr("Done. Loaded " + genesChr.size() + " genes for chromosome '" + chrName + "'");
+	}
+
+	/**
+	 * Load chromosome/s involved in 'marker' (only when the database is loaded on demand)
+	 */
+	void loadChromosomes(Marker marker) {
+		if (lazyLoader == null) return;
+		loadChromosome(marker.getChromosomeName());
+		if (marker instanceof VariantBnd) loadChromosome(((VariantBnd) marker).getEndPoint().getChromosomeName());
+	}
+
+	/**
+	 * Markers to be saved (genome, chromosomes, genes and other markers)
+	 */
+	Markers markersToSave() {
+		Markers markersToSave = new Markers();
+		markersToSave.add(genome);
+
+		for (Chromosome chr : genome)
+			markersToSave.add(chr);
+
+		for (Gene g : genome.getGenes())
+			markersToSave.add(g);
+
+		markersToSave.add(getMarkers());
+		return markersToSave;
+	}
+
 	/**
 	 * Dump to sdtout
 	 */
@@ -303,7 +512,33 @@ public class SnpEffectPredictor implements Serializable {
 	 * Return a collection of intervals that intersect 'marker'
 	 */
 	public Markers query(Marker marker) {
-		return marker.query(intervalForest);
+		loadChromosomes(marker);
+		Markers results = marker.query(intervalForest);
+		queryTabix(marker, results);
+		return results;
+	}
+
+	/**
+	 * Invoke 'visitor' on each interval that intersects 'marker'
+	 * Note: This does not allocate memory for the results
+	 */
+	public void query(Marker marker, MarkerVisitor visitor) {
+		loadChromosomes(marker);
+		marker.query(intervalForest, visitor);
+
+		if (tabixIntervals != null) {
+			for (TabixIntervals ti : tabixIntervals)
+				ti.query(marker, visitor);
+		}
+	}
+
+	/**
+	 * Return all genes that intersect 'marker' (for translocations,
+	 * genes intersecting either break-end), sorted by position
+	 */
+	public Markers queryGenes(Marker marker) {
+		loadChromosomes(marker);
+		return marker.query(intervalForestGenesOnly).sort();
 	}
 
 	/**
@@ -380,7 +615,7 @@ public class SnpEffectPredictor implements Serializable {
 	 * Query resulting genes, transcripts and exons to get ALL types of intervals possible
 	 */
 	public Markers queryDeep(Marker marker) {
-		if (Config.get().isErrorOnMissingChromo() && isChromosomeMissing(marker)) throw new RuntimeException("Chromosome missing for marker: " + marker);
+		if (genome.getConfig().isErrorOnMissingChromo() && isChromosomeMissing(marker)) throw new RuntimeException("Chromosome missing for marker: " + marker);
 
 		boolean hitChromo = false;
 		Markers hits = new Markers();
@@ -400,10 +635,32 @@ public class SnpEffectPredictor implements Serializable {
 			}
 		}
 
-		if (!hitChromo && Config.get().isErrorChromoHit()) throw new RuntimeException("ERROR: Out of chromosome range. " + marker);
+		if (!hitChromo && genome.getConfig().isErrorChromoHit()) throw new RuntimeException("ERROR: Out of chromosome range. " + marker);
 		return hits;
 	}
 
+	/**
+	 * Add custom intervals from tabix indexed files that intersect 'marker' to 'results'
+	 */
+	void queryTabix(Marker marker, Markers results) {
+		if (tabixIntervals == null) return;
+		for (TabixIntervals ti : tabixIntervals)
+			results.addAll(ti.query(marker));
+	}
+
+	/**
+	 * Return a collection of intervals that intersect 'variant'
+	 * Use a sweep query if the input is sorted
+	 */
+	Markers queryVariant(Variant variant) {
+		ThreadLocal<IntervalSweep> intervalSweep = this.intervalSweep;
+		if (intervalSweep == null) return query(variant);
+		loadChromosomes(variant);
+		Markers results = intervalSweep.get().query(variant);
+		queryTabix(variant, results);
+		return results;
+	}
+
 	/**
 	 * Name of the regions hit by a marker
 	 * @return A set of region names
@@ -417,7 +674,7 @@ public class SnpEffectPredictor implements Serializable {
 	 * @param id : Only use genes or transcripts matching this ID (null for any)
 	 */
 	public Set<String> regions(Marker marker, boolean showGeneDetails, boolean compareTemplate, String id) {
-		if (Config.get().isErrorOnMissingChromo() && isChromosomeMissing(marker)) throw new RuntimeException("Chromosome missing for marker: " + marker);
+		if (genome.getConfig().isErrorOnMissingChromo() && isChromosomeMissing(marker)) throw new RuntimeException("Chromosome missing for marker: " + marker);
 
 		boolean hitChromo = false;
 		HashSet<String> hits = new HashSet<>();
@@ -550,6 +807,11 @@ public class SnpEffectPredictor implements Serializable {
 		String databaseFile = config.getFileSnpEffectPredictor();
 		save(databaseFile);
 
+		// Save memory mappable database
+		String databaseFileMapped = config.getFileSnpEffectPredictorMapped();
+		if (config.isVerbose()) Timer.showStdErr("Saving memory mapped database to file '" + databaseFileMapped + "'");
+		saveMapped(databaseFileMapped);
+
 		// Save genomic sequences
 		GenomicSequences gs = genome.getGenomicSequences();
 		gs.setVerbose(config.isVerbose());
@@ -560,24 +822,59 @@ public class SnpEffectPredictor implements Serializable {
 	 * Save predictor to a binary file
 	 */
 	public void save(String fileName) {
-		// Add al markers
-		Markers markersToSave = new Markers();
-		markersToSave.add(genome);
+		markersToSave().save(fileName);
+	}
 
-		for (Chromosome chr : genome)
-			markersToSave.add(chr);
+	/**
+	 * Save predictor to a binary, memory mappable, file
+	 */
+	public void saveMapped(String fileName) {
+		MarkerSerializerMapped msm = new MarkerSerializerMapped(genome);
+		msm.save(fileName, markersToSave());
+	}
 
-		for (Gene g : genome.getGenes())
-			markersToSave.add(g);
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
 
-		markersToSave.add(getMarkers());
+	/**
+	 * Freeze genes when building the forest (see 'freeze(Genes)').
+	 * Note: Genes cannot be modified afterwards (e.g. filtering transcripts)
+	 */
+	public void setFreeze(boolean freeze) {
+		this.freeze = freeze;
+	}
 
-		// Save markers to file
-		markersToSave.save(fileName);
+	/**
+	 * Input variants are sorted by position: Use sweep queries instead of tree queries.
+	 * Each thread uses its own sweep (variants processed by each thread must be sorted).
+	 */
+	public void setSortedInput(boolean sortedInput) {
+		if (!sortedInput) {
+			intervalSweep = null;
+			return;
+		} else if (intervalSweep != null) return; // Already set (e.g. predictor shared by several annotation requests)
+
+		intervalSweep = new ThreadLocal<IntervalSweep>() {
+			@Override
+			protected IntervalSweep initialValue() {
+				IntervalSweep sweep = new IntervalSweep(intervalForest);
+				sweep.setDebug(debug);
+				return sweep;
+			}
+		};
 	}
 
-	public void setDebug(boolean debug) {
-		this.debug = debug;
+	/**
+	 * Cache effects of up to 'maxSize' recently annotated variants (zero disables the cache)
+	 *
+	 * Note: Cached effects are only valid as long as the markers and annotation
+	 * options do not change (the cache is cleared when the forest is rebuilt)
+	 */
+	public void setVariantEffectsCacheSize(int maxSize) {
+		if (maxSize <= 0) variantEffectsCache = null;
+		else if ((variantEffectsCache == null) || (variantEffectsCache.getMaxSize() != maxSize)) variantEffectsCache = new LruCache<>(maxSize);
+		// else: Already set (e.g. predictor shared by several annotation requests)
 	}
 
 	public void setSpliceRegionExonSize(int spliceRegionExonSize) {
@@ -621,12 +918,57 @@ public class SnpEffectPredictor implements Serializable {
 
 	/**
 	 * Predict the effect of a variant
+	 * Use cached effects, if available
 	 */
 	public VariantEffects variantEffect(Variant variant) {
+		// Cache disabled?
+		// Note: Only 'plain' variants are cached (other variant classes have additional fields)
+		LruCache<String, VariantEffects> cache = variantEffectsCache;
+		if ((cache == null) || (variant.getClass() != Variant.class)) return variantEffectCalc(variant);
+
+		// Is it in the cache?
+		String key = variantEffectCacheKey(variant);
+		VariantEffects variantEffects = cache.get(key);
+		if (variantEffects == null) {
+			variantEffects = variantEffectCalc(variant);
+
+			// Cached effects are shared by threads: Calculate derived values before publishing them
+			for (VariantEffect variantEffect : variantEffects) {
+				variantEffect.getEffectImpact();
+				variantEffect.getEffectType();
+			}
+
+			cache.put(key, variantEffects);
+		}
+
+		return variantEffects;
+	}
+
+	/**
+	 * Key used to cache variant effects
+	 * Note: Cached effects reference the variant, so the variant's ID is
+	 * part of the key (it is shown in some output formats)
+	 */
+	String variantEffectCacheKey(Variant variant) {
+		return variant.getChromosomeName() //
+				+ ":" + variant.getStart() //
+				+ "-" + variant.getEnd() //
+				+ "_" + variant.getReference() //
+				+ "/" + variant.getAlt() //
+				+ "/" + variant.getGenotype() //
+				+ "/" + variant.getVariantType() //
+				+ "/" + variant.getId() //
+				;
+	}
+
+	/**
+	 * Calculate the effect of a variant
+	 */
+	VariantEffects variantEffectCalc(Variant variant) {
 		VariantEffects variantEffects = new VariantEffects();
 
 		// Chromosome missing?
-		if (Config.get().isErrorOnMissingChromo() && isChromosomeMissing(variant)) {
+		if (genome.getConfig().isErrorOnMissingChromo() && isChromosomeMissing(variant)) {
 			variantEffects.addErrorWarning(variant, ErrorWarningType.ERROR_CHROMOSOME_NOT_FOUND);
 			return variantEffects;
 		}
@@ -657,7 +999,7 @@ public class SnpEffectPredictor implements Serializable {
 			intersects = variantEffectStructuralLarge(variant, variantEffects);
 		} else {
 			// Query interval tree: Which intervals does variant intersect?
-			intersects = query(variant);
+			intersects = queryVariant(variant);
 		}
 
 		// In case of large structural variants, we need to check the number of genes
@@ -705,11 +1047,11 @@ public class SnpEffectPredictor implements Serializable {
 			if (variant.isIns() && variant.getStart() == (chr.getEnd() + 1)) {
 				// This is a chromosome extension
 				variantEffects.add(variant, null, EffectType.CHROMOSOME_ELONGATION, "");
-			} else if (Config.get().isErrorChromoHit()) {
+			} else if (genome.getConfig().isErrorChromoHit()) {
 				variantEffects.addErrorWarning(variant, ErrorWarningType.ERROR_OUT_OF_CHROMOSOME_RANGE);
 			}
 		} else if (!hitSomething) {
-			if (Config.get().isOnlyRegulation()) {
+			if (genome.getConfig().isOnlyRegulation()) {
 				variantEffects.add(variant, null, EffectType.NONE, "");
 			} else {
 				variantEffects.add(variant, null, EffectType.INTERGENIC, "");
@@ -836,30 +1178,29 @@ public class SnpEffectPredictor implements Serializable {
 	Markers variantEffectStructuralLargeGenes(Variant variant, VariantEffects variantEffects, EffectType effGene, EffectType effTr, EffectType effExon, EffectType effExonPartial) {
 		Markers intersect = new Markers();
 
-		// Check all genes in the genome
-		for (Gene g : genome.getGenes()) {
-			// Does the variant affect the gene?
-			if (variant.intersects(g)) {
-				intersect.add(g);
-				variantEffects.add(variant, g, effGene, "");
-
-				// Does the variant affect this transcript?
-				for (Transcript tr : g) {
-					// Variant affects the whole transcript?
-					if (variant.includes(tr)) {
-						intersect.add(tr);
-						variantEffects.add(variant, tr, effTr, "");
-					} else if (variant.intersects(tr)) {
-						intersect.add(tr);
-
-						// Variant affects part of the transcript
-						// Add effects for each exon
-						for (Exon ex : tr) {
-							if (variant.includes(ex)) {
-								variantEffects.add(variant, ex, effExon, "");
-							} else if (variant.intersects(ex)) {
-								variantEffects.add(variant, ex, effExonPartial, "");
-							}
+		// Check all genes the variant intersects (use an index
+		// instead of scanning every gene in the genome)
+		for (Marker m : queryGenes(variant)) {
+			Gene g = (Gene) m;
+			intersect.add(g);
+			variantEffects.add(variant, g, effGene, "");
+
+			// Does the variant affect this transcript?
+			for (Transcript tr : g) {
+				// Variant affects the whole transcript?
+				if (variant.includes(tr)) {
+					intersect.add(tr);
+					variantEffects.add(variant, tr, effTr, "");
+				} else if (variant.intersects(tr)) {
+					intersect.add(tr);
+
+					// Variant affects part of the transcript
+					// Add effects for each exon
+					for (Exon ex : tr) {
+						if (variant.includes(ex)) {
+							variantEffects.add(variant, ex, effExon, "");
+						} else if (variant.intersects(ex)) {
+							variantEffects.add(variant, ex, effExonPartial, "");
 						}
 					}
 				}
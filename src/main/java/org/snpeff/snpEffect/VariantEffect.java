@@ -77,9 +77,9 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 
 	protected Variant variant;
 	protected List<EffectType> effectTypes;
-	protected EffectType effectType;
+	protected volatile EffectType effectType; // Highest effect type (calculated on demand)
 	protected List<EffectImpact> effectImpacts;
-	protected EffectImpact effectImpact;
+	protected volatile EffectImpact effectImpact; // Highest effect impact (calculated on demand)
 	protected Marker marker;
 	protected String error = "", warning = "", message = ""; // Any message, warning or error?
 	protected String codonsRef = "", codonsAlt = ""; // Codon change information
@@ -413,7 +413,7 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 	public int getCdsLength() {
 		// CDS size info
 		Transcript tr = getTranscript();
-		if ((tr != null) && tr.isProteinCoding()) return tr.cds().length();
+		if ((tr != null) && tr.isProteinCoding()) return tr.cdsLength();
 		return -1;
 	}
 
@@ -450,33 +450,46 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 		return codonsRef;
 	}
 
+	/**
+	 * Configuration (annotation context) for this effect's genome
+	 */
+	Config getConfig() {
+		Marker m = (marker != null ? marker : variant);
+		return m != null ? m.getConfig() : Config.get();
+	}
+
 	public int getDistance() {
 		return distance;
 	}
 
 	/**
 	 * Return impact of this effect
+	 * Note: The result is calculated in a local variable and assigned
+	 * once, so other threads never see a partial value (cached effects
+	 * are shared by threads)
 	 */
 	public EffectImpact getEffectImpact() {
-		if (effectImpact == null) {
-			if ((variant != null) && (!variant.isVariant())) {
-				// Not a change? => Modifier
-				effectImpact = EffectImpact.MODIFIER;
-			} else {
-				// Get efefct's type highest impact
-				effectImpact = EffectImpact.MODIFIER;
-				for (EffectImpact eimp : effectImpacts)
-					if (eimp.compareTo(effectImpact) < 0) effectImpact = eimp;
-			}
+		EffectImpact effectImpact = this.effectImpact;
+		if (effectImpact != null) return effectImpact;
+
+		// Get effect's type highest impact
+		// Not a change? => Modifier
+		effectImpact = EffectImpact.MODIFIER;
+		if ((variant == null) || variant.isVariant()) {
+			for (EffectImpact eimp : effectImpacts)
+				if (eimp.compareTo(effectImpact) < 0) effectImpact = eimp;
 		}
 
+		this.effectImpact = effectImpact;
 		return effectImpact;
 	}
 
 	/**
 	 * Highest effect type
+	 * Note: Calculated in a local variable and assigned once (see getEffectImpact)
 	 */
 	public EffectType getEffectType() {
+		EffectType effectType = this.effectType;
 		if (effectType != null) return effectType;
 		if (effectTypes == null || effectTypes.isEmpty()) return EffectType.NONE;
 
@@ -485,6 +498,7 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 		for (EffectType et : effectTypes)
 			if (et.compareTo(effectType) < 0) effectType = et;
 
+		this.effectType = effectType;
 		return effectType;
 	}
 
@@ -595,7 +609,7 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 	 * Change in HGVS notation
 	 */
 	public String getHgvs() {
-		if (!Config.get().isHgvs()) return "";
+		if (!getConfig().isHgvs()) return "";
 
 		// Calculate protein level and dna level changes
 		String hgvsProt = getHgvsProt();
@@ -616,7 +630,7 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 	 * Change in HGVS (Dna) notation
 	 */
 	public String getHgvsDna() {
-		if (!Config.get().isHgvs()) return "";
+		if (!getConfig().isHgvs()) return "";
 
 		HgvsDna hgvsDna = new HgvsDna(this);
 		String hgvs = hgvsDna.toString();
@@ -627,7 +641,7 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 	 * Change in HGVS (Protein) notation
 	 */
 	public String getHgvsProt() {
-		if (!Config.get().isHgvs()) return "";
+		if (!getConfig().isHgvs()) return "";
 
 		HgvsProtein hgvsProtein = new HgvsProtein(this);
 		String hgvs = hgvsProtein.toString();
@@ -113,6 +113,7 @@ public class SnpEffCmdBuild extends SnpEff {
 		factory.setVerbose(verbose);
 		factory.setDebug(debug);
 		factory.setStoreSequences(storeSequences);
+		factory.setNumThreads(multiThreaded ? numWorkers : 1);
 		return factory.create();
 	}
 
@@ -144,7 +144,7 @@ public class SnpEffCmdDump extends SnpEff {
 			info.append("\t" + gene.getGeneName() //
 					+ "\t" + gene.getId() //
 					+ "\t" + gene.numChilds() //
-					+ "\t" + (canonical == null ? 0 : canonical.cds().length()) //
+					+ "\t" + (canonical == null ? 0 : canonical.cdsLength()) //
 			);
 		} else info.append("\t\t\t\t");
 
@@ -154,7 +154,7 @@ public class SnpEffCmdDump extends SnpEff {
 		else if (marker != null) tr = (Transcript) marker.findParent(Transcript.class);
 
 		if (tr != null) info.append("\t" + tr.getId() //
-				+ "\t" + tr.cds().length() //
+				+ "\t" + tr.cdsLength() //
 				+ "\t" + tr.numChilds() //
 		);
 		else info.append("\t\t\t");
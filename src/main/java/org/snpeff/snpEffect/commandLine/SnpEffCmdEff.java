@@ -1,5 +1,7 @@
 package org.snpeff.snpEffect.commandLine;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -13,11 +15,12 @@ import java.util.List;
 import java.util.Set;
 
 import org.snpeff.SnpEff;
-import org.snpeff.akka.vcf.VcfWorkQueue;
 import org.snpeff.fileIterator.BedFileIterator;
+import org.snpeff.fileIterator.TabixRegionsReader;
 import org.snpeff.fileIterator.VariantFileIterator;
 import org.snpeff.fileIterator.VcfFileIterator;
 import org.snpeff.filter.VariantEffectFilter;
+import org.snpeff.interval.Genome;
 import org.snpeff.interval.Marker;
 import org.snpeff.interval.Markers;
 import org.snpeff.interval.Variant;
@@ -26,18 +29,20 @@ import org.snpeff.interval.tree.IntervalForest;
 import org.snpeff.outputFormatter.BedAnnotationOutputFormatter;
 import org.snpeff.outputFormatter.BedOutputFormatter;
 import org.snpeff.outputFormatter.OutputFormatter;
+import org.snpeff.outputFormatter.TsvOutputFormatter;
 import org.snpeff.outputFormatter.VcfOutputFormatter;
+import org.snpeff.pipeline.OrderedPipeline;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.SnpEffectPredictor;
 import org.snpeff.snpEffect.VariantEffect;
 import org.snpeff.snpEffect.VariantEffect.EffectImpact;
 import org.snpeff.snpEffect.VariantEffects;
 import org.snpeff.snpEffect.VcfAnnotator;
-import org.snpeff.snpEffect.commandLine.eff.MasterEff;
+import org.snpeff.snpEffect.commandLine.eff.EffStats;
+import org.snpeff.snpEffect.commandLine.eff.VcfEntryEffects;
 import org.snpeff.stats.CountByType;
 import org.snpeff.stats.VariantEffectStats;
 import org.snpeff.stats.VariantStats;
-import org.snpeff.stats.VcfStats;
 import org.snpeff.util.Gpr;
 import org.snpeff.util.Timer;
 import org.snpeff.util.Tuple;
@@ -46,13 +51,11 @@ import org.snpeff.vcf.PedigreeEnrty;
 import org.snpeff.vcf.VcfEntry;
 import org.snpeff.vcf.VcfGenotype;
 
-import akka.actor.Actor;
-import akka.actor.Props;
-import akka.actor.UntypedActorFactory;
 import freemarker.template.Configuration;
 import freemarker.template.DefaultObjectWrapper;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
+import net.sf.samtools.tabix.TabixReader;
 
 /**
  * Command line program: Predict variant effects
@@ -77,15 +80,19 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	boolean createSummaryCsv = false;
 	boolean createSummaryHtml = true;
 	boolean lossOfFunction = true; // Create loss of function LOF tag?
+	boolean sortedInput = false; // Input is sorted by position (use sweep queries instead of interval tree queries)
 	boolean useGeneId = false; // Use gene ID instead of gene name (VCF output)
 	boolean useLocalTemplate = false; // Use template from 'local' file instead of 'jar' (this is only used for development and debugging)
 	boolean useOicr = false; // Use OICR tag
 	boolean useSequenceOntology = true; // Use Sequence Ontology terms
+	int cacheSize = 0; // Cache effects of up to 'cacheSize' recently annotated variants (zero disables the cache)
+	int shardNum = 0, numShards = 0; // Only annotate shard number 'shardNum' (one-based) out of 'numShards' (requires a tabix indexed input)
 	int totalErrs = 0;
 	int countVcfEntries = 0;
 	long countInputLines = 0;
 	long countVariants = 0;
 	long countEffects = 0;
+	String bgzipFile = null; // Write output to a BGZF compressed file (and create a tabix index)
 	String cancerSamples = null;
 	String chrStr = "";
 	String inputFile = ""; // Input file
@@ -97,15 +104,15 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	VariantEffectFilter variantEffectResutFilter; // Filter prediction results
 	ArrayList<String> filterIntervalFiles;// Files used for filter intervals
 	ArrayList<String> inputFiles;
+	List<TabixRegionsReader.Region> regions; // Only annotate these regions (requires a tabix indexed input)
 	IntervalForest filterIntervals; // Filter only variants that match these intervals
-	VariantStats variantStats;
-	VariantEffectStats variantEffectStats;
+	EffStats effStats; // Statistics (merged from all threads)
+	List<EffStats> effStatsByThread; // Statistics collected by each thread
+	ThreadLocal<EffStats> effStatsThread; // Statistics for the current thread
 	SnpEffectPredictor snpEffectPredictor;
-	VcfStats vcfStats;
 	List<VcfEntry> vcfEntriesDebug = null; // Use for debugging or testing (in some test-cases)
 	EffFormatVersion formatVersion = EffFormatVersion.DEFAULT_FORMAT_VERSION;
 	List<PedigreeEnrty> pedigree;
-	CountByType errByType, warnByType;
 	OutputFormatter outputFormatter = null;
 	Timer annotateTimer;
 
@@ -126,6 +133,27 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return false;
 	}
 
+	/**
+	 * Annotate a VCF stream and write results to 'out'
+	 * Note: The database must be already loaded (e.g. annotation server requests)
+	 */
+	public boolean annotate(BufferedReader in, BufferedWriter out) {
+		if (inputFormat != InputFormat.VCF) throw new RuntimeException("Only VCF input is supported when annotating streams");
+
+		// Initialize
+		annotateInit((String) null);
+		outputFormatter.setOutput(out);
+
+		// Annotate
+		VcfFileIterator vcf = new VcfFileIterator(in, config.getGenome());
+		annotateVcf(vcf);
+		outputFormatter.close();
+
+		// Finish up
+		boolean err = annotateFinish(vcf);
+		return !err;
+	}
+
 	/**
 	 * Annotate: Calculate the effect of variants and show results
 	 */
@@ -137,7 +165,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		// Iterate over input files
 		switch (inputFormat) {
 		case VCF:
-			vcf = (multiThreaded ? annotateVcfMulti(inputFile, outputFormatter) : annotateVcf(inputFile));
+			vcf = annotateVcf(inputFile);
 			break;
 		default:
 			annotateVariant(inputFile, outputFormatter);
@@ -155,118 +183,77 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 */
 	@Override
 	public boolean annotate(VcfEntry vcfEntry) {
-		boolean printed = false;
-		boolean filteredOut = false;
+		// Find if there is a pedigree and if it has any 'derived' entry
 		VcfFileIterator vcfFile = vcfEntry.getVcfFileIterator();
+		if (cancer && vcfFile.isHeadeSection()) annotateInitCancer(vcfFile);
+
+		return annotate(variantEffects(vcfEntry));
+	}
+
+	/**
+	 * Show the effects calculated for a VCF entry: Update counters and
+	 * send results to output formatter.
+	 *
+	 * Note: This method is not thread safe (effects can be calculated
+	 * concurrently, but they have to be shown by one thread, in order)
+	 */
+	public boolean annotate(VcfEntryEffects vcfEntryEffects) {
+		boolean printed = false;
+		boolean filteredOut = vcfEntryEffects.isFilteredOut();
+		VcfEntry vcfEntry = vcfEntryEffects.getVcfEntry();
 
 		try {
 			countInputLines++;
 			countVcfEntries++;
 
-			// Find if there is a pedigree and if it has any 'derived' entry
-			if (vcfFile.isHeadeSection()) {
-				if (cancer) {
-					pedigree = readPedigree(vcfFile);
-
-					// Any 'derived' entry in this pedigree?
-					if (pedigree != null) {
-						for (PedigreeEnrty pe : pedigree)
-							anyCancerSample |= pe.isDerived();
-					}
-				}
-			}
-
-			// Sample vcf entry
-			if (createSummaryHtml || createSummaryCsv) vcfStats.sample(vcfEntry);
-
 			// Skip if there are filter intervals and they are not matched
-			if ((filterIntervals != null) && (filterIntervals.query(vcfEntry).isEmpty())) {
-				filteredOut = true;
-				return false;
-			}
+			if (filteredOut) return false;
 
 			// Create new 'section'
 			outputFormatter.startSection(vcfEntry);
 
 			//---
-			// Analyze all changes in this VCF entry
-			// Note, this is the standard analysis.
-			// Next section deals with cancer: Somatic vs Germline comparisons
+			// Show all changes in this VCF entry
+			// Note: Cancer comparisons (Somatic vs Germline) are shown, but they
+			//       are not counted
 			//---
-			boolean impact = false; // Does this entry have an impact (other than MODIFIER)?
-			List<Variant> variants = vcfEntry.variants();
-			for (Variant variant : variants) {
-				countVariants++;
-				if (verbose && (countVariants % SHOW_EVERY == 0)) {
-					int millisec = (int) annotateTimer.elapsed();
-					int secs = millisec / 1000;
-					if (secs > 0) {
-						int varsPerSec = (int) (countVariants * 1000.0 / millisec);
-						Timer.showStdErr("\t" + countVariants + " variants (" + varsPerSec + " variants per second), " + countVcfEntries + " VCF entries");
-					}
-				}
-
-				// Calculate effects: By default do not annotate non-variant sites
-				if (variant.isVariant()) {
-					// Perform basic statistics about this variant
-					if (createSummaryHtml || createSummaryCsv) variantStats.sample(variant);
-
-					VariantEffects variantEffects = snpEffectPredictor.variantEffect(variant);
-
-					// Create new 'section'
-					outputFormatter.startSection(variant);
-
-					// Show results
-					for (VariantEffect variantEffect : variantEffects) {
-						if (createSummaryHtml || createSummaryCsv) variantEffectStats.sample(variantEffect); // Perform basic statistics about this result
-
-						// Any errors or warnings?
-						if (variantEffect.hasError()) errByType.inc(variantEffect.getError());
-						if (variantEffect.hasWarning()) warnByType.inc(variantEffect.getWarning());
-
-						// Does this entry have an impact (other than MODIFIER)?
-						impact |= (variantEffect.getEffectImpact() != EffectImpact.MODIFIER);
-
-						outputFormatter.add(variantEffect);
-						countEffects++;
+			for (int i = 0; i < vcfEntryEffects.size(); i++) {
+				Variant variant = vcfEntryEffects.getVariant(i);
+				boolean isCancer = vcfEntryEffects.isCancer(i);
+
+				if (!isCancer) {
+					countVariants++;
+					if (verbose && (countVariants % SHOW_EVERY == 0)) {
+						int millisec = (int) annotateTimer.elapsed();
+						int secs = millisec / 1000;
+						if (secs > 0) {
+							int varsPerSec = (int) (countVariants * 1000.0 / millisec);
+							Timer.showStdErr("\t" + countVariants + " variants (" + varsPerSec + " variants per second), " + countVcfEntries + " VCF entries");
+						}
 					}
 
-					// Finish up this section
-					outputFormatter.printSection(variant);
+					// By default we do not annotate non-variant sites
+					if (!variant.isVariant()) continue;
 				}
 
-				//---
-				// Do we analyze cancer samples?
-				// Here we deal with Somatic vs Germline comparisons
-				//---
-				if (anyCancerSample && impact && vcfEntry.isMultiallelic()) {
-					// Calculate all required comparisons
-					Set<Tuple<Integer, Integer>> comparisons = compareCancerGenotypes(vcfEntry, pedigree);
-
-					// Analyze each comparison
-					for (Tuple<Integer, Integer> comp : comparisons) {
-						// We have to compare comp.first vs comp.second
-						int altGtNum = comp.first; // comp.first is 'derived' (our new ALT)
-						int refGtNum = comp.second; // comp.second is 'original' (our new REF)
-
-						Variant variantRef = variants.get(refGtNum - 1); // After applying this variant, we get the new 'reference'
-						Variant variantAlt = variants.get(altGtNum - 1); // This our new 'variant'
-						VariantNonRef varNonRef = new VariantNonRef(variantAlt, variantRef);
-
-						// Calculate effects
-						VariantEffects variantEffects = snpEffectPredictor.variantEffect(varNonRef);
+				// Create new 'section'
+				outputFormatter.startSection(variant);
 
-						// Create new 'section'
-						outputFormatter.startSection(varNonRef);
+				// Show results
+				for (VariantEffect variantEffect : vcfEntryEffects.getVariantEffects(i)) {
+					if (!isCancer) countEffects++;
+					outputFormatter.add(variantEffect);
+				}
 
-						// Show results (note, we don't add these to the statistics)
-						for (VariantEffect variantEffect : variantEffects)
-							outputFormatter.add(variantEffect);
+				// Finish up this section
+				outputFormatter.printSection(variant);
+			}
 
-						// Finish up this section
-						outputFormatter.printSection(varNonRef);
-					}
-				}
+			// Any error while calculating effects?
+			Throwable t = vcfEntryEffects.getError();
+			if (t != null) {
+				totalErrs++;
+				error(t, "Error while processing VCF entry (line " + vcfEntry.getLineNum() + ") :\n\t" + vcfEntry + "\n" + t);
 			}
 
 			// Finish up this section
@@ -275,7 +262,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 			printed = true;
 		} catch (Throwable t) {
 			totalErrs++;
-			error(t, "Error while processing VCF entry (line " + vcfFile.getLineNum() + ") :\n\t" + vcfEntry + "\n" + t);
+			error(t, "Error while processing VCF entry (line " + vcfEntry.getLineNum() + ") :\n\t" + vcfEntry + "\n" + t);
 		} finally {
 			if (!printed && !filteredOut) outputFormatter.printSection(vcfEntry);
 		}
@@ -292,6 +279,18 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 
 		if (vcfFile != null) vcfFile.close();
 
+		// Merge statistics from all threads
+		statsMerge();
+
+		// Show errors and warnings
+		if (verbose) {
+			CountByType errByType = effStats.getErrByType();
+			CountByType warnByType = effStats.getWarnByType();
+			if (!errByType.isEmpty()) System.err.println("\nERRORS: Some errors were detected\nError type\tNumber of errors\n" + errByType + "\n");
+			if (!warnByType.isEmpty()) System.err.println("\nWARNINGS: Some warning were detected\nWarning type\tNumber of warnings\n" + warnByType + "\n");
+			if (snpEffectPredictor.getVariantEffectsCache() != null) Timer.showStdErr("Variant effects cache: " + snpEffectPredictor.getVariantEffectsCache());
+		}
+
 		// Creates a summary output file
 		if (createSummaryCsv) {
 			if (verbose) Timer.showStdErr("Creating summary file: " + summaryFileCsv);
@@ -317,22 +316,33 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 */
 	protected void annotateInit(String outputFile) {
 		snpEffectPredictor = config.getSnpEffectPredictor();
+		snpEffectPredictor.setSortedInput(sortedInput);
+		snpEffectPredictor.setVariantEffectsCacheSize(cacheSize);
 
 		// Reset all counters
 		totalErrs = 0;
 		countInputLines = countVariants = countEffects = 0; // = countVariantsFilteredOut = 0;
 		anyCancerSample = false;
 		pedigree = null;
-		errByType = new CountByType();
-		warnByType = new CountByType();
 		countVcfEntries = 0;
 		annotateTimer = new Timer();
 
-		// Create 'stats' objects
-		variantStats = new VariantStats(config.getGenome());
-		variantEffectStats = new VariantEffectStats(config.getGenome());
-		variantEffectStats.setUseSequenceOntology(useSequenceOntology);
-		vcfStats = new VcfStats();
+		// Create 'stats' objects: Each thread collects its own statistics, they are merged when annotation finishes
+		final Genome genome = config.getGenome();
+		final boolean createStats = createSummaryHtml || createSummaryCsv;
+		effStats = new EffStats(genome, createStats, useSequenceOntology);
+		effStatsByThread = new ArrayList<>();
+		effStatsThread = new ThreadLocal<EffStats>() {
+
+			@Override
+			protected EffStats initialValue() {
+				EffStats stats = new EffStats(genome, createStats, useSequenceOntology);
+				synchronized (effStatsByThread) {
+					effStatsByThread.add(stats);
+				}
+				return stats;
+			}
+		};
 
 		//---
 		// Create output formatter
@@ -356,6 +366,12 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		case BEDANN:
 			outputFormatter = new BedAnnotationOutputFormatter();
 			break;
+		case TSV:
+			TsvOutputFormatter tof = new TsvOutputFormatter();
+			tof.setLossOfFunction(lossOfFunction);
+			tof.setConfig(config);
+			outputFormatter = tof;
+			break;
 		default:
 			throw new RuntimeException("Unknown output format '" + outputFormat + "'");
 		}
@@ -370,6 +386,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		outputFormatter.setUseHgvs(hgvs);
 		outputFormatter.setUseGeneId(useGeneId);
 		outputFormatter.setOutputFile(outputFile);
+		outputFormatter.setBgzip((outputFile != null) && (bgzipFile != null), numWorkers);
 	}
 
 	@Override
@@ -381,6 +398,19 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return false;
 	}
 
+	/**
+	 * Read cancer samples pedigree and check if it has any 'derived' entry
+	 */
+	void annotateInitCancer(VcfFileIterator vcfFile) {
+		pedigree = readPedigree(vcfFile);
+
+		// Any 'derived' entry in this pedigree?
+		if (pedigree != null) {
+			for (PedigreeEnrty pe : pedigree)
+				anyCancerSample |= pe.isDerived();
+		}
+	}
+
 	/**
 	 * Iterate on all inputs and calculate effects.
 	 * Note: This is used for all input formats except VCF, which has a different iteration modality
@@ -409,7 +439,8 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 				if ((filterIntervals != null) && (filterIntervals.stab(variant).size() <= 0)) continue;
 
 				// Perform basic statistics about this variant
-				if (createSummaryHtml || createSummaryCsv) variantStats.sample(variant);
+				EffStats stats = effStatsThread.get();
+				stats.sample(variant);
 
 				// Calculate effects
 				VariantEffects variantEffects = snpEffectPredictor.variantEffect(variant);
@@ -419,7 +450,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 
 				// Show results
 				for (VariantEffect variantEffect : variantEffects) {
-					variantEffectStats.sample(variantEffect); // Perform basic statistics about this result
+					stats.sample(variantEffect); // Perform basic statistics about this result
 					outputFormatter.add(variantEffect);
 					countEffects++;
 				}
@@ -442,60 +473,60 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 */
 	VcfFileIterator annotateVcf(String inputFile) {
 		// Open VCF file
-		VcfFileIterator vcfFile = new VcfFileIterator(inputFile, config.getGenome());
+		VcfFileIterator vcfFile;
+		if (regions != null || numShards > 0) vcfFile = new VcfFileIterator(openRegions(inputFile), config.getGenome());
+		else vcfFile = new VcfFileIterator(inputFile, config.getGenome());
+		annotateVcf(vcfFile);
+		return vcfFile;
+	}
+
+	/**
+	 * Iterate on all VCF entries and calculate effects
+	 */
+	void annotateVcf(VcfFileIterator vcfFile) {
 		vcfFile.setDebug(debug);
 
 		// Iterate over VCF entries
-		for (VcfEntry vcfEntry : vcfFile)
-			annotate(vcfEntry);
+		if (multiThreaded) annotateVcfMulti(vcfFile);
+		else {
+			for (VcfEntry vcfEntry : vcfFile)
+				annotate(vcfEntry);
+		}
 
 		// Empty file? Show at least the header
 		if (countVcfEntries == 0) outputFormatter.print(vcfFile.getVcfHeader().toString());
-
-		// Show errors and warnings
-		if (verbose) {
-			if (!errByType.isEmpty()) System.err.println("\nERRORS: Some errors were detected\nError type\tNumber of errors\n" + errByType + "\n");
-			if (!warnByType.isEmpty()) System.err.println("\nWARNINGS: Some warning were detected\nWarning type\tNumber of warnings\n" + warnByType + "\n");
-		}
-
-		return vcfFile;
 	}
 
 	/**
-	 * Multi-threaded iteration on VCF inputs and calculates effects.
-	 * Note: This is used only on input format VCF, which has a different iteration modality
+	 * Multi-threaded iteration on VCF inputs:
+	 * A reader thread parses VCF entries, worker threads calculate
+	 * effects and results are shown (in the same order as the input)
+	 * by this thread. So output formatters, statistics, and cancer
+	 * comparisons work exactly as in single threaded mode.
 	 */
-	VcfFileIterator annotateVcfMulti(String inputFile, final OutputFormatter outputFormatter) {
+	void annotateVcfMulti(VcfFileIterator vcfFile) {
 		if (verbose) Timer.showStdErr("Running multi-threaded mode (numThreads=" + numWorkers + ").");
 
-		outputFormatter.setShowHeader(false); // Master process takes care of the header (instead of outputFormatter). Otherwise you get the header printed one time per worker.
-
-		// We need final variables for the inner class
-		final SnpEffectPredictor snpEffectPredictor = config.getSnpEffectPredictor();
-		final VcfOutputFormatter vcfOutForm = (VcfOutputFormatter) outputFormatter;
-		final SnpEffCmdEff snpEffCmdEff = this;
-
-		VcfFileIterator vcf = new VcfFileIterator(inputFile, config.getGenome());
+		// Read header first: Cancer pedigree is needed before any worker thread starts
+		vcfFile.readHeader();
+		if (cancer) annotateInitCancer(vcfFile);
 
-		// Master factory
-		Props props = new Props(new UntypedActorFactory() {
-
-			private static final long serialVersionUID = 1L;
+		OrderedPipeline<VcfEntry, VcfEntryEffects> pipeline = new OrderedPipeline<VcfEntry, VcfEntryEffects>(numWorkers) {
 
 			@Override
-			public Actor create() {
-				MasterEff master = new MasterEff(numWorkers, snpEffCmdEff, snpEffectPredictor, outputFormatter, filterIntervals);
-				master.setAddHeader(vcfOutForm.getNewHeaderLines().toArray(new String[0]));
-				return master;
+			protected VcfEntryEffects process(VcfEntry vcfEntry) {
+				return variantEffects(vcfEntry);
 			}
-		});
 
-		// Create and run queue
-		int batchSize = 10;
-		VcfWorkQueue vcfWorkQueue = new VcfWorkQueue(inputFile, config, batchSize, -1, props);
-		vcfWorkQueue.run(true);
+			@Override
+			protected void write(VcfEntryEffects vcfEntryEffects) {
+				annotate(vcfEntryEffects);
+			}
+		};
 
-		return vcf;
+		pipeline.setVerbose(verbose);
+		pipeline.setDebug(debug);
+		pipeline.run(vcfFile.iterator());
 	}
 
 	/**
@@ -551,7 +582,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	}
 
 	public VariantEffectStats getChangeEffectResutStats() {
-		return variantEffectStats;
+		return effStats.getVariantEffectStats();
 	}
 
 	public int getTotalErrs() {
@@ -559,7 +590,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	}
 
 	public VariantStats getvariantStats() {
-		return variantStats;
+		return effStats.getVariantStats();
 	}
 
 	/**
@@ -593,6 +624,9 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		case GATK:
 			outputFile += ".vcf";
 			break;
+		case TSV:
+			outputFile += ".tsv";
+			break;
 		default:
 			throw new RuntimeException("Unimplemented option for output file type " + outputFormat);
 		}
@@ -630,6 +664,11 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 					//---
 					// Output options
 					//---
+					case "-bgzip":
+						if ((i + 1) < args.length) bgzipFile = args[++i];
+						else usage("Missing parameter: BGZF output file name");
+						break;
+
 					case "-chr":
 						chrStr = args[++i];
 						break;
@@ -674,6 +713,8 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 							} else if (outFor.equals("BEDANN")) {
 								outputFormat = OutputFormat.BEDANN;
 								lossOfFunction = false;
+							} else if (outFor.equals("TSV")) {
+								outputFormat = OutputFormat.TSV;
 							} else if (outFor.equals("TXT")) usage("Output format 'TXT' has been deprecated. Please use 'VCF' instead.\nYou can extract VCF fields to a TXT file using 'SnpSift extractFields' (http://snpeff.sourceforge.net/SnpSift.html#Extract).");
 							else usage("Unknown output file format '" + outFor + "'");
 						}
@@ -790,6 +831,38 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 						} else usage("Missing input format in command line option '-i'");
 						break;
 
+					case "-region":
+						if ((i + 1) < args.length) {
+							if (regions == null) regions = new ArrayList<>();
+							String region = args[++i];
+							try {
+								regions.add(TabixRegionsReader.Region.parse(region));
+							} catch (RuntimeException e) {
+								usage("Invalid region '" + region + "', expected format 'chr', 'chr:start' or 'chr:start-end'");
+							}
+						} else usage("Missing parameter: Region");
+						break;
+
+					case "-shard":
+						if ((i + 1) < args.length) {
+							String shard[] = args[++i].split("/");
+							if (shard.length == 2) {
+								shardNum = Gpr.parseIntSafe(shard[0]);
+								numShards = Gpr.parseIntSafe(shard[1]);
+							}
+							if (numShards <= 0 || shardNum < 1 || shardNum > numShards) usage("Invalid shard '" + args[i] + "', expected format 'num/total', e.g. '-shard 3/10'");
+						} else usage("Missing parameter: Shard");
+						break;
+
+					case "-sorted":
+						sortedInput = true; // Input is sorted by position
+						break;
+
+					case "-cache":
+						if ((i + 1) < args.length) cacheSize = Gpr.parseIntSafe(args[++i]);
+						else usage("Missing parameter: Cache size");
+						break;
+
 					//---
 					// Filters
 					//---
@@ -859,20 +932,42 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 				inputFiles.add(file);
 		}
 
+		// BGZF output file
+		if ((bgzipFile != null) && isFileList) usage("Option '-bgzip' cannot be used with '-fileList'");
+
+		// Regions and shards require a tabix indexed VCF file
+		if (regions != null || numShards > 0) {
+			if (regions != null && numShards > 0) usage("Options '-region' and '-shard' cannot be used together");
+			if (isFileList) usage("Options '-region' and '-shard' cannot be used with '-fileList'");
+			if (inputFormat != InputFormat.VCF) usage("Options '-region' and '-shard' require input in VCF format");
+			if (inputFile.equals("-") || !Gpr.canRead(inputFile + ".tbi")) usage("Options '-region' and '-shard' require a bgzip compressed input file with a tabix index ('" + inputFile + ".tbi')");
+		}
+
 		// Sanity checks for VCF output format
 		boolean isOutVcf = (outputFormat == OutputFormat.VCF) || (outputFormat == OutputFormat.GATK);
 		if (isOutVcf && (inputFormat != InputFormat.VCF)) usage("Output in VCF format is only supported when the input is also in VCF format");
-		if (!isOutVcf && lossOfFunction) usage("Loss of function annotation is only supported when when output is in VCF format");
+		if (!isOutVcf && (outputFormat != OutputFormat.TSV) && lossOfFunction) usage("Loss of function annotation is only supported when when output is in VCF format");
 		if (!isOutVcf && cancer) usage("Canccer annotation is only supported when when output is in VCF format");
 
-		// Sanity check for multi-threaded version
-		if (multiThreaded) {
-			createSummaryHtml = false; // This is implied ( '-t' => '-noStats' )
-			createSummaryCsv = false;
+	}
+
+	/**
+	 * Open a reader for the regions (or shard) to annotate in a tabix indexed file
+	 */
+	BufferedReader openRegions(String inputFile) {
+		try {
+			List<TabixRegionsReader.Region> regs = regions;
+			if (numShards > 0) {
+				TabixReader tabixReader = new TabixReader(inputFile);
+				regs = TabixRegionsReader.shard(tabixReader, shardNum, numShards);
+				tabixReader.close();
+				if (verbose) Timer.showStdErr("Shard " + shardNum + "/" + numShards + ", regions: " + regs);
+			}
+
+			return new TabixRegionsReader(inputFile, regs);
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening regions in file '" + inputFile + "'", e);
 		}
-		if (multiThreaded && cancer) usage("Cancer analysis is currently not supported in multi-threaded mode.");
-		if (multiThreaded && !isOutVcf) usage("Multi-threaded option is only supported when when output is in VCF format");
-		if (multiThreaded && (createSummaryHtml || createSummaryCsv)) usage("Multi-threaded option should be used with 'noStats'.");
 	}
 
 	/**
@@ -935,7 +1030,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	@Override
 	public HashMap<String, String> reportValues() {
 		HashMap<String, String> report = super.reportValues();
-		if (variantStats != null) report.put("variants", variantStats.getCount() + "");
+		if (effStats != null) report.put("variants", effStats.getVariantStats().getCount() + "");
 		return report;
 	}
 
@@ -961,6 +1056,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		filterIntervals = null;
 
 		loadConfig(); // Read config file
+		freeze = multiThreaded; // Annotation threads read genes without locking
 		loadDb(); // Load database
 
 		// Check if we can open the input file (no need to check if it is STDIN)
@@ -988,8 +1084,8 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		boolean ok = true;
 		if (verbose) Timer.showStdErr("Predicting variants");
 		if (inputFiles == null) {
-			// Single input file, output to STDOUT (typical usage)
-			ok = annotate(inputFile, null);
+			// Single input file, output to STDOUT (typical usage) or to a BGZF file
+			ok = annotate(inputFile, bgzipFile);
 		} else {
 			// Multiple input and output files
 			for (String inputFile : inputFiles) {
@@ -1014,6 +1110,18 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		this.formatVersion = formatVersion;
 	}
 
+	/**
+	 * Merge statistics collected by each thread
+	 */
+	void statsMerge() {
+		synchronized (effStatsByThread) {
+			for (EffStats stats : effStatsByThread)
+				effStats.merge(stats);
+			effStatsByThread.clear();
+		}
+		effStatsThread.remove();
+	}
+
 	/**
 	 * Creates a summary output file (using freeMarker and a template)
 	 */
@@ -1060,7 +1168,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		// Create the root hash (where data objects are)
 		HashMap<String, Object> root = new HashMap<>();
 		root.put("args", commandLineStr(createSummaryCsv ? false : true));
-		root.put("changeStats", variantEffectStats);
+		root.put("changeStats", effStats.getVariantEffectStats());
 		root.put("chromoPlots", chromoPlots);
 		root.put("countEffects", countEffects);
 		root.put("countInputLines", countInputLines);
@@ -1070,9 +1178,9 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		root.put("genome", config.getGenome());
 		root.put("genomeVersion", genomeVer);
 		root.put("variantEffectResutFilter", variantEffectResutFilter);
-		root.put("variantStats", variantStats);
+		root.put("variantStats", effStats.getVariantStats());
 		root.put("snpEffectPredictor", config.getSnpEffectPredictor());
-		root.put("vcfStats", vcfStats);
+		root.put("vcfStats", effStats.getVcfStats());
 		root.put("version", SnpEff.VERSION); // Version used
 
 		return root;
@@ -1095,13 +1203,18 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		System.err.println("\tvariants_file                   : Default is STDIN");
 		System.err.println("\n");
 		System.err.println("\nOptions:");
+		System.err.println("\t-bgzip <file>                   : Write output to a BGZF compressed file (as 'bgzip') and create a tabix index ('file.tbi'). Input must be sorted for the index to be created.");
+		System.err.println("\t-cache <num>                    : Cache effects of up to 'num' recently annotated variants, useful when the same variants are annotated many times (e.g. cohorts, 'server' command). Default: " + cacheSize + " (disabled)");
 		System.err.println("\t-chr <string>                   : Prepend 'string' to chromosome name (e.g. 'chr1' instead of '1'). Only on TXT output.");
 		System.err.println("\t-classic                        : Use old style annotations instead of Sequence Ontology and Hgvs.");
 		System.err.println("\t-csvStats <file>                : Create CSV summary file.");
 		System.err.println("\t-download                       : Download reference genome if not available. Default: " + download);
 		System.err.println("\t-i <format>                     : Input format [ vcf, bed ]. Default: VCF.");
 		System.err.println("\t-fileList                       : Input actually contains a list of files to process.");
-		System.err.println("\t-o <format>                     : Ouput format [ vcf, gatk, bed, bedAnn ]. Default: VCF.");
+		System.err.println("\t-o <format>                     : Ouput format [ vcf, gatk, bed, bedAnn, tsv ]. Default: VCF.");
+		System.err.println("\t-region <chr:start-end>         : Only annotate variants starting in this region (you may use this option many times). Input must be bgzip compressed and tabix indexed.");
+		System.err.println("\t-shard <num/total>              : Split the genome into 'total' shards and only annotate variants starting in shard 'num' (e.g. '-shard 3/10'). Input must be bgzip compressed and tabix indexed.");
+		System.err.println("\t-sorted                         : Input is sorted by position (faster annotation, falls back to normal mode if the input is not sorted). Default: " + sortedInput);
 		System.err.println("\t-s , -stats, -htmlStats         : Create HTML summary file.  Default is '" + DEFAULT_SUMMARY_HTML_FILE + "'");
 		System.err.println("\t-noStats                        : Do not create stats (summary) file");
 		System.err.println("\nResults filter options:");
@@ -1133,4 +1246,76 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		System.exit(-1);
 	}
 
+	/**
+	 * Calculate the effects of all variants in a VCF entry (results are not shown)
+	 * and update this thread's statistics.
+	 * Note: This method is thread safe (it is invoked from worker threads in multi-threaded mode)
+	 */
+	public VcfEntryEffects variantEffects(VcfEntry vcfEntry) {
+		VcfEntryEffects vcfEntryEffects = new VcfEntryEffects(vcfEntry);
+		EffStats stats = effStatsThread.get();
+
+		try {
+			// Sample vcf entry
+			stats.sample(vcfEntry);
+
+			// Skip if there are filter intervals and they are not matched
+			if ((filterIntervals != null) && (filterIntervals.query(vcfEntry).isEmpty())) {
+				vcfEntryEffects.setFilteredOut(true);
+				return vcfEntryEffects;
+			}
+
+			//---
+			// Analyze all changes in this VCF entry
+			// Note, this is the standard analysis.
+			// Next section deals with cancer: Somatic vs Germline comparisons
+			//---
+			boolean impact = false; // Does this entry have an impact (other than MODIFIER)?
+			List<Variant> variants = vcfEntry.variants();
+			for (Variant variant : variants) {
+				// Calculate effects: By default do not annotate non-variant sites
+				VariantEffects variantEffects = null;
+				if (variant.isVariant()) {
+					stats.sample(variant); // Perform basic statistics about this variant
+					variantEffects = snpEffectPredictor.variantEffect(variant);
+
+					for (VariantEffect variantEffect : variantEffects) {
+						stats.sample(variantEffect); // Perform basic statistics about this result
+
+						// Does this entry have an impact (other than MODIFIER)?
+						impact |= (variantEffect.getEffectImpact() != EffectImpact.MODIFIER);
+					}
+				}
+				vcfEntryEffects.add(variant, variantEffects);
+
+				//---
+				// Do we analyze cancer samples?
+				// Here we deal with Somatic vs Germline comparisons
+				//---
+				if (anyCancerSample && impact && vcfEntry.isMultiallelic()) {
+					// Calculate all required comparisons
+					Set<Tuple<Integer, Integer>> comparisons = compareCancerGenotypes(vcfEntry, pedigree);
+
+					// Analyze each comparison
+					for (Tuple<Integer, Integer> comp : comparisons) {
+						// We have to compare comp.first vs comp.second
+						int altGtNum = comp.first; // comp.first is 'derived' (our new ALT)
+						int refGtNum = comp.second; // comp.second is 'original' (our new REF)
+
+						Variant variantRef = variants.get(refGtNum - 1); // After applying this variant, we get the new 'reference'
+						Variant variantAlt = variants.get(altGtNum - 1); // This our new 'variant'
+						VariantNonRef varNonRef = new VariantNonRef(variantAlt, variantRef);
+
+						// Calculate effects (note, we don't add these to the statistics)
+						vcfEntryEffects.add(varNonRef, snpEffectPredictor.variantEffect(varNonRef));
+					}
+				}
+			}
+		} catch (Throwable t) {
+			vcfEntryEffects.setError(t);
+		}
+
+		return vcfEntryEffects;
+	}
+
 }
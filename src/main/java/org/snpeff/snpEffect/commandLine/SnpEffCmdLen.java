@@ -112,7 +112,7 @@ public class SnpEffCmdLen extends SnpEff {
 	int maxcds(Gene gene) {
 		int max = 0;
 		for (Transcript tr : gene)
-			if (tr.isProteinCoding()) max = Math.max(max, tr.cds().length());
+			if (tr.isProteinCoding()) max = Math.max(max, tr.cdsLength());
 
 		return max;
 
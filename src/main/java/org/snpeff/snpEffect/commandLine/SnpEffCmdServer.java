@@ -0,0 +1,332 @@
+package org.snpeff.snpEffect.commandLine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.snpeff.SnpEff;
+import org.snpeff.snpEffect.Config;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Timer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Annotation server: Load one or more databases once and annotate
+ * VCF files sent over HTTP.
+ *
+ * Requests:
+ * 		POST /ann/genome_version	: Request body is a VCF file, response is the annotated VCF file
+ * 		POST /ann					: Same as above, only if the server has one genome loaded
+ *
+ * E.g.:
+ * 		curl --data-binary @input.vcf http://localhost:5123/ann/GRCh37.75 > output.vcf
+ *
+ * Databases (Config and SnpEffectPredictor) are shared by all requests.
+ * Each request is annotated by a new SnpEffCmdEff object, so all mutable
+ * annotation state (counters, statistics, output formatter, etc.) is
+ * request scoped. Requests are processed concurrently, one thread per request.
+ *
+ * @author pcingola
+ */
+public class SnpEffCmdServer extends SnpEff implements HttpHandler {
+
+	public static final int DEFAULT_PORT = 5123;
+	public static final String ANN_PATH = "/ann";
+	public static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+	public static final int STOP_WAIT_SECONDS = 10; // Time to wait for running requests when stopping the server
+
+	boolean listenAll = false; // Listen on all network interfaces (default: only local connections)
+	int port = DEFAULT_PORT;
+	String effArgs[]; // Annotation options, used for every request
+	List<String> genomeVers;
+	Map<String, Config> configByGenome;
+	AtomicLong countRequests;
+	HttpServer server;
+	ExecutorService executor;
+	CountDownLatch stopped;
+
+	public SnpEffCmdServer() {
+		super();
+		effArgs = new String[0];
+		genomeVers = new ArrayList<>();
+		configByGenome = new HashMap<>();
+		countRequests = new AtomicLong();
+	}
+
+	/**
+	 * Add a (loaded) database
+	 */
+	public void add(String genomeVer, Config config) {
+		Config prev = configByGenome.put(genomeVer, config);
+		if (prev != null && prev != config) close(prev); // Replaced database is no longer used
+	}
+
+	/**
+	 * Annotate a request: Read VCF from request body and write annotated VCF to response body
+	 */
+	void annotate(HttpExchange exchange, String genomeVer, Config config) throws IOException {
+		long reqNum = countRequests.incrementAndGet();
+		if (verbose) Timer.showStdErr("Request " + reqNum + ": Annotating genome '" + genomeVer + "', from " + exchange.getRemoteAddress());
+
+		SnpEffCmdEff cmdEff = newCmdEff(genomeVer);
+		cmdEff.setConfig(config);
+		Config.setThreadConfig(config);
+
+		try {
+			// Response is streamed. Note: Errors after this point cannot be
+			// reported using an HTTP error code, the response is truncated.
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, 0);
+
+			BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+			cmdEff.annotate(in, out);
+		} finally {
+			Config.setThreadConfig(null);
+		}
+
+		if (verbose) Timer.showStdErr("Request " + reqNum + ": Done. Errors: " + cmdEff.getTotalErrs());
+	}
+
+	/**
+	 * Close a database's resources (e.g. tabix indexed custom interval files)
+	 */
+	void close(Config config) {
+		if (config.getSnpEffectPredictor() != null) config.getSnpEffectPredictor().close();
+	}
+
+	/**
+	 * Genome version from request's path (default to the
+	 * only genome loaded, if the path has no genome version)
+	 */
+	String genomeVer(String path) {
+		String gv = path.substring(ANN_PATH.length());
+		while (gv.startsWith("/"))
+			gv = gv.substring(1);
+
+		// No genome in path? Use default if there is only one genome
+		if (gv.isEmpty() && configByGenome.size() == 1) return configByGenome.keySet().iterator().next();
+		return gv;
+	}
+
+	public int getPort() {
+		return server != null ? server.getAddress().getPort() : port;
+	}
+
+	/**
+	 * Handle an HTTP request
+	 */
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+				sendError(exchange, 405, "Method not allowed, use POST");
+				return;
+			}
+
+			String genomeVer = genomeVer(exchange.getRequestURI().getPath());
+			Config config = configByGenome.get(genomeVer);
+			if (config == null) {
+				sendError(exchange, 404, "Genome '" + genomeVer + "' not found. Available genomes: " + configByGenome.keySet());
+				return;
+			}
+
+			annotate(exchange, genomeVer, config);
+		} catch (Throwable t) {
+			error(t, "Error processing request: " + t.getMessage());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Load all databases
+	 */
+	void loadDatabases() {
+		for (String gv : genomeVers) {
+			if (verbose) Timer.showStdErr("Loading database for genome '" + gv + "'");
+			config = null;
+			genomeVer = gv;
+			loadConfig();
+			freeze = true; // Requests are annotated concurrently, genes are read without locking
+			loadDb();
+			add(gv, config);
+		}
+	}
+
+	/**
+	 * Create an annotation command for a request
+	 */
+	SnpEffCmdEff newCmdEff(String genomeVer) {
+		SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+		copyArgs(cmdEff);
+		cmdEff.setGenomeVer(genomeVer);
+		cmdEff.parseArgs(effArgs);
+
+		// No summary files (several requests would overwrite the same files)
+		cmdEff.createSummaryHtml = cmdEff.createSummaryCsv = false;
+		return cmdEff;
+	}
+
+	/**
+	 * Parse command line arguments
+	 */
+	@Override
+	public void parseArgs(String[] args) {
+		this.args = args;
+
+		int i;
+		for (i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (!isOpt(arg)) break; // Genome versions
+
+			switch (arg.toLowerCase()) {
+			case "-listenall":
+				listenAll = true;
+				break;
+
+			case "-port":
+				if ((i + 1) < args.length) port = Gpr.parseIntSafe(args[++i]);
+				else usage("Missing parameter: Port number");
+				break;
+
+			default:
+				usage("Unknown option '" + arg + "'");
+			}
+		}
+
+		// Genome versions (comma separated)
+		if (i >= args.length) usage("Missing genome_version parameter");
+		for (String gv : args[i].split(","))
+			if (!gv.isEmpty()) genomeVers.add(gv);
+
+		// Annotation options: Everything after genome versions
+		effArgs = Arrays.copyOfRange(args, i + 1, args.length);
+
+		//---
+		// Sanity checks
+		//---
+		if ((port < 0) || (port > 65535)) usage("Invalid port number " + port);
+
+		// Requests are annotated using one thread each
+		multiThreaded = false;
+
+		// Check annotation options
+		for (String gv : genomeVers) {
+			SnpEffCmdEff cmdEff = newCmdEff(gv);
+			if (!cmdEff.inputFile.equals("-")) usage("Input files are not supported, VCF files are sent by clients");
+			if (!cmdEff.filterIntervalFiles.isEmpty()) usage("Filter interval files are not supported");
+			if (cmdEff.inputFormat != InputFormat.VCF) usage("Only VCF input is supported");
+		}
+	}
+
+	/**
+	 * Load databases and serve requests (until the server is stopped)
+	 */
+	@Override
+	public boolean run() {
+		loadDatabases();
+		start();
+
+		// Wait until the server is stopped
+		try {
+			stopped.await();
+		} catch (InterruptedException e) {
+			stop();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Send an error message
+	 */
+	void sendError(HttpExchange exchange, int code, String message) throws IOException {
+		byte bytes[] = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		exchange.sendResponseHeaders(code, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+	/**
+	 * Start listening for requests (databases must be already loaded)
+	 */
+	public void start() {
+		try {
+			InetSocketAddress address = listenAll ? new InetSocketAddress(port) : new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+			server = HttpServer.create(address, 0);
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot start server on port " + port, e);
+		}
+
+		executor = Executors.newFixedThreadPool(numWorkers);
+		stopped = new CountDownLatch(1);
+		server.createContext(ANN_PATH, this);
+		server.setExecutor(executor);
+		server.start();
+
+		if (verbose) Timer.showStdErr("Server listening on " + server.getAddress() + ", genomes: " + configByGenome.keySet() + ", threads: " + numWorkers);
+	}
+
+	/**
+	 * Stop server
+	 */
+	public void stop() {
+		if (server == null) return;
+		if (verbose) Timer.showStdErr("Stopping server. Total requests: " + countRequests.get());
+
+		server.stop(0);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(STOP_WAIT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		server = null;
+
+		// Databases are no longer used
+		for (Config config : configByGenome.values())
+			close(config);
+
+		stopped.countDown();
+	}
+
+	@Override
+	public void usage(String message) {
+		if (message != null) System.err.println("Error: " + message + "\n");
+		System.err.println("snpEff version " + VERSION);
+		System.err.println("Usage: snpEff server [server_options] genome_version_1[,genome_version_2,...] [annotation_options]");
+		System.err.println("\nServer options:");
+		System.err.println("\t-listenAll                      : Accept connections from other hosts (by default, only local connections are accepted). Default: " + listenAll);
+		System.err.println("\t-port <num>                     : Port number. Default: " + port);
+		System.err.println("\nAnnotation options: Same as 'ann' command (except input files). They are used for all requests.");
+		System.err.println("\nRequests: Send a VCF file using HTTP POST, the response is the annotated VCF file. E.g.:");
+		System.err.println("\tcurl --data-binary @input.vcf http://localhost:" + port + ANN_PATH + "/genome_version > output.vcf");
+
+		usageGenericAndDb();
+
+		System.exit(-1);
+	}
+}
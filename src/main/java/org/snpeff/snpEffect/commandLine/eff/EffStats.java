@@ -0,0 +1,95 @@
+package org.snpeff.snpEffect.commandLine.eff;
+
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.stats.CountByType;
+import org.snpeff.stats.VariantEffectStats;
+import org.snpeff.stats.VariantStats;
+import org.snpeff.stats.VcfStats;
+import org.snpeff.vcf.VcfEntry;
+
+/**
+ * Statistics collected by SnpEff 'eff' command.
+ *
+ * Statistics objects are not thread safe: Each thread collects
+ * statistics in its own instance and all instances are merged
+ * when annotation finishes.
+ *
+ * @author pcingola
+ */
+public class EffStats {
+
+	boolean createStats; // Collect statistics for summary files (errors and warnings are always counted)
+	VariantStats variantStats;
+	VariantEffectStats variantEffectStats;
+	VcfStats vcfStats;
+	CountByType errByType, warnByType;
+
+	public EffStats(Genome genome, boolean createStats, boolean useSequenceOntology) {
+		this.createStats = createStats;
+		variantStats = new VariantStats(genome);
+		variantEffectStats = new VariantEffectStats(genome);
+		variantEffectStats.setUseSequenceOntology(useSequenceOntology);
+		vcfStats = new VcfStats();
+		errByType = new CountByType();
+		warnByType = new CountByType();
+	}
+
+	public CountByType getErrByType() {
+		return errByType;
+	}
+
+	public VariantEffectStats getVariantEffectStats() {
+		return variantEffectStats;
+	}
+
+	public VariantStats getVariantStats() {
+		return variantStats;
+	}
+
+	public VcfStats getVcfStats() {
+		return vcfStats;
+	}
+
+	public CountByType getWarnByType() {
+		return warnByType;
+	}
+
+	/**
+	 * Merge statistics from another instance (e.g. collected by another thread)
+	 */
+	public void merge(EffStats effStats) {
+		variantStats.merge(effStats.variantStats);
+		variantEffectStats.merge(effStats.variantEffectStats);
+		vcfStats.merge(effStats.vcfStats);
+		errByType.merge(effStats.errByType);
+		warnByType.merge(effStats.warnByType);
+	}
+
+	/**
+	 * Perform basic statistics about this variant
+	 */
+	public void sample(Variant variant) {
+		if (createStats) variantStats.sample(variant);
+	}
+
+	/**
+	 * Perform basic statistics about this result
+	 */
+	public void sample(VariantEffect variantEffect) {
+		if (createStats) variantEffectStats.sample(variantEffect);
+
+		// Any errors or warnings?
+		if (variantEffect.hasError()) errByType.inc(variantEffect.getError());
+		if (variantEffect.hasWarning()) warnByType.inc(variantEffect.getWarning());
+	}
+
+	/**
+	 * Sample vcf entry
+	 */
+	public void sample(VcfEntry vcfEntry) {
+		if (createStats) vcfStats.sample(vcfEntry);
+	}
+
+}
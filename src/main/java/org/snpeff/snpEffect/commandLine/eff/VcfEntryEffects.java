@@ -0,0 +1,77 @@
+package org.snpeff.snpEffect.commandLine.eff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.snpeff.interval.Variant;
+import org.snpeff.interval.VariantNonRef;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.vcf.VcfEntry;
+
+/**
+ * Variant effects calculated for a VCF entry (not yet shown).
+ *
+ * Effects are calculated by worker threads, and then shown in order
+ * (output formatter, statistics, etc.) by a single thread.
+ *
+ * @author pcingola
+ */
+public class VcfEntryEffects {
+
+	VcfEntry vcfEntry;
+	boolean filteredOut; // Entry does not match filter intervals
+	List<Variant> variants; // Variants in the same order they have to be shown (includes non-variant sites and cancer 'VariantNonRef')
+	List<VariantEffects> variantEffects; // Effects for each variant (null if it was not annotated)
+	Throwable error;
+
+	public VcfEntryEffects(VcfEntry vcfEntry) {
+		this.vcfEntry = vcfEntry;
+		variants = new ArrayList<>();
+		variantEffects = new ArrayList<>();
+	}
+
+	public void add(Variant variant, VariantEffects variantEffs) {
+		variants.add(variant);
+		variantEffects.add(variantEffs);
+	}
+
+	public Throwable getError() {
+		return error;
+	}
+
+	public Variant getVariant(int idx) {
+		return variants.get(idx);
+	}
+
+	public VariantEffects getVariantEffects(int idx) {
+		return variantEffects.get(idx);
+	}
+
+	public VcfEntry getVcfEntry() {
+		return vcfEntry;
+	}
+
+	/**
+	 * Is this a 'cancer' comparison (Somatic vs Germline)?
+	 */
+	public boolean isCancer(int idx) {
+		return variants.get(idx) instanceof VariantNonRef;
+	}
+
+	public boolean isFilteredOut() {
+		return filteredOut;
+	}
+
+	public void setError(Throwable error) {
+		this.error = error;
+	}
+
+	public void setFilteredOut(boolean filteredOut) {
+		this.filteredOut = filteredOut;
+	}
+
+	public int size() {
+		return variants.size();
+	}
+
+}
@@ -8,8 +8,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.snpeff.binseq.GenomicSequencesMapped;
 import org.snpeff.fileIterator.FastaFileIterator;
+import org.snpeff.fileIterator.FastaIndexedFile;
 import org.snpeff.interval.Cds;
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Exon;
@@ -43,8 +51,9 @@ public abstract class SnpEffPredictorFactory {
 	boolean readSequences = true; // Do not read sequences from GFF file (this is only used for debugging)
 	boolean createRandSequences = false; // If sequences are not read frmo a file, create random sequences
 	boolean frameCorrection;
-	boolean storeSequences = false; // Store full gene sequences (in separate 'sequence.chr*.bin' files)
+	boolean storeSequences = false; // Store full gene sequences (in separate 'sequence.chr*.bin' files) and genome wide memory mapped sequences ('sequence.mmap')
 	int lineNum;
+	int numThreads = 1; // Number of threads used to process chromosomes (indexed FASTA files and frame correction)
 	int inOffset; // This amount is subtracted to all position coordinates
 	int totalSeqsAdded = 0, totalSeqsIgnored = 0; // Number of sequences added and ignored
 	String fileName;
@@ -53,6 +62,7 @@ public abstract class SnpEffPredictorFactory {
 	Config config;
 	Genome genome;
 	SnpEffectPredictor snpEffectPredictor;
+	GenomicSequencesMapped sequencesMapped; // Genome wide sequences, written while reading chromosome sequences
 	FrameType frameType;
 	Set<String> chromoNamesReference; // Chromosome names used in reference sequence file (e.g. FASTA)
 	Map<String, Integer> exonsByChromo;
@@ -153,74 +163,106 @@ public abstract class SnpEffPredictorFactory {
 		chromoLen(chr, chrSeq.length());
 
 		// Add sequences for each gene
-		int seqsAdded = 0, seqsIgnored = 0;
+		if (storeSequences) addGenomicSequences(chr, chrSeq);
 
-		if (storeSequences) {
-			if (verbose) System.out.print("\t\tAdding genomic sequences to genes: ");
-			int count = genome.getGenomicSequences().addGeneSequences(chr, chrSeq);
-			if (verbose) System.out.println("\tDone (" + count + " sequences added).");
-		}
+		// Find and add sequences for all exons in this chromosome
+		List<Gene> genes = new ArrayList<>();
+		for (Gene gene : genome.getGenes())
+			if (gene.getChromosomeName().equalsIgnoreCase(chr)) genes.add(gene); // Same chromosome? => go on
 
-		if (verbose) System.out.print("\t\tAdding genomic sequences to exons: ");
+		addExonSequences(chr, chrSeq.length(), chrSeq, null, genes);
+	}
 
-		// Find and add sequences for all exons in this chromosome
-		for (Gene gene : genome.getGenes()) {
-			if (gene.getChromosomeName().equalsIgnoreCase(chr)) { // Same chromosome? => go on
-				for (Transcript tr : gene) {
-					for (Exon exon : tr) {
-						int ssStart = exon.getStart();
-						int ssEnd = exon.getEnd() + 1; // String.substring does not include the last character in the interval (so we have to add 1)
-
-						String seq = null;
-						if ((ssStart >= 0) && (ssEnd <= chrSeq.length())) {
-							// Regular coordinates
-							try {
-								seq = chrSeq.substring(ssStart, ssEnd).toUpperCase();
-							} catch (Throwable t) {
-								t.printStackTrace();
-								throw new RuntimeException("Error trying to add sequence to exon:\n\tChromosome sequence length: " + chrSeq.length() + "\n\tExon: " + exon);
-							}
-						} else if ((ssStart < 0) && (ssEnd > 0)) {
-							// Negative start coordinates? This is probably a circular genome
-							// Convert to 2 intervals:
-							//     i) Interval before zero: This gets mapped to the end of the chromosome
-							//     ii) Interval after zero: This are "normal" coordinates
-							// Then we concatenate both sequences
-							int len = chrSeq.length();
-							ssStart += len;
-							seq = chrSeq.substring(ssStart, len) + chrSeq.substring(0, ssEnd + 1);
-						} else if ((ssStart >= 0) && (ssEnd >= chrSeq.length())) {
-							// Coordinates outside chromosome length? This is probably a circular genome
-							// Convert to 2 intervals:
-							//     i) Interval before chr.end: This are "normal" coordinates
-							//     ii) Interval after chr.end: This gets mapped to the beginning of the chromosome
-							// Then we concatenate both sequences
-							int len = chrSeq.length();
-							ssEnd -= len;
-							seq = chrSeq.substring(ssStart, len) + chrSeq.substring(0, ssEnd + 1);
-						} else {
-							warning("Ignoring exon outside chromosome range (chromo length: " + chrSeq.length() + "). Exon: " + exon);
-							seqsIgnored++;
+	/**
+	 * Add sequences to all exons in chromosome 'chr'.
+	 * Sequences are either extracted from the chromosome's sequence 'chrSeq' or
+	 * read from an indexed FASTA file 'fasta' (if 'chrSeq' is null)
+	 */
+	void addExonSequences(String chr, int chrLen, String chrSeq, FastaIndexedFile fasta, List<Gene> genes) {
+		int seqsAdded = 0, seqsIgnored = 0;
+
+		for (Gene gene : genes) {
+			for (Transcript tr : gene) {
+				for (Exon exon : tr) {
+					int ssStart = exon.getStart();
+					int ssEnd = exon.getEnd() + 1; // String.substring does not include the last character in the interval (so we have to add 1)
+
+					String seq = null;
+					if ((ssStart >= 0) && (ssEnd <= chrLen)) {
+						// Regular coordinates
+						try {
+							seq = sequence(chr, chrSeq, fasta, ssStart, ssEnd).toUpperCase();
+						} catch (Throwable t) {
+							t.printStackTrace();
+							throw new RuntimeException("Error trying to add sequence to exon:\n\tChromosome sequence length: " + chrLen + "\n\tExon: " + exon);
 						}
+					} else if ((ssStart < 0) && (ssEnd > 0)) {
+						// Negative start coordinates? This is probably a circular genome
+						// Convert to 2 intervals:
+						//     i) Interval before zero: This gets mapped to the end of the chromosome
+						//     ii) Interval after zero: This are "normal" coordinates
+						// Then we concatenate both sequences
+						ssStart += chrLen;
+						seq = sequence(chr, chrSeq, fasta, ssStart, chrLen) + sequence(chr, chrSeq, fasta, 0, ssEnd + 1);
+					} else if ((ssStart >= 0) && (ssEnd >= chrLen)) {
+						// Coordinates outside chromosome length? This is probably a circular genome
+						// Convert to 2 intervals:
+						//     i) Interval before chr.end: This are "normal" coordinates
+						//     ii) Interval after chr.end: This gets mapped to the beginning of the chromosome
+						// Then we concatenate both sequences
+						ssEnd -= chrLen;
+						seq = sequence(chr, chrSeq, fasta, ssStart, chrLen) + sequence(chr, chrSeq, fasta, 0, ssEnd + 1);
+					} else {
+						warning("Ignoring exon outside chromosome range (chromo length: " + chrLen + "). Exon: " + exon);
+						seqsIgnored++;
+					}
 
-						if (seq != null) {
-							// Sanity check
-							if (seq.length() != exon.size()) warning("Exon sequence length does not match exon.size()\n" + exon);
+					if (seq != null) {
+						// Sanity check
+						if (seq.length() != exon.size()) warning("Exon sequence length does not match exon.size()\n" + exon);
 
-							// Reverse strand? => reverse complement of the sequence
-							if (exon.isStrandMinus()) seq = GprSeq.reverseWc(seq);
-							exon.setSequence(seq);
-							seqsAdded++;
+						// Reverse strand? => reverse complement of the sequence
+						if (exon.isStrandMinus()) seq = GprSeq.reverseWc(seq);
+						exon.setSequence(seq);
+						seqsAdded++;
 
-						}
 					}
 				}
 			}
 		}
 
-		if (verbose) System.out.println("\tDone (" + seqsAdded + " sequences added, " + seqsIgnored + " ignored).");
-		totalSeqsAdded += seqsAdded;
-		totalSeqsIgnored += seqsIgnored;
+		if (verbose) System.out.println("\t\tAdding genomic sequences to exons, chromosome '" + chr + "': Done (" + seqsAdded + " sequences added, " + seqsIgnored + " ignored).");
+		countSequences(seqsAdded, seqsIgnored);
+	}
+
+	/**
+	 * Add gene sequences and chromosome's sequence to memory mapped sequence file
+	 */
+	void addGenomicSequences(String chr, String chrSeq) {
+		int count = genome.getGenomicSequences().addGeneSequences(chr, chrSeq);
+		if (verbose) System.out.println("\t\tAdding genomic sequences to genes, chromosome '" + chr + "': Done (" + count + " sequences added).");
+
+		// Add chromosome to memory mapped sequence file
+		// Note: Chromosomes are added as soon as they are available (possibly from several threads)
+		synchronized (this) {
+			if (sequencesMapped == null) {
+				sequencesMapped = new GenomicSequencesMapped();
+				sequencesMapped.create(config.getFileNameSequenceMapped());
+			}
+			sequencesMapped.add(chr, chrSeq);
+		}
+	}
+
+	/**
+	 * Add sequences for one chromosome in an indexed FASTA file.
+	 * Only exon sequences are read, unless we need to store the whole chromosome
+	 */
+	void addSequences(FastaIndexedFile fasta, String chr, List<Gene> genes) {
+		if (storeSequences) {
+			String chrSeq = fasta.getSequence(chr);
+			addGenomicSequences(chr, chrSeq);
+			addExonSequences(chr, chrSeq.length(), chrSeq, null, genes);
+		} else addExonSequences(chr, fasta.getLength(chr), null, fasta, genes);
 	}
 
 	/**
@@ -375,6 +417,14 @@ public abstract class SnpEffPredictorFactory {
 		}
 	}
 
+	/**
+	 * Update total number of sequences added and ignored
+	 */
+	synchronized void countSequences(int seqsAdded, int seqsIgnored) {
+		totalSeqsAdded += seqsAdded;
+		totalSeqsIgnored += seqsIgnored;
+	}
+
 	public abstract SnpEffectPredictor create();
 
 	/**
@@ -523,6 +573,13 @@ public abstract class SnpEffPredictorFactory {
 	 * Finish up procedure to ensure consistency
 	 */
 	void finishUp() {
+		// All sequences have been read: Close memory mapped sequence file
+		if (sequencesMapped != null) {
+			if (verbose) System.out.println("\tSaving memory mapped sequences to file '" + sequencesMapped.getFileName() + "'");
+			sequencesMapped.close();
+			sequencesMapped = null;
+		}
+
 		// Adjust
 		adjustTranscripts(); // Adjust transcripts: recalculate start, end, strand, etc.
 		adjustGenes(); // Adjust genes: recalculate start, end, strand, etc.
@@ -582,24 +639,51 @@ public abstract class SnpEffPredictorFactory {
 		if ((countByFrameTotal >= MIN_TOTAL_FRAME_COUNT) && (countByFrameNonZero <= 0)) System.err.println("WARNING: All frames are zero! This seems rather odd, please check that 'frame' information in your 'genes' file is accurate.");
 
 		//---
-		// Perform exon frame adjustment
+		// Perform exon frame adjustment (transcripts are independent, so chromosomes are processed in parallel)
 		//---
-		int i = 1;
-		for (Gene gene : genome.getGenes())
-			for (Transcript tr : gene) {
-				boolean corrected = tr.frameCorrection();
-
-				if (corrected) {
-					if (debug) System.err.println("\tTranscript " + tr.getId() + " corrected using frame (exons: " + tr.numChilds() + ").");
-					else if (verbose) Gpr.showMark(i++, 1);
-
+		final AtomicInteger countCorrected = new AtomicInteger();
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (final List<Gene> genes : genesByChromo().values()) {
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					for (Gene gene : genes)
+						for (Transcript tr : gene) {
+							boolean corrected = tr.frameCorrection();
+
+							if (corrected) {
+								countCorrected.incrementAndGet();
+								if (debug) System.err.println("\tTranscript " + tr.getId() + " corrected using frame (exons: " + tr.numChilds() + ").");
+							}
+						}
+					return null;
 				}
-			}
+			});
+		}
+		parallel(tasks);
 
-		if (verbose) System.out.print("");
+		if (verbose) System.out.println("\t\tTranscripts corrected: " + countCorrected);
 
 	}
 
+	/**
+	 * Group genes by chromosome (chromosome names are lower case)
+	 */
+	Map<String, List<Gene>> genesByChromo() {
+		Map<String, List<Gene>> genesByChromo = new HashMap<>();
+		for (Gene gene : genome.getGenes()) {
+			String chr = gene.getChromosomeName().toLowerCase();
+			List<Gene> genes = genesByChromo.get(chr);
+			if (genes == null) {
+				genes = new ArrayList<>();
+				genesByChromo.put(chr, genes);
+			}
+			genes.add(gene);
+		}
+		return genesByChromo;
+	}
+
 	/**
 	 * Get a chromosome. If it doesn't exist, create it
 	 */
@@ -633,6 +717,39 @@ public abstract class SnpEffPredictorFactory {
 		if (verbose) Gpr.showMark(count, MARK, "\t\t");
 	}
 
+	/**
+	 * Run all tasks using up to 'numThreads' threads
+	 */
+	void parallel(List<Callable<Void>> tasks) {
+		// Single threaded
+		if (numThreads <= 1 || tasks.size() <= 1) {
+			for (Callable<Void> task : tasks) {
+				try {
+					task.call();
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return;
+		}
+
+		// Multi-threaded
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, tasks.size()));
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks))
+				future.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	/**
 	 * Parse a string as a 'position'.
 	 * Note: It subtracts 'inOffset' so that all coordinates are zero-based
@@ -671,7 +788,10 @@ public abstract class SnpEffPredictorFactory {
 		// Try all files in the list until one is available
 		for (String file : files) {
 
-			if (Gpr.canRead(file)) {
+			if (FastaIndexedFile.isIndexed(file)) {
+				readExonSequencesIndexed(file);
+				return;
+			} else if (Gpr.canRead(file)) {
 				if (verbose) System.out.println("\tReading FASTA file: '" + file + "'");
 
 				// Read fasta sequence
@@ -689,6 +809,38 @@ public abstract class SnpEffPredictorFactory {
 		throw new RuntimeException("Cannot find reference sequence.");
 	}
 
+	/**
+	 * Read exon sequences from an indexed FASTA file: Only the regions needed
+	 * are read and chromosomes are processed in parallel
+	 */
+	protected void readExonSequencesIndexed(String file) {
+		if (verbose) System.out.println("\tReading indexed FASTA file: '" + file + "', using " + numThreads + " threads");
+		final FastaIndexedFile fasta = new FastaIndexedFile(file);
+
+		// Create all chromosomes before starting (genome is not thread safe)
+		Map<String, List<Gene>> genesByChromo = genesByChromo();
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (final String chr : fasta.getNames()) {
+			chromoNamesReference.add(chr);
+			chromoLen(chr, fasta.getLength(chr));
+
+			List<Gene> genesChr = genesByChromo.get(chr.toLowerCase());
+			final List<Gene> genes = (genesChr != null ? genesChr : new ArrayList<Gene>());
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					addSequences(fasta, chr, genes);
+					return null;
+				}
+			});
+		}
+
+		// Add sequences
+		parallel(tasks);
+		fasta.close();
+	}
+
 	/**
 	 * Remove empty chromosomes
 	 */
@@ -714,6 +866,15 @@ public abstract class SnpEffPredictorFactory {
 		}
 	}
 
+	/**
+	 * Get a sequence, either from a chromosome's sequence or from an indexed FASTA file
+	 * Note: Coordinates are zero-based, 'end' is not included (same as String.substring)
+	 */
+	String sequence(String chr, String chrSeq, FastaIndexedFile fasta, int start, int end) {
+		if (chrSeq != null) return chrSeq.substring(start, end);
+		return fasta.getSequence(chr, start, end);
+	}
+
 	public void setCreateRandSequences(boolean createRandSequences) {
 		this.createRandSequences = createRandSequences;
 	}
@@ -730,6 +891,10 @@ public abstract class SnpEffPredictorFactory {
 		this.fileName = fileName;
 	}
 
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
 	public void setRandom(Random random) {
 		this.random = random;
 	}
@@ -13,6 +13,7 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesApplyIns;
 import org.snpeff.snpEffect.testCases.unity.TestCasesApplyMixed;
 import org.snpeff.snpEffect.testCases.unity.TestCasesApplyMnp;
 import org.snpeff.snpEffect.testCases.unity.TestCasesApplySnp;
+import org.snpeff.snpEffect.testCases.unity.TestCasesBgzip;
 import org.snpeff.snpEffect.testCases.unity.TestCasesBinomial;
 import org.snpeff.snpEffect.testCases.unity.TestCasesBuild;
 import org.snpeff.snpEffect.testCases.unity.TestCasesCds;
@@ -31,7 +32,9 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesEffectCollapse2;
 import org.snpeff.snpEffect.testCases.unity.TestCasesFasta;
 import org.snpeff.snpEffect.testCases.unity.TestCasesFileIndexChrPos;
 import org.snpeff.snpEffect.testCases.unity.TestCasesFisherExactTest;
+import org.snpeff.snpEffect.testCases.unity.TestCasesFrozenGenes;
 import org.snpeff.snpEffect.testCases.unity.TestCasesGenePvalueList;
+import org.snpeff.snpEffect.testCases.unity.TestCasesGenomeConfig;
 import org.snpeff.snpEffect.testCases.unity.TestCasesGenomicSequences;
 import org.snpeff.snpEffect.testCases.unity.TestCasesGenotypeVector;
 import org.snpeff.snpEffect.testCases.unity.TestCasesHgvs;
@@ -41,28 +44,37 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesHgvsProtDup;
 import org.snpeff.snpEffect.testCases.unity.TestCasesHypergeometric;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIns;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntStats;
+import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalSweep;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalTree;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalTreeArray;
+import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalTreeFlat;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalTreeOri;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalVariant;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervals;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIubString;
 import org.snpeff.snpEffect.testCases.unity.TestCasesJaspar;
+import org.snpeff.snpEffect.testCases.unity.TestCasesMarkerSerializerMapped;
 import org.snpeff.snpEffect.testCases.unity.TestCasesMarkerUtils;
 import org.snpeff.snpEffect.testCases.unity.TestCasesMnps;
 import org.snpeff.snpEffect.testCases.unity.TestCasesNmers;
+import org.snpeff.snpEffect.testCases.unity.TestCasesOrderedPipeline;
 import org.snpeff.snpEffect.testCases.unity.TestCasesOverlap;
 import org.snpeff.snpEffect.testCases.unity.TestCasesReactome;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSeekableReader;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSequenceIndexer;
+import org.snpeff.snpEffect.testCases.unity.TestCasesServer;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSnps;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSpliceRegion;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSpliceSite;
+import org.snpeff.snpEffect.testCases.unity.TestCasesStatsMerge;
 import org.snpeff.snpEffect.testCases.unity.TestCasesStructuralDel;
 import org.snpeff.snpEffect.testCases.unity.TestCasesStructuralDup;
 import org.snpeff.snpEffect.testCases.unity.TestCasesStructuralInv;
 import org.snpeff.snpEffect.testCases.unity.TestCasesStructuralTranslocations;
+import org.snpeff.snpEffect.testCases.unity.TestCasesTabixIntervals;
+import org.snpeff.snpEffect.testCases.unity.TestCasesTsvOutput;
 import org.snpeff.snpEffect.testCases.unity.TestCasesVariantDecompose;
+import org.snpeff.snpEffect.testCases.unity.TestCasesVariantEffectsCache;
 import org.snpeff.snpEffect.testCases.unity.TestCasesVariantRealignment;
 import org.snpeff.snpEffect.testCases.unity.TestCasesVcf;
 
@@ -79,6 +91,7 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesVcf;
 		TestCasesApplyMixed.class, //
 		TestCasesApplyMnp.class, //
 		TestCasesApplySnp.class, //
+		TestCasesBgzip.class, //
 		TestCasesBinomial.class, //
 		TestCasesBuild.class, //
 		TestCasesChiSquare.class, //
@@ -97,12 +110,16 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesVcf;
 		TestCasesFasta.class, //
 		TestCasesFileIndexChrPos.class, //
 		TestCasesFisherExactTest.class, //
+		TestCasesFrozenGenes.class, //
 		TestCasesGenePvalueList.class, //
+		TestCasesGenomeConfig.class, //
 		TestCasesGenomicSequences.class, //
 		TestCasesGenotypeVector.class, //
+		TestCasesIntervalSweep.class, //
 		TestCasesIntervalTree.class, //
 		TestCasesIntervalTreeOri.class, //
 		TestCasesIntervalTreeArray.class, //
+		TestCasesIntervalTreeFlat.class, //
 		TestCasesIubString.class, //
 		TestCasesHgvs.class, //
 		TestCasesHgvsExon.class, //
@@ -116,22 +133,29 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesVcf;
 		TestCasesIns.class, //
 		TestCasesIntStats.class, //
 		TestCasesJaspar.class, //
+		TestCasesMarkerSerializerMapped.class, //
 		TestCasesMarkerUtils.class, //
 		TestCasesMnps.class, //
 		TestCasesNmers.class, //
+		TestCasesOrderedPipeline.class, //
 		TestCasesOverlap.class, //
 		TestCasesProteinInteraction.class, //
 		TestCasesReactome.class, //
 		TestCasesSeekableReader.class, //
 		TestCasesSequenceIndexer.class, //
+		TestCasesServer.class, //
 		TestCasesSnps.class, //
 		TestCasesSpliceSite.class, //
 		TestCasesSpliceRegion.class, //
+		TestCasesStatsMerge.class, //
 		TestCasesStructuralDel.class, //
 		TestCasesStructuralDup.class, //
 		TestCasesStructuralInv.class, //
 		TestCasesStructuralTranslocations.class, //
+		TestCasesTabixIntervals.class, //
+		TestCasesTsvOutput.class, //
 		TestCasesVariantDecompose.class, //
+		TestCasesVariantEffectsCache.class, //
 		TestCasesVariantRealignment.class, //
 		TestCasesVcf.class //
 
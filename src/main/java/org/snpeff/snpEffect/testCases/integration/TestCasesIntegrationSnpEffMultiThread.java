@@ -1,5 +1,10 @@
 package org.snpeff.snpEffect.testCases.integration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
 import org.junit.Test;
 import org.snpeff.SnpEff;
 import org.snpeff.util.Gpr;
@@ -13,6 +18,23 @@ import org.snpeff.util.Gpr;
  */
 public class TestCasesIntegrationSnpEffMultiThread extends IntegrationTest {
 
+	/**
+	 * Run the same command in single and multi-threaded mode: Outputs should be the same
+	 */
+	void compareSingleMulti(String args[]) {
+		String outSingle = removeVcfHeader(command(new SnpEff(args)));
+
+		// Add '-t' after command name
+		List<String> argsMulti = new ArrayList<>(Arrays.asList(args));
+		argsMulti.add(1, "-t");
+		String outMulti = removeVcfHeader(command(new SnpEff(argsMulti.toArray(new String[0]))));
+
+		if (verbose) System.err.println(outMulti);
+		Assert.assertFalse("Empty output", outSingle.isEmpty());
+		if (!outSingle.equals(outMulti)) System.err.println(showDiff(outSingle, outMulti));
+		Assert.assertEquals(outSingle, outMulti);
+	}
+
 	@Test
 	public void test_01_multi_thread() {
 		Gpr.debug("Test");
@@ -21,4 +43,34 @@ public class TestCasesIntegrationSnpEffMultiThread extends IntegrationTest {
 		command(new SnpEff(args), expectedOutputFile);
 	}
 
+	/**
+	 * Multi-threaded mode using non-VCF output format
+	 */
+	@Test
+	public void test_02_multi_thread_bed() {
+		Gpr.debug("Test");
+		String args[] = { "eff", "-o", "bed", "-noStats", "-noLog", "testHg3763Chr1", "tests/test.chr1.1line.vcf" };
+		compareSingleMulti(args);
+	}
+
+	/**
+	 * Multi-threaded mode creating statistics
+	 */
+	@Test
+	public void test_03_multi_thread_stats() {
+		Gpr.debug("Test");
+		String args[] = { "eff", "-noLog", "-stats", "/tmp/snpEff_summary_multi_thread.html", "testHg3763Chr1", "tests/test.chr1.1line.vcf" };
+		compareSingleMulti(args);
+	}
+
+	/**
+	 * Multi-threaded mode using cancer comparisons
+	 */
+	@Test
+	public void test_04_multi_thread_cancer() {
+		Gpr.debug("Test");
+		String args[] = { "eff", "-noStats", "-noLog", "-cancer", "-cancerSamples", "tests/test_cancer_concurrent_modification.txt", "testHg3775Chr1", "tests/test_cancer_concurrent_modification.vcf" };
+		compareSingleMulti(args);
+	}
+
 }
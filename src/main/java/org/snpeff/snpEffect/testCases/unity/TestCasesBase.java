@@ -46,6 +46,7 @@ public class TestCasesBase {
 	protected boolean onlyPlusStrand;
 	protected boolean onlyMinusStrand;
 	protected boolean shiftHgvs; // Do or do not shift variants according to HGVS notation (for test cases that were created before the feature was implemented)
+	protected boolean freeze; // Freeze genes when building the forest
 
 	protected int numGenes = 1;
 	protected int maxGeneLen;
@@ -213,6 +214,7 @@ public class TestCasesBase {
 		maxExons = 5;
 		minExons = 1;
 		shiftHgvs = false;
+		freeze = false;
 
 		initRand();
 	}
@@ -273,6 +275,7 @@ public class TestCasesBase {
 		chromoBases = chromoSequence.toCharArray();
 
 		// Build forest
+		snpEffectPredictor.setFreeze(freeze);
 		snpEffectPredictor.buildForest();
 
 		chromosome = sepf.getChromo();
@@ -0,0 +1,376 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.snpeff.fileIterator.TabixRegionsReader;
+import org.snpeff.fileIterator.TabixRegionsReader.Region;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+import net.sf.samtools.tabix.BgzfInputStream;
+import net.sf.samtools.tabix.BgzfOutputStream;
+import net.sf.samtools.tabix.TabixIndexer;
+import net.sf.samtools.tabix.TabixIterator;
+import net.sf.samtools.tabix.TabixReader;
+import net.sf.samtools.util.BlockCompressedInputStream;
+
+/**
+ * Test cases for BGZF compressed output and tabix index creation
+ *
+ * @author pcingola
+ */
+public class TestCasesBgzip {
+
+	public static final int NUM_LINES = 20 * 1000;
+	public static final int NUM_QUERIES = 200;
+
+	boolean verbose = false;
+	Random rand = new Random(20160101);
+	List<String> lines;
+
+	/**
+	 * Query using brute force (i.e. check all lines)
+	 */
+	String bruteForceQuery(String chr, int start, int end) {
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			if (line.startsWith("#")) continue;
+
+			String fields[] = line.split("\t");
+			int lineBeg = Gpr.parseIntSafe(fields[1]) - 1;
+			int lineEnd = lineBeg + fields[3].length();
+			if (fields[7].startsWith("END=")) lineEnd = Gpr.parseIntSafe(fields[7].split(";")[0].substring(4));
+
+			if (fields[0].equals(chr) && (lineBeg < end) && (lineEnd > start - 1)) sb.append(line + "\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * BGZF file can be decompressed, tabix queries return the same results as brute force
+	 */
+	void checkFile(String fileName) throws Exception {
+		// Read the whole file
+		StringBuilder expected = new StringBuilder();
+		for (String line : lines)
+			expected.append(line + "\n");
+
+		StringBuilder sb = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new BlockCompressedInputStream(new File(fileName))));
+		for (String line = reader.readLine(); line != null; line = reader.readLine())
+			sb.append(line + "\n");
+		reader.close();
+		Assert.assertEquals(expected.toString(), sb.toString());
+
+		// Random queries
+		TabixReader tabixReader = new TabixReader(fileName);
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			String chr = (i % 3 == 0 ? "1" : (i % 3 == 1 ? "2" : "X"));
+			int start = 1 + rand.nextInt(NUM_LINES / 3 * 500);
+			int end = start + rand.nextInt(10 * 1000);
+			String query = chr + ":" + start + "-" + end;
+
+			StringBuilder result = new StringBuilder();
+			TabixIterator tabixIterator = tabixReader.query(query);
+			if (tabixIterator != null) {
+				for (String line : tabixIterator)
+					result.append(line + "\n");
+			}
+
+			if (verbose) Gpr.debug("Query: " + query + "\n" + result);
+			Assert.assertEquals("Query '" + query + "'", bruteForceQuery(chr, start, end), result.toString());
+		}
+		tabixReader.close();
+	}
+
+	/**
+	 * Read file and compare to 'lines'
+	 */
+	void checkRead(BufferedReader reader) throws Exception {
+		StringBuilder expected = new StringBuilder();
+		for (String line : lines)
+			expected.append(line + "\n");
+
+		StringBuilder sb = new StringBuilder();
+		for (String line = reader.readLine(); line != null; line = reader.readLine())
+			sb.append(line + "\n");
+		reader.close();
+
+		Assert.assertEquals(expected.toString(), sb.toString());
+	}
+
+	/**
+	 * Read all lines from a regions reader: Header lines first, then data lines
+	 */
+	String checkRegions(String fileName, List<Region> regions) throws Exception {
+		StringBuilder header = new StringBuilder();
+		StringBuilder sb = new StringBuilder();
+		TabixRegionsReader reader = new TabixRegionsReader(fileName, regions);
+		for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+			if (line.startsWith("#")) {
+				Assert.assertEquals("Header line after data lines", 0, sb.length());
+				header.append(line + "\n");
+			} else sb.append(line + "\n");
+		}
+		reader.close();
+
+		Assert.assertEquals(headerLines(), header.toString());
+		return sb.toString();
+	}
+
+	/**
+	 * Create a sorted VCF file (several chromosomes)
+	 */
+	List<String> createVcfLines() {
+		return createVcfLines("1", "2", "X");
+	}
+
+	/**
+	 * Create a sorted VCF file using these chromosome names
+	 */
+	List<String> createVcfLines(String... chrs) {
+		List<String> lines = new ArrayList<>();
+		lines.add("##fileformat=VCFv4.1");
+		lines.add("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO");
+
+		for (String chr : chrs) {
+			int pos = 1;
+			for (int i = 0; i < NUM_LINES / 3; i++) {
+				pos += rand.nextInt(1000);
+
+				// Some large variants
+				String ref = "A", info = "AC=" + i;
+				if (rand.nextInt(100) == 0) info = "END=" + (pos + rand.nextInt(100 * 1000)) + ";" + info;
+				else if (rand.nextInt(10) == 0) ref = "ACGTACGTACGT";
+
+				lines.add(chr + "\t" + pos + "\t.\t" + ref + "\tC\t.\tPASS\t" + info);
+			}
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Header lines
+	 */
+	String headerLines() {
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines)
+			if (line.startsWith("#")) sb.append(line + "\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Write lines to a BGZF file and create index
+	 */
+	String write(int numThreads) throws Exception {
+		File file = File.createTempFile("test_bgzip_", ".vcf.gz");
+		file.deleteOnExit();
+		String fileName = file.getCanonicalPath();
+		new File(fileName + TabixIndexer.TBI_EXT).deleteOnExit();
+
+		BgzfOutputStream out = new BgzfOutputStream(new FileOutputStream(fileName), numThreads);
+		TabixIndexer indexer = TabixIndexer.vcf();
+		for (String line : lines) {
+			long offsetStart = out.getBlockOffset();
+			out.write((line + "\n").getBytes());
+			indexer.add(line, offsetStart, out.getBlockOffset());
+		}
+		out.close();
+
+		Assert.assertTrue(indexer.isOk());
+		indexer.write(fileName + TabixIndexer.TBI_EXT, out);
+		return fileName;
+	}
+
+	@Test
+	public void test_01_single_thread() throws Exception {
+		Gpr.debug("Test");
+		lines = createVcfLines();
+		checkFile(write(1));
+	}
+
+	@Test
+	public void test_02_multi_thread() throws Exception {
+		Gpr.debug("Test");
+		lines = createVcfLines();
+		checkFile(write(4));
+	}
+
+	/**
+	 * Unsorted file: Index cannot be created
+	 */
+	@Test
+	public void test_03_unsorted() throws Exception {
+		Gpr.debug("Test");
+		TabixIndexer indexer = TabixIndexer.vcf();
+		indexer.add("1\t200\t.\tA\tC\t.\t.\t.", 0, 10);
+		indexer.add("2\t100\t.\tA\tC\t.\t.\t.", 10, 20);
+		Assert.assertTrue(indexer.isOk());
+
+		indexer.add("1\t300\t.\tA\tC\t.\t.\t.", 20, 30);
+		Assert.assertFalse(indexer.isOk());
+		if (verbose) Gpr.debug(indexer.getError());
+	}
+
+	/**
+	 * Read BGZF file, decompressing blocks in parallel
+	 */
+	@Test
+	public void test_04_read_bgzf() throws Exception {
+		Gpr.debug("Test");
+		lines = createVcfLines();
+		String fileName = write(4);
+
+		Assert.assertTrue(BgzfInputStream.isBgzf(new BufferedInputStream(new FileInputStream(fileName))));
+		checkRead(new BufferedReader(new InputStreamReader(new BgzfInputStream(new FileInputStream(fileName), 1))));
+		checkRead(new BufferedReader(new InputStreamReader(new BgzfInputStream(new FileInputStream(fileName), 4))));
+		checkRead(Gpr.reader(fileName));
+	}
+
+	/**
+	 * Plain gzip files (several gzip members) are not BGZF
+	 */
+	@Test
+	public void test_05_read_gzip() throws Exception {
+		Gpr.debug("Test");
+		lines = createVcfLines();
+
+		File file = File.createTempFile("test_gzip_", ".vcf.gz");
+		file.deleteOnExit();
+		String fileName = file.getCanonicalPath();
+
+		// Write two gzip members
+		FileOutputStream fos = new FileOutputStream(fileName);
+		int half = lines.size() / 2;
+		for (int i = 0; i < 2; i++) {
+			GZIPOutputStream gz = new GZIPOutputStream(fos);
+			for (String line : lines.subList(i == 0 ? 0 : half, i == 0 ? half : lines.size()))
+				gz.write((line + "\n").getBytes());
+			gz.finish();
+		}
+		fos.close();
+
+		Assert.assertFalse(BgzfInputStream.isBgzf(new BufferedInputStream(new FileInputStream(fileName))));
+		checkRead(Gpr.reader(fileName));
+	}
+
+	/**
+	 * Shards: Each line is in exactly one shard (in the same order as the file)
+	 */
+	@Test
+	public void test_06_shards() throws Exception {
+		Gpr.debug("Test");
+		lines = createVcfLines();
+		String fileName = write(1);
+
+		StringBuilder expected = new StringBuilder();
+		for (String line : lines)
+			if (!line.startsWith("#")) expected.append(line + "\n");
+
+		TabixReader tabixReader = new TabixReader(fileName);
+		for (int numShards : new int[] { 1, 2, 7, 50 }) {
+			StringBuilder sb = new StringBuilder();
+			for (int shardNum = 1; shardNum <= numShards; shardNum++) {
+				List<Region> regions = TabixRegionsReader.shard(tabixReader, shardNum, numShards);
+				if (verbose) Gpr.debug("Shard " + shardNum + "/" + numShards + ": " + regions);
+				sb.append(checkRegions(fileName, regions));
+			}
+			Assert.assertEquals("Number of shards: " + numShards, expected.toString(), sb.toString());
+		}
+		tabixReader.close();
+	}
+
+	/**
+	 * Regions: Only lines starting within the regions are returned
+	 */
+	@Test
+	public void test_07_regions() throws Exception {
+		Gpr.debug("Test");
+		lines = createVcfLines();
+		String fileName = write(1);
+
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			String chr = (i % 3 == 0 ? "1" : (i % 3 == 1 ? "2" : "X"));
+			int start = 1 + rand.nextInt(NUM_LINES / 3 * 500);
+			int end = start + rand.nextInt(100 * 1000);
+
+			StringBuilder expected = new StringBuilder();
+			for (String line : lines) {
+				if (line.startsWith("#")) continue;
+				String fields[] = line.split("\t");
+				int pos = Gpr.parseIntSafe(fields[1]);
+				if (fields[0].equals(chr) && (start <= pos) && (pos <= end)) expected.append(line + "\n");
+			}
+
+			List<Region> regions = new ArrayList<>();
+			regions.add(Region.parse(chr + ":" + start + "-" + end));
+			regions.add(Region.parse("chrNotInFile:1-1000"));
+			Assert.assertEquals("Region '" + regions + "'", expected.toString(), checkRegions(fileName, regions));
+		}
+	}
+
+	/**
+	 * Shards and regions on chromosome names containing '-' and ':' (e.g. HLA alleles)
+	 */
+	@Test
+	public void test_08_regions_hyphenated_chr() throws Exception {
+		Gpr.debug("Test");
+		String chrHla = "HLA-A*01:01:01:01";
+		lines = createVcfLines("1", chrHla, "X");
+		String fileName = write(1);
+
+		// Parse regions
+		Region region = Region.parse(chrHla + ":100-2000");
+		Assert.assertEquals(chrHla, region.chr);
+		Assert.assertEquals(99, region.start);
+		Assert.assertEquals(2000, region.end);
+		Assert.assertEquals(chrHla + ":100-2000", region.toString());
+		Assert.assertEquals("X", Region.parse("X").chr);
+
+		for (String reg : new String[] { "1:abc", "1:10-", "1:0-10", "1:20-10", ":1-10" }) {
+			try {
+				Region.parse(reg);
+				Assert.fail("Region '" + reg + "' should not be parsed");
+			} catch (RuntimeException e) {
+				// OK, invalid region
+			}
+		}
+
+		// Shards
+		StringBuilder expected = new StringBuilder();
+		for (String line : lines)
+			if (!line.startsWith("#")) expected.append(line + "\n");
+
+		TabixReader tabixReader = new TabixReader(fileName);
+		StringBuilder sb = new StringBuilder();
+		int numShards = 5;
+		for (int shardNum = 1; shardNum <= numShards; shardNum++)
+			sb.append(checkRegions(fileName, TabixRegionsReader.shard(tabixReader, shardNum, numShards)));
+		tabixReader.close();
+		Assert.assertEquals(expected.toString(), sb.toString());
+
+		// Region
+		expected = new StringBuilder();
+		for (String line : lines) {
+			if (line.startsWith("#")) continue;
+			int pos = Gpr.parseIntSafe(line.split("\t")[1]);
+			if (line.startsWith(chrHla + "\t") && (100 <= pos) && (pos <= 100 * 1000)) expected.append(line + "\n");
+		}
+
+		List<Region> regions = new ArrayList<>();
+		regions.add(Region.parse(chrHla + ":100-100000"));
+		Assert.assertEquals(expected.toString(), checkRegions(fileName, regions));
+	}
+
+}
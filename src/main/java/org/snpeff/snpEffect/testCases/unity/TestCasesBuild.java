@@ -1,19 +1,56 @@
 package org.snpeff.snpEffect.testCases.unity;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
 import junit.framework.Assert;
 
 import org.junit.Test;
+import org.snpeff.fileIterator.FastaIndexedFile;
+import org.snpeff.interval.Exon;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Transcript;
 import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.SnpEffectPredictor;
 import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryGff3;
+import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryGtf22;
 import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
 
 /**
  * Test case
  */
 public class TestCasesBuild {
 
+	public static final int FASTA_LINE_LEN = 60;
+
 	boolean verbose = false;
 
+	/**
+	 * Build using a GTF file and a FASTA file
+	 */
+	SnpEffectPredictor build(String gtf, String fasta, int numThreads) {
+		Config config = new Config("testChromoNamesDoNotMatch", Config.DEFAULT_CONFIG_FILE);
+		SnpEffPredictorFactoryGtf22 factory = new SnpEffPredictorFactoryGtf22(config);
+		factory.setFileName(gtf);
+		factory.setFastaFile(fasta);
+		factory.setNumThreads(numThreads);
+		factory.setVerbose(verbose);
+		return factory.create();
+	}
+
+	/**
+	 * Create a temporary file
+	 */
+	String tmpFile(String ext) throws IOException {
+		File file = File.createTempFile("test_build_", ext);
+		file.deleteOnExit();
+		return file.getCanonicalPath();
+	}
+
 	@Test
 	public void test_01_chromoNamesDoNotMatch_Gff() {
 		Gpr.debug("Test");
@@ -87,4 +124,88 @@ public class TestCasesBuild {
 		throw new RuntimeException("Expected error not found!");
 	}
 
+	/**
+	 * Build using an indexed FASTA file (exon sequences are read
+	 * using random access, chromosomes are processed in parallel)
+	 */
+	@Test
+	public void test_03_indexedFasta() throws IOException {
+		Gpr.debug("Test");
+		Random random = new Random(20160901);
+
+		// Create random chromosomes, a FASTA file and its index
+		Map<String, String> chrSeqs = new HashMap<>();
+		StringBuilder fa = new StringBuilder();
+		StringBuilder fai = new StringBuilder();
+		StringBuilder gtf = new StringBuilder();
+		for (String chr : new String[] { "1", "2", "3", "X" }) {
+			String seq = GprSeq.randSequence(random, 20 * 1000 + random.nextInt(1000));
+			chrSeqs.put(chr, seq);
+
+			fa.append(">" + chr + " random sequence\n");
+			fai.append(chr + "\t" + seq.length() + "\t" + fa.length() + "\t" + FASTA_LINE_LEN + "\t" + (FASTA_LINE_LEN + 1) + "\n");
+			for (int i = 0; i < seq.length(); i += FASTA_LINE_LEN)
+				fa.append(seq.substring(i, Math.min(seq.length(), i + FASTA_LINE_LEN)) + "\n");
+
+			// Genes: One transcript, a few exons
+			int pos = 0;
+			for (int g = 0; g < 10; g++) {
+				String strand = random.nextBoolean() ? "+" : "-";
+				String attrs = "gene_id \"gene_" + chr + "_" + g + "\"; transcript_id \"tr_" + chr + "_" + g + "\";";
+				for (int ex = 0; ex < 3; ex++) {
+					pos += 10 + random.nextInt(500);
+					int end = pos + random.nextInt(300);
+					gtf.append(chr + "\ttest\texon\t" + (pos + 1) + "\t" + (end + 1) + "\t.\t" + strand + "\t.\t" + attrs + "\n");
+					pos = end;
+				}
+			}
+		}
+
+		String faFile = tmpFile(".fa");
+		String faIdxFile = tmpFile(".fa");
+		new File(faIdxFile + FastaIndexedFile.FAI_EXT).deleteOnExit();
+		String gtfFile = tmpFile(".gtf");
+		Gpr.toFile(faFile, fa);
+		Gpr.toFile(faIdxFile, fa);
+		Gpr.toFile(faIdxFile + FastaIndexedFile.FAI_EXT, fai);
+		Gpr.toFile(gtfFile, gtf);
+
+		// Random access
+		Assert.assertFalse(FastaIndexedFile.isIndexed(faFile));
+		Assert.assertTrue(FastaIndexedFile.isIndexed(faIdxFile));
+		FastaIndexedFile fasta = new FastaIndexedFile(faIdxFile);
+		for (int i = 0; i < 1000; i++) {
+			String chr = (i % 2 == 0 ? "1" : "X");
+			String seq = chrSeqs.get(chr);
+			int start = random.nextInt(seq.length());
+			int end = start + random.nextInt(Math.min(seq.length() - start, 500) + 1);
+			Assert.assertEquals(seq.substring(start, end), fasta.getSequence(chr, start, end));
+		}
+		Assert.assertEquals(chrSeqs.get("3"), fasta.getSequence("3"));
+		fasta.close();
+
+		// Build using plain and indexed FASTA files: Exon sequences must be the same
+		for (int numThreads : new int[] { 1, 3 }) {
+			SnpEffectPredictor sep = build(gtfFile, faIdxFile, numThreads);
+			SnpEffectPredictor sepPlain = build(gtfFile, faFile, 1);
+			Assert.assertEquals(40, sep.getGenome().getGenes().size());
+
+			for (Gene gene : sep.getGenome().getGenes()) {
+				Gene genePlain = sepPlain.getGenome().getGenes().get(gene.getId());
+				String chrSeq = chrSeqs.get(gene.getChromosomeName());
+				Assert.assertEquals(chrSeq.length(), gene.getChromosome().size());
+
+				for (Transcript tr : gene) {
+					Transcript trPlain = genePlain.get(tr.getId());
+					for (Exon exon : tr) {
+						String expected = chrSeq.substring(exon.getStart(), exon.getEnd() + 1).toUpperCase();
+						if (exon.isStrandMinus()) expected = GprSeq.reverseWc(expected);
+						Assert.assertEquals(expected, exon.getSequence().toUpperCase());
+						Assert.assertEquals(trPlain.get(exon.getId()).getSequence(), exon.getSequence());
+					}
+				}
+			}
+		}
+	}
+
 }
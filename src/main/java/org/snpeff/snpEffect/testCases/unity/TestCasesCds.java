@@ -1,5 +1,11 @@
 package org.snpeff.snpEffect.testCases.unity;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 import org.snpeff.interval.Exon;
 import org.snpeff.interval.Gene;
@@ -62,6 +68,94 @@ public class TestCasesCds extends TestCasesBase {
 		System.err.println("");
 	}
 
+	/**
+	 * Transcript sequences are the same after being evicted from the (bounded) cache
+	 */
+	@Test
+	public void test_cdsCache() {
+		Gpr.debug("Test");
+		int cacheSize = 3;
+		Transcript.setSequenceCacheSize(cacheSize);
+		try {
+			List<Transcript> trs = new ArrayList<>();
+			List<String> seqs = new ArrayList<>();
+			for (int iter = 0; iter < 100; iter++) {
+				initSnpEffPredictor();
+				trs.add(transcript);
+				seqs.add(transcript.cds() + "\t" + transcript.mRna() + "\t" + transcript.protein());
+				Assert.assertTrue(Transcript.getSequenceCache().size() <= cacheSize);
+			}
+
+			// Sequences are re-calculated
+			for (int i = 0; i < trs.size(); i++) {
+				Transcript tr = trs.get(i);
+				Assert.assertEquals(seqs.get(i), tr.cds() + "\t" + tr.mRna() + "\t" + tr.protein());
+				Assert.assertSame(tr.cds(), tr.cds()); // Decoded once while cached
+
+				String cds = tr.cds();
+				Assert.assertEquals(cds.length(), tr.cdsLength());
+				Assert.assertEquals(tr.mRna().length(), tr.mRnaLength());
+				for (int j = 0; j + 3 <= cds.length(); j += 3)
+					Assert.assertEquals(cds.substring(j, j + 3), tr.cdsBases(j, 3));
+			}
+			Assert.assertTrue(Transcript.getSequenceCache().size() <= cacheSize);
+		} finally {
+			Transcript.setSequenceCacheSize(Transcript.DEFAULT_SEQUENCE_CACHE_SIZE);
+		}
+	}
+
+	/**
+	 * Transcript sequences are consistent when many threads use a small cache
+	 */
+	@Test
+	public void test_cdsCache_multithreaded() throws InterruptedException {
+		Gpr.debug("Test");
+		final List<Transcript> trs = new ArrayList<>();
+		final List<String> seqs = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			initSnpEffPredictor();
+			trs.add(transcript);
+			seqs.add(transcript.cds() + "\t" + transcript.mRna() + "\t" + transcript.protein());
+		}
+
+		int cacheSize = 5;
+		Transcript.setSequenceCacheSize(cacheSize);
+		try {
+			final AtomicInteger errors = new AtomicInteger();
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				final Random r = new Random(t);
+				threads.add(new Thread() {
+					@Override
+					public void run() {
+						List<Integer> idxs = new ArrayList<>();
+						for (int i = 0; i < trs.size(); i++)
+							idxs.add(i);
+
+						for (int iter = 0; iter < 20; iter++) {
+							Collections.shuffle(idxs, r);
+							for (int i : idxs) {
+								Transcript tr = trs.get(i);
+								String seq = tr.cds() + "\t" + tr.mRna() + "\t" + tr.protein();
+								if (!seq.equals(seqs.get(i)) || tr.baseNumberCds2Pos().length != tr.cdsLength()) errors.incrementAndGet();
+							}
+						}
+					}
+				});
+			}
+
+			for (Thread t : threads)
+				t.start();
+			for (Thread t : threads)
+				t.join();
+
+			Assert.assertEquals(0, errors.get());
+			Assert.assertTrue(Transcript.getSequenceCache().size() <= cacheSize);
+		} finally {
+			Transcript.setSequenceCacheSize(Transcript.DEFAULT_SEQUENCE_CACHE_SIZE);
+		}
+	}
+
 	/**
 	 * Simple CDS start & CSD end case
 	 */
@@ -72,4 +72,44 @@ public class TestCasesCodonTable {
 		Assert.assertEquals("Vertebrate_Mitochondrial", chrMt.getCodonTable().getName());
 	}
 
+	/**
+	 * Translation using encoded codons and codons that cannot be encoded (partial codons, 'N' bases)
+	 */
+	@Test
+	public void test_03_translate() {
+		Gpr.debug("Test");
+		CodonTable codonTable = CodonTables.getInstance().getTable(CodonTables.STANDARD_TABLE_NAME);
+
+		// Encode / decode all codons
+		for (int code = 0; code < CodonTable.NUM_CODONS; code++) {
+			String codon = CodonTable.codonStr(code);
+			Assert.assertEquals(code, CodonTable.codonCode(codon, 0));
+			Assert.assertEquals(code, CodonTable.codonCode(codon.toUpperCase(), 0));
+		}
+		Assert.assertEquals(-1, CodonTable.codonCode("aNg", 0));
+		Assert.assertEquals(-1, CodonTable.codonCode("atg", 1));
+
+		// Translate
+		Assert.assertEquals("MA*", codonTable.aa("ATGgcaTAA"));
+		Assert.assertEquals("M??", codonTable.aa("atgNcca"));
+		Assert.assertEquals("LA", codonTable.aa("TTGgca"));
+		Assert.assertEquals("MA", codonTable.aa("TTGgca", true));
+		Assert.assertEquals("?", codonTable.aa("NNN", true));
+
+		// Start and stop codons
+		Assert.assertTrue(codonTable.isStart("atg"));
+		Assert.assertTrue(codonTable.isStart("gcaCTG"));
+		Assert.assertFalse(codonTable.isStart("gcaNNNa"));
+		Assert.assertTrue(codonTable.isStartFirst("TTGgca"));
+		Assert.assertFalse(codonTable.isStartFirst("gcaTTG"));
+		Assert.assertFalse(codonTable.isStartFirst("at"));
+		Assert.assertTrue(codonTable.isStop("gcaNNNtga"));
+		Assert.assertFalse(codonTable.isStop("gcaNNNtgg"));
+
+		// Degeneracy for codons that cannot be encoded
+		Assert.assertEquals(-1, codonTable.degenerate("GNT", 2));
+		Assert.assertEquals(-1, codonTable.degenerate("GG", 1));
+		Assert.assertEquals(-1, codonTable.degenerate("GGT", 3));
+	}
+
 }
@@ -2,7 +2,9 @@ package org.snpeff.snpEffect.testCases.unity;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.Test;
@@ -23,6 +25,52 @@ public class TestCasesFileIndexChrPos {
 
 	boolean verbose = false;
 	boolean debug = false;
+	List<String> lines;
+
+	/**
+	 * Create a sorted VCF file (several chromosomes, some repeated positions)
+	 */
+	String createVcf(Random random) throws IOException {
+		File file = File.createTempFile("test_file_index_", ".vcf");
+		file.deleteOnExit();
+		String fileName = file.getCanonicalPath();
+		new File(fileName + FileIndexChrPos.INDEX_EXT).deleteOnExit();
+
+		lines = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		sb.append("##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+		for (String chr : new String[] { "1", "2", "X" }) {
+			int pos = 1;
+			for (int i = 0; i < 5000; i++) {
+				pos += random.nextInt(100);
+				String line = chr + "\t" + pos + "\t.\tA\tC\t.\tPASS\tAC=" + i;
+				lines.add(line);
+				sb.append(line + "\n");
+			}
+		}
+		Gpr.toFile(fileName, sb);
+		return fileName;
+	}
+
+	/**
+	 * Dump random regions and compare to brute force
+	 */
+	void dumpCheck(FileIndexChrPos idx, Random random, int numTests) {
+		for (int testNum = 0; testNum < numTests; testNum++) {
+			String chr = (testNum % 3 == 0 ? "1" : (testNum % 3 == 1 ? "2" : "X"));
+			int start = random.nextInt(5000 * 50);
+			int end = start + random.nextInt(testNum % 10 == 0 ? 100 * 1000 : 1000);
+
+			StringBuilder expected = new StringBuilder();
+			for (String line : lines) {
+				String fields[] = line.split("\t");
+				int pos = Gpr.parseIntSafe(fields[1]) - 1;
+				if (fields[0].equals(chr) && (start <= pos) && (pos <= end)) expected.append(line + "\n");
+			}
+
+			Assert.assertEquals("Dump " + chr + ":" + start + "-" + end, expected.toString(), idx.dump(chr, start, end, true));
+		}
+	}
 
 	void readLinesCheck(String vcf, int numTests) {
 		Random random = new Random(20130218);
@@ -552,4 +600,124 @@ public class TestCasesFileIndexChrPos {
 		idx.close();
 	}
 
+	/**
+	 * Test : Index is saved to a sidecar file and re-used
+	 */
+	@Test
+	public void test_30_index_file() throws IOException {
+		Gpr.debug("Test");
+		Random random = new Random(20160801);
+		String vcfFileName = createVcf(random);
+		File indexFile = new File(vcfFileName + FileIndexChrPos.INDEX_EXT);
+
+		// Create index (sample every few lines, so that samples are used)
+		FileIndexChrPos idx = new FileIndexChrPos(vcfFileName);
+		idx.setVerbose(verbose);
+		idx.setSampleEvery(100);
+		idx.open();
+		idx.index();
+		Assert.assertTrue("Index file not created", indexFile.exists());
+		String idxStr = idx.toString();
+		dumpCheck(idx, random, 300);
+		idx.close();
+
+		// Load index from file
+		idx = new FileIndexChrPos(vcfFileName);
+		idx.setVerbose(verbose);
+		idx.setSampleEvery(100);
+		idx.open();
+		Assert.assertTrue("Index file not loaded", idx.loadIndex());
+		Assert.assertEquals(idxStr, idx.toString());
+		Assert.assertEquals(3, idx.getChromos().size());
+		dumpCheck(idx, random, 300);
+		idx.close();
+
+		// Index file is out of date
+		idx = new FileIndexChrPos(vcfFileName);
+		idx.setSampleEvery(10);
+		idx.open();
+		Assert.assertFalse("Index file should be out of date", idx.loadIndex());
+		idx.index();
+		dumpCheck(idx, random, 300);
+		idx.close();
+	}
+
+	/**
+	 * Test : Each line is found by its position
+	 */
+	@Test
+	public void test_31_find() throws IOException {
+		Gpr.debug("Test");
+		Random random = new Random(20160802);
+		String vcfFileName = createVcf(random);
+
+		FileIndexChrPos idx = new FileIndexChrPos(vcfFileName);
+		idx.setSampleEvery(17);
+		idx.open();
+		idx.index();
+
+		for (String line : lines) {
+			String fields[] = line.split("\t");
+			int pos = Gpr.parseIntSafe(fields[1]) - 1;
+			LineAndPos lp = idx.getLine(idx.find(fields[0], pos, true));
+			Assert.assertEquals(fields[0], lp.line.split("\t")[0]);
+			Assert.assertEquals(pos, idx.pos(lp.line));
+		}
+
+		idx.close();
+	}
+
+	/**
+	 * Test : A corrupted or truncated index file is re-created
+	 */
+	@Test
+	public void test_32_corrupted_index_file() throws IOException {
+		Gpr.debug("Test");
+		Random random = new Random(20160803);
+		String vcfFileName = createVcf(random);
+		File indexFile = new File(vcfFileName + FileIndexChrPos.INDEX_EXT);
+
+		FileIndexChrPos idx = new FileIndexChrPos(vcfFileName);
+		idx.setVerbose(verbose);
+		idx.open();
+		idx.index();
+		String idxStr = idx.toString();
+		idx.close();
+
+		// No temporary files left
+		for (File f : indexFile.getAbsoluteFile().getParentFile().listFiles())
+			Assert.assertFalse("Temporary file left: " + f, f.getName().startsWith(indexFile.getName() + ".") && f.getName().endsWith(FileIndexChrPos.TMP_EXT));
+
+		// Truncated index file
+		try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+			raf.setLength(raf.length() / 2);
+		}
+
+		idx = new FileIndexChrPos(vcfFileName);
+		idx.setVerbose(verbose);
+		idx.open();
+		Assert.assertFalse("Truncated index file should not be loaded", idx.loadIndex());
+		idx.index();
+		Assert.assertEquals(idxStr, idx.toString());
+		dumpCheck(idx, random, 100);
+		idx.close();
+
+		// Not an index file
+		Gpr.toFile(indexFile.getPath(), "This is not an index file\n");
+
+		idx = new FileIndexChrPos(vcfFileName);
+		idx.setVerbose(verbose);
+		idx.open();
+		Assert.assertFalse("Invalid index file should not be loaded", idx.loadIndex());
+		idx.index();
+		Assert.assertEquals(idxStr, idx.toString());
+		idx.close();
+
+		// Index file was re-created
+		idx = new FileIndexChrPos(vcfFileName);
+		idx.open();
+		Assert.assertTrue("Index file not loaded", idx.loadIndex());
+		idx.close();
+	}
+
 }
@@ -0,0 +1,157 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Transcript;
+import org.snpeff.interval.Variant;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test cases for frozen genes (derived data is pre-calculated and read without locking)
+ *
+ * @author pcingola
+ */
+public class TestCasesFrozenGenes extends TestCasesBase {
+
+	public static final int NUM_VARIANTS = 1000;
+
+	public TestCasesFrozenGenes() {
+		super();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		numGenes = 3;
+		maxGeneLen = 1000;
+		maxTranscripts = 2;
+		onlyPlusStrand = false;
+	}
+
+	/**
+	 * Create the same predictor again, using frozen genes
+	 */
+	void initFrozen() {
+		freeze = true;
+		initRand();
+		initSnpEffPredictor();
+	}
+
+	/**
+	 * Create random SNPs
+	 */
+	List<Variant> randomSnps() {
+		List<Variant> variants = new ArrayList<>();
+		for (int i = 0; i < NUM_VARIANTS; i++) {
+			int pos = rand.nextInt(chromosome.size());
+			String ref = Character.toString(Character.toUpperCase(chromoBases[pos]));
+			String alt = ref.equals("A") ? "C" : "A";
+			variants.add(new Variant(chromosome, pos, ref, alt));
+		}
+		return variants;
+	}
+
+	/**
+	 * Effects using frozen genes are the same as effects calculated before freezing
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+		List<Variant> variants = randomSnps();
+
+		// Calculate before freezing
+		List<String> expected = new ArrayList<>();
+		for (Variant variant : variants)
+			expected.add(snpEffectPredictor.variantEffect(variant).toString());
+
+		// Freeze
+		initFrozen();
+		for (Gene g : genome.getGenes()) {
+			Assert.assertTrue(g.isFrozen());
+			for (Transcript tr : g)
+				Assert.assertTrue(tr.isFrozen());
+		}
+
+		// Calculate using frozen genes
+		for (int i = 0; i < variants.size(); i++)
+			Assert.assertEquals(expected.get(i), snpEffectPredictor.variantEffect(variants.get(i)).toString());
+	}
+
+	/**
+	 * Frozen genes and transcripts cannot be modified, but their clones can
+	 */
+	@Test
+	public void test_02_modify() {
+		Gpr.debug("Test");
+		initFrozen();
+
+		// Derived data is not re-calculated
+		Assert.assertSame(transcript.sortedStrand(), transcript.sortedStrand());
+		Assert.assertSame(transcript.introns(), transcript.introns());
+		Assert.assertSame(transcript.protein(), transcript.protein());
+		Assert.assertSame(transcript.baseNumberCds2Pos(), transcript.baseNumberCds2Pos());
+
+		try {
+			gene.remove(transcript);
+			Assert.fail("Frozen gene was modified");
+		} catch (RuntimeException e) {
+			if (verbose) Gpr.debug("Expected exception: " + e.getMessage());
+		}
+
+		try {
+			transcript.frameCorrection();
+			Assert.fail("Frozen transcript was modified");
+		} catch (RuntimeException e) {
+			if (verbose) Gpr.debug("Expected exception: " + e.getMessage());
+		}
+
+		try {
+			transcript.shiftCoordinates(10);
+			Assert.fail("Frozen transcript was modified");
+		} catch (RuntimeException e) {
+			if (verbose) Gpr.debug("Expected exception: " + e.getMessage());
+		}
+
+		// Clones are not frozen
+		Transcript trClone = transcript.clone();
+		Assert.assertFalse(trClone.isFrozen());
+		trClone.shiftCoordinates(10);
+		Assert.assertEquals(transcript.getStart() + 10, trClone.getStart());
+	}
+
+	/**
+	 * Frozen transcripts' sequences are kept in the shared (bounded) cache
+	 */
+	@Test
+	public void test_03_sequences() {
+		Gpr.debug("Test");
+
+		// Calculate before freezing
+		List<String> expected = new ArrayList<>();
+		for (Gene g : genome.getGenes())
+			for (Transcript tr : g)
+				expected.add(tr.cds() + "\t" + tr.mRna() + "\t" + tr.protein());
+
+		// Freeze: Sequences are not calculated when freezing
+		initFrozen();
+		Transcript.getSequenceCache().clear();
+		Assert.assertEquals(0, Transcript.getSequenceCache().size());
+
+		// Same sequences, cached
+		int i = 0, numTrs = 0;
+		for (Gene g : genome.getGenes())
+			for (Transcript tr : g) {
+				Assert.assertEquals(expected.get(i++), tr.cds() + "\t" + tr.mRna() + "\t" + tr.protein());
+				Assert.assertEquals(tr.cdsLength(), tr.baseNumberCds2Pos().length);
+				Assert.assertEquals(tr.protein().length(), tr.aaNumber2Pos().length);
+				numTrs++;
+			}
+		Assert.assertEquals(numTrs, Transcript.getSequenceCache().size());
+	}
+
+}
@@ -0,0 +1,84 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Exon;
+import org.snpeff.interval.Transcript;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryRand;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test cases for per genome configuration: Several predictors (each one
+ * having its own config) used side by side
+ *
+ * @author pcingola
+ */
+public class TestCasesGenomeConfig {
+
+	protected boolean verbose = false;
+
+	/**
+	 * Create a config and a predictor
+	 */
+	SnpEffectPredictor createPredictor(boolean hgvs) {
+		Config config = new Config("testCase", Config.DEFAULT_CONFIG_FILE);
+		config.setUseHgvs(hgvs);
+
+		SnpEffPredictorFactoryRand sepf = new SnpEffPredictorFactoryRand(config, new Random(20160101), 1000, 1, 5);
+		sepf.setForcePositiveStrand(true);
+		SnpEffectPredictor sep = sepf.create();
+		config.setSnpEffectPredictor(sep);
+		sep.buildForest();
+		return sep;
+	}
+
+	/**
+	 * Calculate the effects of a SNP in the first exon
+	 */
+	VariantEffects snpEffect(SnpEffectPredictor sep) {
+		Transcript tr = sep.getGenome().getGenes().iterator().next().iterator().next();
+		Exon ex = tr.sorted().get(0);
+		Chromosome chr = sep.getGenome().getChromosome("1");
+		Variant variant = new Variant(chr, ex.getStart(), "A", "C");
+		VariantEffects varEffs = sep.variantEffect(variant);
+		Assert.assertFalse(varEffs.isEmpty());
+		return varEffs;
+	}
+
+	/**
+	 * Each predictor uses its own genome's config, not the default one (Config.get())
+	 */
+	@Test
+	public void test_01_hgvs() {
+		Gpr.debug("Test");
+
+		SnpEffectPredictor sepHgvs = createPredictor(true);
+		SnpEffectPredictor sepNoHgvs = createPredictor(false);
+
+		// Default config is the last one created
+		Assert.assertTrue(Config.get() == sepNoHgvs.getGenome().getConfig());
+		Assert.assertTrue(sepHgvs.getGenome().getConfig() != sepNoHgvs.getGenome().getConfig());
+
+		// HGVS enabled
+		for (VariantEffect varEff : snpEffect(sepHgvs)) {
+			if (verbose) Gpr.debug("HGVS: " + varEff + "\t" + varEff.getHgvs());
+			Assert.assertFalse(varEff.getHgvs().isEmpty());
+		}
+
+		// HGVS disabled
+		for (VariantEffect varEff : snpEffect(sepNoHgvs)) {
+			if (verbose) Gpr.debug("No HGVS: " + varEff + "\t" + varEff.getHgvs());
+			Assert.assertTrue(varEff.getHgvs().isEmpty());
+		}
+	}
+
+}
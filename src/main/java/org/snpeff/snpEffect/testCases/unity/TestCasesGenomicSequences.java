@@ -1,14 +1,19 @@
 package org.snpeff.snpEffect.testCases.unity;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.snpeff.binseq.GenomicSequences;
+import org.snpeff.binseq.GenomicSequencesMapped;
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Genome;
 import org.snpeff.interval.Marker;
+import org.snpeff.interval.MarkerSeq;
+import org.snpeff.interval.MarkerSeqMapped;
 import org.snpeff.snpEffect.Config;
 import org.snpeff.util.Gpr;
 import org.snpeff.util.GprSeq;
@@ -174,4 +179,139 @@ public class TestCasesGenomicSequences {
 		}
 	}
 
+	/**
+	 * Query sequences from many threads concurrently
+	 */
+	@Test
+	public void test_03_concurrent() throws Exception {
+		Gpr.debug("Test");
+		int numberOfChromos = 10;
+		int numberOfThreads = 8;
+		final int numberOfQueries = 5000;
+		int chrLen = 10000;
+
+		// Create random chromosome sequences
+		final Genome genome = new Genome("test_concurrent");
+		final GenomicSequences gs = genome.getGenomicSequences();
+		gs.setDisableLoad(true);
+		final String chrSeqs[] = new String[numberOfChromos];
+		Random random = new Random(20160201);
+		for (int i = 0; i < numberOfChromos; i++) {
+			chrSeqs[i] = GprSeq.randSequence(random, chrLen).toUpperCase();
+			gs.addChromosomeSequence("chr" + i, chrSeqs[i]);
+		}
+
+		// Query random intervals in all threads
+		final List<String> errors = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numberOfThreads; t++) {
+			final Random rand = new Random(t);
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < numberOfQueries; i++) {
+						int chrNum = rand.nextInt(chrSeqs.length);
+						int start = rand.nextInt(chrSeqs[chrNum].length() - 10);
+						int end = start + rand.nextInt(10);
+						Marker marker = new Marker(genome.getChromosome("chr" + chrNum), start, end);
+
+						String expected = chrSeqs[chrNum].substring(start, end + 1);
+						String seq = gs.querySequence(marker);
+						if (!expected.equalsIgnoreCase(seq)) {
+							synchronized (errors) {
+								errors.add("Query marker: " + marker + ", expected: " + expected + ", sequence: " + seq);
+							}
+						}
+					}
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+
+		for (Thread thread : threads)
+			thread.join();
+
+		Assert.assertTrue(errors.toString(), errors.isEmpty());
+	}
+
+	/**
+	 * Genome wide memory mapped sequences: Sequences (including 'N' and
+	 * soft masked bases) are the same as the ones stored in memory
+	 */
+	@Test
+	public void test_04_mapped() throws Exception {
+		Gpr.debug("Test");
+		int numberOfChromos = 5;
+		int numberOfQueries = 1000;
+
+		// Create random chromosome sequences, with some 'N' and soft masked (lower case) regions
+		Random random = new Random(20160301);
+		String chrSeqs[] = new String[numberOfChromos];
+		for (int i = 0; i < numberOfChromos; i++) {
+			char seq[] = GprSeq.randSequence(random, 1000 + random.nextInt(10000)).toUpperCase().toCharArray();
+			for (int j = 0; j < 20; j++) {
+				int start = random.nextInt(seq.length - 100);
+				int end = start + random.nextInt(100);
+				boolean isN = random.nextBoolean();
+				for (int k = start; k < end; k++)
+					seq[k] = isN ? 'N' : Character.toLowerCase(seq[k]);
+			}
+			chrSeqs[i] = new String(seq);
+		}
+
+		// Save to memory mapped file
+		File file = File.createTempFile("test_sequence_", ".mmap");
+		file.deleteOnExit();
+		String fileName = file.getCanonicalPath();
+		GenomicSequencesMapped gsmOut = new GenomicSequencesMapped();
+		gsmOut.create(fileName);
+		for (int i = 0; i < numberOfChromos; i++)
+			gsmOut.add("chr" + i, chrSeqs[i]);
+		gsmOut.close();
+
+		// Genomic sequences: In memory and memory mapped
+		Genome genome = new Genome("test_mapped");
+		GenomicSequences gs = genome.getGenomicSequences();
+		for (int i = 0; i < numberOfChromos; i++)
+			gs.addChromosomeSequence("chr" + i, chrSeqs[i]);
+
+		Genome genomeMapped = new Genome("test_mapped");
+		GenomicSequences gsMapped = genomeMapped.getGenomicSequences();
+		gsMapped.setDisableLoad(true);
+		gsMapped.openMapped(fileName);
+
+		GenomicSequencesMapped gsm = new GenomicSequencesMapped();
+		gsm.open(fileName);
+		Assert.assertEquals(numberOfChromos, gsm.size());
+
+		for (int i = 0; i < numberOfQueries; i++) {
+			int chrNum = random.nextInt(numberOfChromos);
+			String chrSeq = chrSeqs[chrNum];
+			int start = random.nextInt(chrSeq.length());
+			int end = Math.min(chrSeq.length() - 1, start + random.nextInt(200));
+
+			// Soft masked sequence is the same as the original one
+			Assert.assertEquals(chrSeq.substring(start, end + 1), gsm.getSequenceSoftMasked("chr" + chrNum, start, end));
+
+			// Same sequence as in memory
+			Marker marker = new Marker(genome.getChromosome("chr" + chrNum), start, end, random.nextBoolean(), "");
+			Marker markerMapped = new Marker(genomeMapped.getOrCreateChromosome("chr" + chrNum), start, end, marker.isStrandMinus(), "");
+			String seq = gs.querySequence(marker);
+			String seqMapped = gsMapped.querySequence(markerMapped);
+			if (verbose) Gpr.debug("Query marker: " + marker + "\n\tsequence       : " + seq + "\n\tsequence mapped: " + seqMapped);
+			Assert.assertEquals(seq, seqMapped);
+
+			// Mapped marker spans the whole chromosome
+			MarkerSeq ms = gsMapped.queryMarkerSequence(markerMapped);
+			Assert.assertTrue(ms instanceof MarkerSeqMapped);
+			Assert.assertEquals(0, ms.getStart());
+			Assert.assertEquals(chrSeq.length() - 1, ms.getEnd());
+		}
+
+		// Out of range
+		Assert.assertNull(gsm.getSequence("chr0", 0, chrSeqs[0].length()));
+		Assert.assertNull(gsm.getSequence("chr_not_found", 0, 10));
+	}
+
 }
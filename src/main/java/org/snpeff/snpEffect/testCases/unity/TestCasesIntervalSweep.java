@@ -0,0 +1,128 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.IntervalSweep;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test case for interval 'sweep' queries (sorted queries)
+ */
+public class TestCasesIntervalSweep {
+
+	public static int MAX_MARKER_SIZE = 200;
+	public static int NUM_MARKERS = 1000;
+	public static int NUM_QUERIES = 10 * 1000;
+	public static int CHR_SIZE = 100 * 1000;
+
+	protected boolean verbose = false;
+	protected Random rand;
+	protected Genome genome;
+	protected Chromosome chr1, chr2;
+	protected IntervalForest intervalForest;
+
+	public TestCasesIntervalSweep() {
+		super();
+	}
+
+	/**
+	 * Compare sweep query results to interval forest query results (same order)
+	 */
+	void compareQuery(IntervalSweep sweep, Marker query) {
+		String expected = intervalForest.query(query).toString();
+		String result = sweep.query(query).toString();
+		Assert.assertEquals("Results differ for query '" + query + "'.", expected, result);
+	}
+
+	Markers createRandomMarkers(Chromosome chr, int num, String prefix) {
+		Markers markers = new Markers();
+
+		for (int i = 0; i < num; i++) {
+			int start = rand.nextInt(chr.size());
+			int end = start + rand.nextInt(i % 10 == 0 ? 10 * MAX_MARKER_SIZE : MAX_MARKER_SIZE);
+			markers.add(new Marker(chr, start, end, false, prefix + i));
+		}
+
+		return markers;
+	}
+
+	@Before
+	public void init() {
+		rand = new Random(20160101);
+		genome = new Genome();
+		chr1 = new Chromosome(genome, 0, CHR_SIZE, "1");
+		chr2 = new Chromosome(genome, 0, CHR_SIZE, "2");
+
+		intervalForest = new IntervalForest();
+		intervalForest.add(chr1);
+		intervalForest.add(chr2);
+		intervalForest.add(createRandomMarkers(chr1, NUM_MARKERS, "ID_1_"));
+		intervalForest.add(createRandomMarkers(chr2, NUM_MARKERS, "ID_2_"));
+		intervalForest.build();
+	}
+
+	/**
+	 * Sorted queries
+	 */
+	@Test
+	public void test_01_sorted() {
+		Gpr.debug("Test");
+
+		IntervalSweep sweep = new IntervalSweep(intervalForest);
+		for (Chromosome chr : new Chromosome[] { chr1, chr2 }) {
+			Markers queries = createRandomMarkers(chr, NUM_QUERIES, "Q_").sort();
+			for (Marker q : queries)
+				compareQuery(sweep, q);
+		}
+
+		// Only one reset per chromosome
+		if (verbose) Gpr.debug("Resets: " + sweep.getCountResets());
+		Assert.assertEquals(2, sweep.getCountResets());
+		Assert.assertTrue(sweep.isEnabled());
+	}
+
+	/**
+	 * Unsorted queries: Results are still correct, sweep is disabled
+	 */
+	@Test
+	public void test_02_unsorted() {
+		Gpr.debug("Test");
+
+		IntervalSweep sweep = new IntervalSweep(intervalForest);
+		Markers queries = createRandomMarkers(chr1, NUM_QUERIES, "Q_");
+		for (Marker q : queries)
+			compareQuery(sweep, q);
+
+		Assert.assertFalse(sweep.isEnabled());
+	}
+
+	/**
+	 * Mostly sorted queries (e.g. a few variants out of order): Sweep is not disabled
+	 */
+	@Test
+	public void test_03_almost_sorted() {
+		Gpr.debug("Test");
+
+		IntervalSweep sweep = new IntervalSweep(intervalForest);
+		Markers queries = createRandomMarkers(chr1, NUM_QUERIES, "Q_").sort();
+		for (int i = 0; i < queries.size(); i++) {
+			Marker q = queries.get(i);
+			compareQuery(sweep, q);
+
+			// Add an out of order query
+			if (i % 100 == 99) compareQuery(sweep, queries.get(i - 50));
+		}
+
+		Assert.assertTrue(sweep.isEnabled());
+	}
+
+}
@@ -0,0 +1,76 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.Test;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.tree.IntervalTreeFlat;
+import org.snpeff.interval.tree.Itree;
+import org.snpeff.interval.tree.MarkerVisitor;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test case for interval tree structure
+ */
+public class TestCasesIntervalTreeFlat extends TestCasesIntervalTree {
+
+	@Override
+	protected Itree newItree(Markers markers) {
+		return new IntervalTreeFlat(markers);
+	}
+
+	/**
+	 * Query using a visitor: Results are sorted by start position
+	 */
+	@Test
+	public void test_03_visitor() {
+		Gpr.debug("Test");
+
+		Itree intTree = newItree(markers);
+		intTree.build();
+
+		Markers queries = createRandomLargeMarkers(chromosome, 1000);
+		int totalResults = 0;
+		for (Marker m : queries) {
+			final Markers results = new Markers();
+			intTree.query(m, new MarkerVisitor() {
+				@Override
+				public void visit(Marker marker) {
+					results.add(marker);
+				}
+			});
+
+			// Results must be sorted by start position
+			for (int i = 1; i < results.size(); i++)
+				Assert.assertTrue(results.get(i - 1).getStart() <= results.get(i).getStart());
+
+			// Same results as a naive query
+			Assert.assertEquals(queryNaive(m).sort().toString(), results.sort().toString());
+			totalResults += results.size();
+		}
+
+		Assert.assertTrue("Not a signle result found in all queries!", totalResults > 0);
+	}
+
+	/**
+	 * Empty tree and trees having a few intervals
+	 */
+	@Test
+	public void test_04_small() {
+		Gpr.debug("Test");
+
+		Markers all = markers;
+		for (int size = 0; size < 40; size++) {
+			markers = new Markers();
+			for (int i = 0; i < size; i++)
+				markers.add(all.get(i));
+
+			Itree intTree = newItree(markers);
+			intTree.build();
+			for (Marker m : createRandomLargeMarkers(chromosome, 100))
+				compareQuery(m, intTree);
+		}
+	}
+
+}
@@ -1,10 +1,18 @@
 package org.snpeff.snpEffect.testCases.unity;
 
+import java.util.Random;
+
 import junit.framework.Assert;
 
 import org.junit.Test;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Motif;
+import org.snpeff.interval.Variant;
 import org.snpeff.motif.Jaspar;
+import org.snpeff.motif.Pwm;
 import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
 
 /**
  * Test case for Jaspar parsing
@@ -85,4 +93,50 @@ public class TestCasesJaspar {
 		Assert.assertEquals(expected, actual);
 	}
 
+	/**
+	 * Score differences calculated using only the changed positions
+	 * are the same as scoring the whole (changed) sequence
+	 */
+	@Test
+	public void test_03_scoreDiff() {
+		Gpr.debug("Test");
+		Jaspar jaspar = new Jaspar();
+		jaspar.load("tests/jaspar_2013.txt.gz");
+
+		Random rand = new Random(20160801);
+		Chromosome chr = new Chromosome(new Genome("genome"), 0, 1000 * 1000, "1");
+
+		for (Pwm pwm : jaspar) {
+			int len = pwm.length();
+			String seqBest = pwm.getBestSequenceStr();
+
+			for (int i = 0; i < 20; i++) {
+				// Create a motif
+				int start = 100 + rand.nextInt(1000);
+				boolean strandMinus = rand.nextBoolean();
+				Motif motif = new Motif(chr, start, start + len - 1, strandMinus, "motif", pwm.getName(), pwm.getId());
+				motif.setPwm(pwm);
+
+				// Random SNP or MNP, it may start before the motif
+				int varLen = (rand.nextBoolean() ? 1 : 2 + rand.nextInt(3));
+				int varStart = start - varLen + 1 + rand.nextInt(len + varLen - 1);
+				String ref = GprSeq.randSequence(rand, varLen);
+				String alt = GprSeq.randSequence(rand, varLen);
+				Variant variant = new Variant(chr, varStart, ref, alt);
+
+				// Apply variant to best sequence (positive strand) and score it
+				char seq[] = (strandMinus ? GprSeq.reverseWc(seqBest) : seqBest).toCharArray();
+				for (int j = 0; j < varLen; j++) {
+					int idx = varStart + j - start;
+					if (idx >= 0 && idx < len) seq[idx] = alt.charAt(j);
+				}
+				String seqNew = new String(seq);
+				if (strandMinus) seqNew = GprSeq.reverseWc(seqNew);
+
+				double expected = pwm.score(seqBest) - pwm.score(seqNew);
+				Assert.assertEquals("PWM: " + pwm.getId() + ", variant: " + variant, expected, motif.scoreDiff(variant), 1e-9);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,312 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.snpeff.interval.BioType;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Exon;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.Transcript;
+import org.snpeff.interval.Variant;
+import org.snpeff.serializer.MarkerSerializer;
+import org.snpeff.serializer.MarkerSerializerMapped;
+import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.EffectType;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
+
+import junit.framework.Assert;
+
+/**
+ * Test cases for binary (memory mappable) database format
+ *
+ * @author pcingola
+ */
+public class TestCasesMarkerSerializerMapped extends TestCasesBase {
+
+	public static final String FILE_TXT = "/tmp/snpEffectPredictor_test.bin";
+	public static final String FILE_MAPPED = "/tmp/snpEffectPredictor_test.mmap";
+	public static final int NUM_CHROMOSOMES = 10;
+	public static final int NUM_THREADS = 8;
+	public static final int NUM_VARIANTS = 200;
+
+	public TestCasesMarkerSerializerMapped() {
+		super();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		randSeed = 20151205;
+		numGenes = 2;
+		maxTranscripts = 3;
+		addUtrs = true;
+		onlyPlusStrand = false;
+		initRand();
+	}
+
+	/**
+	 * Add chromosomes (having a few random genes each) to the genome
+	 */
+	void addChromosomes() {
+		for (int chrNum = 2; chrNum <= NUM_CHROMOSOMES; chrNum++) {
+			Chromosome chr = new Chromosome(genome, 0, 10 * maxGeneLen, "chr" + chrNum);
+			genome.add(chr);
+
+			for (int geneNum = 0; geneNum < 3; geneNum++) {
+				int start = 3 * geneNum * maxGeneLen + rand.nextInt(maxGeneLen);
+				int end = start + maxGeneLen;
+				boolean strandMinus = rand.nextBoolean();
+				String id = chr.getId() + "_" + geneNum;
+
+				Gene gene = new Gene(chr, start, end, strandMinus, "gene_" + id, "gene_" + id, BioType.protein_coding);
+				Transcript tr = new Transcript(gene, start, end, strandMinus, "tr_" + id);
+				tr.setProteinCoding(true);
+				gene.add(tr);
+
+				for (int exNum = 0; exNum < 3; exNum++) {
+					int exStart = start + exNum * (maxGeneLen / 3);
+					int exEnd = exStart + maxGeneLen / 6;
+					Exon exon = new Exon(tr, exStart, exEnd, strandMinus, "ex_" + id + "_" + exNum, exNum + 1);
+					exon.setSequence(GprSeq.randSequence(rand, exon.size()));
+					tr.add(exon);
+				}
+
+				tr.rankExons();
+				genome.getGenes().add(gene);
+			}
+		}
+	}
+
+	/**
+	 * Find genome in a set of markers
+	 */
+	Genome findGenome(Markers markers) {
+		for (Marker m : markers)
+			if (m instanceof Genome) return (Genome) m;
+		return null;
+	}
+
+	/**
+	 * Load database on demand
+	 * Note: A new config is used, so each predictor has its own genome
+	 */
+	SnpEffectPredictor loadLazy() {
+		Config config = new Config(genomeName, Config.DEFAULT_CONFIG_FILE);
+		SnpEffectPredictor sep = SnpEffectPredictor.loadLazy(config, FILE_MAPPED);
+		sep.buildForest();
+		return sep;
+	}
+
+	/**
+	 * Save genome and genes (without any markers created when building the interval forest)
+	 */
+	void save() {
+		SnpEffectPredictor sep = new SnpEffectPredictor(genome);
+		for (Gene g : genome.getGenes())
+			sep.add(g);
+
+		sep.save(FILE_TXT);
+		sep.saveMapped(FILE_MAPPED);
+	}
+
+	/**
+	 * Both formats should load the same genome
+	 */
+	@Test
+	public void test_01_save_load() {
+		Gpr.debug("Test");
+
+		save();
+
+		Markers markersTxt = new MarkerSerializer().load(FILE_TXT);
+		Markers markersMapped = new MarkerSerializerMapped().load(FILE_MAPPED);
+		Assert.assertEquals(markersTxt.size(), markersMapped.size());
+
+		String genomeTxt = showTranscripts(findGenome(markersTxt));
+		String genomeMapped = showTranscripts(findGenome(markersMapped));
+		if (verbose) System.out.println(genomeMapped);
+		Assert.assertEquals(genomeTxt, genomeMapped);
+	}
+
+	/**
+	 * Query genes directly from the mapped file (no markers are created)
+	 */
+	@Test
+	public void test_02_query() {
+		Gpr.debug("Test");
+
+		save();
+		MarkerSerializerMapped msm = new MarkerSerializerMapped();
+		msm.open(FILE_MAPPED);
+
+		for (Gene g : genome.getGenes()) {
+			int idxs[] = msm.query(g.getChromosomeName(), g.getStart(), g.getStart(), EffectType.GENE);
+
+			boolean found = false;
+			for (int idx : idxs) {
+				if (verbose) System.out.println(g.getId() + "\t" + msm.getId(idx) + "\t" + msm.getStart(idx) + "\t" + msm.getEnd(idx));
+				Assert.assertTrue(msm.getStart(idx) <= g.getStart() && g.getStart() <= msm.getEnd(idx));
+				found |= msm.getId(idx).equals(g.getId()) && (msm.isStrandMinus(idx) == g.isStrandMinus());
+			}
+
+			Assert.assertTrue("Gene '" + g.getId() + "' not found", found);
+		}
+	}
+
+	/**
+	 * Load genome first, then load genes one chromosome at a time
+	 */
+	@Test
+	public void test_03_load_chromosome() {
+		Gpr.debug("Test");
+
+		save();
+		MarkerSerializerMapped msm = new MarkerSerializerMapped();
+		msm.open(FILE_MAPPED);
+
+		// No genes should be loaded with the genome
+		Markers markersGenome = msm.loadGenome();
+		Genome genomeLoaded = findGenome(markersGenome);
+		Assert.assertNotNull(genomeLoaded);
+		for (Marker m : markersGenome)
+			Assert.assertFalse(m instanceof Gene);
+
+		// Load all genes in chromosome
+		int countGenes = 0;
+		for (Marker m : msm.loadChromosome(chromosome.getId())) {
+			if (m instanceof Gene) {
+				Gene g = (Gene) m;
+				if (verbose) System.out.println(g.toStr());
+				Assert.assertNotNull(genome.getGenes().get(g.getId()));
+				Assert.assertEquals(chromosome.getId(), g.getChromosomeName());
+				Assert.assertSame(genomeLoaded.getChromosome(chromosome.getId()), g.getChromosome());
+				countGenes++;
+			}
+		}
+		Assert.assertEquals(genome.getGenes().size(), countGenes);
+
+		// Chromosome without any genes
+		Assert.assertTrue(msm.loadChromosome("nonExistentChromo").isEmpty());
+	}
+
+	/**
+	 * Compatibility check only reads the header
+	 */
+	@Test
+	public void test_04_is_compatible() {
+		Gpr.debug("Test");
+
+		save();
+		Assert.assertTrue(MarkerSerializerMapped.isCompatible(FILE_MAPPED));
+		Assert.assertFalse(MarkerSerializerMapped.isCompatible(FILE_TXT)); // Not a mapped file
+		Assert.assertFalse(MarkerSerializerMapped.isCompatible(FILE_MAPPED + ".does_not_exist"));
+
+		// Truncated header
+		String fileTruncated = FILE_MAPPED + ".truncated";
+		Gpr.toFile(fileTruncated, "SNPEFFMM");
+		Assert.assertFalse(MarkerSerializerMapped.isCompatible(fileTruncated));
+	}
+
+	/**
+	 * Load chromosomes on demand while other threads are querying the predictor
+	 */
+	@Test
+	public void test_05_lazy_multithreaded() throws Exception {
+		Gpr.debug("Test");
+
+		addChromosomes();
+		save();
+
+		// Random SNPs in all chromosomes
+		final List<Variant> variants = new ArrayList<>();
+		for (int i = 0; i < NUM_VARIANTS; i++) {
+			Chromosome chr = genome.getChromosome("chr" + (1 + rand.nextInt(NUM_CHROMOSOMES)));
+			variants.add(new Variant(chr, rand.nextInt(chr.size()), "A", "C"));
+		}
+
+		// Expected results: Chromosomes loaded by a single thread
+		SnpEffectPredictor sep = loadLazy();
+		final List<String> expected = new ArrayList<>();
+		for (Variant variant : variants)
+			expected.add(sep.variantEffect(variant).toString());
+
+		ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+		try {
+			for (int iter = 0; iter < 10; iter++) {
+				// Chromosomes are loaded by many threads, each one querying in a different order
+				final SnpEffectPredictor sepLazy = loadLazy();
+
+				List<Callable<Void>> tasks = new ArrayList<>();
+				for (int t = 0; t < NUM_THREADS; t++) {
+					final List<Integer> order = new ArrayList<>();
+					for (int i = 0; i < variants.size(); i++)
+						order.add(i);
+					Collections.shuffle(order, new Random(iter * NUM_THREADS + t));
+
+					tasks.add(new Callable<Void>() {
+
+						@Override
+						public Void call() throws Exception {
+							for (int i : order)
+								Assert.assertEquals(expected.get(i), sepLazy.variantEffect(variants.get(i)).toString());
+							return null;
+						}
+					});
+				}
+
+				for (Future<Void> f : executor.invokeAll(tasks))
+					f.get(); // Re-throw any failure
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Random queries: Same results as checking every record
+	 */
+	@Test
+	public void test_06_query_random() {
+		Gpr.debug("Test");
+		addChromosomes();
+		save();
+
+		MarkerSerializerMapped msm = new MarkerSerializerMapped();
+		msm.open(FILE_MAPPED);
+
+		EffectType types[] = { EffectType.GENE, EffectType.TRANSCRIPT, EffectType.EXON, EffectType.CHROMOSOME };
+		for (int i = 0; i < 1000; i++) {
+			String chr = "chr" + (1 + rand.nextInt(NUM_CHROMOSOMES));
+			if (chr.equals("chr1")) chr = chromosome.getId();
+			int start = rand.nextInt(10 * maxGeneLen);
+			int end = start + rand.nextInt(maxGeneLen);
+			EffectType type = types[rand.nextInt(types.length)];
+
+			// Brute force (chromosome names are compared the same way 'query' does)
+			String chrName = Chromosome.simpleName(chr);
+			List<Integer> expected = new ArrayList<>();
+			for (int idx = 0; idx < msm.size(); idx++)
+				if (msm.getType(idx) == type && msm.getStart(idx) <= end && start <= msm.getEnd(idx) && Chromosome.simpleName(msm.getChromosomeName(idx)).equals(chrName)) expected.add(idx);
+
+			List<Integer> res = new ArrayList<>();
+			for (int idx : msm.query(chr, start, end, type))
+				res.add(idx);
+
+			Assert.assertEquals("Query " + chr + ":" + start + "-" + end + " " + type, expected, res);
+		}
+	}
+
+}
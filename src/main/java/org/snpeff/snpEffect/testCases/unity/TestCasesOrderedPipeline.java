@@ -0,0 +1,130 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.snpeff.pipeline.OrderedPipeline;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test cases for multi-threaded ordered pipeline
+ *
+ * @author pcingola
+ */
+public class TestCasesOrderedPipeline {
+
+	protected boolean debug = false;
+	protected boolean verbose = false || debug;
+
+	List<Integer> numbers(int count) {
+		List<Integer> nums = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+			nums.add(i);
+		return nums;
+	}
+
+	/**
+	 * Results should be written in the same order as the input,
+	 * even if processing times are random
+	 */
+	@Test
+	public void test_01_order() {
+		Gpr.debug("Test");
+
+		final List<Integer> out = new ArrayList<>();
+		OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<Integer, Integer>(4) {
+
+			Random random = new Random(20151205);
+
+			@Override
+			protected Integer process(Integer in) {
+				int sleep;
+				synchronized (random) {
+					sleep = random.nextInt(3);
+				}
+
+				try {
+					Thread.sleep(sleep);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+
+				return 2 * in;
+			}
+
+			@Override
+			protected void write(Integer o) {
+				out.add(o);
+			}
+		};
+		pipeline.setVerbose(verbose);
+
+		int count = 1000;
+		pipeline.run(numbers(count).iterator());
+
+		Assert.assertEquals(count, pipeline.getCountItems());
+		Assert.assertEquals(count, out.size());
+		for (int i = 0; i < count; i++)
+			Assert.assertEquals(2 * i, out.get(i).intValue());
+	}
+
+	/**
+	 * Empty input
+	 */
+	@Test
+	public void test_02_empty() {
+		Gpr.debug("Test");
+
+		OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<Integer, Integer>(2) {
+
+			@Override
+			protected Integer process(Integer in) {
+				return in;
+			}
+
+			@Override
+			protected void write(Integer o) {
+				throw new RuntimeException("This should never happen!");
+			}
+		};
+
+		pipeline.run(numbers(0).iterator());
+		Assert.assertEquals(0, pipeline.getCountItems());
+	}
+
+	/**
+	 * An error in a worker thread should be reported to the caller
+	 */
+	@Test
+	public void test_03_error() {
+		Gpr.debug("Test");
+
+		OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<Integer, Integer>(2) {
+
+			@Override
+			protected Integer process(Integer in) {
+				if (in == 500) throw new RuntimeException("Error processing item " + in);
+				return in;
+			}
+
+			@Override
+			protected void write(Integer o) {
+			}
+		};
+
+		try {
+			pipeline.run(numbers(1000).iterator());
+		} catch (RuntimeException e) {
+			if (verbose) e.printStackTrace();
+			Assert.assertTrue(e.getCause().getMessage().startsWith("Error processing item"));
+			return;
+		}
+
+		Assert.fail("Exception not thrown");
+	}
+
+}
@@ -0,0 +1,209 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdServer;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test cases for annotation server
+ *
+ * @author pcingola
+ */
+public class TestCasesServer extends TestCasesBase {
+
+	public static final int NUM_REQUESTS = 16;
+
+	SnpEffCmdServer server;
+
+	public TestCasesServer() {
+		super();
+	}
+
+	@Override
+	@After
+	public void after() {
+		if (server != null) server.stop();
+		server = null;
+		super.after();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		numGenes = 3;
+		maxGeneLen = 1000;
+		maxTranscripts = 2;
+		maxExons = 5;
+	}
+
+	/**
+	 * Send a request, return response code and body
+	 */
+	String post(String path, String body) throws Exception {
+		URL url = new URL("http://localhost:" + server.getPort() + path);
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+
+		OutputStream os = conn.getOutputStream();
+		os.write(body.getBytes());
+		os.close();
+
+		int code = conn.getResponseCode();
+		if (code != 200) return code + "";
+
+		StringBuilder sb = new StringBuilder();
+		BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
+		for (String line = in.readLine(); line != null; line = in.readLine())
+			sb.append(line + "\n");
+		in.close();
+
+		return sb.toString();
+	}
+
+	/**
+	 * Start a server using the test case's genome
+	 */
+	void startServer() {
+		server = new SnpEffCmdServer();
+		server.parseArgs(new String[] { "-port", "0", genomeName });
+		server.add(genomeName, config);
+		server.start();
+	}
+
+	/**
+	 * Create a VCF file having SNPs every few bases
+	 */
+	String vcf() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("##fileformat=VCFv4.1\n");
+		sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+
+		for (int pos = chromosome.getStart(); pos < chromosome.getEnd(); pos += 1 + rand.nextInt(10)) {
+			char ref = Character.toUpperCase(chromoBases[pos]);
+			char alt = (ref == 'A' ? 'C' : 'A');
+			sb.append(chromosome.getId() + "\t" + (pos + 1) + "\t.\t" + ref + "\t" + alt + "\t.\t.\t.\n");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Annotate a VCF file
+	 */
+	@Test
+	public void test_01() throws Exception {
+		Gpr.debug("Test");
+
+		startServer();
+		String vcf = vcf();
+		String result = post(SnpEffCmdServer.ANN_PATH + "/" + genomeName, vcf);
+		if (verbose) Gpr.debug("Result:\n" + result);
+
+		// All entries should be annotated
+		int countIn = 0, countOut = 0;
+		for (String line : vcf.split("\n"))
+			if (!line.startsWith("#")) countIn++;
+
+		for (String line : result.split("\n")) {
+			if (line.startsWith("#")) continue;
+			Assert.assertTrue("Entry is not annotated: " + line, line.contains("ANN="));
+			countOut++;
+		}
+		Assert.assertEquals(countIn, countOut);
+
+		// Only one genome: Genome version in path is optional
+		Assert.assertEquals(result, post(SnpEffCmdServer.ANN_PATH, vcf));
+	}
+
+	/**
+	 * Concurrent requests should produce the same results as a single request
+	 */
+	@Test
+	public void test_02_concurrent() throws Exception {
+		Gpr.debug("Test");
+
+		startServer();
+		final String vcf = vcf();
+		final String expected = post(SnpEffCmdServer.ANN_PATH + "/" + genomeName, vcf);
+		final List<String> results = new ArrayList<>();
+
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < NUM_REQUESTS; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					String result;
+					try {
+						result = post(SnpEffCmdServer.ANN_PATH + "/" + genomeName, vcf);
+					} catch (Exception e) {
+						result = e.toString();
+					}
+
+					synchronized (results) {
+						results.add(result);
+					}
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+
+		for (Thread thread : threads)
+			thread.join();
+
+		Assert.assertEquals(NUM_REQUESTS, results.size());
+		for (String result : results)
+			Assert.assertEquals(expected, result);
+	}
+
+	/**
+	 * Unknown genome
+	 */
+	@Test
+	public void test_03_genome_not_found() throws Exception {
+		Gpr.debug("Test");
+
+		startServer();
+		Assert.assertEquals("404", post(SnpEffCmdServer.ANN_PATH + "/NO_SUCH_GENOME", vcf()));
+	}
+
+	/**
+	 * Error messages are encoded using UTF-8 (regardless of the platform's default charset)
+	 */
+	@Test
+	public void test_04_error_utf8() throws Exception {
+		Gpr.debug("Test");
+
+		startServer();
+		URL url = new URL("http://localhost:" + server.getPort() + SnpEffCmdServer.ANN_PATH + "/genome_%C3%A9");
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+		OutputStream os = conn.getOutputStream();
+		os.write(vcf().getBytes(StandardCharsets.UTF_8));
+		os.close();
+
+		Assert.assertEquals(404, conn.getResponseCode());
+		Assert.assertEquals(SnpEffCmdServer.CONTENT_TYPE, conn.getContentType());
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8));
+		String line = in.readLine();
+		in.close();
+		if (verbose) Gpr.debug("Error: " + line);
+		Assert.assertTrue("Error message: " + line, line.startsWith("Genome 'genome_\u00e9' not found"));
+	}
+
+}
@@ -0,0 +1,133 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.Test;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.stats.CountByType;
+import org.snpeff.stats.IntStats;
+import org.snpeff.stats.VariantEffectStats;
+import org.snpeff.stats.VariantStats;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test merging statistics (e.g. collected by different threads)
+ *
+ * @author pcingola
+ */
+public class TestCasesStatsMerge extends TestCasesBase {
+
+	public static int N = 1000;
+	public static String BASES[] = { "A", "C", "G", "T" };
+
+	public TestCasesStatsMerge() {
+		super();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		numGenes = 2;
+		randSeed = 20151205;
+	}
+
+	/**
+	 * Merge CountByType
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+		initRand();
+
+		CountByType all = new CountByType();
+		CountByType a = new CountByType();
+		CountByType b = new CountByType();
+
+		for (int i = 0; i < N; i++) {
+			String type = "type_" + rand.nextInt(10);
+			all.inc(type);
+			if (i % 2 == 0) a.inc(type);
+			else b.inc(type);
+		}
+
+		a.merge(b);
+		if (verbose) Gpr.debug("Merged:\n" + a);
+		Assert.assertEquals(all.toString(), a.toString());
+	}
+
+	/**
+	 * Merge IntStats
+	 */
+	@Test
+	public void test_02() {
+		Gpr.debug("Test");
+		initRand();
+
+		IntStats all = new IntStats();
+		IntStats a = new IntStats();
+		IntStats b = new IntStats();
+
+		for (int i = 0; i < N; i++) {
+			int num = rand.nextInt(100) - 50;
+			all.sample(num);
+			if (i % 2 == 0) a.sample(num);
+			else b.sample(num);
+		}
+
+		a.merge(b);
+		if (verbose) Gpr.debug("Merged:\n" + a);
+		Assert.assertEquals(all.getCount(), a.getCount());
+		Assert.assertEquals(all.toString(), a.toString());
+		Assert.assertEquals(all.toStringHisto(), a.toStringHisto());
+	}
+
+	/**
+	 * Merge VariantStats and VariantEffectStats
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+		initSnpEffPredictor();
+
+		VariantStats vsAll = new VariantStats(genome);
+		VariantStats vsA = new VariantStats(genome);
+		VariantStats vsB = new VariantStats(genome);
+		VariantEffectStats vesAll = new VariantEffectStats(genome);
+		VariantEffectStats vesA = new VariantEffectStats(genome);
+		VariantEffectStats vesB = new VariantEffectStats(genome);
+
+		for (int i = 0; i < N; i++) {
+			// Random SNP
+			int pos = rand.nextInt(chromoBases.length);
+			String ref = "" + Character.toUpperCase(chromoBases[pos]);
+			String alt = BASES[rand.nextInt(BASES.length)];
+			if (ref.equals(alt)) continue;
+			Variant variant = new Variant(chromosome, pos, ref, alt);
+
+			// Sample 'all' and either 'a' or 'b'
+			boolean useA = (i % 2 == 0);
+			vsAll.sample(variant);
+			(useA ? vsA : vsB).sample(variant);
+
+			VariantEffects variantEffects = snpEffectPredictor.variantEffect(variant);
+			for (VariantEffect variantEffect : variantEffects) {
+				vesAll.sample(variantEffect);
+				(useA ? vesA : vesB).sample(variantEffect);
+			}
+		}
+
+		vsA.merge(vsB);
+		vesA.merge(vesB);
+
+		Assert.assertEquals(vsAll.getCount(), vsA.getCount());
+		Assert.assertEquals(vsAll.getCountByChangeType().toString(), vsA.getCountByChangeType().toString());
+		Assert.assertEquals(vsAll.getCountByChromosome(chromosome.getId()), vsA.getCountByChromosome(chromosome.getId()));
+		Assert.assertEquals(vesAll.getCountByEffect().toString(), vesA.getCountByEffect().toString());
+		Assert.assertEquals(vesAll.getCountByImpact().toString(), vesA.getCountByImpact().toString());
+		Assert.assertEquals(vesAll.getCountByGeneRegion().toString(), vesA.getCountByGeneRegion().toString());
+		Assert.assertEquals(vesAll.getCountByFunctionalClass().toString(), vesA.getCountByFunctionalClass().toString());
+	}
+
+}
@@ -411,4 +411,45 @@ public class TestCasesStructuralDel extends TestCasesBase {
 		checkEffects(variant, expEffs, null, expHgvsc, expectedImpact, null);
 	}
 
+	/**
+	 * Huge deletion: Whole genes
+	 */
+	@Test
+	public void test11_delHuge() {
+		Gpr.debug("Test");
+
+		// Create variant (larger than Variant.HUGE_DELETION_SIZE_THRESHOLD)
+		Variant variant = new Variant(chromosome, 950, 950 + Variant.HUGE_DELETION_SIZE_THRESHOLD + 1, "");
+		variant.setVariantType(VariantType.DEL);
+
+		EffectType expEffs[] = { EffectType.CHROMOSOME_LARGE_DELETION, EffectType.GENE_DELETED, EffectType.TRANSCRIPT_DELETED };
+		EffectImpact expectedImpact = EffectImpact.HIGH;
+
+		checkEffects(variant, expEffs, null, null, expectedImpact, null);
+	}
+
+	/**
+	 * Huge deletion: Partial transcript (only one gene affected)
+	 */
+	@Test
+	public void test12_delHugePartial() {
+		Gpr.debug("Test");
+
+		// Create variant (larger than Variant.HUGE_DELETION_SIZE_THRESHOLD)
+		Variant variant = new Variant(chromosome, 2120, 2120 + Variant.HUGE_DELETION_SIZE_THRESHOLD + 1, "");
+		variant.setVariantType(VariantType.DEL);
+
+		EffectType expEffs[] = { EffectType.CHROMOSOME_LARGE_DELETION, EffectType.GENE_DELETED, EffectType.EXON_DELETED, EffectType.EXON_DELETED_PARTIAL };
+		EffectImpact expectedImpact = EffectImpact.HIGH;
+
+		checkEffects(variant, expEffs, null, null, expectedImpact, null);
+
+		// Only 'geneId2' is affected
+		VariantEffects effects = snpEffectPredictor.variantEffect(variant);
+		for (VariantEffect varEff : effects) {
+			Gene g = varEff.getGene();
+			if (g != null) Assert.assertEquals("geneId2", g.getId());
+		}
+	}
+
 }
@@ -0,0 +1,229 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Custom;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.tree.TabixIntervals;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+import net.sf.samtools.tabix.BgzfOutputStream;
+import net.sf.samtools.tabix.TabixIndexer;
+
+/**
+ * Test cases for custom intervals queried from a tabix indexed BED file
+ *
+ * @author pcingola
+ */
+public class TestCasesTabixIntervals {
+
+	public static final int NUM_INTERVALS = 3000;
+	public static final int NUM_QUERIES = 500;
+	public static final int WINDOW_SIZE = 10 * 1000;
+
+	boolean verbose = false;
+	Random rand = new Random(20160701);
+	Genome genome = new Genome("genome");
+	List<Marker> intervals;
+
+	/**
+	 * Query using brute force (i.e. check all intervals)
+	 */
+	List<String> bruteForceQuery(Marker marker) {
+		List<String> ids = new ArrayList<>();
+		for (Marker m : intervals)
+			if (m.getChromosomeName().equals(marker.getChromosomeName()) && m.intersects(marker)) ids.add(m.getId());
+		Collections.sort(ids);
+		return ids;
+	}
+
+	/**
+	 * Create random (sorted) intervals and write them to a BGZF compressed BED file with a tabix index
+	 */
+	String createBed() throws Exception {
+		File file = File.createTempFile("test_tabix_intervals_", ".bed.gz");
+		file.deleteOnExit();
+		String fileName = file.getCanonicalPath();
+		new File(fileName + TabixIndexer.TBI_EXT).deleteOnExit();
+
+		BgzfOutputStream out = new BgzfOutputStream(new FileOutputStream(fileName), 1);
+		TabixIndexer indexer = TabixIndexer.bed();
+		intervals = new ArrayList<>();
+
+		for (String chr : new String[] { "1", "2", "X" }) {
+			Chromosome chromo = genome.getOrCreateChromosome(chr);
+			int pos = 0;
+			for (int i = 0; i < NUM_INTERVALS / 3; i++) {
+				pos += rand.nextInt(500);
+
+				// Some large intervals
+				int len = 1 + rand.nextInt(100);
+				if (rand.nextInt(50) == 0) len = rand.nextInt(50 * 1000);
+
+				String id = "int_" + chr + "_" + i;
+				intervals.add(new Marker(chromo, pos, pos + len - 1, false, id));
+
+				String line = chr + "\t" + pos + "\t" + (pos + len) + "\t" + id;
+				long offsetStart = out.getBlockOffset();
+				out.write((line + "\n").getBytes());
+				indexer.add(line, offsetStart, out.getBlockOffset());
+			}
+		}
+		out.close();
+
+		Assert.assertTrue(indexer.isOk());
+		indexer.write(fileName + TabixIndexer.TBI_EXT, out);
+		return fileName;
+	}
+
+	/**
+	 * Create random queries
+	 */
+	List<Marker> createQueries() {
+		List<Marker> queries = new ArrayList<>();
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			String chr = (i % 3 == 0 ? "1" : (i % 3 == 1 ? "2" : "X"));
+			int start = rand.nextInt(NUM_INTERVALS / 3 * 250);
+			int end = start + rand.nextInt(1000);
+			queries.add(new Marker(genome.getOrCreateChromosome(chr), start, end, false, ""));
+		}
+		return queries;
+	}
+
+	/**
+	 * Query all markers and compare to brute force results
+	 */
+	void checkQueries(TabixIntervals tabixIntervals, List<Marker> queries) {
+		for (Marker q : queries) {
+			List<String> ids = new ArrayList<>();
+			Markers results = tabixIntervals.query(q);
+			for (Marker m : results) {
+				Assert.assertEquals(tabixIntervals.getLabel(), ((Custom) m).getLabel());
+				ids.add(m.getId());
+			}
+			Collections.sort(ids);
+
+			if (verbose) Gpr.debug("Query: " + q.toStr() + "\t" + ids);
+			Assert.assertEquals("Query '" + q.toStr() + "'", bruteForceQuery(q), ids);
+		}
+	}
+
+	/**
+	 * Random (unsorted) queries
+	 */
+	@Test
+	public void test_01_random_queries() throws Exception {
+		Gpr.debug("Test");
+		String fileName = createBed();
+		Assert.assertTrue(TabixIntervals.canQuery(fileName));
+
+		TabixIntervals tabixIntervals = new TabixIntervals(fileName, "test", genome);
+		tabixIntervals.setWindowSize(WINDOW_SIZE);
+		checkQueries(tabixIntervals, createQueries());
+		if (verbose) Gpr.debug(tabixIntervals);
+		tabixIntervals.close();
+	}
+
+	/**
+	 * Sorted queries (e.g. annotating a coordinate sorted VCF file)
+	 */
+	@Test
+	public void test_02_sorted_queries() throws Exception {
+		Gpr.debug("Test");
+		String fileName = createBed();
+
+		List<Marker> queries = createQueries();
+		Collections.sort(queries);
+
+		TabixIntervals tabixIntervals = new TabixIntervals(fileName, "test", genome);
+		tabixIntervals.setWindowSize(WINDOW_SIZE);
+		checkQueries(tabixIntervals, queries);
+		if (verbose) Gpr.debug(tabixIntervals);
+		tabixIntervals.close();
+	}
+
+	/**
+	 * Closing a predictor closes its tabix indexed files
+	 */
+	@Test
+	public void test_03_close_predictor() throws Exception {
+		Gpr.debug("Test");
+		String fileName = createBed();
+
+		TabixIntervals tabixIntervals = new TabixIntervals(fileName, "test", genome);
+		SnpEffectPredictor snpEffectPredictor = new SnpEffectPredictor(genome);
+		snpEffectPredictor.add(tabixIntervals);
+		checkQueries(tabixIntervals, createQueries());
+		Assert.assertFalse(tabixIntervals.isClosed());
+
+		snpEffectPredictor.close();
+		Assert.assertTrue(tabixIntervals.isClosed());
+	}
+
+	/**
+	 * Queries after closing return no intervals (e.g. from threads still using a replaced database)
+	 */
+	@Test
+	public void test_04_query_after_close() throws Exception {
+		Gpr.debug("Test");
+		String fileName = createBed();
+
+		final TabixIntervals tabixIntervals = new TabixIntervals(fileName, "test", genome);
+		final List<Marker> queries = createQueries();
+		checkQueries(tabixIntervals, queries);
+		tabixIntervals.close();
+
+		// Same thread (window already open)
+		for (Marker q : queries)
+			Assert.assertTrue(tabixIntervals.query(q).isEmpty());
+
+		// New thread (no window yet)
+		final List<Integer> counts = new ArrayList<>();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				int count = 0;
+				for (Marker q : queries)
+					count += tabixIntervals.query(q).size();
+				counts.add(count);
+			}
+		};
+		thread.start();
+		thread.join();
+		Assert.assertEquals(1, counts.size());
+		Assert.assertEquals(0, (int) counts.get(0));
+	}
+
+	/**
+	 * Intervals belong to the genome's chromosomes
+	 */
+	@Test
+	public void test_05_genome() throws Exception {
+		Gpr.debug("Test");
+		String fileName = createBed();
+
+		TabixIntervals tabixIntervals = new TabixIntervals(fileName, "test", genome);
+		int count = 0;
+		for (Marker q : createQueries()) {
+			for (Marker m : tabixIntervals.query(q)) {
+				Assert.assertSame(genome, m.getGenome());
+				Assert.assertSame(genome.getChromosome(q.getChromosomeName()), m.getParent());
+				count++;
+			}
+		}
+		tabixIntervals.close();
+		Assert.assertTrue(count > 0);
+	}
+
+}
@@ -0,0 +1,120 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.snpeff.interval.Variant;
+import org.snpeff.outputFormatter.TsvOutputFormatter;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.util.Gpr;
+import org.snpeff.vcf.EffFormatVersion;
+import org.snpeff.vcf.VcfEffect;
+
+import junit.framework.Assert;
+
+/**
+ * Test cases for TSV output format (one line per effect)
+ *
+ * @author pcingola
+ */
+public class TestCasesTsvOutput extends TestCasesBase {
+
+	public static final int NUM_VARIANTS = 200;
+
+	public TestCasesTsvOutput() {
+		super();
+	}
+
+	/**
+	 * Join two columns as 'num/total' (empty if not available)
+	 */
+	String numTotal(String cols[], int idx) {
+		return cols[idx].isEmpty() ? "" : cols[idx] + "/" + cols[idx + 1];
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		numGenes = 3;
+		maxGeneLen = 1000;
+		maxTranscripts = 2;
+	}
+
+	/**
+	 * Each TSV line has the same information as the corresponding 'ANN' field
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+
+		TsvOutputFormatter tsvOutputFormatter = new TsvOutputFormatter();
+		tsvOutputFormatter.setConfig(config);
+		tsvOutputFormatter.setChrStr("");
+		tsvOutputFormatter.setShowHeader(false);
+		tsvOutputFormatter.setUseHgvs(true);
+		tsvOutputFormatter.setUseSequenceOntology(true);
+		tsvOutputFormatter.setLossOfFunction(true);
+
+		for (int i = 0; i < NUM_VARIANTS; i++) {
+			// Random SNP
+			int pos = rand.nextInt(chromosome.size());
+			String ref = Character.toString(Character.toUpperCase(chromoBases[pos]));
+			String alt = ref.equals("A") ? "C" : "A";
+			Variant variant = new Variant(chromosome, pos, ref, alt);
+
+			// Create expected 'ANN' fields
+			VariantEffects variantEffects = snpEffectPredictor.variantEffect(variant);
+			List<String> expected = new ArrayList<>();
+			for (VariantEffect variantEffect : variantEffects) {
+				VcfEffect vcfEffect = new VcfEffect(variantEffect, EffFormatVersion.FORMAT_ANN_1, true, false);
+				vcfEffect.setUseHgvs(true);
+				StringBuilder sb = new StringBuilder();
+				vcfEffect.createInfoField(sb);
+				expected.add(sb.toString());
+			}
+
+			// Create TSV lines
+			tsvOutputFormatter.startSection(variant);
+			for (VariantEffect variantEffect : variantEffects)
+				tsvOutputFormatter.add(variantEffect);
+			String lines[] = tsvOutputFormatter.endSection(variant).split("\n");
+
+			// Compare
+			Assert.assertEquals(expected.size(), lines.length);
+			for (int j = 0; j < lines.length; j++) {
+				String cols[] = lines[j].split("\t", -1);
+				if (verbose) Gpr.debug(lines[j]);
+				Assert.assertEquals(TsvOutputFormatter.COLUMN_NAMES.length, cols.length);
+				Assert.assertEquals(chromosome.getChromosomeName(), cols[0]);
+				Assert.assertEquals(Integer.toString(pos + 1), cols[1]);
+				Assert.assertEquals(ref, cols[2]);
+
+				String ann = cols[3] // Allele
+						+ "|" + cols[4] // Effect
+						+ "|" + cols[5] // Impact
+						+ "|" + cols[6] // Gene name
+						+ "|" + cols[7] // Gene ID
+						+ "|" + cols[8] // Feature type
+						+ "|" + cols[9] // Feature ID
+						+ "|" + cols[10] // Biotype
+						+ "|" + numTotal(cols, 11) // Rank
+						+ "|" + cols[13] // HGVS.c
+						+ "|" + cols[14] // HGVS.p
+						+ "|" + numTotal(cols, 15) // cDNA
+						+ "|" + numTotal(cols, 17) // CDS
+						+ "|" + numTotal(cols, 19) // AA
+						+ "|" + cols[21] // Distance
+						+ "|" + cols[22] // Errors
+				;
+				Assert.assertEquals(expected.get(j), ann);
+
+				// LOF & NMD
+				Assert.assertTrue(cols[23].equals("true") || cols[23].equals("false"));
+				Assert.assertTrue(cols[24].equals("true") || cols[24].equals("false"));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.snpeff.collections.LruCache;
+import org.snpeff.collections.LruCacheSegmented;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test cases for variant effects cache
+ *
+ * @author pcingola
+ */
+public class TestCasesVariantEffectsCache extends TestCasesBase {
+
+	public static final int NUM_VARIANTS = 1000;
+	public static final int CACHE_SIZE = 100;
+	public static final int NUM_THREADS = 8;
+
+	public TestCasesVariantEffectsCache() {
+		super();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		numGenes = 3;
+		maxGeneLen = 1000;
+		maxTranscripts = 2;
+	}
+
+	/**
+	 * Copy of a variant (a different object having the same values)
+	 */
+	Variant copy(Variant variant) {
+		Variant varCopy = new Variant(variant.getChromosome(), variant.getStart(), variant.getReference(), variant.getAlt());
+		varCopy.setId(variant.getId());
+		return varCopy;
+	}
+
+	/**
+	 * Effect types and impacts, as a string
+	 */
+	String impacts(VariantEffects variantEffects) {
+		StringBuilder sb = new StringBuilder();
+		for (VariantEffect variantEffect : variantEffects)
+			sb.append(variantEffect.getEffectType() + ":" + variantEffect.getEffectImpact() + ";");
+		return sb.toString();
+	}
+
+	/**
+	 * Create random SNPs (positions are repeated)
+	 */
+	List<Variant> randomSnps() {
+		List<Variant> variants = new ArrayList<>();
+		for (int i = 0; i < NUM_VARIANTS; i++) {
+			int pos = rand.nextInt(CACHE_SIZE) * (chromosome.size() / CACHE_SIZE);
+			String ref = Character.toString(Character.toUpperCase(chromoBases[pos]));
+			String alt = ref.equals("A") ? "C" : "A";
+			variants.add(new Variant(chromosome, pos, ref, alt));
+		}
+		return variants;
+	}
+
+	/**
+	 * Cached effects are the same as effects calculated without a cache
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+		List<Variant> variants = randomSnps();
+
+		// Calculate without cache
+		List<String> expected = new ArrayList<>();
+		for (Variant variant : variants)
+			expected.add(snpEffectPredictor.variantEffect(variant).toString());
+
+		// Calculate using cache
+		snpEffectPredictor.setVariantEffectsCacheSize(CACHE_SIZE);
+		for (int i = 0; i < variants.size(); i++) {
+			Variant variant = variants.get(i);
+			Variant varCopy = new Variant(variant.getChromosome(), variant.getStart(), variant.getReference(), variant.getAlt());
+			VariantEffects variantEffects = snpEffectPredictor.variantEffect(varCopy);
+			Assert.assertEquals(expected.get(i), variantEffects.toString());
+		}
+
+		// Most of the results should be cached (only CACHE_SIZE different positions)
+		LruCache<String, VariantEffects> cache = snpEffectPredictor.getVariantEffectsCache();
+		if (verbose) Gpr.debug("Cache: " + cache);
+		Assert.assertTrue(cache.size() <= CACHE_SIZE);
+		Assert.assertTrue(cache.getCountMisses() <= CACHE_SIZE);
+		Assert.assertEquals(NUM_VARIANTS, cache.getCountHits() + cache.getCountMisses());
+
+		// Rebuilding the forest invalidates the cache
+		snpEffectPredictor.buildForest();
+		Assert.assertEquals(0, cache.size());
+	}
+
+	/**
+	 * LRU cache: Least recently used entries are removed
+	 */
+	@Test
+	public void test_02_lru() {
+		Gpr.debug("Test");
+		LruCache<String, Integer> cache = new LruCache<>(3);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		Assert.assertEquals(1, (int) cache.get("a")); // Use 'a'
+
+		cache.put("d", 4); // 'b' is the least recently used
+		Assert.assertEquals(3, cache.size());
+		Assert.assertNull(cache.get("b"));
+		Assert.assertEquals(1, (int) cache.get("a"));
+		Assert.assertEquals(3, (int) cache.get("c"));
+		Assert.assertEquals(4, (int) cache.get("d"));
+	}
+
+	/**
+	 * Variants having different IDs do not share cached effects
+	 */
+	@Test
+	public void test_03_variant_id() {
+		Gpr.debug("Test");
+		snpEffectPredictor.setVariantEffectsCacheSize(CACHE_SIZE);
+
+		Variant variant = randomSnps().get(0);
+		for (String id : new String[] { "rs1", "rs2", "", "rs1" }) {
+			Variant var = copy(variant);
+			var.setId(id);
+			for (VariantEffect variantEffect : snpEffectPredictor.variantEffect(var))
+				Assert.assertEquals(id, variantEffect.getVariant().getId());
+		}
+
+		// Same variant and ID => Cached
+		Assert.assertEquals(1, snpEffectPredictor.getVariantEffectsCache().getCountHits());
+	}
+
+	/**
+	 * Cached effects are shared by many threads
+	 */
+	@Test
+	public void test_04_multithreaded() throws InterruptedException {
+		Gpr.debug("Test");
+		final List<Variant> variants = randomSnps();
+
+		// Calculate without cache
+		final List<String> expected = new ArrayList<>();
+		for (Variant variant : variants) {
+			VariantEffects variantEffects = snpEffectPredictor.variantEffect(copy(variant));
+			expected.add(variantEffects.toString() + "\t" + impacts(variantEffects));
+		}
+
+		// Calculate using cache (several threads)
+		snpEffectPredictor.setVariantEffectsCacheSize(CACHE_SIZE);
+		final AtomicInteger errors = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < NUM_THREADS; t++) {
+			final Random r = new Random(t);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					List<Integer> idxs = new ArrayList<>();
+					for (int i = 0; i < variants.size(); i++)
+						idxs.add(i);
+					Collections.shuffle(idxs, r);
+
+					for (int i : idxs) {
+						VariantEffects variantEffects = snpEffectPredictor.variantEffect(copy(variants.get(i)));
+						String res = variantEffects.toString() + "\t" + impacts(variantEffects);
+						if (!expected.get(i).equals(res)) errors.incrementAndGet();
+					}
+				}
+			});
+		}
+
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+
+		Assert.assertEquals(0, errors.get());
+		Assert.assertTrue(snpEffectPredictor.getVariantEffectsCache().getCountHits() > 0);
+	}
+
+	/**
+	 * Segmented LRU cache: Least recently used entries are removed (in each segment)
+	 */
+	@Test
+	public void test_05_lru_segmented() {
+		Gpr.debug("Test");
+		LruCacheSegmented<String, Integer> cache = new LruCacheSegmented<>(3, 1);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		Assert.assertEquals(1, (int) cache.get("a")); // Use 'a'
+
+		cache.put("d", 4); // 'b' is the least recently used
+		Assert.assertEquals(3, cache.size());
+		Assert.assertNull(cache.get("b"));
+		Assert.assertEquals(1, (int) cache.get("a"));
+		Assert.assertEquals(3, (int) cache.get("c"));
+		Assert.assertEquals(4, (int) cache.get("d"));
+		Assert.assertNull(cache.putIfAbsent("b", 2)); // 'b' was removed, so it is added again
+		Assert.assertNull(cache.get("a")); // 'a' was the least recently used
+
+		// Several segments: Size is bounded
+		cache = new LruCacheSegmented<>(100);
+		for (int i = 0; i < 1000; i++)
+			cache.putIfAbsent("k" + i, i);
+		Assert.assertTrue(cache.size() <= 100);
+		Assert.assertEquals(100, cache.getMaxSize());
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.snpeff.snpEffect.testCases.unity;
 
+import java.io.BufferedReader;
+import java.io.StringReader;
 import java.util.List;
 
 import org.junit.Assert;
@@ -702,4 +704,72 @@ public class TestCasesVcf extends TestCasesBase {
 		}
 	}
 
+	/**
+	 * Parse fields from a VCF line: Missing values, multiple ALTs and raw genotypes
+	 */
+	@Test
+	public void test_36_parse_fields() {
+		Gpr.debug("Test");
+		String line = "1\t12345\t.\tA\tC,T\t.\tPASS\tAC=1;AF=0.5\tGT:DP\t0/1:10\t1/2:20\t./.:.";
+		String vcf = "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\tS3\n" + line + "\r\n";
+
+		VcfFileIterator vcfFile = new VcfFileIterator(new BufferedReader(new StringReader(vcf)), null);
+		VcfEntry ve = vcfFile.next();
+		if (verbose) Gpr.debug(ve);
+
+		Assert.assertEquals("1", ve.getChromosomeName());
+		Assert.assertEquals(12344, ve.getStart());
+		Assert.assertEquals("", ve.getId());
+		Assert.assertEquals("A", ve.getRef());
+		Assert.assertEquals(2, ve.getAlts().length);
+		Assert.assertEquals("C", ve.getAlts()[0]);
+		Assert.assertEquals("T", ve.getAlts()[1]);
+		Assert.assertEquals(0.0, ve.getQuality(), 0.0);
+		Assert.assertEquals("PASS", ve.getFilter());
+		Assert.assertEquals("AC=1;AF=0.5", ve.getInfoStr());
+		Assert.assertEquals("0.5", ve.getInfo("AF"));
+		Assert.assertEquals("GT:DP", ve.getFormat());
+
+		// Genotypes are written unchanged
+		Assert.assertTrue(ve.hasGenotypes());
+		Assert.assertEquals(line, ve.toString());
+		Assert.assertEquals("0/1:10\t1/2:20\t./.:.", ve.getGenotypeFieldsStr());
+
+		// Genotypes can be parsed
+		Assert.assertEquals(3, ve.getVcfGenotypes().size());
+		Assert.assertEquals("20", ve.getVcfGenotype(1).get("DP"));
+		Assert.assertEquals(line, ve.toString());
+	}
+
+	/**
+	 * Encoding values into a buffer is the same as encoding strings
+	 */
+	@Test
+	public void test_37_vcfInfoEncodingBuffer() {
+		Gpr.debug("Test");
+		String chars = "ACGTacgt01 ,;|=()%\t\n\r.:_/";
+		for (int i = 0; i < 1000; i++) {
+			StringBuilder str = new StringBuilder();
+			for (int j = rand.nextInt(20); j > 0; j--)
+				str.append(chars.charAt(rand.nextInt(chars.length())));
+
+			StringBuilder sb = new StringBuilder("x");
+			VcfEntry.vcfInfoEncode(sb, str.toString());
+			Assert.assertEquals("x" + VcfEntry.vcfInfoEncode(str.toString()), sb.toString());
+
+			sb = new StringBuilder("x");
+			VcfEntry.vcfInfoValueSafe(sb, str.toString());
+			Assert.assertEquals("x" + VcfEntry.vcfInfoValueSafe(str.toString()), sb.toString());
+		}
+
+		// Add encoded values: Previous value is replaced
+		String vcf = "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n1\t12345\t.\tA\tC\t50\tPASS\tAC=1;ANN=old;AF=0.5\n";
+		VcfFileIterator vcfFile = new VcfFileIterator(new BufferedReader(new StringReader(vcf)), null);
+		VcfEntry ve = vcfFile.next();
+		ve.addInfoEncoded("ANN", new StringBuilder("C|new"));
+		Assert.assertEquals("AC=1;AF=0.5;ANN=C|new", ve.getInfoStr());
+		Assert.assertEquals("C|new", ve.getInfo("ANN"));
+		Assert.assertEquals("1\t12345\t.\tA\tC\t50.0\tPASS\tAC=1;AF=0.5;ANN=C|new", ve.toString());
+	}
+
 }
@@ -24,6 +24,28 @@ public class AlleleCountStats implements SamplingStats<VcfEntry> {
 		return counters != null;
 	}
 
+	/**
+	 * Merge per sample allele count histograms from another instance
+	 */
+	public void merge(AlleleCountStats alleleCountStats) {
+		if (alleleCountStats.counters == null) return;
+
+		if (counters == null) {
+			sampleNames = alleleCountStats.sampleNames;
+			counters = new int[alleleCountStats.counters.length][];
+			for (int i = 0; i < counters.length; i++)
+				counters[i] = alleleCountStats.counters[i].clone();
+			return;
+		}
+
+		for (int i = 0; i < Math.min(counters.length, alleleCountStats.counters.length); i++) {
+			int count[] = counters[i];
+			int add[] = alleleCountStats.counters[i];
+			for (int j = 0; j < Math.min(count.length, add.length); j++)
+				count[j] += add[j];
+		}
+	}
+
 	/**
 	 * Update MAC counters
 	 */
@@ -53,6 +53,17 @@ public class ChrPosStats {
 			count[i] = 0;
 	}
 
+	/**
+	 * Merge counts from another instance (same chromosome)
+	 */
+	public void merge(ChrPosStats chrPosStats) {
+		if ((count.length != chrPosStats.count.length) || (factor != chrPosStats.factor)) throw new RuntimeException("Cannot merge statistics for chromosome '" + name + "': Number of bins do not match (" + count.length + " vs " + chrPosStats.count.length + ")");
+
+		for (int i = 0; i < count.length; i++)
+			count[i] += chrPosStats.count[i];
+		total += chrPosStats.total;
+	}
+
 	public int[] posArray() {
 		int pos[] = new int[count.length];
 		for (int i = 0; i < pos.length; i++)
@@ -127,7 +127,7 @@ public class CountByType implements Serializable {
 	/**
 	 * Increment counter in a hash
 	 */
-	long inc(HashMap<String, Long> hash, String type, int toAdd) {
+	long inc(HashMap<String, Long> hash, String type, long toAdd) {
 		Long count = hash.get(type);
 		if (count == null) count = 0L;
 		count += toAdd;
@@ -196,6 +196,21 @@ public class CountByType implements Serializable {
 		return max;
 	}
 
+	/**
+	 * Merge counts and scores from another instance
+	 * (e.g. statistics collected by another thread)
+	 */
+	public void merge(CountByType cbt) {
+		for (Map.Entry<String, Long> e : cbt.countByType.entrySet())
+			inc(countByType, e.getKey(), e.getValue());
+
+		for (Map.Entry<String, Double> e : cbt.scoreByType.entrySet()) {
+			Double currScore = scoreByType.get(e.getKey());
+			if (currScore == null) currScore = 0.0;
+			scoreByType.put(e.getKey(), currScore + e.getValue());
+		}
+	}
+
 	/**
 	 * Minimum count
 	 */
@@ -112,6 +112,22 @@ public class GeneCountByTypeTable implements Iterable<String>, Serializable {
 		return keys.iterator();
 	}
 
+	/**
+	 * Merge counters from another table
+	 */
+	public void merge(GeneCountByTypeTable table) {
+		keys.addAll(table.keys);
+		types.addAll(table.types);
+		bioType.putAll(table.bioType);
+		sizeByType.putAll(table.sizeByType);
+
+		for (String type : table.countersByType.keySet())
+			getCounter(type).merge(table.countersByType.get(type));
+
+		for (String type : table.counterSizeByType.keySet())
+			getCounterSize(type).merge(table.counterSizeByType.get(type));
+	}
+
 	/**
 	 * Sample this <gene, marker, type, seqChange> tuple to update statistics
 	 */
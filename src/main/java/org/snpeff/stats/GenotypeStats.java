@@ -108,6 +108,19 @@ public class GenotypeStats implements SamplingStats<VcfEntry> {
 		return true;
 	}
 
+	/**
+	 * Merge per sample genotype counts (hom, het, ref, missing) and allele count / frequency histograms from another instance
+	 */
+	public void merge(GenotypeStats genotypeStats) {
+		if (sampleNames == null) sampleNames = genotypeStats.sampleNames;
+		alleleCount.merge(genotypeStats.alleleCount);
+		alleleFrequency.merge(genotypeStats.alleleFrequency);
+		countHom = Gpr.addCounts(countHom, genotypeStats.countHom);
+		countHet = Gpr.addCounts(countHet, genotypeStats.countHet);
+		countRef = Gpr.addCounts(countRef, genotypeStats.countRef);
+		countMissing = Gpr.addCounts(countMissing, genotypeStats.countMissing);
+	}
+
 	/**
 	 * Update counters
 	 */
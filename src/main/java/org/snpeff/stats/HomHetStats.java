@@ -2,6 +2,7 @@ package org.snpeff.stats;
 
 import java.util.List;
 
+import org.snpeff.util.Gpr;
 import org.snpeff.vcf.VcfEntry;
 
 /**
@@ -34,6 +35,17 @@ public class HomHetStats implements SamplingStats<VcfEntry> {
 		return countHomRef != null;
 	}
 
+	/**
+	 * Merge per sample counts of homozygous, heterozygous and missing genotypes from another instance
+	 */
+	public void merge(HomHetStats homHetStats) {
+		if (sampleNames == null) sampleNames = homHetStats.sampleNames;
+		countHomRef = Gpr.addCounts(countHomRef, homHetStats.countHomRef);
+		countAlt1 = Gpr.addCounts(countAlt1, homHetStats.countAlt1);
+		countAlt2 = Gpr.addCounts(countAlt2, homHetStats.countAlt2);
+		countMissing = Gpr.addCounts(countMissing, homHetStats.countMissing);
+	}
+
 	/**
 	 * Update Hom/Het counters
 	 */
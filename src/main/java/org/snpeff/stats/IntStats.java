@@ -140,6 +140,17 @@ public class IntStats implements Serializable {
 		return statsProcedure.minKey <= statsProcedure.maxKey; // If this doesn't hold, it means that there was no data at all
 	}
 
+	/**
+	 * Merge counters from another instance
+	 */
+	public void merge(IntStats intStats) {
+		for (int key : intStats.counters.keys()) {
+			int count = intStats.counters.get(key);
+			counters.adjustOrPutValue(key, count, count);
+		}
+		needUpdate = true;
+	}
+
 	/**
 	 * Use 'num' as a sample
 	 * @param num
@@ -106,6 +106,15 @@ public class TsTvStats implements SamplingStats<VcfEntry> {
 		return false;
 	}
 
+	/**
+	 * Merge per sample transition and transversion counts from another instance
+	 */
+	public void merge(TsTvStats tsTvStats) {
+		if (sampleNames == null) sampleNames = tsTvStats.sampleNames;
+		countTs = Gpr.addCounts(countTs, tsTvStats.countTs);
+		countTv = Gpr.addCounts(countTv, tsTvStats.countTv);
+	}
+
 	/**
 	 * Update Ts and Tv counters
 	 * Only for SNPs
@@ -174,6 +174,31 @@ public class VariantEffectStats implements SamplingStats<VariantEffect> {
 		return countByEffect.hasData();
 	}
 
+	/**
+	 * Merge effect, impact, codon and amino acid counts, and gene tables from another instance
+	 */
+	public void merge(VariantEffectStats variantEffectStats) {
+		aaChangeCountMax = Math.max(aaChangeCountMax, variantEffectStats.aaChangeCountMax);
+		codonChangeCountMax = Math.max(codonChangeCountMax, variantEffectStats.codonChangeCountMax);
+		countWarnings += variantEffectStats.countWarnings;
+		countErrors += variantEffectStats.countErrors;
+
+		countByEffect.merge(variantEffectStats.countByEffect);
+		countByCodon.merge(variantEffectStats.countByCodon);
+		countByAa.merge(variantEffectStats.countByAa);
+		countByGeneRegion.merge(variantEffectStats.countByGeneRegion);
+		countByImpact.merge(variantEffectStats.countByImpact);
+		countByFunctionalClass.merge(variantEffectStats.countByFunctionalClass);
+
+		codonSet.addAll(variantEffectStats.codonSet);
+		aaSet.addAll(variantEffectStats.aaSet);
+		geneSet.addAll(variantEffectStats.geneSet);
+
+		geneCountByRegionTable.merge(variantEffectStats.geneCountByRegionTable);
+		geneCountByImpactTable.merge(variantEffectStats.geneCountByImpactTable);
+		geneCountByEffectTable.merge(variantEffectStats.geneCountByEffectTable);
+	}
+
 	@Override
 	public void sample(VariantEffect variantEffect) {
 		// Any warnings?
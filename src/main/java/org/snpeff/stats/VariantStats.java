@@ -232,6 +232,30 @@ public class VariantStats implements SamplingStats<Variant> {
 		indelLen.sample(len);
 	}
 
+	/**
+	 * Merge variant counts, indel lengths, change types, base changes and per chromosome position stats from another instance
+	 */
+	public void merge(VariantStats variantStats) {
+		countVariants += variantStats.countVariants;
+		countNonVariants += variantStats.countNonVariants;
+		countNonEmptyId += variantStats.countNonEmptyId;
+		indelLen.merge(variantStats.indelLen);
+		countByChangeType.merge(variantStats.countByChangeType);
+		baseChangesCount.merge(variantStats.baseChangesCount);
+
+		for (ChrPosStats cps : variantStats.chrPosStatsbyName.values()) {
+			ChrPosStats chrPosStats = chrPosStatsbyName.get(cps.name);
+
+			// No stats? => Create a new one
+			if (chrPosStats == null) {
+				chrPosStats = new ChrPosStats(cps.name, cps.length);
+				chrPosStatsbyName.put(cps.name, chrPosStats);
+			}
+
+			chrPosStats.merge(cps);
+		}
+	}
+
 	/**
 	 * Use this sample to perform statistics
 	 */
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.snpeff.interval.Variant;
 import org.snpeff.interval.Variant.VariantType;
+import org.snpeff.util.Gpr;
 import org.snpeff.vcf.VcfEntry;
 
 /**
@@ -53,6 +54,19 @@ public class VariantTypeStats implements SamplingStats<VcfEntry> {
 		return counterSnp != null;
 	}
 
+	/**
+	 * Merge per sample counts of each variant type (SNP, MNP, INS, DEL, etc.) from another instance
+	 */
+	public void merge(VariantTypeStats variantTypeStats) {
+		if (sampleNames == null) sampleNames = variantTypeStats.sampleNames;
+		counterSnp = Gpr.addCounts(counterSnp, variantTypeStats.counterSnp);
+		counterMnp = Gpr.addCounts(counterMnp, variantTypeStats.counterMnp);
+		counterIns = Gpr.addCounts(counterIns, variantTypeStats.counterIns);
+		counterDel = Gpr.addCounts(counterDel, variantTypeStats.counterDel);
+		counterComplex = Gpr.addCounts(counterComplex, variantTypeStats.counterComplex);
+		counterMultiallelic = Gpr.addCounts(counterMultiallelic, variantTypeStats.counterMultiallelic);
+	}
+
 	/**
 	 * Update MAC counters
 	 */
@@ -51,6 +51,17 @@ public class VcfStats implements SamplingStats<VcfEntry> {
 		return tsTvStats.hasData() || genotypeStats.hasData();
 	}
 
+	/**
+	 * Merge quality, Ts/Tv (all and known variants) and genotype stats from another instance
+	 */
+	public void merge(VcfStats vcfStats) {
+		qualityStats.merge(vcfStats.qualityStats);
+		tsTvStats.merge(vcfStats.tsTvStats);
+		tsTvStatsKnown.merge(vcfStats.tsTvStatsKnown);
+		genotypeStats.merge(vcfStats.genotypeStats);
+		countMultiallelic += vcfStats.countMultiallelic;
+	}
+
 	@Override
 	public void sample(VcfEntry vcfEntry) {
 		// Does it have an ID? => it is a 'known' variant.
@@ -5,6 +5,7 @@ package org.snpeff.util;
 
 import java.awt.Color;
 import java.awt.Paint;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -31,6 +32,8 @@ import java.util.Arrays;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import net.sf.samtools.tabix.BgzfInputStream;
+
 /**
  * General pupose rutines
  * @author root
@@ -114,6 +117,34 @@ public class Gpr {
 	// User's home directory
 	public static final String HOME = System.getProperty("user.home");
 
+	/**
+	 * Add counters from 'add' to 'count' (element by element).
+	 * Returns 'count', or a new array if 'count' is null or shorter than 'add'
+	 */
+	public static int[] addCounts(int count[], int add[]) {
+		if (add == null) return count;
+		if (count == null) return add.clone();
+		if (count.length < add.length) count = Arrays.copyOf(count, add.length);
+
+		for (int i = 0; i < add.length; i++)
+			count[i] += add[i];
+		return count;
+	}
+
+	/**
+	 * Add counters from 'add' to 'count' (element by element).
+	 * Returns 'count', or a new array if 'count' is null or shorter than 'add'
+	 */
+	public static long[] addCounts(long count[], long add[]) {
+		if (add == null) return count;
+		if (count == null) return add.clone();
+		if (count.length < add.length) count = Arrays.copyOf(count, add.length);
+
+		for (int i = 0; i < add.length; i++)
+			count[i] += add[i];
+		return count;
+	}
+
 	/**
 	 * Return file's name (without the path)
 	 */
@@ -325,6 +356,16 @@ public class Gpr {
 		return paints;
 	}
 
+	/**
+	 * Decompress a gzip stream
+	 * BGZF streams (e.g. created by 'bgzip') are decompressed in parallel
+	 */
+	public static InputStream gzipInputStream(InputStream is) throws IOException {
+		BufferedInputStream bis = new BufferedInputStream(is);
+		if (BgzfInputStream.isBgzf(bis)) return new BgzfInputStream(bis, BgzfInputStream.DEFAULT_NUM_THREADS);
+		return new GZIPInputStream(bis);
+	}
+
 	public static String head(Object o) {
 		StringBuilder sb = new StringBuilder();
 
@@ -505,7 +546,7 @@ public class Gpr {
 			} else if (fileName.endsWith(".gz") || gzip) {
 				// This is a gzip compressed file
 				File inputFile = new File(fileName);
-				if (inputFile.exists()) return new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(new File(fileName)))));
+				if (inputFile.exists()) return new BufferedReader(new InputStreamReader(gzipInputStream(new FileInputStream(inputFile))));
 				else throw new RuntimeException("File not found '" + fileName + "'");
 			} else {
 				// Try opening the file
@@ -515,7 +556,7 @@ public class Gpr {
 					// Doesn't exists? => append '.gz' the file's name and try gzipped file
 					String fileNameGz = fileName + ".gz";
 					inputFile = new File(fileNameGz);
-					if (inputFile.exists()) return new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(new File(fileNameGz)))));
+					if (inputFile.exists()) return new BufferedReader(new InputStreamReader(gzipInputStream(new FileInputStream(inputFile))));
 					else throw new RuntimeException("File not found '" + fileName + "'");
 				}
 			}
@@ -1,10 +1,17 @@
 package org.snpeff.vcf;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -13,9 +20,29 @@ import java.util.Set;
 import org.snpeff.interval.Chromosome;
 import org.snpeff.util.Gpr;
 
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
 /**
  * Index a file that has "chr \t pos" as the beginning of a line (e.g. VCF)
  *
+ * The file is memory mapped (no system calls are needed to read it) and
+ * the index is stored in a 'sidecar' file ('fileName.chrpos'), so it is
+ * only created once. The index has each chromosome's start and end and
+ * the position of one line every 'sampleEvery' lines, which are used to
+ * narrow down binary searches.
+ *
+ * Sidecar index file layout (big endian):
+ *
+ * 		MAGIC                     : 8 bytes
+ * 		Format version            : int
+ * 		Indexed file size         : long
+ * 		Indexed file modified     : long (the index is re-created if the file changes)
+ * 		Sample every              : int
+ * 		Number of chromosomes     : int
+ * 		For each chromosome       : name (UTF), start (long), end (long), number of samples (int)
+ * 		                            samples' positions int[], samples' file offsets long[]
+ *
  * WARNING: It is assumed that the file is ordered by position (chromosome order does not matter)
  *
  * @author pcingola
@@ -29,6 +56,22 @@ public class FileIndexChrPos {
 	public class FileRegion {
 		long start, end;
 		String lineStart, lineEnd;
+		TIntArrayList samplePos = new TIntArrayList(); // Genomic positions of sampled lines (zero-based)
+		TLongArrayList sampleOffset = new TLongArrayList(); // File offsets of sampled lines
+
+		/**
+		 * Index of the first sample whose position is greater than 'pos' (or equal if 'orEqual' is set)
+		 */
+		int findSample(int pos, boolean orEqual) {
+			int lo = 0, hi = samplePos.size();
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				int p = samplePos.get(mid);
+				if (p < pos || (p == pos && !orEqual)) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo;
+		}
 
 		@Override
 		public String toString() {
@@ -58,38 +101,33 @@ public class FileIndexChrPos {
 	}
 
 	public static final int POS_OFFSET = 1; // VCF files are one-based
-	private static final int BUFF_SIZE = 17; // 1024 * 1024;
+	public static final String INDEX_EXT = ".chrpos";
+	public static final byte[] MAGIC = "SNPEFFCP".getBytes(StandardCharsets.US_ASCII);
+	public static final int FORMAT_VERSION = 1;
+	public static final int DEFAULT_SAMPLE_EVERY = 1000;
+	public static final int SEGMENT_BITS = 30; // File is mapped in segments of 1GB
+	public static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	public static final String TMP_EXT = ".tmp";
+	private static final int BUFF_SIZE = 64 * 1024;
 
 	boolean verbose = false;
 	boolean debug = false;
 	String fileName;
 	long size = 0;
-	RandomAccessFile file;
+	int sampleEvery = DEFAULT_SAMPLE_EVERY; // Sample one line every 'sampleEvery' lines
+	ByteBuffer segments[]; // Memory mapped file
 	HashMap<String, FileRegion> fileRegions = new HashMap<String, FileIndexChrPos.FileRegion>(); // Store file regions by chromosome
 
 	public FileIndexChrPos(String fileName) {
 		this.fileName = fileName;
 	}
 
-	/**
-	 * Get chromosome info
-	 */
-	String chromo(String line) {
-		if (line.startsWith("#")) return null;
-		return line.split("\\t")[0];
-	}
-
 	/**
 	 * Close file
+	 * Note: Mapped segments are released when garbage collected
 	 */
 	public void close() {
-		try {
-			if (file != null) file.close();
-		} catch (IOException e) {
-			System.err.println("I/O problem while closing file '" + fileName + "'");
-			throw new RuntimeException(e);
-		}
-		file = null;
+		segments = null;
 	}
 
 	/**
@@ -108,10 +146,9 @@ public class FileIndexChrPos {
 
 		try {
 			byte buff[] = new byte[BUFF_SIZE];
-			file.seek(start);
 			for (long curr = start; curr <= end;) {
 				long len = Math.min(BUFF_SIZE, end - curr + 1); // Maximum length to read
-				int read = file.read(buff, 0, (int) len); // Read file
+				int read = read(curr, buff, 0, (int) len); // Read file
 
 				if (read <= 0) break; // Error or nothing read, abort
 
@@ -199,8 +236,26 @@ public class FileIndexChrPos {
 		FileRegion fr = fileRegions.get(chr);
 		if (fr == null) throw new RuntimeException("No such chromosome: '" + chr + "'");
 
+		// Narrow down the search using sampled lines: Search
+		// between the last sample before 'pos' and the first one after 'pos'
+		long start = fr.start, end = fr.end;
+		String lineStart = fr.lineStart, lineEnd = fr.lineEnd;
+
+		int idxStart = fr.findSample(pos, true) - 1;
+		if (idxStart >= 0 && fr.sampleOffset.get(idxStart) > start) {
+			start = fr.sampleOffset.get(idxStart);
+			lineStart = getLine(start).line;
+		}
+
+		int idxEnd = fr.findSample(pos, false);
+		if (idxEnd < fr.samplePos.size() && fr.sampleOffset.get(idxEnd) < end) {
+			end = fr.sampleOffset.get(idxEnd);
+			lineEnd = getLine(end).line;
+		}
+
 		// Find position in file
-		long posFound = find(pos, fr.start, fr.lineStart, fr.end, fr.lineEnd, lessEq);
+		long posFound = find(pos, start, lineStart, end, lineEnd, lessEq);
+		if (posFound >= size()) return size(); // After last line in the file
 
 		// Get line information
 		LineAndPos linePos = getLine(posFound);
@@ -227,13 +282,7 @@ public class FileIndexChrPos {
 	 * Get a byte from a file
 	 */
 	public byte get(long bytePosition) {
-		try {
-			// Change position if needed
-			if (file.getFilePointer() != bytePosition) file.seek(bytePosition);
-			return (byte) file.read();
-		} catch (IOException e) {
-			throw new RuntimeException("Error readin file '" + fileName + "' at position " + bytePosition, e);
-		}
+		return segments[(int) (bytePosition >>> SEGMENT_BITS)].get((int) (bytePosition & SEGMENT_MASK));
 	}
 
 	/**
@@ -245,75 +294,70 @@ public class FileIndexChrPos {
 	 * @return An array of 'len' bytes. null if either end of file (len > 0) or beginning of file (len < 0)
 	 */
 	public byte[] get(long bytePosition, int len) {
-		try {
-			int size = Math.abs(len);
-
-			// Change position if needed
-			long pos = bytePosition;
-			if (len < 0) {
-				if (bytePosition <= 0) return null;
-				pos -= size;
-
-				// Before beginning of file?
-				if (pos < 0) {
-					pos = 0;
-					size = (int) bytePosition;
-				}
-				pos = Math.max(pos, 0);
+		int size = Math.abs(len);
+
+		// Change position if needed
+		long pos = bytePosition;
+		if (len < 0) {
+			if (bytePosition <= 0) return null;
+			pos -= size;
+
+			// Before beginning of file?
+			if (pos < 0) {
+				pos = 0;
+				size = (int) bytePosition;
 			}
-			if (file.getFilePointer() != pos) file.seek(pos);
-
-			byte buff[] = new byte[size];
-			int read = file.read(buff);
+			pos = Math.max(pos, 0);
+		}
 
-			// Nothing to read?
-			if (read <= 0) return null;
+		byte buff[] = new byte[size];
+		int read = read(pos, buff, 0, size);
 
-			// Buffer was too long? Return an array of byte with exactly the number of bytes
-			if (read < buff.length) {
-				byte newBuff[] = new byte[read];
-				System.arraycopy(buff, 0, newBuff, 0, read);
-				buff = newBuff;
-			}
+		// Nothing to read?
+		if (read <= 0) return null;
 
-			// Only return bytes until 'new line'
-			if (len > 0) {
-				// Find new line
-				int newLine = -1;
-				for (int i = 0; i < read; i++)
-					if (buff[i] == '\n') {
-						newLine = i;
-						break;
-					}
+		// Buffer was too long? Return an array of byte with exactly the number of bytes
+		if (read < buff.length) {
+			byte newBuff[] = new byte[read];
+			System.arraycopy(buff, 0, newBuff, 0, read);
+			buff = newBuff;
+		}
 
-				// Copy only the part until a newLine
-				if (newLine >= 0) {
-					byte newBuff[] = new byte[newLine + 1];
-					System.arraycopy(buff, 0, newBuff, 0, newLine + 1);
-					buff = newBuff;
+		// Only return bytes until 'new line'
+		if (len > 0) {
+			// Find new line
+			int newLine = -1;
+			for (int i = 0; i < read; i++)
+				if (buff[i] == '\n') {
+					newLine = i;
+					break;
 				}
-			} else if (len < 0) {
-				// Find new line backwards
-				int newLine = -1;
-				for (int i = read - 1; i >= 0; i--)
-					if (buff[i] == '\n') {
-						newLine = i;
-						break;
-					}
 
-				// Copy only the part until a newLine
-				if (newLine >= 0) {
-					byte newBuff[] = new byte[read - newLine];
-					for (int i = newLine, j = 0; i < read; i++, j++)
-						newBuff[j] = buff[i];
-					buff = newBuff;
-				}
+			// Copy only the part until a newLine
+			if (newLine >= 0) {
+				byte newBuff[] = new byte[newLine + 1];
+				System.arraycopy(buff, 0, newBuff, 0, newLine + 1);
+				buff = newBuff;
 			}
+		} else if (len < 0) {
+			// Find new line backwards
+			int newLine = -1;
+			for (int i = read - 1; i >= 0; i--)
+				if (buff[i] == '\n') {
+					newLine = i;
+					break;
+				}
 
-			return buff;
-		} catch (IOException e) {
-			throw new RuntimeException("Error readin file '" + fileName + "' at position " + bytePosition, e);
+			// Copy only the part until a newLine
+			if (newLine >= 0) {
+				byte newBuff[] = new byte[read - newLine];
+				for (int i = newLine, j = 0; i < read; i++, j++)
+					newBuff[j] = buff[i];
+				buff = newBuff;
+			}
 		}
+
+		return buff;
 	}
 
 	/**
@@ -354,40 +398,23 @@ public class FileIndexChrPos {
 	 * @return A string with the line that 'pos' hits, null if it's out of boundaries
 	 */
 	public LineAndPos getLine(long pos) {
-		int BUFF_SIZE = 10240;
-		long size = size();
 		if ((pos >= size) || (pos < 0)) return null;
 
-		LineAndPos linePos = new LineAndPos();
-		StringBuffer sb = new StringBuffer();
-
-		// Get bytes after 'pos'
-		long position;
-		for (position = pos; position < size;) {
-			byte b[] = get(position, BUFF_SIZE);
-			if (b == null) break; // End of file
-			sb.append(new String(b));
-			if (b[b.length - 1] == '\n') break; // Found new line?
-			position += b.length;
-		}
-
-		// Get bytes before 'pos'
-		for (position = pos; position >= 0;) {
-			byte b[] = get(position, -BUFF_SIZE);
-			if (b == null) break; // Beginning of file
-			sb.insert(0, new String(b));
-			position -= b.length;
-			if (b[0] == '\n') break; // Found new line?
-		}
+		// Find line boundaries
+		long start = pos;
+		while ((start > 0) && (get(start - 1) != '\n'))
+			start--;
 
-		// Remove leading and trailing '\n'?
-		int lineStart = 0, lineEnd = sb.length();
-		if (sb.charAt(0) == '\n') lineStart = 1;
-		if (sb.charAt(sb.length() - 1) == '\n') lineEnd = sb.length() - 1;
+		long end = pos;
+		while ((end < size) && (get(end) != '\n'))
+			end++;
 
-		linePos.line = sb.toString().substring(lineStart, lineEnd);
-		linePos.position = position + lineStart;
+		byte buff[] = new byte[(int) (end - start)];
+		read(start, buff, 0, buff.length);
 
+		LineAndPos linePos = new LineAndPos();
+		linePos.line = new String(buff);
+		linePos.position = start;
 		return linePos;
 	}
 
@@ -435,114 +462,155 @@ public class FileIndexChrPos {
 	}
 
 	/**
-	 * Index chromosomes in the whole file
+	 * Index chromosomes in the whole file.
+	 * The index is loaded from the sidecar file, if it is up to date. Otherwise
+	 * it is created (reading the whole file once) and saved to the sidecar file.
 	 */
 	public void index() {
-		if (file == null) throw new RuntimeException("File error (forgot to open the file?).");
+		if (segments == null) throw new RuntimeException("File error (forgot to open the file?).");
+		if (loadIndex()) return;
 
-		// Last line (minus '\n' character, minus one)
-		long end = size() - 1;
-		if (end < 0) return; // Empty database file
+		indexFile();
+		saveIndex();
+	}
 
-		String lineEnd = getLine(end).line;
-		String chrEnd = chromo(lineEnd);
+	/**
+	 * Index file: Scan all lines once, recording where each
+	 * chromosome starts and ends and sampling line positions
+	 */
+	void indexFile() {
+		if (verbose) System.err.println("\tIndexing file '" + fileName + "'");
+		fileRegions.clear();
+
+		FileRegion fr = null;
+		byte chrPrev[] = new byte[0];
+		long lineStartPrev = -1, lineNum = 0;
+
+		for (long lineStart = 0; lineStart < size;) {
+			// Find end of line
+			long lineEnd = lineStart;
+			while ((lineEnd < size) && (get(lineEnd) != '\n'))
+				lineEnd++;
+
+			// Skip header and empty lines
+			if ((lineStart < lineEnd) && (get(lineStart) != '#')) {
+				// Parse chromosome
+				long tab = lineStart;
+				while ((tab < lineEnd) && (get(tab) != '\t'))
+					tab++;
+
+				// New chromosome?
+				if (!sameBytes(chrPrev, lineStart, tab)) {
+					chrPrev = new byte[(int) (tab - lineStart)];
+					read(lineStart, chrPrev, 0, chrPrev.length);
+
+					String chr = Chromosome.simpleName(new String(chrPrev));
+					if (fileRegions.containsKey(chr)) throw new RuntimeException("Chromosome '" + chr + "' is not contiguous in file '" + fileName + "'. Is the file sorted?");
+					if (verbose) System.err.println("\t\tindex:\t" + chr + "\t" + lineStart);
+
+					if (fr != null) fr.end = lineStartPrev;
+					fr = getFileRegion(chr);
+					fr.start = lineStart;
+					lineNum = 0;
+				}
+
+				// Sample this line?
+				if ((lineNum % sampleEvery) == 0) {
+					int pos = 0;
+					for (long i = tab + 1; i < lineEnd; i++) {
+						byte b = get(i);
+						if (b < '0' || b > '9') break;
+						pos = pos * 10 + (b - '0');
+					}
+					fr.samplePos.add(pos - POS_OFFSET);
+					fr.sampleOffset.add(lineStart);
+				}
 
-		// Add fileRegion.end for last chromsome in the file
-		FileRegion fr = getFileRegion(chrEnd);
-		fr.end = end;
-		fr.lineEnd = lineEnd;
-		if (verbose) System.err.println("\tindex:\t" + chrEnd + "\t" + end);
+				lineStartPrev = lineStart;
+				lineNum++;
+			}
 
-		// Find first non-comment line
-		long start = 0;
-		String lineStart = "";
-		for (start = 0; start < size; start += lineStart.length() + 1) {
-			lineStart = getLine(start).line;
-			if (chromo(lineStart) != null) break;
+			lineStart = lineEnd + 1;
 		}
+		if (fr != null) fr.end = lineStartPrev;
 
-		String chrStart = chromo(lineStart);
-
-		// Add fileRegion.start for first chromsome in the file
-		fr = getFileRegion(chrStart);
-		fr.start = start;
-		fr.lineStart = lineStart;
-		if (verbose) System.err.println("\tindex:\t" + chrStart + "\t" + start);
+		updateLines();
+	}
 
-		// Index the rest of the file
-		indexChromos(start, lineStart, end, lineEnd);
+	String indexFileName() {
+		return fileName + INDEX_EXT;
 	}
 
 	/**
-	 * Index chromosomes in a region of a file
-	 * @param start
-	 * @param lineStart
-	 * @param end
-	 * @param lineEnd
+	 * Load index from sidecar file
+	 * @return false if the index file does not exist, is out of date or cannot be read (e.g. truncated)
 	 */
-	void indexChromos(long start, String lineStart, long end, String lineEnd) {
-		if (debug) Gpr.debug("Index:"//
-				+ "\n\t" + start + "(" + (((double) start) / size()) + ") :\t" + s(lineStart) //
-				+ "\n\t" + end + "(" + (((double) end) / size()) + ") :\t" + s(lineEnd));
-
-		if (start > end) throw new RuntimeException("This should never happen! Start: " + start + "\tEnd: " + end);
-
-		// Parse chromosome start and end
-		String chrStart = chromo(lineStart);
-		if (chrStart == null) throw new RuntimeException("Cannot extract chromosome data from line:"//
-				+ "\n\tPosition : " + start + " (byte position in file) "//
-				+ "\n\tLine     : " + lineStart//
-		);
-
-		String chrEnd = chromo(lineEnd);
-		if (chrEnd == null) throw new RuntimeException("Cannot extract chromosome data from line:"//
-				+ "\n\tPosition : " + end + " (byte position in file) "//
-				+ "\n\tLine     : " + lineEnd//
-		);
-
-		if (chrStart.equals(chrEnd)) {
-			if (debug) Gpr.debug("Chromo:\tlineStart: " + chrStart + "\tlineEnd: " + chrEnd + "\t==> Back!");
-			return;
-		}
-		if (debug) Gpr.debug("Chromo:\tlineStart: " + chrStart + "\tlineEnd: " + chrEnd);
-
-		if ((start + lineStart.length() + 1) >= end) {
-			if (verbose) System.err.println("\t\t" + chrStart + " / " + chrEnd + "\t" + start + " / " + end);
+	public boolean loadIndex() {
+		File indexFile = new File(indexFileName());
+		if (!indexFile.canRead()) return false;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			// Check header
+			byte magic[] = new byte[MAGIC.length];
+			in.readFully(magic);
+			for (int i = 0; i < MAGIC.length; i++)
+				if (magic[i] != MAGIC[i]) {
+					if (verbose) System.err.println("\tFile '" + indexFile + "' is not an index file");
+					return false;
+				}
 
-			// Add index where chromosome starts
-			getFileRegion(chrEnd).start = getLine(end).position;
-			getFileRegion(chrEnd).lineStart = lineEnd;
+			if (in.readInt() != FORMAT_VERSION //
+					|| in.readLong() != size //
+					|| in.readLong() != new File(fileName).lastModified() //
+					|| in.readInt() != sampleEvery //
+			) {
+				if (verbose) System.err.println("\tIndex file '" + indexFile + "' is out of date");
+				return false;
+			}
 
-			// Add index where chromosome ends
-			getFileRegion(chrStart).end = getLine(start).position;
-			getFileRegion(chrStart).lineEnd = lineStart;
-			return;
+			// Read chromosomes
+			fileRegions.clear();
+			int numChrs = in.readInt();
+			for (int i = 0; i < numChrs; i++) {
+				FileRegion fr = getFileRegion(in.readUTF());
+				fr.start = in.readLong();
+				fr.end = in.readLong();
+
+				int numSamples = in.readInt();
+				for (int j = 0; j < numSamples; j++)
+					fr.samplePos.add(in.readInt());
+				for (int j = 0; j < numSamples; j++)
+					fr.sampleOffset.add(in.readLong());
+			}
+		} catch (IOException e) {
+			// Corrupted or truncated index file (e.g. EOFException): Index will be re-created
+			if (verbose) System.err.println("\tError reading index file '" + indexFile + "': " + e);
+			fileRegions.clear();
+			return false;
 		}
 
-		long mid = (start + end) / 2;
-		String lineMid = getLine(mid).line;
-		if (debug) Gpr.debug("Mid: " + mid + "\t" + s(lineMid));
-
-		if (debug) Gpr.debug("First half recustion:");
-		indexChromos(start, lineStart, mid, lineMid);
-
-		if (debug) Gpr.debug("Second half recustion:");
-		indexChromos(mid, lineMid, end, lineEnd);
-	}
-
-	void init(FileChannel channel) throws IOException {
+		if (verbose) System.err.println("\tLoaded index file '" + indexFile + "'");
+		updateLines();
+		return true;
 	}
 
 	/**
 	 * Open file and initiate mappings
 	 */
 	public void open() {
-		try {
-			File f = new File(fileName);
-			size = f.length();
-			file = new RandomAccessFile(f, "r");
-		} catch (FileNotFoundException e) {
-			System.err.println("File not found '" + fileName + "'");
+		try (RandomAccessFile raf = new RandomAccessFile(fileName, "r"); FileChannel channel = raf.getChannel()) {
+			size = channel.size();
+
+			// Map file (segments of up to 1GB)
+			int numSegments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+			segments = new ByteBuffer[numSegments];
+			for (int i = 0; i < numSegments; i++) {
+				long segStart = ((long) i) << SEGMENT_BITS;
+				long segSize = Math.min(size - segStart, 1L << SEGMENT_BITS);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, segStart, segSize);
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot open file '" + fileName + "'");
 			throw new RuntimeException(e);
 		}
 	}
@@ -556,6 +624,82 @@ public class FileIndexChrPos {
 		return Gpr.parseIntSafe(line.split("\\t")[1]) - POS_OFFSET;
 	}
 
+	/**
+	 * Read 'len' bytes starting at file position 'pos'
+	 * @return Number of bytes read (zero or negative if 'pos' is after the end of the file)
+	 */
+	int read(long pos, byte buff[], int off, int len) {
+		len = (int) Math.min(len, size - pos);
+		for (int read = 0; read < len;) {
+			ByteBuffer seg = segments[(int) ((pos + read) >>> SEGMENT_BITS)].duplicate(); // Duplicate: Do not change shared buffer's position
+			seg.position((int) ((pos + read) & SEGMENT_MASK));
+			int n = Math.min(len - read, seg.remaining());
+			seg.get(buff, off + read, n);
+			read += n;
+		}
+		return len;
+	}
+
+	/**
+	 * Are the bytes in file region [start, end) the same as 'bytes'?
+	 */
+	boolean sameBytes(byte bytes[], long start, long end) {
+		if (bytes.length != end - start) return false;
+		for (int i = 0; i < bytes.length; i++)
+			if (bytes[i] != get(start + i)) return false;
+		return true;
+	}
+
+	/**
+	 * Save index to sidecar file.
+	 * Note: Failing to save the index is not an error (e.g. read only directory), it is only re-created next time
+	 */
+	public void saveIndex() {
+		String indexFileName = indexFileName();
+		File file = new File(indexFileName).getAbsoluteFile();
+
+		// Write to a unique temporary file in the same directory (several processes may index the same file)
+		File fileTmp;
+		try {
+			fileTmp = File.createTempFile(file.getName() + ".", TMP_EXT, file.getParentFile());
+		} catch (IOException e) {
+			if (verbose) System.err.println("\tCannot save index file '" + indexFileName + "': " + e.getMessage());
+			return;
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileTmp)))) {
+			out.write(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(size);
+			out.writeLong(new File(fileName).lastModified());
+			out.writeInt(sampleEvery);
+
+			out.writeInt(fileRegions.size());
+			for (String chr : fileRegions.keySet()) {
+				FileRegion fr = fileRegions.get(chr);
+				out.writeUTF(chr);
+				out.writeLong(fr.start);
+				out.writeLong(fr.end);
+
+				out.writeInt(fr.samplePos.size());
+				for (int i = 0; i < fr.samplePos.size(); i++)
+					out.writeInt(fr.samplePos.get(i));
+				for (int i = 0; i < fr.sampleOffset.size(); i++)
+					out.writeLong(fr.sampleOffset.get(i));
+			}
+		} catch (IOException e) {
+			if (verbose) System.err.println("\tCannot save index file '" + indexFileName + "': " + e.getMessage());
+			fileTmp.delete();
+			return;
+		}
+
+		file.delete();
+		if (!fileTmp.renameTo(file)) {
+			if (verbose) System.err.println("\tCannot rename file '" + fileTmp + "' to '" + indexFileName + "'");
+			fileTmp.delete();
+		}
+	}
+
 	String s(String s) {
 		if (s == null) return "null";
 		return s.length() <= 50 ? s : s.substring(0, 50) + "...";
@@ -565,6 +709,13 @@ public class FileIndexChrPos {
 		this.debug = debug;
 	}
 
+	/**
+	 * Sample one line every 'sampleEvery' lines (must be set before creating the index)
+	 */
+	public void setSampleEvery(int sampleEvery) {
+		this.sampleEvery = sampleEvery;
+	}
+
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
@@ -589,4 +740,15 @@ public class FileIndexChrPos {
 
 		return sb.toString();
 	}
+
+	/**
+	 * Update first and last line for each chromosome
+	 */
+	void updateLines() {
+		for (FileRegion fr : fileRegions.values()) {
+			fr.lineStart = getLine(fr.start).line;
+			fr.lineEnd = getLine(fr.end).line;
+		}
+	}
+
 }
@@ -151,8 +151,15 @@ public class VcfEffect {
 	 * Add subfield to a buffer
 	 */
 	void add(StringBuilder sb, Object obj) {
-		if (obj != null) sb.append(VcfEntry.vcfInfoEncode(obj.toString()));
-		sb.append("|");
+		if (obj != null) VcfEntry.vcfInfoEncode(sb, obj.toString());
+		sb.append('|');
+	}
+
+	/**
+	 * Add a 'number/total' subfield to a buffer
+	 */
+	void add(StringBuilder sb, int num, int total) {
+		sb.append(num).append('/').append(total).append('|');
 	}
 
 	public void addEffectType(EffectType effectType) {
@@ -165,7 +172,14 @@ public class VcfEffect {
 	 */
 	String createAnnField() {
 		StringBuilder effBuff = new StringBuilder();
+		createAnnField(effBuff);
+		return effBuff.toString();
+	}
 
+	/**
+	 * Create 'ANN' field, append it to 'effBuff'
+	 */
+	void createAnnField(StringBuilder effBuff) {
 		// Allele
 		add(effBuff, genotype);
 
@@ -191,7 +205,7 @@ public class VcfEffect {
 		add(effBuff, bioType);
 
 		// Add exon (or intron) rank info
-		if (rank >= 0) add(effBuff, rank + "/" + rankMax);
+		if (rank >= 0) add(effBuff, rank, rankMax);
 		else effBuff.append("|");
 
 		// HGVS
@@ -200,28 +214,25 @@ public class VcfEffect {
 
 		// cDNA position / length
 		if (cDnaPos >= 0) {
-			add(effBuff, cDnaPos + "/" + cDnaLen);
+			add(effBuff, cDnaPos, cDnaLen);
 		} else effBuff.append("|");
 
 		// CDS position / length
 		if (cdsPos >= 0) {
-			add(effBuff, cdsPos + "/" + cdsLen);
+			add(effBuff, cdsPos, cdsLen);
 		} else effBuff.append("|");
 
 		// Protein position / protein length
 		if (aaPos >= 0) {
-			add(effBuff, aaPos + "/" + aaLen);
+			add(effBuff, aaPos, aaLen);
 		} else effBuff.append("|");
 
 		// Distance: Mostly used for non-coding variants
-		if (distance >= 0) add(effBuff, distance);
+		if (distance >= 0) effBuff.append(distance).append('|');
 		else effBuff.append("|");
 
 		// Errors or warnings (this is the last thing in the list)
 		effBuff.append(errorsWarnings);
-
-		return effBuff.toString();
-
 	}
 
 	/**
@@ -229,7 +240,14 @@ public class VcfEffect {
 	 */
 	String createEffField() {
 		StringBuilder effBuff = new StringBuilder();
+		createEffField(effBuff);
+		return effBuff.toString();
+	}
 
+	/**
+	 * Create 'EFF' field, append it to 'effBuff'
+	 */
+	void createEffField(StringBuilder effBuff) {
 		// Add effect
 		effBuff.append(effectTypesStr);
 		effBuff.append("(");
@@ -249,14 +267,12 @@ public class VcfEffect {
 
 		// Add HGVS (amino acid change)
 		if (useHgvs) {
-			StringBuilder hgvs = new StringBuilder();
-			if (hgvsP != null) hgvs.append(VcfEntry.vcfInfoEncode(hgvsP));
+			int hgvsStart = effBuff.length();
+			if (hgvsP != null) VcfEntry.vcfInfoEncode(effBuff, hgvsP);
 			if (hgvsC != null) {
-				if (hgvs.length() > 0) hgvs.append('/');
-				hgvs.append(VcfEntry.vcfInfoEncode(hgvsC));
+				if (effBuff.length() > hgvsStart) effBuff.append('/');
+				VcfEntry.vcfInfoEncode(effBuff, hgvsC);
 			}
-
-			effBuff.append(hgvs.toString());
 		} else effBuff.append(aa);
 		effBuff.append("|");
 
@@ -272,7 +288,7 @@ public class VcfEffect {
 			Transcript tr = variantEffect.getTranscript();
 			if (gene != null) {
 				// Gene name
-				effBuff.append(VcfEntry.vcfInfoValueSafe(useGeneId ? geneId : geneName));
+				VcfEntry.vcfInfoValueSafe(effBuff, useGeneId ? geneId : geneName);
 				effBuff.append("|");
 
 				// Transcript biotype
@@ -297,7 +313,7 @@ public class VcfEffect {
 			} else effBuff.append("|||");
 		} else {
 			// No variantEffect? Use parsed information
-			effBuff.append(VcfEntry.vcfInfoValueSafe(useGeneId ? geneId : geneName));
+			VcfEntry.vcfInfoValueSafe(effBuff, useGeneId ? geneId : geneName);
 			effBuff.append("|");
 			effBuff.append(bioType);
 			effBuff.append("|");
@@ -306,7 +322,7 @@ public class VcfEffect {
 		}
 
 		// Add transcript info
-		effBuff.append(VcfEntry.vcfInfoValueSafe(transcriptId));
+		VcfEntry.vcfInfoValueSafe(effBuff, transcriptId);
 		effBuff.append("|");
 
 		// Add exon (or intron) rank info
@@ -326,8 +342,6 @@ public class VcfEffect {
 			effBuff.append(errorsWarnings);
 		}
 		effBuff.append(")");
-
-		return effBuff.toString();
 	}
 
 	/**
@@ -338,6 +352,14 @@ public class VcfEffect {
 		return createEffField();
 	}
 
+	/**
+	 * Create INFO field (see createInfoField()), append it to 'sb'
+	 */
+	public void createInfoField(StringBuilder sb) {
+		if (formatVersion == null || formatVersion.isAnn()) createAnnField(sb);
+		else createEffField(sb);
+	}
+
 	/**
 	 * Guess effect format version
 	 */
@@ -1058,7 +1080,7 @@ public class VcfEffect {
 		if (tr != null) {
 			cDnaPos = variantEffect.getcDnaPos();
 			if (cDnaPos >= 0 && formatVersion.isAnn()) cDnaPos++; // 1-based position;
-			cDnaLen = tr.mRna().length();
+			cDnaLen = tr.mRnaLength();
 		} else {
 			cDnaPos = cDnaLen = -1;
 		}
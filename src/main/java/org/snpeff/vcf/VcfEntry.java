@@ -38,6 +38,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	public static final String SUB_FIELD_SEP = ";";
 
 	public static final String[] EMPTY_STRING_ARRAY = new String[0];
+	public static final int MAX_PARSE_FIELDS = 10; // Only tokenize the first 9 fields (i.e. do not split genotypes)
 
 	public static final double ALLELE_FEQUENCY_COMMON = 0.05;
 	public static final double ALLELE_FEQUENCY_LOW = 0.01;
@@ -91,6 +92,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	protected String formatFields[];
 	protected String genotypeFields[]; // Raw fields from VCF file
 	protected String genotypeFieldsStr; // Raw fields from VCF file (one string, tab separated)
+	protected int genotypeFieldsStart = -1; // Offset of genotype fields in 'line' (genotypeFieldsStr is only created if needed)
 	protected byte genotypeScores[];
 	protected HashMap<String, String> info;
 	protected String infoStr = "";
@@ -176,6 +178,52 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		return str.replaceAll(" ", "_"); // Transform spaces, if any
 	}
 
+	/**
+	 * Encode a string to be used in an 'INFO' field value (see vcfInfoEncode(String)), append it to 'sb'
+	 */
+	public static void vcfInfoEncode(StringBuilder sb, String str) {
+		if (str == null) {
+			sb.append(str);
+			return;
+		}
+
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+			case ';':
+				sb.append("%3B");
+				break;
+
+			case '=':
+				sb.append("%3D");
+				break;
+
+			case ',':
+				sb.append("%2C");
+				break;
+
+			case '\n':
+				sb.append("%0D");
+				break;
+
+			case '\r':
+				sb.append("%0A");
+				break;
+
+			case '\t':
+				sb.append("%09");
+				break;
+
+			case ' ':
+				sb.append('_');
+				break;
+
+			default:
+				sb.append(c);
+			}
+		}
+	}
+
 	/**
 	 * Return a string safe to be used in an 'INFO' field key
 	 */
@@ -195,6 +243,35 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		return str.replaceAll("[ ,;|=()\t]", "_");
 	}
 
+	/**
+	 * Append a string safe to be used in an 'INFO' field value (see vcfInfoValueSafe(String))
+	 */
+	public static void vcfInfoValueSafe(StringBuilder sb, String str) {
+		if (str == null) {
+			sb.append(str);
+			return;
+		}
+
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+			case ' ':
+			case ',':
+			case ';':
+			case '|':
+			case '=':
+			case '(':
+			case ')':
+			case '\t':
+				sb.append('_');
+				break;
+
+			default:
+				sb.append(c);
+			}
+		}
+	}
+
 	public VcfEntry(VcfFileIterator vcfFileIterator, Marker parent, String chromosomeName, int start, String id, String ref, String altsStr, double quality, String filterPass, String infoStr, String format) {
 		super(parent, start, start + ref.length() - 1, false, id);
 		this.chromosomeName = chromosomeName;
@@ -287,6 +364,34 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 
 	}
 
+	/**
+	 * Add a "key=value" tuple the info field
+	 *
+	 * Note: No checks are performed, 'value' must be a valid (i.e.
+	 * encoded) INFO value. This is used to add fields created by
+	 * SnpEff (e.g. 'ANN'), which are already encoded
+	 *
+	 * @param key : INFO key name
+	 * @param value : INFO value (not null)
+	 */
+	public void addInfoEncoded(String key, CharSequence value) {
+		// Remove previous 'key' for INFO field?
+		removeInfo(key);
+
+		// Append value to infoStr
+		boolean addSep = (infoStr != null) && !infoStr.isEmpty() && !infoStr.endsWith(SUB_FIELD_SEP);
+		StringBuilder sb = new StringBuilder((infoStr != null ? infoStr.length() : 0) + key.length() + value.length() + 2);
+		if (infoStr != null) sb.append(infoStr);
+		if (addSep) sb.append(SUB_FIELD_SEP);
+		sb.append(key).append('=');
+		int valueStart = sb.length();
+		sb.append(value);
+		infoStr = sb.toString();
+
+		// Add to info hash (if available)
+		if (info != null) info.put(key, infoStr.substring(valueStart));
+	}
+
 	/**
 	 * Categorization by allele frequency
 	 */
@@ -305,7 +410,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 */
 	public Boolean calcHetero() {
 		// No genotyping information? => Use number of ALT field
-		if (genotypeFieldsStr == null) return isMultiallelic();
+		if (!hasGenotypeFieldsStr()) return isMultiallelic();
 
 		Boolean isHetero = null;
 
@@ -313,9 +418,10 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		if (genotypeFields == null) {
 
 			// Are there more than two tabs? (i.e. more than one format field + one genotype field)
+			String gtStr = getGenotypeFieldsStr();
 			int countFields, fromIndex;
 			for (countFields = 0, fromIndex = 0; (fromIndex >= 0) && (countFields < 1); countFields++, fromIndex++)
-				fromIndex = genotypeFieldsStr.indexOf('\t', fromIndex);
+				fromIndex = gtStr.indexOf('\t', fromIndex);
 
 			// OK only one genotype field => Parse it in order to extract homo info.
 			if (countFields == 1) parseGenotypes();
@@ -522,6 +628,16 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		return formatFields;
 	}
 
+	/**
+	 * Raw genotype fields (one string, tab separated).
+	 * Note: The string is only created when needed, most of the time
+	 * genotypes are written back unchanged from the original line
+	 */
+	public String getGenotypeFieldsStr() {
+		if (genotypeFieldsStr == null && genotypeFieldsStart >= 0) genotypeFieldsStr = line.substring(genotypeFieldsStart);
+		return genotypeFieldsStr;
+	}
+
 	/**
 	 * Return genotypes parsed as an array of codes
 	 */
@@ -756,7 +872,14 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	}
 
 	public boolean hasGenotypes() {
-		return ((vcfGenotypes != null) && (vcfGenotypes.size() > 0)) || (genotypeFieldsStr != null);
+		return ((vcfGenotypes != null) && (vcfGenotypes.size() > 0)) || hasGenotypeFieldsStr();
+	}
+
+	/**
+	 * Do we have raw genotype fields?
+	 */
+	boolean hasGenotypeFieldsStr() {
+		return (genotypeFieldsStr != null) || (genotypeFieldsStart >= 0);
 	}
 
 	public boolean hasInfo(String infoFieldName) {
@@ -918,13 +1041,19 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * Parse a 'line' from a 'vcfFileIterator'
 	 */
 	public void parse() {
-		// Parse line
-		String fields[] = line.split("\t", 10); // Only pare the fist 9 fields (i.e. do not parse genotypes)
+		// Find field boundaries. Only the first 9 fields are tokenized (i.e. do not parse genotypes)
+		// Note: Fields are not split into an array of strings, we only create the strings we need
+		int fieldStarts[] = new int[MAX_PARSE_FIELDS + 1];
+		int numFields = 0;
+		fieldStarts[numFields++] = 0;
+		for (int idx = line.indexOf('\t'); (idx >= 0) && (numFields < MAX_PARSE_FIELDS); idx = line.indexOf('\t', idx + 1))
+			fieldStarts[numFields++] = idx + 1;
+		fieldStarts[numFields] = line.length() + 1; // Sentinel: End of last field
 
 		// Is line OK?
-		if (fields.length >= 4) {
+		if (numFields >= 4) {
 			// Chromosome and position. VCF files are one-base, so inOffset should be 1.
-			chromosomeName = fields[0].trim();
+			chromosomeName = line.substring(0, fieldStarts[1] - 1).trim();
 
 			// Chromosome
 			Chromosome chromo = vcfFileIterator.getChromosome(chromosomeName);
@@ -932,29 +1061,29 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 			vcfFileIterator.sanityCheckChromo(chromosomeName, chromo); // Sanity check
 
 			// Start
-			start = vcfFileIterator.parsePosition(vcfFileIterator.readField(fields, 1));
+			start = vcfFileIterator.parsePosition(readField(fieldStarts, numFields, 1));
 
 			// ID (e.g. might indicate dbSnp)
-			id = vcfFileIterator.readField(fields, 2);
+			id = readField(fieldStarts, numFields, 2);
 
 			// REF
-			ref = vcfFileIterator.readField(fields, 3).toUpperCase(); // Reference and change
+			ref = readField(fieldStarts, numFields, 3).toUpperCase(); // Reference and change
 			strandMinus = false; // Strand is always positive (defined in VCF spec.)
 
 			// ALT
-			altStr = vcfFileIterator.readField(fields, 4).toUpperCase();
+			altStr = readField(fieldStarts, numFields, 4).toUpperCase();
 			parseAlts(altStr);
 
 			// Quality
-			String qStr = vcfFileIterator.readField(fields, 5);
+			String qStr = readField(fieldStarts, numFields, 5);
 			if (!qStr.isEmpty()) quality = Gpr.parseDoubleSafe(qStr);
 			else quality = null;
 
 			// Filter
-			filter = vcfFileIterator.readField(fields, 6); // Filter parameters
+			filter = readField(fieldStarts, numFields, 6); // Filter parameters
 
 			// INFO fields
-			infoStr = vcfFileIterator.readField(fields, 7);
+			infoStr = readField(fieldStarts, numFields, 7);
 			info = null;
 
 			// Start & End coordinates are anchored to the reference genome, thus based on REF field (ALT is not taken into account)
@@ -962,10 +1091,13 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 
 			// Genotype format
 			format = null;
-			if (fields.length > 8) format = vcfFileIterator.readField(fields, 8); // This field is optional, So it can be null or EMPTY ('.')
+			if (numFields > 8) format = readField(fieldStarts, numFields, 8); // This field is optional, So it can be null or EMPTY ('.')
 
 			// Add genotype fields (lazy parse)
-			if (fields.length > 9) genotypeFieldsStr = fields[9];
+			if (numFields > 9) {
+				genotypeFieldsStr = null;
+				genotypeFieldsStart = fieldStarts[9];
+			}
 		} else throw new RuntimeException("Impropper VCF entry: Not enough fields (missing tab separators?).\n" + line);
 	}
 
@@ -982,9 +1114,10 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 			List<String> altsList = new ArrayList<>();
 
 			// Parse each one
-			String altsSplit[] = altsStr.split(",");
-			for (String altSingle : altsSplit) {
-				String altsTmp[] = parseAltSingle(altSingle);
+			for (int start = 0, end; start <= altsStr.length(); start = end + 1) {
+				end = altsStr.indexOf(',', start);
+				if (end < 0) end = altsStr.length();
+				String altsTmp[] = parseAltSingle(altsStr.substring(start, end));
 
 				// Append all to list
 				if (altsTmp != null) {
@@ -1104,10 +1237,10 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 			vcfGenotypes = new ArrayList<>();
 
 			// No genotype string? => Nothing to do
-			if (genotypeFieldsStr == null) return;
+			if (!hasGenotypeFieldsStr()) return;
 
 			// Split genotypes and parse them
-			genotypeFields = genotypeFieldsStr.split("\t");
+			genotypeFields = getGenotypeFieldsStr().split("\t");
 			for (int i = 0; i < genotypeFields.length; i++) {
 				String gen = genotypeFields[i];
 				if (gen.equals(VcfFileIterator.MISSING)) gen = "";
@@ -1182,6 +1315,19 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 
 	}
 
+	/**
+	 * Read a field from 'line' using field offsets (see 'parse()')
+	 * Missing fields or missing values ('.') are returned as empty strings
+	 */
+	String readField(int fieldStarts[], int numFields, int fieldNum) {
+		if (fieldNum >= numFields) return "";
+
+		int start = fieldStarts[fieldNum];
+		int end = fieldStarts[fieldNum + 1] - 1;
+		if ((end - start == 1) && (line.charAt(start) == '.')) return ""; // Missing value
+		return line.substring(start, end);
+	}
+
 	/**
 	 * Remove INFO field
 	 */
@@ -1251,6 +1397,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 
 	public void setGenotypeStr(String genotypeFieldsStr) {
 		this.genotypeFieldsStr = genotypeFieldsStr;
+		genotypeFieldsStart = -1;
 	}
 
 	public void setLineNum(int lineNum) {
@@ -1271,9 +1418,19 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 
 	@Override
 	public String toString() {
+		int gtLen = (genotypeFieldsStr == null && genotypeFieldsStart >= 0 ? line.length() - genotypeFieldsStart : 0);
+		StringBuilder sb = new StringBuilder((infoStr != null ? infoStr.length() : 0) + gtLen + 256);
+		toString(sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Append VCF line to 'sb'
+	 */
+	public void toString(StringBuilder sb) {
 		boolean deleteLastTab = true;
 
-		StringBuilder sb = new StringBuilder(toStringNoGt());
+		toStringNoGt(sb);
 		sb.append("\t");
 
 		// Is there any 'format' field? It is optional, so it could be 'null'
@@ -1287,18 +1444,28 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 			} else if (genotypeFieldsStr != null) { // If vcfGenotypes have not been parsed, use raw fields
 				sb.append(genotypeFieldsStr);
 				deleteLastTab = false;
+			} else if (genotypeFieldsStart >= 0) { // Raw fields, copied directly from the original line
+				sb.append(line, genotypeFieldsStart, line.length());
+				deleteLastTab = false;
 			}
 		}
 
 		if (deleteLastTab) sb.deleteCharAt(sb.length() - 1); // Delete last tab
-
-		return sb.toString();
 	}
 
 	/**
 	 * Show only first eight fields (no genotype entries)
 	 */
 	public String toStringNoGt() {
+		StringBuilder sb = new StringBuilder();
+		toStringNoGt(sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Append first eight fields (no genotype entries) to 'sb'
+	 */
+	void toStringNoGt(StringBuilder sb) {
 		// Use original chromosome name or named from chromosome object
 		String chr = null;
 		if (chromosomeName != null) chr = chromosomeName;
@@ -1306,22 +1473,20 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		else if (parent != null) chr = getChromosomeName();
 		else chr = ".";
 
-		StringBuilder sb = new StringBuilder(chr //
-				+ "\t" + (start + 1) //
-				+ "\t" + (id.isEmpty() ? "." : id) //
-		);
+		sb.append(chr);
+		sb.append('\t').append(start + 1);
+		sb.append('\t').append(id.isEmpty() ? "." : id);
 
 		// REF and ALT
-		String refStr = (ref == null || ref.isEmpty() ? "." : ref);
-		sb.append("\t" + refStr);
-		sb.append("\t" + getAltsStr());
+		sb.append('\t').append(ref == null || ref.isEmpty() ? "." : ref);
+		sb.append('\t').append(getAltsStr());
 
 		// Quality, filter, info, format...
-		sb.append("\t" + (quality != null ? quality + "" : "."));
-		sb.append("\t" + ((filter == null) || filter.isEmpty() ? "." : filter));
-		sb.append("\t" + ((infoStr == null) || infoStr.isEmpty() ? "." : infoStr));
-
-		return sb.toString();
+		sb.append('\t');
+		if (quality != null) sb.append(quality.doubleValue());
+		else sb.append('.');
+		sb.append('\t').append((filter == null) || filter.isEmpty() ? "." : filter);
+		sb.append('\t').append((infoStr == null) || infoStr.isEmpty() ? "." : infoStr);
 	}
 
 	/**